@@ -0,0 +1,45 @@
+package com.dhruthi.usercrud;
+
+import com.dhruthi.usercrud.model.IdGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// Id generation under contention: UUID.randomUUID, whose SecureRandom all threads share, against the
+// time-ordered generator with its per-thread entropy. Run for 1 to 32 threads with
+//   gradle jmh -PjmhThreads=1,2,4,8,16,32 -PjmhArgs=IdGeneratorBenchmark
+// Throughput is per thread count in total, so a generator that scales keeps rising with threads.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IdGeneratorBenchmark {
+
+    @Param({"random", "timeOrdered"})
+    String generator;
+
+    IdGenerator ids;
+
+    @Setup
+    public void setUp() {
+        ids = generator.equals("random") ? IdGenerator.random() : IdGenerator.timeOrdered();
+    }
+
+    @Benchmark
+    public UUID next() {
+        return ids.next();
+    }
+}
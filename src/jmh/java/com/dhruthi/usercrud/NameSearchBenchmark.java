@@ -0,0 +1,89 @@
+package com.dhruthi.usercrud;
+
+import com.dhruthi.usercrud.model.User;
+import com.dhruthi.usercrud.store.CompactUserStore;
+import com.dhruthi.usercrud.store.InMemoryUserStore;
+import com.dhruthi.usercrud.store.UserStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// Type-ahead search for the first 10 users by a 3 letter name prefix, at growing store sizes. The
+// in-memory store walks its name index, so its time should stay flat as the store grows; the compact
+// store has no index and falls back to scanning every user.
+//   gradle jmh -PjmhArgs='NameSearchBenchmark -p users=10000,100000,1000000'
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class NameSearchBenchmark {
+
+    private static final String[] SYLLABLES = {
+        "an", "be", "ca", "da", "el", "fi", "ga", "ha", "is", "jo", "ka", "li", "ma", "no", "ol", "pa",
+        "ra", "sa", "ta", "ur", "va", "wi", "ya", "zo"};
+
+    @Param({"memory", "compact"})
+    String store;
+
+    @Param({"10000", "1000000"})
+    int users;
+
+    UserStore userStore;
+    String[] prefixes;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        userStore = store.equals("memory") ? new InMemoryUserStore() : new CompactUserStore();
+        SplittableRandom random = new SplittableRandom(42);
+        prefixes = new String[1024];
+        for (int i = 0; i < users; i++) {
+            String name = name(random);
+            userStore.create(new User(name, "user" + i + "@example.com"));
+            if (i < prefixes.length) {
+                prefixes[i] = name.substring(0, 3);
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Benchmark
+    public List<User> findByNamePrefix(Cursor cursor) {
+        return userStore.findByNamePrefix(prefixes[cursor.next++ & (prefixes.length - 1)], 10);
+    }
+
+    // A capitalized first name of 2 to 4 syllables and a last name of 3
+    private static String name(SplittableRandom random) {
+        StringBuilder name = new StringBuilder();
+        int first = 2 + random.nextInt(3);
+        for (int i = 0; i < first; i++) {
+            name.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+        }
+        name.setCharAt(0, Character.toUpperCase(name.charAt(0)));
+        name.append(' ');
+        int start = name.length();
+        for (int i = 0; i < 3; i++) {
+            name.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+        }
+        name.setCharAt(start, Character.toUpperCase(name.charAt(start)));
+        return name.toString();
+    }
+}
@@ -0,0 +1,95 @@
+package com.dhruthi.usercrud;
+
+import com.dhruthi.usercrud.model.User;
+import com.dhruthi.usercrud.model.UserInput;
+import com.dhruthi.usercrud.model.UserJson;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// The per-request parsing and encoding helpers of UserVerticle, without any HTTP around them.
+// Add -PjmhArgs='RequestHandlingBenchmark -prof gc' for the bytes each one allocates.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RequestHandlingBenchmark {
+
+    String validId = UUID.randomUUID().toString();
+    String invalidId = "not-a-uuid";
+    String validEmail = "dhruthism@example.com";
+    String invalidEmail = "dhruthism.example.com";
+    User user = new User(UUID.randomUUID(), "Dhruthi SM", "dhruthism@example.com", 3);
+    byte[] createBody = "{\"name\":\"Dhruthi SM\",\"email\":\"dhruthism@example.com\"}".getBytes(StandardCharsets.UTF_8);
+    byte[] updateEmailBody = "{\"email\":\"dhruthi.new@example.com\"}".getBytes(StandardCharsets.UTF_8);
+
+    @Benchmark
+    public UUID parseValidUUID() {
+        return UserVerticle.parseUUID(validId);
+    }
+
+    // The exception thrown and caught inside parseUUID makes this the expensive case
+    @Benchmark
+    public UUID parseInvalidUUID() {
+        return UserVerticle.parseUUID(invalidId);
+    }
+
+    @Benchmark
+    public boolean validEmail() {
+        return UserVerticle.isValidEmail(validEmail);
+    }
+
+    @Benchmark
+    public boolean invalidEmail() {
+        return UserVerticle.isValidEmail(invalidEmail);
+    }
+
+    @Benchmark
+    public String toJson() {
+        return UserVerticle.toJson(user).encode();
+    }
+
+    // The pre-encoded form GET /users/:id serves, for comparison with toJson
+    @Benchmark
+    public byte[] userJson() {
+        return UserJson.encode(user);
+    }
+
+    // The POST /users body decoded into a JsonObject, as createUser did before UserInput
+    @Benchmark
+    public String createBodyAsJsonObject() {
+        JsonObject body = new JsonObject(Buffer.buffer(createBody));
+        return body.getString("name") + body.getString("email");
+    }
+
+    @Benchmark
+    public String createBodyAsUserInput() {
+        UserInput body = UserInput.parse(createBody);
+        return body.name() + body.email();
+    }
+
+    // The PUT /users/:id/email body decoded into a JsonObject, as updateUserEmail did before UserInput
+    @Benchmark
+    public String updateEmailBodyAsJsonObject() {
+        return new JsonObject(Buffer.buffer(updateEmailBody)).getString("email");
+    }
+
+    @Benchmark
+    public String updateEmailBodyAsUserInput() {
+        return UserInput.parse(updateEmailBody).email();
+    }
+}
@@ -0,0 +1,122 @@
+package com.dhruthi.usercrud;
+
+import com.dhruthi.usercrud.model.User;
+import com.dhruthi.usercrud.store.AsyncUserStore;
+import com.dhruthi.usercrud.store.InMemoryUserStore;
+import com.dhruthi.usercrud.store.InlineAsyncUserStore;
+import com.dhruthi.usercrud.store.ShardedUserStore;
+import com.dhruthi.usercrud.store.UserStore;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// InMemoryUserStore, called inline, against ShardedUserStore with one partition per benchmark thread,
+// so each thread count stands for that many cores: gradle jmh -PjmhThreads=1,4,16
+// -PjmhArgs='ShardedUserStoreBenchmark'. Every thread keeps BATCH operations in flight and waits for all
+// of them, the way an event loop has many requests outstanding at once.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ShardedUserStoreBenchmark {
+
+    static final int BATCH = 64;
+
+    @State(Scope.Benchmark)
+    public static class StoreState {
+
+        @Param({"memory", "sharded"})
+        String store;
+
+        @Param({"100000"})
+        int users;
+
+        // Share of operations that are reads; the rest rename an existing user
+        @Param({"95", "50"})
+        int readPercent;
+
+        AsyncUserStore userStore;
+        UUID[] ids;
+        Vertx vertx;
+
+        @Setup(Level.Trial)
+        public void setUp(BenchmarkParams params) {
+            int partitions = params.getThreads();
+            if (store.equals("sharded")) {
+                vertx = Vertx.vertx(new VertxOptions().setEventLoopPoolSize(partitions));
+                userStore = await(ShardedUserStore.create(vertx, partitions));
+            } else {
+                userStore = new InlineAsyncUserStore(new InMemoryUserStore());
+            }
+            ids = new UUID[users];
+            for (int i = 0; i < users; i += BATCH) {
+                List<User> batch = new ArrayList<>(BATCH);
+                for (int j = i; j < Math.min(users, i + BATCH); j++) {
+                    batch.add(new User(UUID.randomUUID(), "User " + j, "user" + j + "@example.com"));
+                }
+                List<User> created = await(userStore.createAll(batch));
+                for (int j = 0; j < created.size(); j++) {
+                    ids[i + j] = created.get(j).id();
+                }
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            if (vertx != null) {
+                await(vertx.close());
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+
+        final SplittableRandom random = new SplittableRandom();
+        final List<Future<?>> inFlight = new ArrayList<>(BATCH);
+        int sequence;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public Object mixed(StoreState state, ThreadState local) {
+        local.inFlight.clear();
+        for (int i = 0; i < BATCH; i++) {
+            UUID id = state.ids[local.random.nextInt(state.ids.length)];
+            if (local.random.nextInt(100) < state.readPercent) {
+                local.inFlight.add(state.userStore.findById(id));
+            } else {
+                String name = "Renamed " + local.sequence++;
+                local.inFlight.add(state.userStore.update(id, UserStore.ANY_VERSION,
+                    existing -> new User(id, name, existing.email())));
+            }
+        }
+        return await(Future.all(local.inFlight));
+    }
+
+    private static <T> T await(Future<T> future) {
+        return future.toCompletionStage().toCompletableFuture().join();
+    }
+}
@@ -0,0 +1,125 @@
+package com.dhruthi.usercrud;
+
+import com.dhruthi.usercrud.model.User;
+import com.dhruthi.usercrud.model.UserNotFoundException;
+import com.dhruthi.usercrud.store.CompactUserStore;
+import com.dhruthi.usercrud.store.InMemoryUserStore;
+import com.dhruthi.usercrud.store.UserStore;
+import com.dhruthi.usercrud.store.journal.JournalUserStore;
+import com.dhruthi.usercrud.store.journal.SyncPolicy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+// Store operations against a prefilled store, for every UserStore implementation. The thread count
+// is set per run (gradle jmh -PjmhThreads=1,4,8); all threads share one store.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserStoreBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class StoreState {
+
+        // "journal" journals to a temporary directory without fsync, to show the cost of the log itself
+        @Param({"memory", "compact", "journal"})
+        String store;
+
+        @Param({"100000"})
+        int users;
+
+        UserStore userStore;
+        UUID[] ids;
+        Path journalDir;
+        final AtomicInteger threadCount = new AtomicInteger();
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            userStore = switch (store) {
+                case "memory" -> new InMemoryUserStore();
+                case "compact" -> new CompactUserStore();
+                case "journal" -> JournalUserStore.open(journalDir = Files.createTempDirectory("jmh-journal"),
+                    SyncPolicy.NONE);
+                default -> throw new IllegalArgumentException("Unknown store " + store);
+            };
+            ids = new UUID[users];
+            for (int i = 0; i < users; i++) {
+                ids[i] = userStore.create(new User(UUID.randomUUID(), "User " + i, "user" + i + "@example.com")).id();
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            if (userStore instanceof Closeable closeable) {
+                closeable.close();
+            }
+            if (journalDir != null) {
+                try (Stream<Path> files = Files.walk(journalDir)) {
+                    files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+                }
+            }
+        }
+    }
+
+    // Share of mixed() operations that are reads; the rest rename an existing user
+    @State(Scope.Benchmark)
+    public static class Mix {
+
+        @Param({"100", "95", "50", "0"})
+        int readPercent;
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+
+        final SplittableRandom random = new SplittableRandom();
+        int thread;
+        int sequence;
+
+        @Setup(Level.Trial)
+        public void setUp(StoreState state) {
+            thread = state.threadCount.getAndIncrement();
+        }
+    }
+
+    @Benchmark
+    public Object mixed(StoreState state, Mix mix, ThreadState local) throws UserNotFoundException {
+        UUID id = state.ids[local.random.nextInt(state.ids.length)];
+        if (local.random.nextInt(100) < mix.readPercent) {
+            return state.userStore.findById(id);
+        }
+        return state.userStore.update(id, UserStore.ANY_VERSION,
+            existing -> new User(id, "Renamed " + local.sequence++, existing.email()));
+    }
+
+    // A create followed by a delete of the new user, which keeps the store at a constant size
+    @Benchmark
+    public void createAndDelete(StoreState state, ThreadState local) throws UserNotFoundException {
+        String email = "churn-" + local.thread + "-" + local.sequence++ + "@example.com";
+        User created = state.userStore.create(new User(UUID.randomUUID(), "Churn", email));
+        state.userStore.delete(created.id());
+    }
+}
@@ -0,0 +1,29 @@
+package com.dhruthi.usercrud;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+// Picks which of the n user slots a request targets
+interface KeyDistribution {
+
+    int next(SplittableRandom random);
+
+    static KeyDistribution uniform(int n) {
+        return random -> random.nextInt(n);
+    }
+
+    // Slot k is chosen with probability proportional to 1 / (k + 1)^exponent, so a few slots are hot
+    static KeyDistribution zipf(int n, double exponent) {
+        double[] cumulative = new double[n];
+        double total = 0;
+        for (int k = 0; k < n; k++) {
+            total += 1 / Math.pow(k + 1, exponent);
+            cumulative[k] = total;
+        }
+        double sum = total;
+        return random -> {
+            int index = Arrays.binarySearch(cumulative, random.nextDouble() * sum);
+            return Math.min(n - 1, index >= 0 ? index : -index - 1);
+        };
+    }
+}
@@ -0,0 +1,118 @@
+package com.dhruthi.usercrud;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+// Settings of a load run, parsed from --name=value arguments. See README "Load testing" for the list.
+record LoadConfig(
+    String host,
+    int port,
+    boolean inProcess,
+    int instances,
+    String store,
+    boolean openLoop,
+    double rate,
+    int concurrency,
+    Duration warmup,
+    Duration duration,
+    int users,
+    Map<LoadConfig.Operation, Integer> mix,
+    double zipfExponent,
+    long seed) {
+
+    enum Operation {
+        GET, CREATE, UPDATE_EMAIL, DELETE
+    }
+
+    static LoadConfig parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value but got " + arg);
+            }
+            int equals = arg.indexOf('=');
+            options.put(arg.substring(2, equals), arg.substring(equals + 1));
+        }
+
+        String target = options.remove("target");
+        String mode = options.getOrDefault("mode", "open");
+        options.remove("mode");
+        if (!mode.equals("open") && !mode.equals("closed")) {
+            throw new IllegalArgumentException("--mode must be open or closed");
+        }
+        double rate = Double.parseDouble(take(options, "rate", mode.equals("open") ? "1000" : "0"));
+        if (mode.equals("open") && rate <= 0) {
+            throw new IllegalArgumentException("An open-loop run needs a --rate above 0");
+        }
+        String keys = take(options, "keys", "uniform");
+        double zipfExponent = keys.equals("uniform") ? 0 : parseZipf(keys);
+
+        LoadConfig config = new LoadConfig(
+            target == null ? "localhost" : target.substring(0, target.lastIndexOf(':')),
+            target == null ? 8080 : Integer.parseInt(target.substring(target.lastIndexOf(':') + 1)),
+            target == null,
+            Integer.parseInt(take(options, "instances", String.valueOf(Runtime.getRuntime().availableProcessors()))),
+            take(options, "store", "memory"),
+            mode.equals("open"),
+            rate,
+            Integer.parseInt(take(options, "concurrency", "64")),
+            parseDuration(take(options, "warmup", "5s")),
+            parseDuration(take(options, "duration", "30s")),
+            Integer.parseInt(take(options, "users", "10000")),
+            parseMix(take(options, "mix", "get:90,create:4,update:4,delete:2")),
+            zipfExponent,
+            Long.parseLong(take(options, "seed", "42")));
+        if (!options.isEmpty()) {
+            throw new IllegalArgumentException("Unknown options " + options.keySet());
+        }
+        return config;
+    }
+
+    private static String take(Map<String, String> options, String name, String fallback) {
+        String value = options.remove(name);
+        return value == null ? fallback : value;
+    }
+
+    private static double parseZipf(String keys) {
+        if (keys.equals("zipf")) {
+            return 0.99;
+        }
+        if (keys.startsWith("zipf:")) {
+            return Double.parseDouble(keys.substring(5));
+        }
+        throw new IllegalArgumentException("--keys must be uniform, zipf or zipf:<exponent>");
+    }
+
+    // 500ms, 30s or 2m
+    static Duration parseDuration(String text) {
+        if (text.endsWith("ms")) {
+            return Duration.ofMillis(Long.parseLong(text.substring(0, text.length() - 2)));
+        }
+        if (text.endsWith("s")) {
+            return Duration.ofSeconds(Long.parseLong(text.substring(0, text.length() - 1)));
+        }
+        if (text.endsWith("m")) {
+            return Duration.ofMinutes(Long.parseLong(text.substring(0, text.length() - 1)));
+        }
+        throw new IllegalArgumentException("Durations look like 500ms, 30s or 2m, not " + text);
+    }
+
+    // Weights per operation, e.g. get:90,create:4,update:4,delete:2
+    static Map<Operation, Integer> parseMix(String text) {
+        Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+        for (String part : text.split(",")) {
+            String[] entry = part.trim().split(":");
+            Operation operation = switch (entry[0]) {
+                case "get" -> Operation.GET;
+                case "create" -> Operation.CREATE;
+                case "update" -> Operation.UPDATE_EMAIL;
+                case "delete" -> Operation.DELETE;
+                default -> throw new IllegalArgumentException("Unknown operation " + entry[0] + " in --mix");
+            };
+            mix.put(operation, Integer.parseInt(entry[1]));
+        }
+        return mix;
+    }
+}
@@ -0,0 +1,345 @@
+package com.dhruthi.usercrud;
+
+import com.dhruthi.usercrud.LoadConfig.Operation;
+import com.dhruthi.usercrud.metrics.LatencyHistogram;
+import com.dhruthi.usercrud.metrics.Metrics;
+import com.dhruthi.usercrud.store.AsyncUserStore;
+import com.dhruthi.usercrud.store.CompactUserStore;
+import com.dhruthi.usercrud.store.InMemoryUserStore;
+import com.dhruthi.usercrud.store.UserStore;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.PoolOptions;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.client.HttpResponse;
+import io.vertx.ext.web.client.WebClient;
+import io.vertx.ext.web.client.WebClientOptions;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// Load driver for the whole HTTP stack: gradle loadTest -PloadArgs='--rate=5000 --duration=30s'
+//
+// Unless --target points at a running service, it deploys UserVerticle in-process, prefills users and
+// then runs the configured mix of creates, gets, email updates and deletes.
+//
+// In open-loop mode requests are started on a fixed schedule, --rate per second, whether or not earlier
+// ones have completed. Closed-loop mode keeps --concurrency requests in flight, optionally paced to --rate.
+// Latency is measured from when a request was scheduled to start, not from when it was actually sent,
+// so time spent queued behind a stalled server is counted instead of silently omitted (coordinated
+// omission). The uncorrected service time is reported next to it for comparison.
+//
+// All driver work runs on one event loop of a Vert.x instance separate from the server's.
+public class LoadGenerator {
+
+    private static final long REQUEST_TIMEOUT_MILLIS = 10_000;
+    private static final int PREFILL_CONCURRENCY = 64;
+
+    private final Vertx vertx;
+    private final LoadConfig config;
+    private final WebClient client;
+    private final KeyDistribution keys;
+    private final SplittableRandom random;
+    private final Operation[] operations;
+    private final int[] cumulativeWeights;
+    // The id of the user each slot currently points at, null once it was deleted
+    private final String[] slots;
+    private long sequence;
+
+    private LoadGenerator(Vertx vertx, LoadConfig config) {
+        this.vertx = vertx;
+        this.config = config;
+        this.client = WebClient.create(vertx, new WebClientOptions().setKeepAlive(true),
+            new PoolOptions().setHttp1MaxSize(config.concurrency()));
+        this.keys = config.zipfExponent() > 0
+            ? KeyDistribution.zipf(config.users(), config.zipfExponent())
+            : KeyDistribution.uniform(config.users());
+        this.random = new SplittableRandom(config.seed());
+        this.operations = config.mix().keySet().toArray(new Operation[0]);
+        this.cumulativeWeights = new int[operations.length];
+        int total = 0;
+        for (int i = 0; i < operations.length; i++) {
+            total += config.mix().get(operations[i]);
+            cumulativeWeights[i] = total;
+        }
+        this.slots = new String[config.users()];
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadConfig config = LoadConfig.parse(args);
+        Vertx server = null;
+        if (config.inProcess() && config.store().equals("sharded")) {
+            server = Vertx.vertx(new VertxOptions().setEventLoopPoolSize(config.instances()));
+            AsyncUserStore store = await(Main.createShardedStore(server, new Metrics(), config.instances()));
+            await(Main.deploy(server, UserVerticle.Options.builder(store).build(), config.instances()));
+        } else if (config.inProcess()) {
+            server = Vertx.vertx();
+            UserStore store = config.store().equals("compact") ? new CompactUserStore() : new InMemoryUserStore();
+            await(Main.deploy(server, UserVerticle.Options.builder(store).build(), config.instances()));
+        }
+        Vertx driver = Vertx.vertx();
+        try {
+            Context context = driver.getOrCreateContext();
+            Promise<Void> finished = Promise.promise();
+            context.runOnContext(v -> new LoadGenerator(driver, config).run().onComplete(finished));
+            await(finished.future());
+        } finally {
+            await(driver.close());
+            if (server != null) {
+                await(server.close());
+            }
+        }
+    }
+
+    private Future<Void> run() {
+        long start = System.nanoTime();
+        return prefill()
+            .compose(v -> {
+                System.out.printf("Prefilled %d users in %d ms%n", config.users(),
+                    (System.nanoTime() - start) / 1_000_000);
+                return phase(config.warmup().toNanos());
+            })
+            .compose(warmup -> phase(config.duration().toNanos()))
+            .map(stats -> {
+                report(stats);
+                return null;
+            });
+    }
+
+    // === Phases ===
+
+    private Future<Void> prefill() {
+        Promise<Void> done = Promise.promise();
+        int[] next = {0};
+        int[] finished = {0};
+        int lanes = Math.min(PREFILL_CONCURRENCY, config.users());
+        for (int lane = 0; lane < lanes; lane++) {
+            prefillNext(next, finished, done);
+        }
+        return done.future();
+    }
+
+    private void prefillNext(int[] next, int[] finished, Promise<Void> done) {
+        if (next[0] >= config.users()) {
+            return;
+        }
+        int slot = next[0]++;
+        JsonObject user = new JsonObject().put("name", "Load User " + slot).put("email", "load" + slot + "@example.com");
+        client.post(config.port(), config.host(), "/users").timeout(REQUEST_TIMEOUT_MILLIS).sendJsonObject(user)
+            .onSuccess(response -> {
+                if (response.statusCode() == 201) {
+                    slots[slot] = response.bodyAsJsonObject().getString("id");
+                }
+                if (++finished[0] == config.users()) {
+                    done.tryComplete();
+                } else {
+                    prefillNext(next, finished, done);
+                }
+            })
+            .onFailure(done::tryFail);
+    }
+
+    private Future<Stats> phase(long durationNanos) {
+        return config.openLoop() ? openLoop(durationNanos) : closedLoop(durationNanos);
+    }
+
+    // Starts request i at start + i * interval, however many requests are still outstanding
+    private Future<Stats> openLoop(long durationNanos) {
+        Stats stats = new Stats(durationNanos);
+        long interval = (long) (1e9 / config.rate());
+        long total = Math.max(1, durationNanos / interval);
+        long start = System.nanoTime();
+        long[] issued = {0};
+        long[] completed = {0};
+        Promise<Stats> done = Promise.promise();
+        Runnable[] pump = new Runnable[1];
+        pump[0] = () -> {
+            long now = System.nanoTime();
+            while (issued[0] < total && start + issued[0] * interval <= now) {
+                long intended = start + issued[0]++ * interval;
+                send(intended, stats).onComplete(r -> {
+                    if (++completed[0] == total) {
+                        done.complete(stats);
+                    }
+                });
+            }
+            if (issued[0] < total) {
+                long delay = start + issued[0] * interval - System.nanoTime();
+                vertx.timer(Math.max(delay, 1), TimeUnit.NANOSECONDS).onComplete(t -> pump[0].run());
+            }
+        };
+        pump[0].run();
+        return done.future();
+    }
+
+    // Keeps --concurrency requests in flight. With a --rate each lane also waits for its next scheduled
+    // start, and latency counts from that schedule.
+    private Future<Stats> closedLoop(long durationNanos) {
+        Stats stats = new Stats(durationNanos);
+        long start = System.nanoTime();
+        long laneInterval = config.rate() > 0 ? (long) (1e9 * config.concurrency() / config.rate()) : 0;
+        int[] running = {config.concurrency()};
+        Promise<Stats> done = Promise.promise();
+        for (int lane = 0; lane < config.concurrency(); lane++) {
+            lane(start + lane * laneInterval / config.concurrency(), laneInterval, start + durationNanos,
+                stats, running, done);
+        }
+        return done.future();
+    }
+
+    private void lane(long intended, long interval, long end, Stats stats, int[] running, Promise<Stats> done) {
+        long now = System.nanoTime();
+        if (now >= end) {
+            if (--running[0] == 0) {
+                done.complete(stats);
+            }
+            return;
+        }
+        if (interval == 0) {
+            send(now, stats).onComplete(r -> lane(0, 0, end, stats, running, done));
+        } else if (intended > now) {
+            vertx.timer(intended - now, TimeUnit.NANOSECONDS)
+                .onComplete(t -> lane(intended, interval, end, stats, running, done));
+        } else {
+            send(intended, stats).onComplete(r -> lane(intended + interval, interval, end, stats, running, done));
+        }
+    }
+
+    // === Requests ===
+
+    private Future<Void> send(long intended, Stats stats) {
+        Operation operation = nextOperation();
+        int slot = operation == Operation.CREATE ? random.nextInt(slots.length) : keys.next(random);
+        // A deleted slot still gets its request, which then reports 404
+        String id = slots[slot] != null ? slots[slot] : UUID.randomUUID().toString();
+        long sent = System.nanoTime();
+        Future<HttpResponse<Buffer>> response = switch (operation) {
+            case GET -> client.get(config.port(), config.host(), "/users/" + id)
+                .timeout(REQUEST_TIMEOUT_MILLIS).send();
+            case CREATE -> client.post(config.port(), config.host(), "/users")
+                .timeout(REQUEST_TIMEOUT_MILLIS)
+                .sendJsonObject(new JsonObject().put("name", "Load User").put("email", nextEmail()));
+            case UPDATE_EMAIL -> client.put(config.port(), config.host(), "/users/" + id + "/email")
+                .timeout(REQUEST_TIMEOUT_MILLIS)
+                .sendJsonObject(new JsonObject().put("email", nextEmail()));
+            case DELETE -> client.delete(config.port(), config.host(), "/users/" + id)
+                .timeout(REQUEST_TIMEOUT_MILLIS).send();
+        };
+        return response
+            .andThen(result -> {
+                long finished = System.nanoTime();
+                int status = result.succeeded() ? result.result().statusCode() : 0;
+                if (operation == Operation.CREATE && status == 201) {
+                    slots[slot] = result.result().bodyAsJsonObject().getString("id");
+                } else if (operation == Operation.DELETE && status == 204) {
+                    slots[slot] = null;
+                }
+                stats.record(operation, status, intended, sent, finished);
+            })
+            .<Void>mapEmpty()
+            .otherwiseEmpty();
+    }
+
+    private Operation nextOperation() {
+        int pick = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < operations.length; i++) {
+            if (pick < cumulativeWeights[i]) {
+                return operations[i];
+            }
+        }
+        return operations[operations.length - 1];
+    }
+
+    private String nextEmail() {
+        return "load-" + sequence++ + "-" + random.nextInt(1_000_000) + "@example.com";
+    }
+
+    // === Reporting ===
+
+    private void report(Stats stats) {
+        System.out.printf("%n%s loop, %s for %ds against %s:%d%s, keys %s, mix %s%n",
+            config.openLoop() ? "Open" : "Closed",
+            config.rate() > 0 ? String.format("%.0f req/s scheduled", config.rate())
+                : config.concurrency() + " requests in flight",
+            config.duration().toSeconds(), config.host(), config.port(),
+            config.inProcess() ? " (in-process, " + config.instances() + " instances, " + config.store() + " store)" : "",
+            config.zipfExponent() > 0 ? "zipf:" + config.zipfExponent() : "uniform", config.mix());
+        if (!config.openLoop() && config.rate() <= 0) {
+            System.out.println("Closed loop without --rate: latencies are not corrected for coordinated omission");
+        }
+        System.out.printf("%-13s %9s %8s %6s %6s %6s %9s %9s %9s %9s %16s%n", "operation", "count", "2xx", "404",
+            "409", "error", "p50 ms", "p99 ms", "p99.9 ms", "max ms", "uncorrected p99");
+        stats.operations.forEach((operation, result) -> printRow(operation.name().toLowerCase(), result));
+        printRow("all", stats.all);
+        System.out.printf("Achieved %.0f req/s; dispatch delay p99 %.3f ms%n",
+            stats.all.count / (stats.durationNanos / 1e9), stats.dispatchDelay.valueAtQuantile(0.99) / 1e6);
+    }
+
+    private static void printRow(String label, Result result) {
+        if (result.count == 0) {
+            return;
+        }
+        System.out.printf("%-13s %9d %8d %6d %6d %6d %9.3f %9.3f %9.3f %9.3f %16.3f%n", label, result.count,
+            result.success, result.notFound, result.conflict, result.errors,
+            result.latency.valueAtQuantile(0.5) / 1e6, result.latency.valueAtQuantile(0.99) / 1e6,
+            result.latency.valueAtQuantile(0.999) / 1e6, result.latency.valueAtQuantile(1.0) / 1e6,
+            result.serviceTime.valueAtQuantile(0.99) / 1e6);
+    }
+
+    private static <T> T await(Future<T> future) throws Exception {
+        return future.toCompletionStage().toCompletableFuture().get();
+    }
+
+    // Outcomes of one phase; only touched from the driver's event loop
+    private static final class Stats {
+        final long durationNanos;
+        final Map<Operation, Result> operations = new EnumMap<>(Operation.class);
+        final Result all = new Result();
+        final LatencyHistogram dispatchDelay = new LatencyHistogram();
+
+        Stats(long durationNanos) {
+            this.durationNanos = durationNanos;
+            for (Operation operation : Operation.values()) {
+                operations.put(operation, new Result());
+            }
+        }
+
+        void record(Operation operation, int status, long intended, long sent, long finished) {
+            operations.get(operation).record(status, finished - intended, finished - sent);
+            all.record(status, finished - intended, finished - sent);
+            dispatchDelay.record(sent - intended);
+        }
+    }
+
+    private static final class Result {
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LatencyHistogram serviceTime = new LatencyHistogram();
+        long count;
+        long success;
+        long notFound;
+        long conflict;
+        long errors;
+
+        void record(int status, long latencyNanos, long serviceNanos) {
+            count++;
+            if (status >= 200 && status < 300) {
+                success++;
+            } else if (status == 404) {
+                notFound++;
+            } else if (status == 409) {
+                conflict++;
+            } else {
+                errors++;
+            }
+            latency.record(latencyNanos);
+            serviceTime.record(serviceNanos);
+        }
+    }
+}
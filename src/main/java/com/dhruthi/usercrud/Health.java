@@ -0,0 +1,18 @@
+package com.dhruthi.usercrud;
+
+// Whether this process should still be sent traffic, shared by every UserVerticle instance of it like
+// Metrics. It is ready from the start and stops being ready once it drains for shutdown, which is for
+// good: /health/ready answers 503 from then on, so load balancers move traffic to the other processes
+// while the requests already here are finished.
+public final class Health {
+
+    private volatile boolean draining;
+
+    public boolean isReady() {
+        return !draining;
+    }
+
+    public void drain() {
+        draining = true;
+    }
+}
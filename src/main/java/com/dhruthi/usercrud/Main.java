@@ -1,24 +1,133 @@
 package com.dhruthi.usercrud;
 
+import com.dhruthi.usercrud.admission.ConcurrencyLimiter;
+import com.dhruthi.usercrud.changes.ChangeFeed;
+import com.dhruthi.usercrud.metrics.Metrics;
+import com.dhruthi.usercrud.metrics.MetricsUserStore;
+import com.dhruthi.usercrud.replication.ReadOnlyUserStore;
+import com.dhruthi.usercrud.replication.ReplicationFollower;
+import com.dhruthi.usercrud.replication.ReplicationLeader;
+import com.dhruthi.usercrud.store.AsyncUserStore;
+import com.dhruthi.usercrud.store.CachingUserStore;
+import com.dhruthi.usercrud.store.CoalescingUserStore;
+import com.dhruthi.usercrud.store.CompactUserStore;
+import com.dhruthi.usercrud.store.InMemoryUserStore;
+import com.dhruthi.usercrud.store.InlineAsyncUserStore;
+import com.dhruthi.usercrud.store.ObservableUserStore;
+import com.dhruthi.usercrud.store.ShardedUserStore;
+import com.dhruthi.usercrud.store.UserStore;
+import com.dhruthi.usercrud.store.WorkerAsyncUserStore;
+import com.dhruthi.usercrud.store.journal.JournalUserStore;
+import com.dhruthi.usercrud.store.journal.SyncPolicy;
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
 import io.vertx.core.Vertx;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-// Main class the heart of the application, triggering the Vert.x verticle deployment 
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Main class the heart of the application, triggering the Vert.x verticle deployment
 public class Main {
 
     private static final Logger logger = LoggerFactory.getLogger(Main.class);
+    // The last negative port handed to a deployment asking for a free port
+    private static final AtomicInteger SHARED_FREE_PORTS = new AtomicInteger();
+
+    // Environment variable controlling how many UserVerticle instances (event loops) serve HTTP traffic
+    static final String INSTANCES_ENV = "USER_SERVICE_INSTANCES";
+    // When set, users are journaled to this directory and recovered on startup
+    static final String DATA_DIR_ENV = "USER_SERVICE_DATA_DIR";
+    static final String FSYNC_ENV = "USER_SERVICE_FSYNC";
+    // In-memory store implementation: "memory" (default), the lower-footprint "compact", or "sharded",
+    // which partitions users over the event loops
+    static final String STORE_ENV = "USER_SERVICE_STORE";
+    // Worker threads that run store calls off the event loops; 0 calls the store on the event loops
+    static final String STORE_WORKERS_ENV = "USER_SERVICE_STORE_WORKERS";
+    // The journal blocks each write until its fsync, so by default it gets as many workers as Vert.x's own pool
+    static final int DEFAULT_JOURNAL_WORKERS = 20;
+    // Users cached in front of the store by id; 0 disables the cache
+    static final String CACHE_SIZE_ENV = "USER_SERVICE_CACHE_SIZE";
+    // Most requests admitted at once, however well latencies hold up; 0 admits every request
+    static final String MAX_CONCURRENCY_ENV = "USER_SERVICE_MAX_CONCURRENCY";
+    // HTTP port, so several nodes can run on one host
+    static final String PORT_ENV = "USER_SERVICE_PORT";
+    // When set, this node is a replication leader and streams its mutations to followers on this port
+    static final String REPLICATION_PORT_ENV = "USER_SERVICE_REPLICATION_PORT";
+    // When set to host:port of a leader's replication port, this node is a read-only follower of it
+    static final String LEADER_ENV = "USER_SERVICE_LEADER";
 
 // Initializes Vert.x and deploy the UserVerticle and handles success and failures of deployment
-    public static void main(String[] args) {
-        Vertx vertx = Vertx.vertx();
+    public static void main(String[] args) throws IOException {
+        // Every setting can also come from the config file named by USER_SERVICE_CONFIG
+        Map<String, String> settings = ServerConfig.loadSettings(System.getenv());
+        ServerConfig server = ServerConfig.from(settings);
+        int instances = resolveInstances(settings.get(INSTANCES_ENV));
+        int port = resolvePort(settings.get(PORT_ENV), UserVerticle.DEFAULT_PORT);
+        String leader = settings.get(LEADER_ENV);
+        String replicationPort = settings.get(REPLICATION_PORT_ENV);
+        ConcurrencyLimiter limiter = createLimiter(settings.get(MAX_CONCURRENCY_ENV));
+        Metrics metrics = new Metrics();
+        Health health = new Health();
+        metrics.gauge("http_server_ready", "1 while the server takes traffic, 0 once it drains for shutdown",
+            () -> health.isReady() ? 1 : 0);
+        Vertx vertx;
+        UserStore userStore = null;
+        ChangeFeed changes = null;
+        Future<AsyncUserStore> asyncStore;
+        if (leader != null && !leader.isBlank()) {
+            vertx = Vertx.vertx(server.vertxOptions());
+            changes = createChangeFeed(metrics);
+            asyncStore = startFollower(vertx, metrics, leader.trim(), changes);
+        } else if (isSharded(settings.get(DATA_DIR_ENV), settings.get(STORE_ENV))) {
+            for (String ignored : checkShardedSettings(settings, server, instances)) {
+                logger.warn("{} is ignored by the sharded store", ignored);
+            }
+            logger.info("The sharded store publishes no change feed and records no per-operation latency");
+            // One partition and one HTTP instance per event loop, so requests for users owned by the loop
+            // that accepted them skip the hop
+            vertx = Vertx.vertx(server.vertxOptions().setEventLoopPoolSize(instances));
+            asyncStore = createShardedStore(vertx, metrics, instances);
+        } else {
+            userStore = createStore(settings.get(DATA_DIR_ENV), settings.get(FSYNC_ENV), settings.get(STORE_ENV));
+            if (userStore instanceof ObservableUserStore observable) {
+                changes = createChangeFeed(metrics);
+                observable.addListener(changes);
+            }
+            int storeWorkers = resolveStoreWorkers(settings.get(STORE_WORKERS_ENV), userStore instanceof Closeable);
+            UserStore instrumented = new MetricsUserStore(
+                withCache(userStore, resolveCacheSize(settings.get(CACHE_SIZE_ENV)), metrics), metrics);
+            vertx = Vertx.vertx(server.vertxOptions());
+            AsyncUserStore called = asyncStore(vertx, instrumented, storeWorkers);
+            // Lookups on workers take long enough to overlap, so concurrent reads of one user share a store call
+            AsyncUserStore served = storeWorkers > 0 ? new CoalescingUserStore(called, metrics) : called;
+            asyncStore = replicationPort == null || replicationPort.isBlank() ? Future.succeededFuture(served)
+                : startLeader(vertx, userStore, changes, resolvePort(replicationPort, 0)).map(bound -> served);
+        }
+        UserStore closeable = userStore;
+        ChangeFeed feed = changes;
+        logger.info("Using {} transport", vertx.isNativeTransportEnabled() ? "native" : "NIO");
+        if (server.nativeTransport() && !vertx.isNativeTransportEnabled()) {
+            logger.info("Native transport unavailable: {}", vertx.unavailableNativeTransportCause().getMessage());
+        }
 
         // Deploy UserVerticle
-        vertx.deployVerticle(new UserVerticle())
-            .onSuccess(id -> {
-                logger.info("UserVerticle deployed successfully with ID: {}", id);
+        asyncStore.compose(store -> deploy(vertx, UserVerticle.Options.builder(store).metrics(metrics).port(port)
+                .changes(feed).limiter(limiter).server(server).health(health).build(), instances))
+            .onSuccess(deployment -> {
+                logger.info("UserVerticle deployed successfully with ID: {} on port {} ({} instances)",
+                    deployment.id(), deployment.port(), instances);
                 logger.info("Application started successfully");
-                addShutdownHook(vertx);
+                addShutdownHook(vertx, health, server, closeable);
             })
             .onFailure(error -> {
                 logger.error("Failed to deploy UserVerticle", error);
@@ -27,13 +136,272 @@ public class Main {
             });
     }
 
-    // Gracefull shutdow hook to close Vert.x instance on JVM termination
-    private static void addShutdownHook(Vertx vertx) {
+    // Deploys the given number of UserVerticle instances, all sharing the same options and so the same
+    // store, Metrics, limiter and Health. Vert.x spreads the instances over its event loops and balances
+    // connections between them. Completes with the deployment and the port its instances are bound to.
+    static Future<Deployment> deploy(Vertx vertx, UserVerticle.Options options, int instances) {
+        // Vert.x binds every server asking for port 0 to a port of its own, and shares a free port only
+        // between servers asking for the same negative port, so each deployment asks for one of its own
+        UserVerticle.Options bound = options.port() != 0 ? options : new UserVerticle.Options(options.store(),
+            options.metrics(), SHARED_FREE_PORTS.decrementAndGet(), options.changes(), options.limiter(),
+            options.server(), options.health());
+        List<UserVerticle> verticles = new CopyOnWriteArrayList<>();
+        return vertx.deployVerticle(() -> {
+                UserVerticle verticle = new UserVerticle(bound);
+                verticles.add(verticle);
+                return verticle;
+            }, new DeploymentOptions().setInstances(instances))
+            .map(id -> new Deployment(id, verticles.get(0).actualPort()));
+    }
+
+    // UserVerticle instances deployed together and the port they serve on
+    record Deployment(String id, int port) {
+    }
+
+    // A change feed exporting its position, consumer count and resyncs. It still has to be registered
+    // as a listener of the store.
+    static ChangeFeed createChangeFeed(Metrics metrics) {
+        ChangeFeed changes = new ChangeFeed();
+        metrics.gauge("change_feed_sequence", "Sequence number of the latest change", changes::lastSequence);
+        metrics.gauge("change_feed_consumers", "Connected change feed consumers", changes::consumers);
+        metrics.gauge("change_feed_resyncs", "Change feed consumers told to resync since startup", changes::resyncs);
+        return changes;
+    }
+
+    // Streams every mutation of the store, read from its change feed (null when the store publishes none),
+    // to followers connecting on the port, completing with the bound port
+    static Future<Integer> startLeader(Vertx vertx, UserStore userStore, ChangeFeed changes, int port) {
+        if (changes == null) {
+            return Future.failedFuture(new IllegalStateException("The configured store cannot be replicated"));
+        }
+        return new ReplicationLeader(vertx, userStore, changes).listen(port);
+    }
+
+    // Replicates the leader at host:port into a local in-memory store, served read-only. Applied changes
+    // are published to the change feed, so consumers can follow a follower.
+    static Future<AsyncUserStore> startFollower(Vertx vertx, Metrics metrics, String leader, ChangeFeed changes) {
+        int colon = leader.lastIndexOf(':');
+        if (colon < 0) {
+            return Future.failedFuture(new IllegalArgumentException(LEADER_ENV + " must be host:port, not " + leader));
+        }
+        InMemoryUserStore replica = new InMemoryUserStore();
+        replica.addListener(changes);
+        ReplicationFollower follower = new ReplicationFollower(vertx, replica, leader.substring(0, colon),
+            Integer.parseInt(leader.substring(colon + 1)), metrics);
+        logger.info("Following the leader at {}", leader);
+        // Reads are served right away; the follower keeps trying until the leader is reachable
+        follower.start();
+        return Future.succeededFuture(new InlineAsyncUserStore(
+            new MetricsUserStore(new ReadOnlyUserStore(replica), metrics)));
+    }
+
+    // Calls the store on the event loops when it has no workers, otherwise on a pool of that many threads
+    static AsyncUserStore asyncStore(Vertx vertx, UserStore userStore, int workers) {
+        if (workers == 0) {
+            return new InlineAsyncUserStore(userStore);
+        }
+        logger.info("Running user store calls on {} worker threads", workers);
+        return new WorkerAsyncUserStore(userStore, vertx.createSharedWorkerExecutor("user-store", workers));
+    }
+
+    // Puts a cache of the given size in front of the store, unless the size is 0
+    static UserStore withCache(UserStore userStore, int cacheSize, Metrics metrics) {
+        if (cacheSize == 0) {
+            return userStore;
+        }
+        logger.info("Caching up to {} users in front of the store", cacheSize);
+        return new CachingUserStore(userStore, cacheSize, CachingUserStore.DEFAULT_NEGATIVE_TTL, metrics);
+    }
+
+    // The sharded store only exists in memory, so a data directory takes precedence
+    static boolean isSharded(String dataDir, String store) {
+        return (dataDir == null || dataDir.isBlank()) && store != null && store.trim().equalsIgnoreCase("sharded");
+    }
+
+    // The settings the sharded store would drop: it has no change feed to replicate from, no cache and no
+    // store workers, and sizes the event loops to the instances. A replication port is refused outright
+    // with IllegalArgumentException, since followers would wait on a leader that never starts; the names
+    // of the others are returned to warn about.
+    static List<String> checkShardedSettings(Map<String, String> settings, ServerConfig server, int instances) {
+        if (isSet(settings.get(REPLICATION_PORT_ENV))) {
+            throw new IllegalArgumentException(REPLICATION_PORT_ENV + " cannot be used with "
+                + STORE_ENV + "=sharded, which cannot be replicated");
+        }
+        List<String> ignored = new ArrayList<>();
+        if (isSet(settings.get(CACHE_SIZE_ENV))) {
+            ignored.add(CACHE_SIZE_ENV);
+        }
+        if (isSet(settings.get(STORE_WORKERS_ENV))) {
+            ignored.add(STORE_WORKERS_ENV);
+        }
+        if (server.eventLoops() != 0 && server.eventLoops() != instances) {
+            ignored.add(ServerConfig.EVENT_LOOPS_ENV);
+        }
+        return ignored;
+    }
+
+    private static boolean isSet(String value) {
+        return value != null && !value.isBlank();
+    }
+
+    // Partitions users over as many event loops as there are partitions, exporting the user count
+    static Future<AsyncUserStore> createShardedStore(Vertx vertx, Metrics metrics, int partitions) {
+        logger.info("Using the sharded in-memory user store with {} partitions", partitions);
+        return ShardedUserStore.create(vertx, partitions).map(store -> {
+            metrics.gauge("user_store_users", "Number of stored users", store::size);
+            return store;
+        });
+    }
+
+    // Builds the journaled store when a data directory is configured, otherwise a purely in-memory one
+    static UserStore createStore(String dataDir, String fsync, String store) throws IOException {
+        if (dataDir == null || dataDir.isBlank()) {
+            if (store != null && store.trim().equalsIgnoreCase("compact")) {
+                logger.info("Using the compact in-memory user store");
+                return new CompactUserStore();
+            }
+            return new InMemoryUserStore();
+        }
+        SyncPolicy policy = fsync == null || fsync.isBlank() ? SyncPolicy.GROUP : SyncPolicy.parse(fsync);
+        logger.info("Journaling users to {} with {} fsync policy", dataDir, policy);
+        return JournalUserStore.open(Path.of(dataDir), policy);
+    }
+
+    // Parses the configured instance count, defaulting to one instance per available core
+    static int resolveInstances(String configured) {
+        int cores = Runtime.getRuntime().availableProcessors();
+        if (configured == null || configured.isBlank()) {
+            return cores;
+        }
+        try {
+            int instances = Integer.parseInt(configured.trim());
+            if (instances > 0) {
+                return instances;
+            }
+        } catch (NumberFormatException e) {
+            // fall through to the default below
+        }
+        logger.warn("Ignoring invalid {} value '{}', using {} instances", INSTANCES_ENV, configured, cores);
+        return cores;
+    }
+
+    // Parses the configured number of store workers. Persistent stores block, so they default to
+    // DEFAULT_JOURNAL_WORKERS; the in-memory ones never do and default to 0.
+    static int resolveStoreWorkers(String configured, boolean persistent) {
+        int fallback = persistent ? DEFAULT_JOURNAL_WORKERS : 0;
+        if (configured == null || configured.isBlank()) {
+            return fallback;
+        }
+        try {
+            int workers = Integer.parseInt(configured.trim());
+            if (workers >= 0) {
+                return workers;
+            }
+        } catch (NumberFormatException e) {
+            // fall through to the default below
+        }
+        logger.warn("Ignoring invalid {} value '{}', using {} workers", STORE_WORKERS_ENV, configured, fallback);
+        return fallback;
+    }
+
+    // Parses the configured cache size, defaulting to no cache: every store this service has is in memory
+    static int resolveCacheSize(String configured) {
+        if (configured == null || configured.isBlank()) {
+            return 0;
+        }
+        try {
+            int size = Integer.parseInt(configured.trim());
+            if (size >= 0) {
+                return size;
+            }
+        } catch (NumberFormatException e) {
+            // fall through to the default below
+        }
+        logger.warn("Ignoring invalid {} value '{}', not caching", CACHE_SIZE_ENV, configured);
+        return 0;
+    }
+
+    // The limiter for the configured maximum concurrency, or null when it is 0. A maximum below the
+    // default initial and minimum limits brings those down with it.
+    static ConcurrencyLimiter createLimiter(String configured) {
+        int maximum = resolveMaxConcurrency(configured);
+        if (maximum == 0) {
+            return null;
+        }
+        return new ConcurrencyLimiter(Math.min(ConcurrencyLimiter.DEFAULT_INITIAL_LIMIT, maximum),
+            Math.min(ConcurrencyLimiter.DEFAULT_MIN_LIMIT, maximum), maximum);
+    }
+
+    static int resolveMaxConcurrency(String configured) {
+        if (configured == null || configured.isBlank()) {
+            return ConcurrencyLimiter.DEFAULT_MAX_LIMIT;
+        }
+        try {
+            int maximum = Integer.parseInt(configured.trim());
+            if (maximum >= 0) {
+                return maximum;
+            }
+        } catch (NumberFormatException e) {
+            // fall through to the default below
+        }
+        logger.warn("Ignoring invalid {} value '{}', admitting at most {} requests at once", MAX_CONCURRENCY_ENV,
+            configured, ConcurrencyLimiter.DEFAULT_MAX_LIMIT);
+        return ConcurrencyLimiter.DEFAULT_MAX_LIMIT;
+    }
+
+    // Parses a configured port number, falling back to the default when unset or invalid
+    static int resolvePort(String configured, int fallback) {
+        if (configured == null || configured.isBlank()) {
+            return fallback;
+        }
+        try {
+            int port = Integer.parseInt(configured.trim());
+            if (port >= 0 && port <= 65535) {
+                return port;
+            }
+        } catch (NumberFormatException e) {
+            // fall through to the default below
+        }
+        logger.warn("Ignoring invalid port '{}', using {}", configured, fallback);
+        return fallback;
+    }
+
+    // Graceful shutdown on JVM termination, so a restart fails no requests. See shutdown.
+    private static void addShutdownHook(Vertx vertx, Health health, ServerConfig server, UserStore userStore) {
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
-            logger.info("Shutdown signal received, closing Vert.x instance...");
-            vertx.close()
+            logger.info("Shutdown signal received, draining requests...");
+            shutdown(vertx, health, server.shutdownDelaySeconds())
                 .onSuccess(v -> logger.info("Vert.x instance closed successfully"))
-                .onFailure(error -> logger.error("Error closing Vert.x instance", error));
+                .onFailure(error -> logger.error("Error closing Vert.x instance", error))
+                .otherwiseEmpty()
+                .toCompletionStage().toCompletableFuture().join();
+            closeStore(userStore);
         }));
     }
+
+    // Drains the process: /health/ready turns 503 and HTTP/1.1 responses close their connections, then,
+    // after the delay, closing Vert.x has every UserVerticle stop accepting and finish the requests it
+    // has (see UserVerticle.stop). With SO_REUSEPORT a replacement process already bound to the port
+    // takes every connection from the moment this one stops accepting.
+    static Future<Void> shutdown(Vertx vertx, Health health, int delaySeconds) {
+        health.drain();
+        if (delaySeconds == 0) {
+            return vertx.close();
+        }
+        Promise<Void> delayed = Promise.promise();
+        vertx.setTimer(TimeUnit.SECONDS.toMillis(delaySeconds), id -> delayed.complete());
+        return delayed.future().compose(v -> vertx.close());
+    }
+
+    // Flush a persistent store once no more requests can reach it
+    private static void closeStore(UserStore userStore) {
+        if (userStore instanceof Closeable closeable) {
+            try {
+                closeable.close();
+                logger.info("User store closed successfully");
+            } catch (IOException e) {
+                logger.error("Error closing user store", e);
+            }
+        }
+    }
 }
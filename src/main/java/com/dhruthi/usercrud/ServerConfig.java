@@ -0,0 +1,171 @@
+package com.dhruthi.usercrud;
+
+import io.vertx.core.VertxOptions;
+import io.vertx.core.http.Http2Settings;
+import io.vertx.core.http.HttpServerOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+
+// Transport settings of the HTTP server and the Vert.x instance behind it: native transport, event loops,
+// HTTP/2 over cleartext, TCP options, idle timeout, response compression and how shutdown drains. Read from
+// the same settings as the rest of Main (see loadSettings), so each can be set in the environment or in the
+// config file.
+public record ServerConfig(
+    boolean nativeTransport,
+    int eventLoops,
+    boolean http2,
+    int http2MaxStreams,
+    boolean tcpNoDelay,
+    boolean tcpFastOpen,
+    boolean reusePort,
+    int acceptBacklog,
+    int idleTimeoutSeconds,
+    boolean compression,
+    int compressionLevel,
+    int compressionMinBytes,
+    int shutdownDelaySeconds,
+    int shutdownTimeoutSeconds) {
+
+    private static final Logger logger = LoggerFactory.getLogger(ServerConfig.class);
+
+    // Path of a config file of NAME=value lines, the same names as the environment variables (an env file)
+    static final String CONFIG_FILE_ENV = "USER_SERVICE_CONFIG";
+    // Use epoll on Linux when its native library is on the classpath; falls back to NIO otherwise
+    static final String NATIVE_TRANSPORT_ENV = "USER_SERVICE_NATIVE_TRANSPORT";
+    // Event loop threads; 0 keeps Vert.x's default of two per core
+    static final String EVENT_LOOPS_ENV = "USER_SERVICE_EVENT_LOOPS";
+    // HTTP/2 over cleartext (h2c), by upgrade from HTTP/1.1 or with prior knowledge
+    static final String HTTP2_ENV = "USER_SERVICE_HTTP2";
+    // Concurrent streams a client may open on one HTTP/2 connection
+    static final String HTTP2_MAX_STREAMS_ENV = "USER_SERVICE_HTTP2_MAX_STREAMS";
+    static final String TCP_NODELAY_ENV = "USER_SERVICE_TCP_NODELAY";
+    static final String TCP_FASTOPEN_ENV = "USER_SERVICE_TCP_FASTOPEN";
+    // Lets several processes bind the HTTP port, with the kernel spreading connections between them
+    static final String REUSE_PORT_ENV = "USER_SERVICE_REUSE_PORT";
+    // Connections the kernel queues for accept; 0 keeps the OS default
+    static final String ACCEPT_BACKLOG_ENV = "USER_SERVICE_ACCEPT_BACKLOG";
+    // Seconds a connection may stay idle before it is closed; 0 never closes it
+    static final String IDLE_TIMEOUT_ENV = "USER_SERVICE_IDLE_TIMEOUT";
+    static final String COMPRESSION_ENV = "USER_SERVICE_COMPRESSION";
+    static final String COMPRESSION_LEVEL_ENV = "USER_SERVICE_COMPRESSION_LEVEL";
+    // Responses shorter than this are sent uncompressed, where compressing costs more than it saves
+    static final String COMPRESSION_MIN_BYTES_ENV = "USER_SERVICE_COMPRESSION_MIN_BYTES";
+    // Seconds between going unready and closing the listening socket on shutdown, for load balancers to
+    // notice and for keep-alive clients to be told to reconnect elsewhere
+    static final String SHUTDOWN_DELAY_ENV = "USER_SERVICE_SHUTDOWN_DELAY";
+    // Seconds shutdown waits for requests in flight to finish before closing their connections anyway
+    static final String SHUTDOWN_TIMEOUT_ENV = "USER_SERVICE_SHUTDOWN_TIMEOUT";
+
+    static final int DEFAULT_HTTP2_MAX_STREAMS = 100;
+    static final int DEFAULT_COMPRESSION_LEVEL = 6;
+    static final int DEFAULT_COMPRESSION_MIN_BYTES = 1024;
+    static final int DEFAULT_SHUTDOWN_TIMEOUT_SECONDS = 30;
+
+    // Native transport where available, HTTP/2 over cleartext and TCP_NODELAY on, compression off, a
+    // shutdown that stops accepting at once and gives requests in flight 30 seconds, and Vert.x's defaults
+    // for the rest
+    public static final ServerConfig DEFAULT = new ServerConfig(true, 0, true, DEFAULT_HTTP2_MAX_STREAMS, true,
+        false, false, 0, 0, false, DEFAULT_COMPRESSION_LEVEL, DEFAULT_COMPRESSION_MIN_BYTES, 0,
+        DEFAULT_SHUTDOWN_TIMEOUT_SECONDS);
+
+    // The settings of the config file named by USER_SERVICE_CONFIG, if any, overridden by the environment
+    static Map<String, String> loadSettings(Map<String, String> environment) throws IOException {
+        Map<String, String> settings = new HashMap<>();
+        String file = environment.get(CONFIG_FILE_ENV);
+        if (file != null && !file.isBlank()) {
+            Properties properties = new Properties();
+            try (Reader reader = Files.newBufferedReader(Path.of(file.trim()))) {
+                properties.load(reader);
+            }
+            properties.stringPropertyNames().forEach(name -> settings.put(name, properties.getProperty(name).trim()));
+            logger.info("Loaded {} settings from {}", settings.size(), file.trim());
+        }
+        settings.putAll(environment);
+        return settings;
+    }
+
+    static ServerConfig from(Map<String, String> settings) {
+        return new ServerConfig(
+            flag(settings, NATIVE_TRANSPORT_ENV, DEFAULT.nativeTransport),
+            number(settings, EVENT_LOOPS_ENV, DEFAULT.eventLoops, 0, 1024),
+            flag(settings, HTTP2_ENV, DEFAULT.http2),
+            number(settings, HTTP2_MAX_STREAMS_ENV, DEFAULT.http2MaxStreams, 1, Integer.MAX_VALUE),
+            flag(settings, TCP_NODELAY_ENV, DEFAULT.tcpNoDelay),
+            flag(settings, TCP_FASTOPEN_ENV, DEFAULT.tcpFastOpen),
+            flag(settings, REUSE_PORT_ENV, DEFAULT.reusePort),
+            number(settings, ACCEPT_BACKLOG_ENV, DEFAULT.acceptBacklog, 0, 65535),
+            number(settings, IDLE_TIMEOUT_ENV, DEFAULT.idleTimeoutSeconds, 0, Integer.MAX_VALUE),
+            flag(settings, COMPRESSION_ENV, DEFAULT.compression),
+            number(settings, COMPRESSION_LEVEL_ENV, DEFAULT.compressionLevel, 1, 9),
+            number(settings, COMPRESSION_MIN_BYTES_ENV, DEFAULT.compressionMinBytes, 0, Integer.MAX_VALUE),
+            number(settings, SHUTDOWN_DELAY_ENV, DEFAULT.shutdownDelaySeconds, 0, 3600),
+            number(settings, SHUTDOWN_TIMEOUT_ENV, DEFAULT.shutdownTimeoutSeconds, 0, 3600));
+    }
+
+    VertxOptions vertxOptions() {
+        VertxOptions options = new VertxOptions().setPreferNativeTransport(nativeTransport);
+        if (eventLoops > 0) {
+            options.setEventLoopPoolSize(eventLoops);
+        }
+        return options;
+    }
+
+    HttpServerOptions httpServerOptions(int port) {
+        HttpServerOptions options = new HttpServerOptions()
+            .setPort(port)
+            .setHttp2ClearTextEnabled(http2)
+            .setInitialSettings(new Http2Settings().setMaxConcurrentStreams(http2MaxStreams))
+            .setTcpNoDelay(tcpNoDelay)
+            .setTcpFastOpen(tcpFastOpen)
+            .setReusePort(reusePort)
+            .setIdleTimeout(idleTimeoutSeconds)
+            .setCompressionSupported(compression)
+            .setCompressionLevel(compressionLevel);
+        if (acceptBacklog > 0) {
+            options.setAcceptBacklog(acceptBacklog);
+        }
+        return options;
+    }
+
+    private static boolean flag(Map<String, String> settings, String name, boolean fallback) {
+        String configured = settings.get(name);
+        if (configured == null || configured.isBlank()) {
+            return fallback;
+        }
+        switch (configured.trim().toLowerCase(Locale.ROOT)) {
+            case "true", "on", "1":
+                return true;
+            case "false", "off", "0":
+                return false;
+            default:
+                logger.warn("Ignoring invalid {} value '{}', using {}", name, configured, fallback);
+                return fallback;
+        }
+    }
+
+    private static int number(Map<String, String> settings, String name, int fallback, int min, int max) {
+        String configured = settings.get(name);
+        if (configured == null || configured.isBlank()) {
+            return fallback;
+        }
+        try {
+            int value = Integer.parseInt(configured.trim());
+            if (value >= min && value <= max) {
+                return value;
+            }
+        } catch (NumberFormatException e) {
+            // fall through to the default below
+        }
+        logger.warn("Ignoring invalid {} value '{}', using {}", name, configured, fallback);
+        return fallback;
+    }
+}
@@ -1,20 +1,59 @@
 package com.dhruthi.usercrud;
 
+import com.dhruthi.usercrud.admission.ConcurrencyLimiter;
+import com.dhruthi.usercrud.admission.ConcurrencyLimiter.Priority;
+import com.dhruthi.usercrud.changes.ChangeFeed;
+import com.dhruthi.usercrud.changes.ChangeStream;
+import com.dhruthi.usercrud.metrics.LatencyHistogram;
+import com.dhruthi.usercrud.metrics.Metrics;
+import com.dhruthi.usercrud.model.DuplicateEmailException;
+import com.dhruthi.usercrud.model.EncodedUser;
+import com.dhruthi.usercrud.model.InvalidInputException;
+import com.dhruthi.usercrud.model.ReadOnlyReplicaException;
 import com.dhruthi.usercrud.model.User;
+import com.dhruthi.usercrud.model.UserInput;
 import com.dhruthi.usercrud.model.UserNotFoundException;
+import com.dhruthi.usercrud.model.VersionConflictException;
+import com.dhruthi.usercrud.store.AsyncUserStore;
 import com.dhruthi.usercrud.store.InMemoryUserStore;
+import com.dhruthi.usercrud.store.InlineAsyncUserStore;
 import com.dhruthi.usercrud.store.UserStore;
 import io.vertx.core.AbstractVerticle;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
 import io.vertx.core.Promise;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpMethod;
 import io.vertx.core.http.HttpServer;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.http.HttpVersion;
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
+import io.vertx.core.parsetools.RecordParser;
+import io.vertx.ext.web.Route;
 import io.vertx.ext.web.Router;
 import io.vertx.ext.web.RoutingContext;
 import io.vertx.ext.web.handler.BodyHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.UnaryOperator;
 import java.util.regex.Pattern;
 
 
@@ -23,39 +62,191 @@ public class UserVerticle extends AbstractVerticle {
 
     private static final Logger logger = LoggerFactory.getLogger(UserVerticle.class);
     private static final String CONTENT_TYPE_JSON = "application/json";
-    private static final int PORT = 8080;
+    // Pre-encoded header value, so the hot GET path does not re-encode the string per response
+    private static final CharSequence CONTENT_TYPE_JSON_VALUE = HttpHeaders.createOptimized(CONTENT_TYPE_JSON);
+    private static final String CONTENT_TYPE_NDJSON = "application/x-ndjson";
+    private static final String CONTENT_TYPE_EVENT_STREAM = "text/event-stream";
+    private static final String CONTENT_TYPE_PROMETHEUS = "text/plain; version=0.0.4; charset=utf-8";
+    static final int DEFAULT_PORT = 8080;
+    private static final long LAG_SAMPLE_MILLIS = 100;
+
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int DEFAULT_SEARCH_LIMIT = 10;
+    private static final int MAX_SEARCH_LIMIT = 100;
+    private static final int STREAM_PAGE_SIZE = 256;
+    private static final int BULK_BATCH_SIZE = 500;
+    private static final int MAX_BULK_LINE_BYTES = 64 * 1024;
+    private static final int MAX_BATCH_GET_IDS = 1000;
+    // A user is two short strings; anything much bigger is a mistake or an attack, refused before it is read
+    static final int MAX_USER_BODY_BYTES = 4 * 1024;
+    // Room for MAX_BATCH_GET_IDS quoted UUIDs and the commas between them
+    static final int MAX_BATCH_GET_BODY_BYTES = 64 * 1024;
+    // Seconds a client turned away by admission control is asked to wait before retrying
+    private static final String RETRY_AFTER_SECONDS = "1";
 
     private static final Pattern EMAIL_PATTERN = Pattern.compile("^[^@]+@[^@]+\\.[^@]+$");
 
-    private final UserStore userStore;
+    private final AsyncUserStore userStore;
+    private final Metrics metrics;
+    private final int port;
+    // Null when the store does not publish its changes
+    private final ChangeFeed changes;
+    // Null when requests are admitted without limit
+    private final ConcurrencyLimiter limiter;
+    private final ServerConfig server;
+    private final Health health;
+    // Change streams this instance serves, ended on shutdown so their consumers reconnect elsewhere
+    private final Set<ChangeStream> changeStreams = new HashSet<>();
+    // The metrics of each timed route, looked up by the route a request ended on
+    private final Map<Route, RouteMetrics> timedRoutes = new IdentityHashMap<>();
+    private HttpServer httpServer;
+    // The port the server is bound to, which differs from port when that asks for any free one
+    private volatile int actualPort;
+    private LongAdder[] rejected;
+    private long lagTimer = -1;
 
-    // Constructor to initialize the UserStore, defaulting to InMemoryUserStore
-    public UserVerticle(UserStore userStore) {
-        this.userStore = userStore;
+    // Handlers only ever wait on the store's futures, so a blocking store never stalls the event loop
+    public UserVerticle(Options options) {
+        this.userStore = options.store();
+        this.metrics = options.metrics();
+        this.port = options.port();
+        this.changes = options.changes();
+        this.limiter = options.limiter();
+        this.server = options.server();
+        this.health = options.health();
     }
 
+    // Each instance created this way owns a private store, so multi-instance deployments
+    // must share one Options instead (see Main.deploy)
     public UserVerticle() {
-        this(new InMemoryUserStore());
+        this(Options.builder(new InMemoryUserStore()).build());
+    }
+
+    // What a UserVerticle serves and how. Instances deployed together share one Options, and with it the
+    // Metrics the routes record into, so /metrics on any of them reports the whole process, the limiter,
+    // so the concurrency limit is the whole process's, and the Health, so they all drain together.
+    // changes is null when the store publishes no change feed, and limiter null to admit every request.
+    // Port 0 binds a free port, which Main.deploy has all the instances it deploys share.
+    public record Options(AsyncUserStore store, Metrics metrics, int port, ChangeFeed changes,
+                          ConcurrencyLimiter limiter, ServerConfig server, Health health) {
+
+        public static Builder builder(AsyncUserStore store) {
+            return new Builder(store);
+        }
+
+        // A store that never blocks is called directly from the event loop
+        public static Builder builder(UserStore store) {
+            return new Builder(new InlineAsyncUserStore(store));
+        }
+
+        // Starts from the defaults: fresh Metrics, DEFAULT_PORT, no change feed, a default limiter,
+        // ServerConfig.DEFAULT and a Health of its own
+        public static final class Builder {
+
+            private final AsyncUserStore store;
+            private Metrics metrics;
+            private int port = DEFAULT_PORT;
+            private ChangeFeed changes;
+            private ConcurrencyLimiter limiter = new ConcurrencyLimiter();
+            private ServerConfig server = ServerConfig.DEFAULT;
+            private Health health;
+
+            private Builder(AsyncUserStore store) {
+                this.store = store;
+            }
+
+            public Builder metrics(Metrics metrics) {
+                this.metrics = metrics;
+                return this;
+            }
+
+            public Builder port(int port) {
+                this.port = port;
+                return this;
+            }
+
+            public Builder changes(ChangeFeed changes) {
+                this.changes = changes;
+                return this;
+            }
+
+            public Builder limiter(ConcurrencyLimiter limiter) {
+                this.limiter = limiter;
+                return this;
+            }
+
+            public Builder server(ServerConfig server) {
+                this.server = server;
+                return this;
+            }
+
+            public Builder health(Health health) {
+                this.health = health;
+                return this;
+            }
+
+            public Options build() {
+                return new Options(store, metrics != null ? metrics : new Metrics(), port, changes, limiter, server,
+                    health != null ? health : new Health());
+            }
+        }
     }
 
     @Override
     // Start the verticle and set up the HTTP server with routes
     public void start(Promise<Void> startPromise) {
         Router router = Router.router(vertx);
-        router.route().handler(BodyHandler.create());
 
-        router.post("/users").handler(this::createUser);
-        router.get("/users/:id").handler(this::getUserById);
-        router.put("/users/:id/email").handler(this::updateUserEmail);
-        router.delete("/users/:id").handler(this::deleteUser);
+        // Probes are answered ahead of admission control, so an overloaded process is not restarted for it
+        router.get("/health/live").handler(ctx -> sendStatus(ctx, 200, "live"));
+        router.get("/health/ready").handler(this::checkReadiness);
+        router.route().handler(this::closeConnectionsWhenDraining);
+
+        // Ahead of every route, so an overloaded server turns requests away before reading their bodies
+        if (limiter != null) {
+            registerAdmissionMetrics();
+        }
+        router.route().handler(this::admit);
+
+        if (server.compression()) {
+            router.route().handler(this::skipCompressionOfSmallResponses);
+        }
+
+        // The import body is parsed as it arrives, never buffered
+        timed("POST /users:bulk", router.postWithRegex("/users:bulk")).handler(this::bulkCreateUsers);
+
+        // Registered ahead of /users/:id, which would otherwise take "changes" or "search" for an id.
+        // The change feed is a long-lived stream, so it is not timed.
+        router.get("/users/changes").handler(this::streamChanges);
+        timed("GET /users/search", router.get("/users/search")).handler(this::searchUsers);
 
+        // Only the routes that take a body buffer one, each up to its own limit. A larger Content-Length
+        // is answered 413 before any of the body is read, and a chunked body as soon as it passes the limit.
+        BodyHandler userBody = bodyHandler(MAX_USER_BODY_BYTES);
+        BodyHandler batchGetBody = bodyHandler(MAX_BATCH_GET_BODY_BYTES);
+
+        router.get("/metrics").handler(this::scrapeMetrics);
+        timed("POST /users", router.post("/users")).handler(userBody).handler(this::createUser);
+        timed("POST /users:batchGet", router.postWithRegex("/users:batchGet")).handler(batchGetBody)
+            .handler(this::batchGetUsers);
+        timed("GET /users", router.get("/users")).handler(this::listUsers);
+        timed("GET /users/:id", router.get("/users/:id")).handler(this::getUserById);
+        timed("PUT /users/:id/email", router.put("/users/:id/email")).handler(userBody)
+            .handler(this::updateUserEmail);
+        timed("DELETE /users/:id", router.delete("/users/:id")).handler(this::deleteUser);
+
+        router.errorHandler(413, ctx -> sendError(ctx, 413, "Request body is too large"));
         router.errorHandler(500, this::handleError);
 
-        HttpServer server = vertx.createHttpServer();
-        server.requestHandler(router)
-            .listen(PORT)
+        sampleEventLoopLag(metrics.histogram("vertx_event_loop_lag_seconds",
+            "How late timers fire on each event loop", "thread", Thread.currentThread().getName()));
+
+        httpServer = vertx.createHttpServer(server.httpServerOptions(port)).requestHandler(router);
+        httpServer.listen()
             .onSuccess(http -> {
-                logger.info("HTTP server started on port {}", PORT);
+                actualPort = http.actualPort();
+                logger.info("HTTP server started on port {}", actualPort);
                 startPromise.complete();
             })
             .onFailure(error -> {
@@ -64,53 +255,277 @@ public class UserVerticle extends AbstractVerticle {
             });
     }
 
-    // Hanlder to create a new User
-    private void createUser(RoutingContext ctx) {
-        try {
-            JsonObject body = ctx.body().asJsonObject();
-            if (body == null) {
-                sendError(ctx, 400, "Request body must be valid JSON");
+    @Override
+    // Graceful shutdown: the server stops accepting connections, ends the change streams and lets the
+    // requests in flight finish, for up to the shutdown timeout, before closing the connections left.
+    // Vert.x calls this for every instance when it is closed.
+    public void stop(Promise<Void> stopPromise) {
+        vertx.cancelTimer(lagTimer);
+        List.copyOf(changeStreams).forEach(ChangeStream::end);
+        httpServer.shutdown(server.shutdownTimeoutSeconds(), TimeUnit.SECONDS)
+            .onSuccess(v -> logger.info("HTTP server on port {} drained", actualPort))
+            .onComplete(stopPromise);
+    }
+
+    // The port the server is bound to, once started
+    int actualPort() {
+        return actualPort;
+    }
+
+    // 200 while the process takes traffic, 503 once it drains for shutdown
+    private void checkReadiness(RoutingContext ctx) {
+        if (health.isReady()) {
+            sendStatus(ctx, 200, "ready");
+        } else {
+            sendStatus(ctx, 503, "draining");
+        }
+    }
+
+    // Once the process drains, an HTTP/1.1 connection is closed after its response, so a keep-alive client
+    // opens its next one to a process that is staying. HTTP/2 clients are sent GOAWAY by the shutdown itself.
+    private void closeConnectionsWhenDraining(RoutingContext ctx) {
+        if (!health.isReady() && ctx.request().version() != HttpVersion.HTTP_2) {
+            ctx.response().putHeader(HttpHeaders.CONNECTION, HttpHeaders.CLOSE);
+        }
+        ctx.next();
+    }
+
+    // Admission control: takes a permit for the request, reads and writes with their own priorities, or
+    // turns it away at once with 503 and Retry-After. The permit goes back once the response has ended,
+    // with the request's latency for the limiter unless the request was a stream or its client left.
+    // Metrics and the change feed are never turned away: one is how overload is seen, the other is idle.
+    // Without a limiter every request is admitted, and the end handler only times it.
+    private void admit(RoutingContext ctx) {
+        HttpServerRequest request = ctx.request();
+        String path = request.path();
+        if ("/metrics".equals(path) || "/users/changes".equals(path)) {
+            ctx.next();
+            return;
+        }
+        Priority priority = null;
+        if (limiter != null) {
+            priority = isRead(request) ? Priority.READ : Priority.WRITE;
+            if (!limiter.tryAcquire(priority)) {
+                rejected[priority.ordinal()].increment();
+                ctx.response().putHeader(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS);
+                sendError(ctx, 503, "Server is overloaded, retry later");
                 return;
             }
+        }
+        boolean stream = "/users:bulk".equals(path) || ("/users".equals(path) && wantsNdjson(ctx));
+        ctx.addEndHandler(new Exchange(ctx, priority, stream, System.nanoTime()));
+        ctx.next();
+    }
 
-            String name = body.getString("name");
-            String email = body.getString("email");
+    // What a request needs once its response has ended: the admission to release, if it took one, and
+    // the latency and status class to record, if it ended on a timed route. The one end handler a
+    // request gets, so admission and timing do not each allocate their own.
+    private final class Exchange implements Handler<AsyncResult<Void>> {
+        private final RoutingContext ctx;
+        // Null when requests are admitted without limit
+        private final Priority priority;
+        private final boolean stream;
+        private final long start;
 
-            if (name == null || name.trim().isEmpty()) {
-                sendError(ctx, 400, "Name is required and cannot be empty");
+        Exchange(RoutingContext ctx, Priority priority, boolean stream, long start) {
+            this.ctx = ctx;
+            this.priority = priority;
+            this.stream = stream;
+            this.start = start;
+        }
+
+        @Override
+        public void handle(AsyncResult<Void> ended) {
+            long elapsed = System.nanoTime() - start;
+            RouteMetrics route = timedRoutes.get(ctx.currentRoute());
+            if (route != null) {
+                route.record(elapsed, ctx.response().getStatusCode());
+            }
+            if (priority == null) {
                 return;
             }
+            if (stream || ended.failed()) {
+                limiter.release(priority);
+            } else {
+                limiter.release(priority, elapsed);
+            }
+        }
+    }
 
-            if (email == null || email.trim().isEmpty()) {
-                sendError(ctx, 400, "Email is required and cannot be empty");
-                return;
+    // Marks responses shorter than the compression threshold as identity-encoded, which Vert.x leaves
+    // uncompressed. Streamed responses have no length up front and are compressed whatever their size.
+    private void skipCompressionOfSmallResponses(RoutingContext ctx) {
+        HttpServerResponse response = ctx.response();
+        ctx.addHeadersEndHandler(v -> {
+            String length = response.headers().get(HttpHeaders.CONTENT_LENGTH);
+            if (length != null && !response.headers().contains(HttpHeaders.CONTENT_ENCODING)
+                && Long.parseLong(length) < server.compressionMinBytes()) {
+                response.putHeader(HttpHeaders.CONTENT_ENCODING, HttpHeaders.IDENTITY);
             }
+        });
+        ctx.next();
+    }
 
-            if (!isValidEmail(email)) {
-                sendError(ctx, 400, "Invalid email format");
-                return;
+    // Reads are GET and HEAD, and the batch lookup, which only uses POST to carry its ids
+    private static boolean isRead(HttpServerRequest request) {
+        HttpMethod method = request.method();
+        return method == HttpMethod.GET || method == HttpMethod.HEAD
+            || (method == HttpMethod.POST && "/users:batchGet".equals(request.path()));
+    }
+
+    // Every instance registers the same gauges over the shared limiter, so registering again is harmless
+    private void registerAdmissionMetrics() {
+        metrics.gauge("http_server_concurrency_limit", "Requests the server currently admits at once",
+            limiter::limit);
+        metrics.gauge("http_server_requests_in_flight", "Admitted requests not yet answered",
+            () -> limiter.inFlight() - limiter.writesInFlight(), "priority", "read");
+        metrics.gauge("http_server_requests_in_flight", "Admitted requests not yet answered",
+            limiter::writesInFlight, "priority", "write");
+        rejected = new LongAdder[Priority.values().length];
+        for (Priority priority : Priority.values()) {
+            rejected[priority.ordinal()] = metrics.counter("http_server_rejected_requests_total",
+                "Requests turned away with 503 by admission control", "priority",
+                priority.name().toLowerCase(Locale.ROOT));
+        }
+    }
+
+    // Has requests that end on the route record their latency, from admission to the end of the
+    // response, and the status class of the response. The metrics are looked up here, once per route,
+    // and the request's Exchange records into them, so timing adds nothing per request.
+    private Route timed(String name, Route route) {
+        timedRoutes.put(route, new RouteMetrics(metrics, name));
+        return route;
+    }
+
+    private static final class RouteMetrics {
+        private final LatencyHistogram latency;
+        private final LongAdder[] responses = new LongAdder[6];
+
+        RouteMetrics(Metrics metrics, String route) {
+            latency = metrics.histogram("http_server_request_seconds", "HTTP request latency per route",
+                "route", route);
+            for (int statusClass = 1; statusClass <= 5; statusClass++) {
+                responses[statusClass] = metrics.counter("http_server_responses_total",
+                    "HTTP responses per route and status class", "route", route, "status", statusClass + "xx");
             }
+        }
 
-            User user = new User(UUID.randomUUID(), name.trim(), email.trim());
-            User created = userStore.create(user);
+        void record(long nanos, int status) {
+            latency.record(nanos);
+            int statusClass = status / 100;
+            responses[statusClass >= 1 && statusClass <= 5 ? statusClass : 5].increment();
+        }
+    }
 
-            JsonObject response = toJson(created);
+    // Re-arms a timer every LAG_SAMPLE_MILLIS and records how much later than scheduled it fired,
+    // which is how long this event loop was kept busy by other work
+    private void sampleEventLoopLag(LatencyHistogram lag) {
+        long scheduled = System.nanoTime();
+        lagTimer = vertx.setTimer(LAG_SAMPLE_MILLIS, id -> {
+            lag.record(System.nanoTime() - scheduled - TimeUnit.MILLISECONDS.toNanos(LAG_SAMPLE_MILLIS));
+            sampleEventLoopLag(lag);
+        });
+    }
 
-            ctx.response()
-                .setStatusCode(201)
-                .putHeader("Content-Type", CONTENT_TYPE_JSON)
-                .putHeader("Location", "/users/" + created.id())
-                .end(response.encode());
+    // Handler serving every metric in Prometheus text format
+    private void scrapeMetrics(RoutingContext ctx) {
+        ctx.response()
+            .setStatusCode(200)
+            .putHeader("Content-Type", CONTENT_TYPE_PROMETHEUS)
+            .end(metrics.scrape());
+    }
 
-            logger.info("Created user: {}", created.id());
+    // Handler following the change feed as Server-Sent Events, or over a WebSocket when the request asks
+    // for an upgrade. Resumes after the position in Last-Event-ID or ?after=, else from now on. A position
+    // handed out by another run of the process is answered with a resync.
+    private void streamChanges(RoutingContext ctx) {
+        if (changes == null) {
+            sendError(ctx, 501, "This node does not publish a change feed");
+            return;
+        }
+        long after;
+        try {
+            after = parseAfter(ctx.request());
+        } catch (IllegalArgumentException e) {
+            sendError(ctx, 400, "after and Last-Event-ID must be a change feed position");
+            return;
+        }
+        if ("websocket".equalsIgnoreCase(ctx.request().getHeader(HttpHeaders.UPGRADE))) {
+            ctx.request().toWebSocket()
+                .onSuccess(socket -> {
+                    ChangeStream stream = ChangeStream.webSocket(vertx, socket, changes, after);
+                    changeStreams.add(stream);
+                    socket.endHandler(v -> changeStreams.remove(stream));
+                })
+                .onFailure(error -> logger.warn("Change feed WebSocket upgrade failed", error));
+            return;
+        }
+        HttpServerResponse response = ctx.response()
+            .setStatusCode(200)
+            .setChunked(true)
+            .putHeader(HttpHeaders.CONTENT_TYPE, CONTENT_TYPE_EVENT_STREAM)
+            .putHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+        ChangeStream stream = ChangeStream.serverSentEvents(vertx, response, changes, after);
+        changeStreams.add(stream);
+        ctx.addEndHandler(ended -> changeStreams.remove(stream));
+    }
 
+    // The sequence number to resume after, the feed's latest when none is given, or ChangeFeed.OTHER_RUN.
+    // Throws IllegalArgumentException when the position is invalid.
+    private long parseAfter(HttpServerRequest request) {
+        String after = request.getHeader("Last-Event-ID");
+        if (after == null) {
+            after = request.getParam("after");
+        }
+        if (after == null) {
+            return changes.lastSequence();
+        }
+        return changes.sequenceOf(after.trim());
+    }
+
+    // Hanlder to create a new User
+    private void createUser(RoutingContext ctx) {
+        try {
+            UserInput body = UserInput.parse(ctx.body().buffer().getBytes());
+            String name = body.name();
+            String email = body.email();
+
+            String invalid = validateNewUser(name, email);
+            if (invalid != null) {
+                sendError(ctx, 400, invalid);
+                return;
+            }
+
+            User user = new User(name.trim(), email.trim());
+            userStore.create(user)
+                .onSuccess(created -> {
+                    ctx.response()
+                        .setStatusCode(201)
+                        .putHeader("Content-Type", CONTENT_TYPE_JSON)
+                        .putHeader("Location", "/users/" + created.id())
+                        .putHeader(HttpHeaders.ETAG, etag(created.version()))
+                        .end(toJson(created).encode());
+
+                    logger.info("Created user: {}", created.id());
+                })
+                .onFailure(error -> sendStoreFailure(ctx, error, "Error creating user"));
+
+        } catch (InvalidInputException e) {
+            sendError(ctx, 400, e.getMessage());
         } catch (Exception e) {
             logger.error("Error creating user", e);
             sendError(ctx, 500, "Internal server error");
         }
     }
 
-    // Handler to get a User by their UUID
+    // Handler to import users from an NDJSON body, one {"name", "email"} object per line. Lines are parsed
+    // as the body streams in and inserted in batches; the response streams one result line per input line.
+    private void bulkCreateUsers(RoutingContext ctx) {
+        new BulkImport(ctx.request(), ctx.response()).start();
+    }
+
+    // Handler to get a User by their UUID. The version is sent as the ETag and a matching
+    // If-None-Match gets 304 Not Modified without a body.
     private void getUserById(RoutingContext ctx) {
         try {
             UUID id = parseUUID(ctx.pathParam("id"));
@@ -119,18 +534,247 @@ public class UserVerticle extends AbstractVerticle {
                 return;
             }
 
-            User user = userStore.findById(id)
-                .orElseThrow(() -> new UserNotFoundException(id));
+            userStore.findEncodedById(id)
+                .compose(found -> found.isPresent()
+                    ? Future.succeededFuture(found.get()) : Future.failedFuture(new UserNotFoundException(id)))
+                .onSuccess(found -> sendEncodedUser(ctx, found))
+                .onFailure(error -> sendStoreFailure(ctx, error, "Error retrieving user"));
+
+        } catch (Exception e) {
+            logger.error("Error retrieving user", e);
+            sendError(ctx, 500, "Internal server error");
+        }
+    }
 
+    private void sendEncodedUser(RoutingContext ctx, EncodedUser found) {
+        String etag = etag(found.user().version());
+        if (matchesAny(ctx.request().getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
             ctx.response()
-                .setStatusCode(200)
-                .putHeader("Content-Type", CONTENT_TYPE_JSON)
-                .end(toJson(user).encode());
+                .setStatusCode(304)
+                .putHeader(HttpHeaders.ETAG, etag)
+                .end();
+            return;
+        }
+
+        // The store's pre-encoded bytes are copied once into the response buffer, with no JSON encoding.
+        // Wrapping them without the copy would take Vert.x and Netty internals.
+        ctx.response()
+            .setStatusCode(200)
+            .putHeader(HttpHeaders.CONTENT_TYPE, CONTENT_TYPE_JSON_VALUE)
+            .putHeader(HttpHeaders.ETAG, etag)
+            .end(Buffer.buffer(found.json()));
+    }
+
+    // Handler to list Users one cursor page at a time, or stream all of them as NDJSON.
+    // GET /users?email= is served by the email lookup instead.
+    private void listUsers(RoutingContext ctx) {
+        if (ctx.request().getParam("email") != null) {
+            getUserByEmail(ctx);
+            return;
+        }
+        try {
+            UUID cursor = null;
+            String cursorParam = ctx.request().getParam("cursor");
+            if (cursorParam != null) {
+                cursor = parseUUID(cursorParam);
+                if (cursor == null) {
+                    sendError(ctx, 400, "Invalid cursor");
+                    return;
+                }
+            }
+
+            if (wantsNdjson(ctx)) {
+                ctx.response()
+                    .setStatusCode(200)
+                    .setChunked(true)
+                    .putHeader("Content-Type", CONTENT_TYPE_NDJSON);
+                streamUsers(ctx.response(), cursor);
+                return;
+            }
+
+            int limit = parseLimit(ctx.request().getParam("limit"));
+            if (limit < 0) {
+                sendError(ctx, 400, "limit must be between 1 and " + MAX_PAGE_SIZE);
+                return;
+            }
+
+            userStore.findPage(cursor, limit)
+                .onSuccess(page -> {
+                    JsonArray users = new JsonArray();
+                    for (User user : page) {
+                        users.add(toJson(user));
+                    }
+                    // A full page means there may be more users after it
+                    String nextCursor = page.size() == limit ? page.get(page.size() - 1).id().toString() : null;
+
+                    ctx.response()
+                        .setStatusCode(200)
+                        .putHeader("Content-Type", CONTENT_TYPE_JSON)
+                        .end(new JsonObject().put("users", users).put("nextCursor", nextCursor).encode());
+                })
+                .onFailure(error -> sendStoreFailure(ctx, error, "Error listing users"));
 
-        } catch (UserNotFoundException e) {
-            sendError(ctx, 404, e.getMessage());
         } catch (Exception e) {
-            logger.error("Error retrieving user", e);
+            logger.error("Error listing users", e);
+            sendError(ctx, 500, "Internal server error");
+        }
+    }
+
+    // Writes users page by page, one line each. When the client reads slower than we produce, the write
+    // queue fills up and we stop until the drain handler fires, so an export never buffers more than a
+    // page or so regardless of store size. Each page is written in its own event loop turn.
+    private void streamUsers(HttpServerResponse response, UUID after) {
+        if (response.closed()) {
+            return;
+        }
+        userStore.findPage(after, STREAM_PAGE_SIZE)
+            .onSuccess(page -> writePage(response, page))
+            .onFailure(error -> {
+                logger.error("Error streaming users", error);
+                response.reset();
+            });
+    }
+
+    private void writePage(HttpServerResponse response, List<User> page) {
+        if (response.closed()) {
+            return;
+        }
+        Buffer chunk = Buffer.buffer(page.size() * 96);
+        for (User user : page) {
+            chunk.appendString(toJson(user).encode()).appendByte((byte) '\n');
+        }
+        if (page.size() < STREAM_PAGE_SIZE) {
+            response.end(chunk);
+            return;
+        }
+        response.write(chunk);
+
+        UUID next = page.get(page.size() - 1).id();
+        if (response.writeQueueFull()) {
+            response.drainHandler(v -> {
+                response.drainHandler(null);
+                streamUsers(response, next);
+            });
+        } else {
+            vertx.runOnContext(v -> streamUsers(response, next));
+        }
+    }
+
+    // Handler to fetch many Users by id in one round trip, reporting the ids that do not exist
+    private void batchGetUsers(RoutingContext ctx) {
+        try {
+            JsonObject body = ctx.body().asJsonObject();
+            JsonArray idsParam = body == null ? null : body.getJsonArray("ids");
+            if (idsParam == null) {
+                sendError(ctx, 400, "Request body must be a JSON object with an 'ids' array");
+                return;
+            }
+            if (idsParam.size() > MAX_BATCH_GET_IDS) {
+                sendError(ctx, 400, "At most " + MAX_BATCH_GET_IDS + " ids can be fetched at once");
+                return;
+            }
+
+            Set<UUID> ids = new LinkedHashSet<>(idsParam.size() * 2);
+            for (Object value : idsParam) {
+                UUID id = value instanceof String text ? parseUUID(text) : null;
+                if (id == null) {
+                    sendError(ctx, 400, "Invalid UUID format: " + value);
+                    return;
+                }
+                ids.add(id);
+            }
+
+            userStore.findAllById(ids)
+                .onSuccess(found -> sendBatch(ctx, ids, found))
+                .onFailure(error -> sendStoreFailure(ctx, error, "Error fetching users by id"));
+
+        } catch (DecodeException e) {
+            sendError(ctx, 400, "Request body must be a JSON object with an 'ids' array");
+        } catch (ClassCastException e) {
+            sendError(ctx, 400, "'ids' must be an array of UUID strings");
+        } catch (Exception e) {
+            logger.error("Error fetching users by id", e);
+            sendError(ctx, 500, "Internal server error");
+        }
+    }
+
+    // The found users in the order they were asked for, followed by the ids that do not exist
+    private void sendBatch(RoutingContext ctx, Set<UUID> ids, Map<UUID, User> found) {
+        JsonArray users = new JsonArray();
+        JsonArray missing = new JsonArray();
+        for (UUID id : ids) {
+            User user = found.get(id);
+            if (user != null) {
+                users.add(toJson(user));
+            } else {
+                missing.add(id.toString());
+            }
+        }
+
+        ctx.response()
+            .setStatusCode(200)
+            .putHeader("Content-Type", CONTENT_TYPE_JSON)
+            .end(new JsonObject().put("users", users).put("missing", missing).encode());
+    }
+
+    // Handler to look up a User by email through the store's email index
+    private void getUserByEmail(RoutingContext ctx) {
+        try {
+            String email = ctx.request().getParam("email");
+            if (email == null || email.trim().isEmpty()) {
+                sendError(ctx, 400, "Query parameter 'email' is required");
+                return;
+            }
+
+            userStore.findByEmail(email)
+                .onSuccess(user -> {
+                    if (user.isEmpty()) {
+                        sendError(ctx, 404, "User with email " + email.trim() + " not found");
+                        return;
+                    }
+                    ctx.response()
+                        .setStatusCode(200)
+                        .putHeader("Content-Type", CONTENT_TYPE_JSON)
+                        .end(toJson(user.get()).encode());
+                })
+                .onFailure(error -> sendStoreFailure(ctx, error, "Error retrieving user by email"));
+
+        } catch (Exception e) {
+            logger.error("Error retrieving user by email", e);
+            sendError(ctx, 500, "Internal server error");
+        }
+    }
+
+    // Handler for type-ahead search: the first users by name whose name starts with the prefix
+    private void searchUsers(RoutingContext ctx) {
+        try {
+            String prefix = ctx.request().getParam("namePrefix");
+            if (prefix == null || prefix.trim().isEmpty()) {
+                sendError(ctx, 400, "Query parameter 'namePrefix' is required");
+                return;
+            }
+
+            int limit = parseLimit(ctx.request().getParam("limit"), DEFAULT_SEARCH_LIMIT, MAX_SEARCH_LIMIT);
+            if (limit < 0) {
+                sendError(ctx, 400, "limit must be between 1 and " + MAX_SEARCH_LIMIT);
+                return;
+            }
+
+            userStore.findByNamePrefix(prefix, limit)
+                .onSuccess(matches -> {
+                    JsonArray users = new JsonArray();
+                    for (User user : matches) {
+                        users.add(toJson(user));
+                    }
+                    ctx.response()
+                        .setStatusCode(200)
+                        .putHeader("Content-Type", CONTENT_TYPE_JSON)
+                        .end(new JsonObject().put("users", users).encode());
+                })
+                .onFailure(error -> sendStoreFailure(ctx, error, "Error searching users"));
+
+        } catch (Exception e) {
+            logger.error("Error searching users", e);
             sendError(ctx, 500, "Internal server error");
         }
     }
@@ -144,13 +788,7 @@ public class UserVerticle extends AbstractVerticle {
                 return;
             }
 
-            JsonObject body = ctx.body().asJsonObject();
-            if (body == null) {
-                sendError(ctx, 400, "Request body must be valid JSON");
-                return;
-            }
-
-            String email = body.getString("email");
+            String email = UserInput.parse(ctx.body().buffer().getBytes()).email();
             if (email == null || email.trim().isEmpty()) {
                 sendError(ctx, 400, "Email is required and cannot be empty");
                 return;
@@ -161,21 +799,35 @@ public class UserVerticle extends AbstractVerticle {
                 return;
             }
 
-            User existing = userStore.findById(id)
-                .orElseThrow(() -> new UserNotFoundException(id));
-
-            User updated = new User(id, existing.name(), email.trim());
-            userStore.update(id, updated);
+            long[] versions = parseIfMatch(ctx.request().getHeader(HttpHeaders.IF_MATCH));
+            if (versions != null && versions.length == 0) {
+                sendError(ctx, 412, "If-Match must be * or ETags of this API");
+                return;
+            }
 
-            ctx.response()
-                .setStatusCode(200)
-                .putHeader("Content-Type", CONTENT_TYPE_JSON)
-                .end(toJson(updated).encode());
+            // One atomic store step, so the response shows exactly the state this request wrote. The store
+            // checks a single expected version itself; a list is checked against the user the change is given.
+            long expectedVersion = versions != null && versions.length == 1 ? versions[0] : UserStore.ANY_VERSION;
+            UnaryOperator<User> change = existing -> {
+                if (versions != null && versions.length > 1 && !contains(versions, existing.version())) {
+                    throw new VersionConflictException(id, versions[0], existing.version());
+                }
+                return new User(id, existing.name(), email.trim());
+            };
+            userStore.update(id, expectedVersion, change)
+                .onSuccess(updated -> {
+                    ctx.response()
+                        .setStatusCode(200)
+                        .putHeader("Content-Type", CONTENT_TYPE_JSON)
+                        .putHeader(HttpHeaders.ETAG, etag(updated.version()))
+                        .end(toJson(updated).encode());
 
-            logger.info("Updated email for user: {}", id);
+                    logger.info("Updated email for user: {}", id);
+                })
+                .onFailure(error -> sendStoreFailure(ctx, error, "Error updating user email"));
 
-        } catch (UserNotFoundException e) {
-            sendError(ctx, 404, e.getMessage());
+        } catch (InvalidInputException e) {
+            sendError(ctx, 400, e.getMessage());
         } catch (Exception e) {
             logger.error("Error updating user email", e);
             sendError(ctx, 500, "Internal server error");
@@ -191,23 +843,24 @@ public class UserVerticle extends AbstractVerticle {
                 return;
             }
 
-            userStore.delete(id);
+            userStore.delete(id)
+                .onSuccess(v -> {
+                    ctx.response()
+                        .setStatusCode(204)
+                        .end();
 
-            ctx.response()
-                .setStatusCode(204)
-                .end();
-
-            logger.info("Deleted user: {}", id);
+                    logger.info("Deleted user: {}", id);
+                })
+                .onFailure(error -> sendStoreFailure(ctx, error, "Error deleting user"));
 
-        } catch (UserNotFoundException e) {
-            sendError(ctx, 404, e.getMessage());
         } catch (Exception e) {
             logger.error("Error deleting user", e);
             sendError(ctx, 500, "Internal server error");
         }
     }
 
-    private UUID parseUUID(String uuidString) {
+    // parseUUID, isValidEmail and toJson are package-private so the JMH benchmarks can measure them in isolation
+    static UUID parseUUID(String uuidString) {
         try {
             return UUID.fromString(uuidString);
         } catch (IllegalArgumentException e) {
@@ -215,17 +868,124 @@ public class UserVerticle extends AbstractVerticle {
         }
     }
 
-    private boolean isValidEmail(String email) {
+    // Returns the reason a new user is invalid, or null when name and email are acceptable
+    private String validateNewUser(String name, String email) {
+        if (name == null || name.trim().isEmpty()) {
+            return "Name is required and cannot be empty";
+        }
+        if (email == null || email.trim().isEmpty()) {
+            return "Email is required and cannot be empty";
+        }
+        if (!isValidEmail(email)) {
+            return "Invalid email format";
+        }
+        return null;
+    }
+
+    // Returns the requested page size, or -1 when it is out of range or not a number
+    private int parseLimit(String limitParam) {
+        return parseLimit(limitParam, DEFAULT_PAGE_SIZE, MAX_PAGE_SIZE);
+    }
+
+    private int parseLimit(String limitParam, int defaultLimit, int maxLimit) {
+        if (limitParam == null) {
+            return defaultLimit;
+        }
+        try {
+            int limit = Integer.parseInt(limitParam);
+            return limit >= 1 && limit <= maxLimit ? limit : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private boolean wantsNdjson(RoutingContext ctx) {
+        String accept = ctx.request().getHeader("Accept");
+        return "ndjson".equals(ctx.request().getParam("format"))
+            || (accept != null && accept.contains(CONTENT_TYPE_NDJSON));
+    }
+
+    static boolean isValidEmail(String email) {
         return email != null && EMAIL_PATTERN.matcher(email).matches();
     }
 
-    private JsonObject toJson(User user) {
+    // Strong entity tag for a user version
+    private static String etag(long version) {
+        return "\"" + version + "\"";
+    }
+
+    // Whether an If-None-Match header lists the tag or is *. Weak tags match too, as the header requires.
+    private static boolean matchesAny(String header, String etag) {
+        if (header == null) {
+            return false;
+        }
+        for (String candidate : header.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // The versions an If-Match header lists: null when it is absent or *, which any version matches. Tags
+    // this API could not have issued are left out, weak ones too since If-Match compares strongly, so an
+    // empty array means the header can never match.
+    private static long[] parseIfMatch(String header) {
+        if (header == null) {
+            return null;
+        }
+        String[] tags = header.split(",");
+        long[] versions = new long[tags.length];
+        int count = 0;
+        for (String candidate : tags) {
+            String tag = candidate.trim();
+            if (tag.equals("*")) {
+                return null;
+            }
+            if (tag.length() < 3 || tag.charAt(0) != '"' || tag.charAt(tag.length() - 1) != '"') {
+                continue;
+            }
+            try {
+                long version = Long.parseLong(tag.substring(1, tag.length() - 1));
+                if (version >= 0) {
+                    versions[count++] = version;
+                }
+            } catch (NumberFormatException e) {
+                // not a tag of this API, it matches nothing
+            }
+        }
+        return Arrays.copyOf(versions, count);
+    }
+
+    private static boolean contains(long[] versions, long version) {
+        for (long candidate : versions) {
+            if (candidate == version) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static JsonObject toJson(User user) {
         return new JsonObject()
             .put("id", user.id().toString())
             .put("name", user.name())
             .put("email", user.email());
     }
 
+    // JSON status body for the health probes
+    private void sendStatus(RoutingContext ctx, int statusCode, String status) {
+        ctx.response()
+            .setStatusCode(statusCode)
+            .putHeader(HttpHeaders.CONTENT_TYPE, CONTENT_TYPE_JSON_VALUE)
+            .putHeader(HttpHeaders.CACHE_CONTROL, "no-store")
+            .end("{\"status\":\"" + status + "\"}");
+    }
+
     // Helper method to send error responses in JSON format
     private void sendError(RoutingContext ctx, int statusCode, String message) {
         JsonObject error = new JsonObject()
@@ -238,10 +998,203 @@ public class UserVerticle extends AbstractVerticle {
             .end(error.encode());
     }
 
+    // Maps a failed store call to its response: the store's own exceptions become 404, 409 and 412
+    // (the latter with the current ETag), a write to a follower 503, anything else is logged and answered with 500
+    private void sendStoreFailure(RoutingContext ctx, Throwable error, String logMessage) {
+        if (error instanceof UserNotFoundException) {
+            sendError(ctx, 404, error.getMessage());
+        } else if (error instanceof DuplicateEmailException) {
+            sendError(ctx, 409, error.getMessage());
+        } else if (error instanceof VersionConflictException conflict) {
+            ctx.response().putHeader(HttpHeaders.ETAG, etag(conflict.getCurrentVersion()));
+            sendError(ctx, 412, error.getMessage());
+        } else if (error instanceof ReadOnlyReplicaException) {
+            sendError(ctx, 503, error.getMessage());
+        } else {
+            logger.error(logMessage, error);
+            sendError(ctx, 500, "Internal server error");
+        }
+    }
+
+    // Body handling for routes that take a JSON body of at most maxBytes; uploads are never expected
+    private static BodyHandler bodyHandler(int maxBytes) {
+        return BodyHandler.create(false).setBodyLimit(maxBytes);
+    }
+
     // Global error handler for unhandled exceptions
     private void handleError(RoutingContext ctx) {
         Throwable failure = ctx.failure();
         logger.error("Unhandled error in request", failure);
         sendError(ctx, 500, "Internal server error");
     }
+
+    // State of one streaming bulk import. All callbacks run on this verticle's event loop. At most one
+    // batch is in the store at a time: the upload is paused while it is, so lines are answered in order.
+    private final class BulkImport {
+
+        private final HttpServerRequest request;
+        private final HttpServerResponse response;
+        private final RecordParser parser;
+
+        // Parsed lines waiting for the next batch insert, each holding a user or a validation error
+        private final List<Integer> pendingLines = new ArrayList<>(BULK_BATCH_SIZE);
+        private final List<Object> pendingEntries = new ArrayList<>(BULK_BATCH_SIZE);
+        private int lineNumber;
+        private int created;
+        private int failed;
+        private boolean aborted;
+        private boolean inserting;
+        private boolean ended;
+        // Set when the upload failed because a line passed MAX_BULK_LINE_BYTES, answered 413 instead of 500
+        private boolean lineTooLong;
+
+        BulkImport(HttpServerRequest request, HttpServerResponse response) {
+            this.request = request;
+            this.response = response;
+            this.parser = RecordParser.newDelimited("\n", request).maxRecordSize(MAX_BULK_LINE_BYTES);
+        }
+
+        void start() {
+            response.setStatusCode(200)
+                .setChunked(true)
+                .putHeader("Content-Type", CONTENT_TYPE_NDJSON);
+            parser.exceptionHandler(error -> {
+                // The parser reports a line over its maxRecordSize as IllegalStateException; reading the
+                // upload itself fails with I/O errors
+                lineTooLong = error instanceof IllegalStateException;
+                fail(error);
+            });
+            parser.endHandler(v -> finish());
+            parser.handler(this::onLine);
+            request.resume();
+        }
+
+        private void onLine(Buffer line) {
+            if (aborted) {
+                return;
+            }
+            lineNumber++;
+            if (isBlank(line)) {
+                return;
+            }
+
+            Object entry;
+            try {
+                UserInput input = UserInput.parse(line.getBytes());
+                String invalid = validateNewUser(input.name(), input.email());
+                entry = invalid != null ? invalid : new User(input.name().trim(), input.email().trim());
+            } catch (InvalidInputException e) {
+                entry = "Line must be a JSON object with string name and email";
+            }
+            pendingLines.add(lineNumber);
+            pendingEntries.add(entry);
+
+            if (pendingEntries.size() >= BULK_BATCH_SIZE) {
+                flush();
+            }
+        }
+
+        // Insert the valid users of the batch in one store call and write a result line for every entry,
+        // then resume reading the upload, or end the response if it has been read completely
+        private void flush() {
+            List<User> users = new ArrayList<>(pendingEntries.size());
+            for (Object entry : pendingEntries) {
+                if (entry instanceof User user) {
+                    users.add(user);
+                }
+            }
+            inserting = true;
+            parser.pause();
+            Future<List<User>> stored = users.isEmpty()
+                ? Future.succeededFuture(List.of()) : userStore.createAll(users);
+            stored.onComplete(result -> {
+                inserting = false;
+                if (aborted) {
+                    return;
+                }
+                if (result.failed()) {
+                    fail(result.cause());
+                    return;
+                }
+                writeResults(result.result());
+                if (ended) {
+                    finish();
+                } else if (response.writeQueueFull()) {
+                    // Keep the upload paused until the client has consumed our results
+                    response.drainHandler(v -> {
+                        response.drainHandler(null);
+                        parser.resume();
+                    });
+                } else {
+                    parser.resume();
+                }
+            });
+        }
+
+        private void writeResults(List<User> stored) {
+            Buffer results = Buffer.buffer(pendingEntries.size() * 64);
+            int next = 0;
+            for (int i = 0; i < pendingEntries.size(); i++) {
+                JsonObject result = new JsonObject().put("line", pendingLines.get(i));
+                Object entry = pendingEntries.get(i);
+                if (entry instanceof User user) {
+                    User createdUser = stored.get(next++);
+                    if (createdUser != null) {
+                        result.put("status", 201).put("id", createdUser.id().toString());
+                        created++;
+                    } else {
+                        result.put("status", 409).put("error", "Email " + user.email() + " is already in use");
+                        failed++;
+                    }
+                } else {
+                    result.put("status", 400).put("error", entry);
+                    failed++;
+                }
+                results.appendString(result.encode()).appendByte((byte) '\n');
+            }
+            pendingLines.clear();
+            pendingEntries.clear();
+            response.write(results);
+        }
+
+        // Called when the upload has been read completely, and again once a batch still being inserted is done
+        private void finish() {
+            ended = true;
+            if (aborted || inserting) {
+                return;
+            }
+            if (!pendingEntries.isEmpty()) {
+                flush();
+                return;
+            }
+            response.end();
+            logger.info("Bulk import finished: {} created, {} failed", created, failed);
+        }
+
+        private void fail(Throwable error) {
+            if (aborted) {
+                return;
+            }
+            aborted = true;
+            logger.error("Bulk import aborted after {} lines", lineNumber, error);
+            if (response.ended() || response.closed()) {
+                return;
+            }
+            JsonObject result = new JsonObject()
+                .put("line", lineNumber + 1)
+                .put("status", lineTooLong ? 413 : 500)
+                .put("error", lineTooLong ? "Line exceeds " + MAX_BULK_LINE_BYTES + " bytes" : "Internal server error");
+            response.end(result.encode() + "\n");
+        }
+
+        // Whether the line is only whitespace, checked on its bytes without decoding it, like String.trim
+        private static boolean isBlank(Buffer line) {
+            for (int i = 0, length = line.length(); i < length; i++) {
+                if ((line.getByte(i) & 0xFF) > ' ') {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
 }
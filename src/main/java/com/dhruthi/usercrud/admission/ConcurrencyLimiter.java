@@ -0,0 +1,171 @@
+package com.dhruthi.usercrud.admission;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Admission control: caps the requests in flight at a limit that adapts to the latency they see, and
+// turns away the excess instead of letting it queue. The limit follows a gradient of latencies: each
+// window of completed requests compares its average latency with a long-term average of earlier
+// windows. While they are alike the limit is aimed its square root higher; once requests take longer
+// than TOLERANCE times the long-term average, queues are building and it is aimed lower in proportion,
+// down to half. Each window moves the limit a fifth of the way to its aim, within [minLimit, maxLimit].
+// While fewer than half the permits are in use the latencies say nothing about the limit, so it stays.
+//
+// Writes may only hold WRITE_SHARE of the limit, so a storm of writes leaves the rest to reads.
+// Thread-safe: permits are atomic counters and samples are added to striped counters, and the limit is
+// recomputed under a lock once per window, by whichever release finds the window over and the lock free.
+public class ConcurrencyLimiter {
+
+    public enum Priority { READ, WRITE }
+
+    public static final int DEFAULT_INITIAL_LIMIT = 200;
+    public static final int DEFAULT_MIN_LIMIT = 20;
+    public static final int DEFAULT_MAX_LIMIT = 2000;
+    static final Duration DEFAULT_WINDOW = Duration.ofMillis(100);
+    // Share of the limit that writes may hold at once
+    static final double WRITE_SHARE = 0.5;
+    // Latency of a window may reach this multiple of the long-term average before the limit shrinks
+    static final double TOLERANCE = 1.5;
+    static final double SMOOTHING = 0.2;
+    // Windows averaged into the long-term latency
+    static final int LONG_TERM_WINDOWS = 20;
+    // A window also needs this many samples before it closes, so a quiet second does not move the limit
+    static final int MIN_WINDOW_SAMPLES = 10;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long windowNanos;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger writesInFlight = new AtomicInteger();
+    private volatile int limit;
+
+    // The window being sampled; a sample that lands while it is being closed may count in the next one
+    private volatile long windowStart;
+    private final LongAdder windowSamples = new LongAdder();
+    private final LongAdder windowRttNanos = new LongAdder();
+    private final AtomicInteger windowMaxInFlight = new AtomicInteger();
+
+    // Guarded by windowLock
+    private final ReentrantLock windowLock = new ReentrantLock();
+    private double estimatedLimit;
+    private double longTermRttNanos;
+
+    public ConcurrencyLimiter() {
+        this(DEFAULT_INITIAL_LIMIT, DEFAULT_MIN_LIMIT, DEFAULT_MAX_LIMIT);
+    }
+
+    public ConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit) {
+        this(initialLimit, minLimit, maxLimit, DEFAULT_WINDOW);
+    }
+
+    // The window is the least time latencies are averaged over before the limit is recomputed
+    public ConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, Duration window) {
+        if (minLimit < 1 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("Limits must satisfy 1 <= min <= max, got " + minLimit + ".." + maxLimit);
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.windowNanos = window.toNanos();
+        this.estimatedLimit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.limit = (int) estimatedLimit;
+        this.windowStart = System.nanoTime();
+    }
+
+    // Takes a permit unless the limit, or the writes' share of it, is used up. Each permit taken must
+    // be given back by exactly one release.
+    public boolean tryAcquire(Priority priority) {
+        int current = limit;
+        if (priority == Priority.WRITE) {
+            if (writesInFlight.incrementAndGet() > Math.max(1, (int) (current * WRITE_SHARE))) {
+                writesInFlight.decrementAndGet();
+                return false;
+            }
+        }
+        if (inFlight.incrementAndGet() > current) {
+            inFlight.decrementAndGet();
+            if (priority == Priority.WRITE) {
+                writesInFlight.decrementAndGet();
+            }
+            return false;
+        }
+        return true;
+    }
+
+    // Gives a permit back without a latency sample, for requests whose duration says nothing about
+    // load: long-lived streams, or requests whose client went away
+    public void release(Priority priority) {
+        inFlight.decrementAndGet();
+        if (priority == Priority.WRITE) {
+            writesInFlight.decrementAndGet();
+        }
+    }
+
+    // Gives a permit back and feeds how long its request took into the limit
+    public void release(Priority priority, long rttNanos) {
+        int concurrency = inFlight.getAndDecrement();
+        if (priority == Priority.WRITE) {
+            writesInFlight.decrementAndGet();
+        }
+        sample(rttNanos, concurrency, System.nanoTime());
+    }
+
+    public int limit() {
+        return limit;
+    }
+
+    public int inFlight() {
+        return inFlight.get();
+    }
+
+    public int writesInFlight() {
+        return writesInFlight.get();
+    }
+
+    private void sample(long rttNanos, int concurrency, long now) {
+        windowSamples.increment();
+        windowRttNanos.add(rttNanos);
+        if (concurrency > windowMaxInFlight.get()) {
+            windowMaxInFlight.accumulateAndGet(concurrency, Math::max);
+        }
+        if (now - windowStart < windowNanos || windowSamples.sum() < MIN_WINDOW_SAMPLES
+            || !windowLock.tryLock()) {
+            return;
+        }
+        try {
+            // Another release may have closed the window between the checks and the lock
+            long samples = windowSamples.sum();
+            if (now - windowStart < windowNanos || samples < MIN_WINDOW_SAMPLES) {
+                return;
+            }
+            windowStart = now;
+            samples = windowSamples.sumThenReset();
+            double shortTermRtt = Math.max(1, (double) windowRttNanos.sumThenReset() / Math.max(1, samples));
+            update(shortTermRtt, windowMaxInFlight.getAndSet(0));
+        } finally {
+            windowLock.unlock();
+        }
+    }
+
+    private void update(double shortTermRtt, int maxInFlight) {
+        if (longTermRttNanos == 0) {
+            longTermRttNanos = shortTermRtt;
+        } else {
+            longTermRttNanos += (shortTermRtt - longTermRttNanos) / LONG_TERM_WINDOWS;
+        }
+        // After a spell of slow requests the long-term average would keep excusing slow windows for a
+        // while, so it drifts back quickly once requests are fast again
+        if (longTermRttNanos > 2 * shortTermRtt) {
+            longTermRttNanos *= 0.95;
+        }
+        if (maxInFlight < estimatedLimit / 2) {
+            return;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longTermRttNanos / shortTermRtt));
+        double target = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+        estimatedLimit = Math.max(minLimit, Math.min(maxLimit,
+            estimatedLimit * (1 - SMOOTHING) + target * SMOOTHING));
+        limit = (int) estimatedLimit;
+    }
+}
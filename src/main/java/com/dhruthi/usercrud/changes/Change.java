@@ -0,0 +1,71 @@
+package com.dhruthi.usercrud.changes;
+
+import com.dhruthi.usercrud.model.User;
+import com.dhruthi.usercrud.model.UserJson;
+import com.dhruthi.usercrud.store.MutationType;
+
+import java.nio.charset.StandardCharsets;
+
+// One entry of the ChangeFeed. Its JSON is encoded by the first consumer that sends it and shared by
+// the rest, so the write path never pays for it.
+public final class Change {
+
+    private final long runId;
+    private final long sequence;
+    private final MutationType type;
+    private final User user;
+    private final long timestampMillis;
+    // Racing consumers may both encode it; they produce the same bytes
+    private volatile byte[] json;
+
+    public Change(long runId, long sequence, MutationType type, User user, long timestampMillis) {
+        this.runId = runId;
+        this.sequence = sequence;
+        this.type = type;
+        this.user = user;
+        this.timestampMillis = timestampMillis;
+    }
+
+    public long sequence() {
+        return sequence;
+    }
+
+    // Where a consumer resumes after this change, as long as it reconnects to the same run of the feed
+    public String position() {
+        return ChangeFeed.position(runId, sequence);
+    }
+
+    public MutationType type() {
+        return type;
+    }
+
+    // For DELETE, the user as it was when deleted
+    public User user() {
+        return user;
+    }
+
+    public long timestampMillis() {
+        return timestampMillis;
+    }
+
+    // {"sequence":42,"position":"5f0c3e29a1b7d842-42","type":"UPDATE","version":3,"timestamp":1700000000000,"user":{"id":...,"name":...,"email":...}}
+    public byte[] json() {
+        byte[] encoded = json;
+        if (encoded == null) {
+            encoded = encode();
+            json = encoded;
+        }
+        return encoded;
+    }
+
+    private byte[] encode() {
+        byte[] head = ("{\"sequence\":" + sequence + ",\"position\":\"" + position() + "\",\"type\":\"" + type + "\",\"version\":" + user.version()
+            + ",\"timestamp\":" + timestampMillis + ",\"user\":").getBytes(StandardCharsets.US_ASCII);
+        byte[] userJson = UserJson.encode(user);
+        byte[] encoded = new byte[head.length + userJson.length + 1];
+        System.arraycopy(head, 0, encoded, 0, head.length);
+        System.arraycopy(userJson, 0, encoded, head.length, userJson.length);
+        encoded[encoded.length - 1] = '}';
+        return encoded;
+    }
+}
@@ -0,0 +1,186 @@
+package com.dhruthi.usercrud.changes;
+
+import com.dhruthi.usercrud.model.User;
+import com.dhruthi.usercrud.store.MutationListener;
+import com.dhruthi.usercrud.store.MutationType;
+import io.vertx.core.Context;
+
+import java.security.SecureRandom;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// The recent changes of a store, numbered 1, 2, 3, ... and kept in a fixed ring of slots for consumers
+// to read from any sequence number. Registered as a MutationListener, so for any one user the sequence
+// numbers follow the order of its changes. Appending takes no lock and never waits for a reader: a
+// reader that falls a whole ring behind finds its next entry overwritten and has to resync.
+//
+// Numbering starts over with every run of the process, so each feed also has a random run id. Consumers
+// are handed positions, "<run id in hex>-<sequence>"; one from another run says nothing about this feed
+// and means a resync.
+//
+// It serves both the ChangeStreams of HTTP consumers and the replication leader's followers.
+public class ChangeFeed implements MutationListener {
+
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+    // What sequenceOf returns for a position handed out by another run
+    public static final long OTHER_RUN = -1;
+
+    // What a read found after the requested sequence number
+    public enum ReadResult {
+        // Every published entry was read, up to the requested maximum
+        OK,
+        // The next entry was already overwritten, or the sequence number is ahead of this feed
+        OVERRUN
+    }
+
+    private static final SecureRandom RUN_IDS = new SecureRandom();
+
+    private final long runId = newRunId();
+    private final AtomicReferenceArray<Change> slots;
+    private final int mask;
+    private final AtomicLong lastSequence = new AtomicLong();
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final LongAdder resyncs = new LongAdder();
+
+    public ChangeFeed() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    // The capacity is rounded up to a power of two
+    public ChangeFeed(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    @Override
+    public void onMutation(MutationType type, User user, long commit) {
+        long sequence = lastSequence.incrementAndGet();
+        slots.set((int) (sequence & mask), new Change(runId, sequence, type, user, System.currentTimeMillis()));
+        for (Subscription subscription : subscriptions) {
+            subscription.appended();
+        }
+    }
+
+    // Runs the reader on the context after appends until the subscription is cancelled. Appends happen
+    // on the store's writing thread, so they only queue a run of the reader, at most one at a time.
+    public Subscription subscribe(Context context, Runnable reader) {
+        Subscription subscription = new Subscription(context, reader);
+        subscriptions.add(subscription);
+        return subscription;
+    }
+
+    // Number of consumers currently following the feed, ChangeStreams and replication followers alike
+    public int consumers() {
+        return subscriptions.size();
+    }
+
+    // Number of consumers that were told to resync since startup
+    public long resyncs() {
+        return resyncs.sum();
+    }
+
+    void resynced() {
+        resyncs.increment();
+    }
+
+    // Identifies this run's numbering; never 0, which consumers use for "no position yet"
+    public long runId() {
+        return runId;
+    }
+
+    // The position of the given sequence number of this run, as handed to consumers
+    public String position(long sequence) {
+        return position(runId, sequence);
+    }
+
+    static String position(long runId, long sequence) {
+        return Long.toHexString(runId) + '-' + sequence;
+    }
+
+    // The sequence number of a position, or OTHER_RUN when another run of the process handed it out.
+    // Throws IllegalArgumentException for anything that is not a position.
+    public long sequenceOf(String position) {
+        int dash = position.indexOf('-');
+        if (dash <= 0) {
+            throw new IllegalArgumentException("Not a change feed position: " + position);
+        }
+        try {
+            long run = Long.parseUnsignedLong(position.substring(0, dash), 16);
+            long sequence = Long.parseLong(position.substring(dash + 1));
+            if (sequence < 0) {
+                throw new IllegalArgumentException("Not a change feed position: " + position);
+            }
+            return run == runId ? sequence : OTHER_RUN;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Not a change feed position: " + position, e);
+        }
+    }
+
+    public int capacity() {
+        return slots.length();
+    }
+
+    // The newest sequence number handed out. Its entry may still be being stored.
+    public long lastSequence() {
+        return lastSequence.get();
+    }
+
+    // Adds up to max entries following the given sequence number to the list. Stops early at an entry
+    // whose writer has not stored it yet; that writer's own append notification follows.
+    public ReadResult readAfter(long sequence, int max, List<Change> into) {
+        long last = lastSequence.get();
+        if (sequence > last || sequence < last - slots.length()) {
+            return ReadResult.OVERRUN;
+        }
+        for (long next = sequence + 1; next <= last && into.size() < max; next++) {
+            Change change = slots.get((int) (next & mask));
+            if (change == null || change.sequence() < next) {
+                break;
+            }
+            if (change.sequence() > next) {
+                return ReadResult.OVERRUN;
+            }
+            into.add(change);
+        }
+        return ReadResult.OK;
+    }
+
+    private static long newRunId() {
+        long id;
+        do {
+            id = RUN_IDS.nextLong();
+        } while (id == 0);
+        return id;
+    }
+
+    // A consumer's registration for append notifications
+    public final class Subscription {
+
+        private final Context context;
+        private final Runnable reader;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        private Subscription(Context context, Runnable reader) {
+            this.context = context;
+            this.reader = reader;
+        }
+
+        private void appended() {
+            if (scheduled.compareAndSet(false, true)) {
+                context.runOnContext(v -> {
+                    scheduled.set(false);
+                    reader.run();
+                });
+            }
+        }
+
+        public void cancel() {
+            subscriptions.remove(this);
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package com.dhruthi.usercrud.changes;
+
+import io.vertx.core.Context;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.http.ServerWebSocket;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+// Sends a ChangeFeed to one consumer, starting after a sequence number, on the event loop serving that
+// consumer. Changes are only written while the connection can take more; the feed itself never waits. A
+// consumer that falls a whole feed behind, whether it reads slowly or asked to resume from too far back or
+// from a position of another run (ChangeFeed.OTHER_RUN), is told to resync, with the position to resume
+// after once it has reloaded, and disconnected.
+public abstract class ChangeStream {
+
+    private static final int BATCH_CHANGES = 256;
+    // Keeps idle connections from being timed out by proxies
+    static final long KEEP_ALIVE_MILLIS = 15_000;
+
+    private final Vertx vertx;
+    private final ChangeFeed feed;
+    private final Context context;
+    private final List<Change> batch = new ArrayList<>(BATCH_CHANGES);
+    private ChangeFeed.Subscription subscription;
+    private long sent;
+    private boolean closed;
+    private long keepAliveTimer = -1;
+
+    private ChangeStream(Vertx vertx, ChangeFeed feed, long after) {
+        this.vertx = vertx;
+        this.feed = feed;
+        this.context = vertx.getOrCreateContext();
+        this.sent = after;
+    }
+
+    // Streams changes as text/event-stream events named "change", each with its position as the event id
+    // and its JSON as the data. The response's status and headers must already be set.
+    public static ChangeStream serverSentEvents(Vertx vertx, HttpServerResponse response, ChangeFeed feed,
+                                                long after) {
+        ChangeStream stream = new ChangeStream(vertx, feed, after) {
+            @Override
+            boolean writeQueueFull() {
+                return response.writeQueueFull();
+            }
+
+            @Override
+            void drainHandler(Handler<Void> handler) {
+                response.drainHandler(handler);
+            }
+
+            @Override
+            void send(List<Change> changes) {
+                Buffer events = Buffer.buffer(changes.size() * 192);
+                for (Change change : changes) {
+                    events.appendString("id: ").appendString(change.position())
+                        .appendString("\nevent: change\ndata: ").appendBytes(change.json()).appendString("\n\n");
+                }
+                response.write(events);
+            }
+
+            @Override
+            void resync(long resumeAfter) {
+                response.end("event: resync\ndata: " + resyncJson(resumeAfter) + "\n\n");
+            }
+
+            @Override
+            void finish() {
+                response.end();
+            }
+
+            @Override
+            void keepAlive() {
+                response.write(": keep-alive\n\n");
+            }
+        };
+        response.closeHandler(v -> stream.closed());
+        // Sends the headers right away, so clients see the stream open before the first change
+        response.write(": connected\n\n");
+        stream.start();
+        return stream;
+    }
+
+    // Streams changes as one JSON text message each; a resync is a {"type":"RESYNC","sequence":...,
+    // "position":...} message
+    public static ChangeStream webSocket(Vertx vertx, ServerWebSocket socket, ChangeFeed feed, long after) {
+        ChangeStream stream = new ChangeStream(vertx, feed, after) {
+            @Override
+            boolean writeQueueFull() {
+                return socket.writeQueueFull();
+            }
+
+            @Override
+            void drainHandler(Handler<Void> handler) {
+                socket.drainHandler(handler);
+            }
+
+            @Override
+            void send(List<Change> changes) {
+                for (Change change : changes) {
+                    socket.writeTextMessage(new String(change.json(), StandardCharsets.UTF_8));
+                }
+            }
+
+            @Override
+            void resync(long resumeAfter) {
+                socket.writeTextMessage("{\"type\":\"RESYNC\"," + resyncJson(resumeAfter).substring(1));
+                socket.close();
+            }
+
+            @Override
+            void finish() {
+                socket.close();
+            }
+
+            @Override
+            void keepAlive() {
+                socket.writePing(Buffer.buffer());
+            }
+        };
+        socket.closeHandler(v -> stream.closed());
+        stream.start();
+        return stream;
+    }
+
+    abstract boolean writeQueueFull();
+
+    abstract void drainHandler(Handler<Void> handler);
+
+    abstract void send(List<Change> changes);
+
+    // Tells the consumer to reload and resume after the given sequence number, then ends the stream
+    abstract void resync(long resumeAfter);
+
+    abstract void keepAlive();
+
+    // Ends the stream, telling the consumer nothing more
+    abstract void finish();
+
+    // Ends the stream for a shutdown. The consumer reconnects with the position of the last change it got.
+    // Another process numbers its changes differently, so it tells the consumer to resync instead of resuming
+    // at whatever its own sequence number of that value is. Must be called on the stream's event loop.
+    public void end() {
+        if (!closed) {
+            closed();
+            finish();
+        }
+    }
+
+    private void start() {
+        subscription = feed.subscribe(context, this::pump);
+        keepAliveTimer = vertx.setPeriodic(KEEP_ALIVE_MILLIS, id -> {
+            if (!closed && !writeQueueFull()) {
+                keepAlive();
+            }
+        });
+        pump();
+    }
+
+    private void closed() {
+        closed = true;
+        subscription.cancel();
+        vertx.cancelTimer(keepAliveTimer);
+    }
+
+    // Sends what the consumer has not had yet until its write queue fills up. A consumer waiting on a full
+    // queue is still checked on every append, so one that stopped reading is dropped once a feed behind.
+    private void pump() {
+        if (closed) {
+            return;
+        }
+        while (true) {
+            if (sent == ChangeFeed.OTHER_RUN || feed.lastSequence() - sent > feed.capacity()) {
+                endWithResync();
+                return;
+            }
+            if (writeQueueFull()) {
+                drainHandler(v -> {
+                    drainHandler(null);
+                    pump();
+                });
+                return;
+            }
+            batch.clear();
+            if (feed.readAfter(sent, BATCH_CHANGES, batch) == ChangeFeed.ReadResult.OVERRUN) {
+                endWithResync();
+                return;
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+            send(batch);
+            sent = batch.get(batch.size() - 1).sequence();
+        }
+    }
+
+    // {"sequence":N,"position":"<run>-N"}
+    String resyncJson(long resumeAfter) {
+        return "{\"sequence\":" + resumeAfter + ",\"position\":\"" + feed.position(resumeAfter) + "\"}";
+    }
+
+    private void endWithResync() {
+        feed.resynced();
+        closed();
+        resync(feed.lastSequence());
+    }
+}
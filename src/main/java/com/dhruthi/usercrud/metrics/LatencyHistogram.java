@@ -0,0 +1,200 @@
+package com.dhruthi.usercrud.metrics;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Lock-free latency histogram in nanoseconds with log-linear buckets, the layout HdrHistogram uses:
+// values below 64 get a bucket each, and every power of two above that is split into 32 equal
+// buckets, so any recorded value is known to within about 3%. Recording is one atomic increment
+// of a bucket and one LongAdder update for the sum, with no locks and no allocation; the count is
+// derived from the buckets when read.
+//
+// The buckets are striped by recording thread, so event loops sharing a histogram do not contend on
+// the same cache lines. A stripe is allocated the first time a thread lands on it, and reads merge
+// the stripes into a Snapshot.
+//
+// A histogram can be given bounds it must count exactly at, such as the le bounds it is exported with.
+// The bucket holding each such bound is split in two at the bound, values above it going to a slot of
+// their own past the regular buckets, so countAtOrBelow at the bound counts every value at or below it.
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int HALF_SUB_BUCKETS = 1 << (SUB_BUCKET_BITS - 1);
+    // Enough buckets for any non-negative long
+    private static final int BUCKETS = bucketIndex(Long.MAX_VALUE) + 1;
+    // A power of two with a stripe per core, capped since each stripe is about 15 KB
+    private static final int STRIPES =
+        Math.min(64, Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 2 - 1)));
+
+    private final AtomicReferenceArray<AtomicLongArray> stripes = new AtomicReferenceArray<>(STRIPES);
+    private final LongAdder sum = new LongAdder();
+    // For each bucket split at an exact bound, the bound and the slot of the values above it; -1 elsewhere
+    private final long[] splitBound;
+    private final int[] splitSlot;
+    private final int slots;
+
+    // Counts exactly at the given bounds, in nanoseconds, which must fall in different buckets
+    public LatencyHistogram(long... exactBoundsNanos) {
+        long[] bounds = new long[BUCKETS];
+        int[] upperSlots = new int[BUCKETS];
+        Arrays.fill(upperSlots, -1);
+        int next = BUCKETS;
+        for (long bound : exactBoundsNanos) {
+            int index = bucketIndex(Math.max(0, bound));
+            if (bound >= bucketUpperBound(index)) {
+                // Already the top of its bucket
+                continue;
+            }
+            if (upperSlots[index] >= 0) {
+                throw new IllegalArgumentException("Bounds " + bounds[index] + " and " + bound + " share a bucket");
+            }
+            bounds[index] = bound;
+            upperSlots[index] = next++;
+        }
+        this.splitBound = bounds;
+        this.splitSlot = upperSlots;
+        this.slots = next;
+    }
+
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        int index = bucketIndex(value);
+        if (splitSlot[index] >= 0 && value > splitBound[index]) {
+            index = splitSlot[index];
+        }
+        stripe().incrementAndGet(index);
+        sum.add(value);
+    }
+
+    public long count() {
+        return snapshot().count();
+    }
+
+    public long sumNanos() {
+        return sum.sum();
+    }
+
+    // Number of recorded values at or below the limit: exact at the bounds the histogram was created with,
+    // elsewhere counting a bucket only if it lies entirely below the limit
+    public long countAtOrBelow(long limitNanos) {
+        return snapshot().countAtOrBelow(limitNanos);
+    }
+
+    // Approximate value at the given quantile (0 to 1), or 0 when nothing has been recorded
+    public long valueAtQuantile(double quantile) {
+        return snapshot().valueAtQuantile(quantile);
+    }
+
+    // The buckets of every stripe added together, for reading several figures off the same counts
+    public Snapshot snapshot() {
+        long[] counts = new long[slots];
+        for (int s = 0; s < STRIPES; s++) {
+            AtomicLongArray stripe = stripes.get(s);
+            if (stripe != null) {
+                for (int i = 0; i < slots; i++) {
+                    counts[i] += stripe.get(i);
+                }
+            }
+        }
+        return new Snapshot(counts, sum.sum());
+    }
+
+    // Threads are numbered in the order they are created, so the event loops of a process, started
+    // together, get a stripe each until there are more of them than stripes
+    private AtomicLongArray stripe() {
+        int index = (int) Thread.currentThread().getId() & (STRIPES - 1);
+        AtomicLongArray stripe = stripes.get(index);
+        if (stripe == null) {
+            stripes.compareAndSet(index, null, new AtomicLongArray(slots));
+            stripe = stripes.get(index);
+        }
+        return stripe;
+    }
+
+    // Bucket counts merged at one moment; values recorded afterwards are not in it
+    public final class Snapshot {
+
+        // Whole buckets, split ones added back together
+        private final long[] counts;
+        // The part of each split bucket at or below its bound
+        private final long[] lowerParts;
+        private final long sumNanos;
+        private final long count;
+
+        private Snapshot(long[] slotCounts, long sumNanos) {
+            this.counts = Arrays.copyOf(slotCounts, BUCKETS);
+            this.lowerParts = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) {
+                if (splitSlot[i] >= 0) {
+                    lowerParts[i] = slotCounts[i];
+                    counts[i] += slotCounts[splitSlot[i]];
+                }
+            }
+            this.sumNanos = sumNanos;
+            long total = 0;
+            for (long bucket : counts) {
+                total += bucket;
+            }
+            this.count = total;
+        }
+
+        public long count() {
+            return count;
+        }
+
+        // Read alongside the buckets, so it may include values recorded while they were being merged
+        public long sumNanos() {
+            return sumNanos;
+        }
+
+        public long countAtOrBelow(long limitNanos) {
+            long total = 0;
+            int i = 0;
+            for (; i < BUCKETS && bucketUpperBound(i) <= limitNanos; i++) {
+                total += counts[i];
+            }
+            // The bucket straddling the limit, if it was split at or below it
+            if (i < BUCKETS && splitSlot[i] >= 0 && splitBound[i] <= limitNanos) {
+                total += lowerParts[i];
+            }
+            return total;
+        }
+
+        public long valueAtQuantile(double quantile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(quantile * count));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return bucketUpperBound(i);
+                }
+            }
+            return bucketUpperBound(BUCKETS - 1);
+        }
+    }
+
+    static int bucketIndex(long value) {
+        int highestBit = 63 - Long.numberOfLeadingZeros(value | 1);
+        if (highestBit < SUB_BUCKET_BITS) {
+            return (int) value;
+        }
+        // Keep the top SUB_BUCKET_BITS bits of the value; the shift identifies the power of two
+        int shift = highestBit - SUB_BUCKET_BITS + 1;
+        return (shift << (SUB_BUCKET_BITS - 1)) + (int) (value >>> shift);
+    }
+
+    static long bucketUpperBound(int index) {
+        if (index < 2 * HALF_SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / HALF_SUB_BUCKETS - 1;
+        long subBucket = index % HALF_SUB_BUCKETS + HALF_SUB_BUCKETS;
+        long upper = ((subBucket + 1) << shift) - 1;
+        return upper < 0 ? Long.MAX_VALUE : upper;
+    }
+}
@@ -0,0 +1,124 @@
+package com.dhruthi.usercrud.metrics;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+// Registry of the service's metrics, rendered in the Prometheus text exposition format.
+//
+// Metrics are looked up once, when a route or store is set up, and the returned LatencyHistogram or
+// LongAdder is kept and updated directly, so the request path never touches this registry. Asking
+// again for the same name and labels returns the same metric, which lets several verticle instances
+// share one set of series.
+public class Metrics {
+
+    // Bucket bounds published for every latency histogram, in seconds
+    private static final double[] BUCKET_SECONDS = {
+        0.0001, 0.00025, 0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10
+    };
+    // The same bounds in nanoseconds, which every histogram counts exactly at
+    private static final long[] BUCKET_NANOS = Arrays.stream(BUCKET_SECONDS).mapToLong(Metrics::toNanos).toArray();
+
+    private final Map<String, Family> families = new LinkedHashMap<>();
+
+    // Latency histogram exported as <name> in seconds; labels are alternating names and values
+    public synchronized LatencyHistogram histogram(String name, String help, String... labels) {
+        return (LatencyHistogram) family(name, help, "histogram").series
+            .computeIfAbsent(labelText(labels), key -> new LatencyHistogram(BUCKET_NANOS));
+    }
+
+    public synchronized LongAdder counter(String name, String help, String... labels) {
+        return (LongAdder) family(name, help, "counter").series
+            .computeIfAbsent(labelText(labels), key -> new LongAdder());
+    }
+
+    // Gauge read from the supplier at scrape time; registering the same series again replaces it
+    public synchronized void gauge(String name, String help, LongSupplier value, String... labels) {
+        family(name, help, "gauge").series.put(labelText(labels), value);
+    }
+
+    // The current value of every metric in Prometheus text format
+    public synchronized String scrape() {
+        StringBuilder out = new StringBuilder(4096);
+        families.forEach((name, family) -> {
+            out.append("# HELP ").append(name).append(' ').append(family.help).append('\n');
+            out.append("# TYPE ").append(name).append(' ').append(family.type).append('\n');
+            family.series.forEach((labels, metric) -> {
+                if (metric instanceof LatencyHistogram histogram) {
+                    appendHistogram(out, name, labels, histogram);
+                } else if (metric instanceof LongAdder counter) {
+                    appendSample(out, name, labels, Long.toString(counter.sum()));
+                } else {
+                    appendSample(out, name, labels, Long.toString(((LongSupplier) metric).getAsLong()));
+                }
+            });
+        });
+        return out.toString();
+    }
+
+    private Family family(String name, String help, String type) {
+        Family family = families.computeIfAbsent(name, key -> new Family(help, type));
+        if (!family.type.equals(type)) {
+            throw new IllegalArgumentException("Metric " + name + " is already registered as a " + family.type);
+        }
+        return family;
+    }
+
+    private static void appendHistogram(StringBuilder out, String name, String labels, LatencyHistogram histogram) {
+        // Merge the histogram's stripes once, so the buckets and the count are read off the same counts
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        long count = snapshot.count();
+        String separator = labels.isEmpty() ? "" : labels + ",";
+        for (double bound : BUCKET_SECONDS) {
+            long cumulative = snapshot.countAtOrBelow(toNanos(bound));
+            out.append(name).append("_bucket{").append(separator).append("le=\"").append(bound).append("\"} ")
+                .append(cumulative).append('\n');
+        }
+        out.append(name).append("_bucket{").append(separator).append("le=\"+Inf\"} ").append(count).append('\n');
+        appendSample(out, name + "_sum", labels, Double.toString(snapshot.sumNanos() / 1e9));
+        appendSample(out, name + "_count", labels, Long.toString(count));
+    }
+
+    private static long toNanos(double seconds) {
+        return Math.round(seconds * 1e9);
+    }
+
+    private static void appendSample(StringBuilder out, String name, String labels, String value) {
+        out.append(name);
+        if (!labels.isEmpty()) {
+            out.append('{').append(labels).append('}');
+        }
+        out.append(' ').append(value).append('\n');
+    }
+
+    private static String labelText(String... labels) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Labels must be name and value pairs");
+        }
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0) {
+                text.append(',');
+            }
+            text.append(labels[i]).append("=\"").append(escape(labels[i + 1])).append('"');
+        }
+        return text.toString();
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static final class Family {
+        final String help;
+        final String type;
+        final Map<String, Object> series = new LinkedHashMap<>();
+
+        Family(String help, String type) {
+            this.help = help;
+            this.type = type;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.dhruthi.usercrud.metrics;
+
+import com.dhruthi.usercrud.model.EncodedUser;
+import com.dhruthi.usercrud.model.User;
+import com.dhruthi.usercrud.model.UserNotFoundException;
+import com.dhruthi.usercrud.store.UserStore;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.UnaryOperator;
+
+// UserStore decorator recording the latency of every store operation, failed ones included,
+// as user_store_operation_seconds{operation=...}, and exporting the number of stored users.
+public class MetricsUserStore implements UserStore, Closeable {
+
+    private static final String LATENCY = "user_store_operation_seconds";
+    private static final String LATENCY_HELP = "Latency of UserStore operations";
+
+    private final UserStore delegate;
+    private final LatencyHistogram create;
+    private final LatencyHistogram createAll;
+    private final LatencyHistogram findById;
+    private final LatencyHistogram findAllById;
+    private final LatencyHistogram findByEmail;
+    private final LatencyHistogram update;
+    private final LatencyHistogram delete;
+    private final LatencyHistogram findPage;
+    private final LatencyHistogram findByNamePrefix;
+
+    public MetricsUserStore(UserStore delegate, Metrics metrics) {
+        this.delegate = delegate;
+        this.create = metrics.histogram(LATENCY, LATENCY_HELP, "operation", "create");
+        this.createAll = metrics.histogram(LATENCY, LATENCY_HELP, "operation", "createAll");
+        this.findById = metrics.histogram(LATENCY, LATENCY_HELP, "operation", "findById");
+        this.findAllById = metrics.histogram(LATENCY, LATENCY_HELP, "operation", "findAllById");
+        this.findByEmail = metrics.histogram(LATENCY, LATENCY_HELP, "operation", "findByEmail");
+        this.update = metrics.histogram(LATENCY, LATENCY_HELP, "operation", "update");
+        this.delete = metrics.histogram(LATENCY, LATENCY_HELP, "operation", "delete");
+        this.findPage = metrics.histogram(LATENCY, LATENCY_HELP, "operation", "findPage");
+        this.findByNamePrefix = metrics.histogram(LATENCY, LATENCY_HELP, "operation", "findByNamePrefix");
+        metrics.gauge("user_store_users", "Number of stored users", () -> delegate.findAll().size());
+    }
+
+    @Override
+    public User create(User user) {
+        long start = System.nanoTime();
+        try {
+            return delegate.create(user);
+        } finally {
+            create.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public List<User> createAll(List<User> users) {
+        long start = System.nanoTime();
+        try {
+            return delegate.createAll(users);
+        } finally {
+            createAll.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public Optional<User> findById(UUID id) {
+        long start = System.nanoTime();
+        try {
+            return delegate.findById(id);
+        } finally {
+            findById.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    // Recorded as findById, it is the same lookup
+    public Optional<EncodedUser> findEncodedById(UUID id) {
+        long start = System.nanoTime();
+        try {
+            return delegate.findEncodedById(id);
+        } finally {
+            findById.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public Map<UUID, User> findAllById(Collection<UUID> ids) {
+        long start = System.nanoTime();
+        try {
+            return delegate.findAllById(ids);
+        } finally {
+            findAllById.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public Optional<User> findByEmail(String email) {
+        long start = System.nanoTime();
+        try {
+            return delegate.findByEmail(email);
+        } finally {
+            findByEmail.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public User update(UUID id, long expectedVersion, UnaryOperator<User> change) throws UserNotFoundException {
+        long start = System.nanoTime();
+        try {
+            return delegate.update(id, expectedVersion, change);
+        } finally {
+            update.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void delete(UUID id) throws UserNotFoundException {
+        long start = System.nanoTime();
+        try {
+            delegate.delete(id);
+        } finally {
+            delete.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public Collection<User> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public List<User> findPage(UUID after, int limit) {
+        long start = System.nanoTime();
+        try {
+            return delegate.findPage(after, limit);
+        } finally {
+            findPage.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public List<User> findByNamePrefix(String prefix, int limit) {
+        long start = System.nanoTime();
+        try {
+            return delegate.findByNamePrefix(prefix, limit);
+        } finally {
+            findByNamePrefix.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (delegate instanceof Closeable closeable) {
+            closeable.close();
+        }
+    }
+}
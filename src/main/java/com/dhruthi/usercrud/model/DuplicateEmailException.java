@@ -0,0 +1,19 @@
+package com.dhruthi.usercrud.model;
+
+// Thrown when a create or update would give a user an email address that another user already has.
+// Unchecked so that existing create(User) callers keep compiling; the HTTP layer maps it to 409 Conflict.
+public class DuplicateEmailException extends RuntimeException {
+
+    //Stores the conflicting email address
+    private final String email;
+
+    public DuplicateEmailException(String email) {
+        super("Email " + email + " is already in use");
+        this.email = email;
+    }
+
+    //Getter method to retrieve the conflicting email
+    public String getEmail() {
+        return email;
+    }
+}
@@ -0,0 +1,10 @@
+package com.dhruthi.usercrud.model;
+
+// A user together with its JSON encoding, so a read can return both the version and the body of one
+// consistent state. The json array may be shared and must never be modified.
+public record EncodedUser(User user, byte[] json) {
+
+    public static EncodedUser of(User user) {
+        return new EncodedUser(user, UserJson.encode(user));
+    }
+}
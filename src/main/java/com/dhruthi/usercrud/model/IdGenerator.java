@@ -0,0 +1,21 @@
+package com.dhruthi.usercrud.model;
+
+import java.util.UUID;
+
+// Source of the ids stores give the users they create. Stores call it once per create and nowhere else;
+// callers hand the store a user with User.UNASSIGNED_ID. Implementations must be thread-safe.
+@FunctionalInterface
+public interface IdGenerator {
+
+    UUID next();
+
+    // Time-ordered version 7 UUIDs, the default: see TimeOrderedIdGenerator
+    static IdGenerator timeOrdered() {
+        return TimeOrderedIdGenerator.INSTANCE;
+    }
+
+    // Version 4 UUIDs from UUID.randomUUID, whose SecureRandom every thread shares
+    static IdGenerator random() {
+        return UUID::randomUUID;
+    }
+}
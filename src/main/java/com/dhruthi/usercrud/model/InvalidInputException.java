@@ -0,0 +1,10 @@
+package com.dhruthi.usercrud.model;
+
+// Thrown when a request body is not a JSON object with string name and email fields.
+// The message is written for the client; the HTTP layer maps it to 400 Bad Request.
+public class InvalidInputException extends RuntimeException {
+
+    public InvalidInputException(String message) {
+        super(message);
+    }
+}
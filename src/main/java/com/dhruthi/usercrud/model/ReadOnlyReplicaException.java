@@ -0,0 +1,10 @@
+package com.dhruthi.usercrud.model;
+
+// Thrown for a write sent to a follower, which only applies the leader's replication stream.
+// The HTTP layer maps it to 503 Service Unavailable.
+public class ReadOnlyReplicaException extends RuntimeException {
+
+    public ReadOnlyReplicaException() {
+        super("This node is a read-only follower, send writes to the leader");
+    }
+}
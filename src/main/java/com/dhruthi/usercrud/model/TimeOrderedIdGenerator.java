@@ -0,0 +1,79 @@
+package com.dhruthi.usercrud.model;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.UUID;
+
+// Version 7 UUIDs (RFC 9562): a 48-bit Unix timestamp in milliseconds, then 12 bits of counter and 62
+// random bits. Ids sort by creation time, so an ordered index appends instead of inserting at random
+// places, and the users created in a time range are one contiguous run of ids.
+//
+// Every thread draws from its own SecureRandom, refilled a buffer at a time, so creates on different
+// threads never wait for each other the way UUID.randomUUID callers wait on its one shared SecureRandom.
+// Ids from one thread strictly increase: the counter starts at a random value below 2048 each millisecond
+// and counts up within it, borrowing the next millisecond if it runs out, and the clock stepping back is
+// ignored. Ids from different threads in the same millisecond are ordered by their random bits only.
+final class TimeOrderedIdGenerator implements IdGenerator {
+
+    static final TimeOrderedIdGenerator INSTANCE = new TimeOrderedIdGenerator();
+
+    private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+    private static final int BUFFER_BYTES = 512;
+    private static final int MAX_COUNTER = 0xfff;
+    // The counter starts in the lower half, leaving at least 2048 ids per millisecond before it borrows
+    private static final int COUNTER_SEED_MASK = 0x7ff;
+
+    private final ThreadLocal<State> states = ThreadLocal.withInitial(State::new);
+
+    private TimeOrderedIdGenerator() {
+    }
+
+    @Override
+    public UUID next() {
+        State state = states.get();
+        long now = System.currentTimeMillis();
+        if (now > state.millis) {
+            state.millis = now;
+            state.counter = (int) state.nextLong() & COUNTER_SEED_MASK;
+        } else if (++state.counter > MAX_COUNTER) {
+            state.millis++;
+            state.counter = (int) state.nextLong() & COUNTER_SEED_MASK;
+        }
+        long msb = state.millis << 16 | 0x7000L | state.counter;
+        long lsb = state.nextLong() & 0x3fffffffffffffffL | 0x8000000000000000L;
+        return new UUID(msb, lsb);
+    }
+
+    // Per-thread clock, counter and entropy
+    private static final class State {
+
+        private final SecureRandom random = newSecureRandom();
+        private final byte[] buffer = new byte[BUFFER_BYTES];
+        private int position = BUFFER_BYTES;
+        long millis;
+        int counter;
+
+        long nextLong() {
+            if (position == BUFFER_BYTES) {
+                random.nextBytes(buffer);
+                position = 0;
+            }
+            long value = (long) LONGS.get(buffer, position);
+            position += Long.BYTES;
+            return value;
+        }
+
+        // DRBG is seeded from the system's entropy once and then needs no shared lock, unlike the
+        // NativePRNG that new SecureRandom() picks on Linux, which serializes every read of /dev/urandom
+        private static SecureRandom newSecureRandom() {
+            try {
+                return SecureRandom.getInstance("DRBG");
+            } catch (NoSuchAlgorithmException e) {
+                return new SecureRandom();
+            }
+        }
+    }
+}
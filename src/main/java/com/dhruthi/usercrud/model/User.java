@@ -2,7 +2,11 @@ package com.dhruthi.usercrud.model;
 
 import java.util.UUID;
 
-public record User(UUID id, String name, String email) {
+// The version starts at 1 when a user is created and grows by one with every update
+public record User(UUID id, String name, String email, long version) {
+
+    // The nil UUID, carried by a user handed to a store to create; the store gives it its real id
+    public static final UUID UNASSIGNED_ID = new UUID(0, 0);
 
     // This code runs everytime a new User is created
     public User {
@@ -16,9 +20,22 @@ public record User(UUID id, String name, String email) {
         if (email == null || email.trim().isEmpty()) {
             throw new IllegalArgumentException("User email cannot be null or empty");
         }
+        if (version < 0) {
+            throw new IllegalArgumentException("User version cannot be negative");
+        }
 
         // Trim inputs
         name = name.trim();
         email = email.trim();
     }
+
+    // A user that has not been stored yet; the store assigns its version
+    public User(UUID id, String name, String email) {
+        this(id, name, email, 0);
+    }
+
+    // A user to create, which the store assigns an id and a version
+    public User(String name, String email) {
+        this(UNASSIGNED_ID, name, email, 0);
+    }
 }
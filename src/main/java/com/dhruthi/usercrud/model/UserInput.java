@@ -0,0 +1,61 @@
+package com.dhruthi.usercrud.model;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+
+// The fields a client sends to create a user or change their email, {"name": ..., "email": ...}, read
+// straight from the request bytes with Jackson's streaming parser. Unlike decoding a JsonObject and
+// picking fields out of it, no tree of maps is built: the two strings are the only objects kept.
+// Other fields are skipped, a repeated field keeps its last value and a missing or null one is null,
+// as with JsonObject.getString. Anything else, including a value that is not a string, throws
+// InvalidInputException; validating the strings themselves is left to the caller.
+public record UserInput(String name, String email) {
+
+    private static final JsonFactory FACTORY = new JsonFactory();
+
+    public static UserInput parse(byte[] json) {
+        return parse(json, 0, json.length);
+    }
+
+    public static UserInput parse(byte[] json, int offset, int length) {
+        String name = null;
+        String email = null;
+        try (JsonParser parser = FACTORY.createParser(json, offset, length)) {
+            JsonToken first = parser.nextToken();
+            if (first == null) {
+                throw new InvalidInputException("Request body must be valid JSON");
+            }
+            if (first != JsonToken.START_OBJECT) {
+                throw new InvalidInputException("Request body must be a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "name" -> name = string(parser, value, field);
+                    case "email" -> email = string(parser, value, field);
+                    default -> parser.skipChildren();
+                }
+            }
+            if (parser.nextToken() != null) {
+                throw new InvalidInputException("Request body must be a single JSON object");
+            }
+        } catch (IOException e) {
+            throw new InvalidInputException("Request body must be valid JSON");
+        }
+        return new UserInput(name, email);
+    }
+
+    private static String string(JsonParser parser, JsonToken value, String field) throws IOException {
+        if (value == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (value != JsonToken.VALUE_STRING) {
+            throw new InvalidInputException("'" + field + "' must be a string");
+        }
+        return parser.getText();
+    }
+}
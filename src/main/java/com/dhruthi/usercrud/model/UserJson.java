@@ -0,0 +1,112 @@
+package com.dhruthi.usercrud.model;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.UUID;
+
+// Encodes a User as the UTF-8 JSON object the API returns, {"id":...,"name":...,"email":...},
+// byte for byte the same as JsonObject.encode() but without building a JsonObject or a String.
+public final class UserJson {
+
+    private static final byte[] ID_PREFIX = "{\"id\":\"".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] NAME_PREFIX = "\",\"name\":\"".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] EMAIL_PREFIX = "\",\"email\":\"".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] UPPER_HEX = "0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII);
+
+    private UserJson() {
+    }
+
+    public static byte[] encode(User user) {
+        byte[] name = escape(user.name());
+        byte[] email = escape(user.email());
+        byte[] json = new byte[ID_PREFIX.length + 36 + NAME_PREFIX.length + name.length
+            + EMAIL_PREFIX.length + email.length + 2];
+        int pos = put(json, 0, ID_PREFIX);
+        pos = putUuid(json, pos, user.id());
+        pos = put(json, pos, NAME_PREFIX);
+        pos = put(json, pos, name);
+        pos = put(json, pos, EMAIL_PREFIX);
+        pos = put(json, pos, email);
+        json[pos++] = '"';
+        json[pos] = '}';
+        return json;
+    }
+
+    // UTF-8 bytes of a JSON string body, escaping quotes, backslashes and control characters like Jackson
+    private static byte[] escape(String value) {
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        int extra = 0;
+        for (byte b : utf8) {
+            if (b == '"' || b == '\\') {
+                extra += 1;
+            } else if (b >= 0 && b < 0x20) {
+                extra += 5;
+            }
+        }
+        if (extra == 0) {
+            return utf8;
+        }
+        byte[] escaped = new byte[utf8.length + extra];
+        int pos = 0;
+        for (byte b : utf8) {
+            if (b == '"' || b == '\\') {
+                escaped[pos++] = '\\';
+                escaped[pos++] = b;
+            } else if (b >= 0 && b < 0x20) {
+                pos = putControl(escaped, pos, b);
+            } else {
+                escaped[pos++] = b;
+            }
+        }
+        // Short escapes such as \n use fewer bytes than the \\u00XX reserved for them
+        return pos == escaped.length ? escaped : Arrays.copyOf(escaped, pos);
+    }
+
+    private static int putControl(byte[] out, int pos, byte b) {
+        out[pos++] = '\\';
+        switch (b) {
+            case '\b' -> out[pos++] = 'b';
+            case '\t' -> out[pos++] = 't';
+            case '\n' -> out[pos++] = 'n';
+            case '\f' -> out[pos++] = 'f';
+            case '\r' -> out[pos++] = 'r';
+            default -> {
+                out[pos++] = 'u';
+                out[pos++] = '0';
+                out[pos++] = '0';
+                out[pos++] = UPPER_HEX[b >> 4];
+                out[pos++] = UPPER_HEX[b & 0xF];
+            }
+        }
+        return pos;
+    }
+
+    // Same text as UUID.toString(), written straight into the output
+    private static int putUuid(byte[] out, int pos, UUID id) {
+        long msb = id.getMostSignificantBits();
+        long lsb = id.getLeastSignificantBits();
+        pos = putHex(out, pos, msb >>> 32, 8);
+        out[pos++] = '-';
+        pos = putHex(out, pos, msb >>> 16, 4);
+        out[pos++] = '-';
+        pos = putHex(out, pos, msb, 4);
+        out[pos++] = '-';
+        pos = putHex(out, pos, lsb >>> 48, 4);
+        out[pos++] = '-';
+        return putHex(out, pos, lsb, 12);
+    }
+
+    private static int putHex(byte[] out, int pos, long value, int digits) {
+        for (int i = digits - 1; i >= 0; i--) {
+            out[pos + i] = HEX[(int) (value & 0xF)];
+            value >>>= 4;
+        }
+        return pos + digits;
+    }
+
+    private static int put(byte[] out, int pos, byte[] bytes) {
+        System.arraycopy(bytes, 0, out, pos, bytes.length);
+        return pos + bytes.length;
+    }
+}
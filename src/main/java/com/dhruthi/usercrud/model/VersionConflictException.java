@@ -0,0 +1,18 @@
+package com.dhruthi.usercrud.model;
+
+import java.util.UUID;
+
+// Thrown by a conditional update when the stored user no longer has the version the caller expected
+public class VersionConflictException extends RuntimeException {
+
+    private final long currentVersion;
+
+    public VersionConflictException(UUID id, long expectedVersion, long currentVersion) {
+        super("User " + id + " is at version " + currentVersion + ", not " + expectedVersion);
+        this.currentVersion = currentVersion;
+    }
+
+    public long getCurrentVersion() {
+        return currentVersion;
+    }
+}
@@ -0,0 +1,79 @@
+package com.dhruthi.usercrud.replication;
+
+import com.dhruthi.usercrud.model.EncodedUser;
+import com.dhruthi.usercrud.model.ReadOnlyReplicaException;
+import com.dhruthi.usercrud.model.User;
+import com.dhruthi.usercrud.store.UserStore;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.UnaryOperator;
+
+// The view of a follower's store served over HTTP: reads go to the replicated store, writes are refused
+// because only the replication stream may change it
+public class ReadOnlyUserStore implements UserStore {
+
+    private final UserStore replica;
+
+    public ReadOnlyUserStore(UserStore replica) {
+        this.replica = replica;
+    }
+
+    @Override
+    public User create(User user) {
+        throw new ReadOnlyReplicaException();
+    }
+
+    @Override
+    public List<User> createAll(List<User> users) {
+        throw new ReadOnlyReplicaException();
+    }
+
+    @Override
+    public Optional<User> findById(UUID id) {
+        return replica.findById(id);
+    }
+
+    @Override
+    public Optional<EncodedUser> findEncodedById(UUID id) {
+        return replica.findEncodedById(id);
+    }
+
+    @Override
+    public Map<UUID, User> findAllById(Collection<UUID> ids) {
+        return replica.findAllById(ids);
+    }
+
+    @Override
+    public Optional<User> findByEmail(String email) {
+        return replica.findByEmail(email);
+    }
+
+    @Override
+    public User update(UUID id, long expectedVersion, UnaryOperator<User> change) {
+        throw new ReadOnlyReplicaException();
+    }
+
+    @Override
+    public void delete(UUID id) {
+        throw new ReadOnlyReplicaException();
+    }
+
+    @Override
+    public Collection<User> findAll() {
+        return replica.findAll();
+    }
+
+    @Override
+    public List<User> findPage(UUID after, int limit) {
+        return replica.findPage(after, limit);
+    }
+
+    @Override
+    public List<User> findByNamePrefix(String prefix, int limit) {
+        return replica.findByNamePrefix(prefix, limit);
+    }
+}
@@ -0,0 +1,106 @@
+package com.dhruthi.usercrud.replication;
+
+import com.dhruthi.usercrud.changes.Change;
+import com.dhruthi.usercrud.model.User;
+import com.dhruthi.usercrud.store.MutationType;
+import io.vertx.core.buffer.Buffer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+// Wire format of the replication link. The follower opens with the position it applied last, [long run id]
+// [long sequence], where the run id names the leader run that numbered the sequence (0 before the follower
+// has applied anything). After that the leader sends frames of the form [int payload length][payload], where
+// the payload starts with a one byte kind:
+//   MUTATION          [long run id][long sequence][long leader time millis][byte type][user]
+//   SNAPSHOT_START    nothing; the follower's state is about to be replaced
+//   SNAPSHOT_USER     [user]
+//   SNAPSHOT_END      [long run id][long sequence the stream continues after]
+//   HEARTBEAT         [long run id][long leader's last sequence][long leader time millis]
+// and a user is [long id msb][long id lsb][long version][int name length][name][int email length][email].
+final class ReplicationCodec {
+
+    static final byte MUTATION = 'M';
+    static final byte SNAPSHOT_START = 'B';
+    static final byte SNAPSHOT_USER = 'S';
+    static final byte SNAPSHOT_END = 'E';
+    static final byte HEARTBEAT = 'H';
+
+    static final int LENGTH_BYTES = 4;
+    static final int HELLO_BYTES = 16;
+
+    private static final MutationType[] TYPES = MutationType.values();
+
+    private ReplicationCodec() {
+    }
+
+    static Buffer hello(long runId, long lastAppliedSequence) {
+        return Buffer.buffer(HELLO_BYTES).appendLong(runId).appendLong(lastAppliedSequence);
+    }
+
+    static void appendMutation(Buffer out, long runId, Change change) {
+        int start = beginFrame(out, MUTATION);
+        out.appendLong(runId).appendLong(change.sequence()).appendLong(change.timestampMillis()).appendByte((byte) change.type().ordinal());
+        appendUser(out, change.user());
+        endFrame(out, start);
+    }
+
+    static void appendSnapshotStart(Buffer out) {
+        endFrame(out, beginFrame(out, SNAPSHOT_START));
+    }
+
+    static void appendSnapshotUser(Buffer out, User user) {
+        int start = beginFrame(out, SNAPSHOT_USER);
+        appendUser(out, user);
+        endFrame(out, start);
+    }
+
+    static void appendSnapshotEnd(Buffer out, long runId, long sequence) {
+        int start = beginFrame(out, SNAPSHOT_END);
+        out.appendLong(runId).appendLong(sequence);
+        endFrame(out, start);
+    }
+
+    static void appendHeartbeat(Buffer out, long runId, long lastSequence, long timestampMillis) {
+        int start = beginFrame(out, HEARTBEAT);
+        out.appendLong(runId).appendLong(lastSequence).appendLong(timestampMillis);
+        endFrame(out, start);
+    }
+
+    static MutationType readType(Buffer payload, int offset) {
+        return TYPES[payload.getByte(offset)];
+    }
+
+    // Reads the user starting at the offset
+    static User readUser(Buffer payload, int offset) {
+        UUID id = new UUID(payload.getLong(offset), payload.getLong(offset + 8));
+        long version = payload.getLong(offset + 16);
+        int nameLength = payload.getInt(offset + 24);
+        String name = payload.getString(offset + 28, offset + 28 + nameLength, StandardCharsets.UTF_8.name());
+        int emailOffset = offset + 28 + nameLength;
+        int emailLength = payload.getInt(emailOffset);
+        String email = payload.getString(emailOffset + 4, emailOffset + 4 + emailLength, StandardCharsets.UTF_8.name());
+        return new User(id, name, email, version);
+    }
+
+    private static void appendUser(Buffer out, User user) {
+        byte[] name = user.name().getBytes(StandardCharsets.UTF_8);
+        byte[] email = user.email().getBytes(StandardCharsets.UTF_8);
+        out.appendLong(user.id().getMostSignificantBits())
+            .appendLong(user.id().getLeastSignificantBits())
+            .appendLong(user.version())
+            .appendInt(name.length).appendBytes(name)
+            .appendInt(email.length).appendBytes(email);
+    }
+
+    // Writes a placeholder length and the kind, returning where the frame starts
+    private static int beginFrame(Buffer out, byte kind) {
+        int start = out.length();
+        out.appendInt(0).appendByte(kind);
+        return start;
+    }
+
+    private static void endFrame(Buffer out, int start) {
+        out.setInt(start, out.length() - start - LENGTH_BYTES);
+    }
+}
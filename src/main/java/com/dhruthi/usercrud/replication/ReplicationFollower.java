@@ -0,0 +1,229 @@
+package com.dhruthi.usercrud.replication;
+
+import com.dhruthi.usercrud.metrics.LatencyHistogram;
+import com.dhruthi.usercrud.metrics.Metrics;
+import com.dhruthi.usercrud.model.User;
+import com.dhruthi.usercrud.store.InMemoryUserStore;
+import com.dhruthi.usercrud.store.MutationType;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.net.NetClient;
+import io.vertx.core.net.NetSocket;
+import io.vertx.core.parsetools.RecordParser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// Keeps a local store in step with a leader's replication stream. After a disconnect it reconnects and
+// asks for everything after the last sequence number it applied, so it catches up without a snapshot as
+// long as the leader's log still holds those entries and the leader has not restarted since. Everything runs on one event loop; the store is
+// only written from there, while the HTTP instances read it concurrently.
+public class ReplicationFollower {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicationFollower.class);
+
+    static final long RECONNECT_MILLIS = 500;
+
+    private final Vertx vertx;
+    private final InMemoryUserStore store;
+    private final String host;
+    private final int port;
+    private final LatencyHistogram lag;
+    private NetClient client;
+    private Context context;
+
+    private NetSocket socket;
+    private boolean stopped;
+    // Ids received in the snapshot being loaded, null outside of one
+    private Set<UUID> snapshotIds;
+    // Position applied last: the leader run that numbered it and its sequence number
+    private volatile long runId;
+    private volatile long appliedSequence;
+    // The leader's last sequence number and the run it belongs to, as of its latest message
+    private volatile long leaderRunId;
+    private volatile long leaderSequence;
+    private volatile long snapshotsLoaded;
+
+    // Applies the stream to the store, recording replication_lag_seconds (leader's clock at the mutation to
+    // the time it was applied here) and the applied and pending sequence numbers into the metrics
+    public ReplicationFollower(Vertx vertx, InMemoryUserStore store, String host, int port, Metrics metrics) {
+        this.vertx = vertx;
+        this.store = store;
+        this.host = host;
+        this.port = port;
+        this.lag = metrics.histogram("replication_lag_seconds",
+            "Time from a mutation on the leader to its application on this follower");
+        metrics.gauge("replication_applied_sequence", "Last leader sequence number applied here",
+            () -> appliedSequence);
+        metrics.gauge("replication_pending_mutations", "Mutations the leader has that this follower has not applied",
+            this::pendingMutations);
+    }
+
+    // Completes once connected for the first time; from then on reconnects by itself until stopped.
+    // A stopped follower can be started again and resumes after the last sequence it applied.
+    public Future<Void> start() {
+        Promise<Void> connected = Promise.promise();
+        context = vertx.getOrCreateContext();
+        context.runOnContext(v -> {
+            stopped = false;
+            client = vertx.createNetClient();
+            connect(connected);
+        });
+        return connected.future();
+    }
+
+    public Future<Void> stop() {
+        Promise<Void> closed = Promise.promise();
+        context.runOnContext(v -> {
+            stopped = true;
+            Future<Void> closing = socket == null ? Future.succeededFuture() : socket.close();
+            closing.otherwiseEmpty().compose(done -> client.close()).onComplete(closed);
+        });
+        return closed.future();
+    }
+
+    public long appliedSequence() {
+        return appliedSequence;
+    }
+
+    // The leader's last sequence number as of its latest message
+    public long leaderSequence() {
+        return leaderSequence;
+    }
+
+    // Mutations the leader has that this follower has not applied. Once the leader has restarted, everything
+    // it numbered is pending until the follower is resynchronized.
+    public long pendingMutations() {
+        return leaderRunId == runId ? Math.max(0, leaderSequence - appliedSequence) : leaderSequence;
+    }
+
+    public long snapshotsLoaded() {
+        return snapshotsLoaded;
+    }
+
+    private void connect(Promise<Void> connected) {
+        if (stopped) {
+            return;
+        }
+        client.connect(port, host)
+            .onSuccess(connection -> {
+                socket = connection;
+                logger.info("Connected to leader {}:{}, resuming after sequence {}", host, port, appliedSequence);
+                listen(connection);
+                connection.write(ReplicationCodec.hello(runId, appliedSequence));
+                connected.tryComplete();
+            })
+            .onFailure(error -> {
+                logger.warn("Cannot reach leader {}:{}, retrying in {} ms", host, port, RECONNECT_MILLIS);
+                vertx.setTimer(RECONNECT_MILLIS, id -> connect(connected));
+            });
+    }
+
+    private void listen(NetSocket connection) {
+        RecordParser frames = RecordParser.newFixed(ReplicationCodec.LENGTH_BYTES, connection);
+        boolean[] readingLength = {true};
+        frames.handler(buffer -> {
+            if (readingLength[0]) {
+                frames.fixedSizeMode(buffer.getInt(0));
+            } else {
+                apply(buffer);
+                frames.fixedSizeMode(ReplicationCodec.LENGTH_BYTES);
+            }
+            readingLength[0] = !readingLength[0];
+        });
+        connection.closeHandler(v -> {
+            socket = null;
+            snapshotIds = null;
+            if (!stopped) {
+                logger.warn("Lost connection to leader at sequence {}, reconnecting", appliedSequence);
+                vertx.setTimer(RECONNECT_MILLIS, id -> connect(Promise.promise()));
+            }
+        });
+        connection.exceptionHandler(error -> logger.warn("Replication from {}:{} failed", host, port, error));
+    }
+
+    private void apply(Buffer frame) {
+        switch (frame.getByte(0)) {
+            case ReplicationCodec.MUTATION -> {
+                long run = frame.getLong(1);
+                long sequence = frame.getLong(9);
+                long timestampMillis = frame.getLong(17);
+                // The leader streams without a snapshot only to a follower of its own run, or to a new one
+                if (runId != 0 && run != runId) {
+                    logger.warn("Leader streamed run {} to a follower of run {}, reconnecting", run, runId);
+                    socket.close();
+                    return;
+                }
+                applyMutation(ReplicationCodec.readType(frame, 25), ReplicationCodec.readUser(frame, 26));
+                runId = run;
+                appliedSequence = sequence;
+                observeLeader(run, sequence);
+                lag.record(TimeUnit.MILLISECONDS.toNanos(Math.max(0, System.currentTimeMillis() - timestampMillis)));
+            }
+            case ReplicationCodec.SNAPSHOT_START -> snapshotIds = new HashSet<>();
+            case ReplicationCodec.SNAPSHOT_USER -> {
+                User user = ReplicationCodec.readUser(frame, 1);
+                store.restore(user);
+                snapshotIds.add(user.id());
+            }
+            case ReplicationCodec.SNAPSHOT_END -> {
+                // Whatever the snapshot did not mention no longer exists on the leader
+                List<UUID> gone = new ArrayList<>();
+                try (InMemoryUserStore.Snapshot local = store.snapshot()) {
+                    for (User user : local) {
+                        if (!snapshotIds.contains(user.id())) {
+                            gone.add(user.id());
+                        }
+                    }
+                }
+                gone.forEach(store::evict);
+                logger.info("Loaded a snapshot of {} users, removed {}", snapshotIds.size(), gone.size());
+                snapshotIds = null;
+                long run = frame.getLong(1);
+                long sequence = frame.getLong(9);
+                if (run != runId) {
+                    logger.info("Now following leader run {}", run);
+                }
+                runId = run;
+                appliedSequence = sequence;
+                observeLeader(run, sequence);
+                snapshotsLoaded++;
+            }
+            case ReplicationCodec.HEARTBEAT -> observeLeader(frame.getLong(1), frame.getLong(9));
+            default -> logger.warn("Ignoring replication frame of unknown kind {}", frame.getByte(0));
+        }
+    }
+
+    // A sequence number of a new leader run replaces the old run's, even if it is lower
+    private void observeLeader(long run, long sequence) {
+        if (run != leaderRunId) {
+            leaderRunId = run;
+            leaderSequence = sequence;
+        } else {
+            leaderSequence = Math.max(leaderSequence, sequence);
+        }
+    }
+
+    // Entries can be replayed after a snapshot that already reflects them, so a stored version that is
+    // as new as the mutation wins
+    private void applyMutation(MutationType type, User user) {
+        Optional<User> existing = store.findById(user.id());
+        if (type == MutationType.DELETE) {
+            if (existing.isPresent() && existing.get().version() <= user.version()) {
+                store.evict(user.id());
+            }
+        } else if (existing.isEmpty() || existing.get().version() < user.version()) {
+            store.restore(user);
+        }
+    }
+}
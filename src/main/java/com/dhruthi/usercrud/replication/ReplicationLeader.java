@@ -0,0 +1,205 @@
+package com.dhruthi.usercrud.replication;
+
+import com.dhruthi.usercrud.changes.Change;
+import com.dhruthi.usercrud.changes.ChangeFeed;
+import com.dhruthi.usercrud.model.User;
+import com.dhruthi.usercrud.store.CloseableIterator;
+import com.dhruthi.usercrud.store.UserStore;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.net.NetServer;
+import io.vertx.core.net.NetSocket;
+import io.vertx.core.parsetools.RecordParser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+// Serves the leader's replication stream over TCP. Each follower says which sequence number it applied
+// last and is streamed every later mutation from the store's ChangeFeed; a follower the feed cannot serve,
+// too far behind or following an earlier run of the leader, first gets a snapshot of the whole store. Every follower is served on the event loop
+// that accepted it and is only written to while its socket can take more, so a slow follower never makes
+// the leader buffer more than a batch for it.
+public class ReplicationLeader {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicationLeader.class);
+
+    static final long HEARTBEAT_MILLIS = 100;
+    private static final int BATCH_ENTRIES = 256;
+    // Stores publish an entry once it is committed, so a snapshot opened after reading the last sequence
+    // has every entry up to it. The overlap only guards against a store that publishes early; replaying
+    // entries the snapshot has is harmless, as followers skip versions they have.
+    private static final int SNAPSHOT_OVERLAP = 1024;
+
+    private final Vertx vertx;
+    private final UserStore store;
+    private final ChangeFeed feed;
+    private NetServer server;
+
+    // The feed must be registered as a listener of the store
+    public ReplicationLeader(Vertx vertx, UserStore store, ChangeFeed feed) {
+        this.vertx = vertx;
+        this.store = store;
+        this.feed = feed;
+    }
+
+    // Starts accepting followers, completing with the bound port (useful when asked for port 0)
+    public Future<Integer> listen(int port) {
+        server = vertx.createNetServer().connectHandler(socket -> new Session(socket).start());
+        return server.listen(port).map(NetServer::actualPort)
+            .onSuccess(bound -> logger.info("Replication leader listening on port {}", bound));
+    }
+
+    public Future<Void> close() {
+        return server == null ? Future.succeededFuture() : server.close();
+    }
+
+    // The stream to one follower. All methods run on the socket's event loop.
+    private final class Session {
+
+        private final NetSocket socket;
+        private final Context context = vertx.getOrCreateContext();
+        private final List<Change> batch = new ArrayList<>(BATCH_ENTRIES);
+        private ChangeFeed.Subscription subscription;
+        private long sent;
+        private boolean snapshotting;
+        // The users still to send while snapshotting; closed when done or when the follower goes away
+        private Iterator<User> snapshotUsers;
+        private boolean closed;
+        private long heartbeatTimer = -1;
+
+        Session(NetSocket socket) {
+            this.socket = socket;
+        }
+
+        void start() {
+            RecordParser hello = RecordParser.newFixed(ReplicationCodec.HELLO_BYTES, socket);
+            hello.handler(buffer -> {
+                hello.handler(null);
+                long runId = buffer.getLong(0);
+                long lastApplied = buffer.getLong(8);
+                logger.info("Follower {} connected after sequence {}", socket.remoteAddress(), lastApplied);
+                subscription = feed.subscribe(context, this::pump);
+                heartbeatTimer = vertx.setPeriodic(HEARTBEAT_MILLIS, id -> heartbeat());
+                // Sequence numbers of another run say nothing about this one; a new follower has none yet
+                boolean sameRun = runId == feed.runId() || (runId == 0 && lastApplied == 0);
+                if (!sameRun) {
+                    logger.info("Follower {} followed an earlier run of the leader, sending a snapshot",
+                        socket.remoteAddress());
+                    snapshot();
+                } else if (feed.readAfter(lastApplied, 0, batch) == ChangeFeed.ReadResult.OVERRUN) {
+                    snapshot();
+                } else {
+                    sent = lastApplied;
+                    pump();
+                }
+            });
+            socket.closeHandler(v -> {
+                closed = true;
+                endSnapshot();
+                if (subscription != null) {
+                    subscription.cancel();
+                }
+                vertx.cancelTimer(heartbeatTimer);
+                logger.info("Follower {} disconnected at sequence {}", socket.remoteAddress(), sent);
+            });
+            socket.exceptionHandler(error -> logger.warn("Replication to {} failed", socket.remoteAddress(), error));
+        }
+
+        // Sends the changes the follower has not had, until the socket's write queue fills up
+        private void pump() {
+            if (closed || snapshotting) {
+                return;
+            }
+            while (!socket.writeQueueFull()) {
+                batch.clear();
+                if (feed.readAfter(sent, BATCH_ENTRIES, batch) == ChangeFeed.ReadResult.OVERRUN) {
+                    logger.warn("Follower {} fell behind the change feed, sending a snapshot", socket.remoteAddress());
+                    snapshot();
+                    return;
+                }
+                if (batch.isEmpty()) {
+                    return;
+                }
+                Buffer frames = Buffer.buffer(batch.size() * 96);
+                for (Change change : batch) {
+                    ReplicationCodec.appendMutation(frames, feed.runId(), change);
+                }
+                socket.write(frames);
+                sent = batch.get(batch.size() - 1).sequence();
+            }
+            socket.drainHandler(v -> {
+                socket.drainHandler(null);
+                pump();
+            });
+        }
+
+        private void snapshot() {
+            snapshotting = true;
+            long last = feed.lastSequence();
+            long resumeAfter = Math.max(0, last - Math.min(SNAPSHOT_OVERLAP, feed.capacity() - 1));
+            Buffer start = Buffer.buffer();
+            ReplicationCodec.appendSnapshotStart(start);
+            socket.write(start);
+            snapshotUsers = store.findAll().iterator();
+            writeSnapshot(resumeAfter);
+        }
+
+        // Writes one batch of users per event loop turn, waiting for the socket to drain when it is full
+        private void writeSnapshot(long resumeAfter) {
+            if (closed) {
+                return;
+            }
+            Iterator<User> users = snapshotUsers;
+            Buffer batch = Buffer.buffer(BATCH_ENTRIES * 96);
+            try {
+                for (int i = 0; i < BATCH_ENTRIES && users.hasNext(); i++) {
+                    ReplicationCodec.appendSnapshotUser(batch, users.next());
+                }
+            } catch (RuntimeException e) {
+                endSnapshot();
+                throw e;
+            }
+            if (!users.hasNext()) {
+                endSnapshot();
+                ReplicationCodec.appendSnapshotEnd(batch, feed.runId(), resumeAfter);
+                socket.write(batch);
+                sent = resumeAfter;
+                snapshotting = false;
+                pump();
+                return;
+            }
+            socket.write(batch);
+            if (socket.writeQueueFull()) {
+                socket.drainHandler(v -> {
+                    socket.drainHandler(null);
+                    writeSnapshot(resumeAfter);
+                });
+            } else {
+                context.runOnContext(v -> writeSnapshot(resumeAfter));
+            }
+        }
+
+        // Releases the store snapshot behind the users being sent, if any
+        private void endSnapshot() {
+            if (snapshotUsers != null) {
+                CloseableIterator.closeIfNeeded(snapshotUsers);
+                snapshotUsers = null;
+            }
+        }
+
+        // Tells an idle follower how far the leader is, so it can report its lag without new mutations
+        private void heartbeat() {
+            if (closed || socket.writeQueueFull()) {
+                return;
+            }
+            Buffer frame = Buffer.buffer(32);
+            ReplicationCodec.appendHeartbeat(frame, feed.runId(), feed.lastSequence(), System.currentTimeMillis());
+            socket.write(frame);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.dhruthi.usercrud.store;
+
+import com.dhruthi.usercrud.model.EncodedUser;
+import com.dhruthi.usercrud.model.User;
+import io.vertx.core.Future;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.UnaryOperator;
+
+// Non-blocking view of a UserStore, the contract the HTTP handlers are written against. Each operation
+// has the meaning of its UserStore counterpart; the store's exceptions (UserNotFoundException,
+// DuplicateEmailException, VersionConflictException) become failed futures. Futures complete on the
+// caller's Vert.x context, so handlers can keep touching their request from the callbacks.
+public interface AsyncUserStore {
+
+    Future<User> create(User user);
+
+    Future<List<User>> createAll(List<User> users);
+
+    Future<Optional<User>> findById(UUID id);
+
+    Future<Optional<EncodedUser>> findEncodedById(UUID id);
+
+    Future<Map<UUID, User>> findAllById(Collection<UUID> ids);
+
+    Future<Optional<User>> findByEmail(String email);
+
+    Future<User> update(UUID id, long expectedVersion, UnaryOperator<User> change);
+
+    Future<Void> delete(UUID id);
+
+    Future<List<User>> findPage(UUID after, int limit);
+
+    Future<List<User>> findByNamePrefix(String prefix, int limit);
+}
@@ -0,0 +1,436 @@
+package com.dhruthi.usercrud.store;
+
+import com.dhruthi.usercrud.metrics.LatencyHistogram;
+import com.dhruthi.usercrud.metrics.Metrics;
+import com.dhruthi.usercrud.model.EncodedUser;
+import com.dhruthi.usercrud.model.User;
+import com.dhruthi.usercrud.model.UserNotFoundException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.UnaryOperator;
+
+// UserStore decorator caching lookups by id in front of a slower store, for users that are read far more
+// often than they change. Lookups that find nothing are cached too, for a short time, so repeated misses
+// do not reach the store either. Writes go straight to the store and then drop the cached entry.
+//
+// At most maximumSize entries are kept, chosen by W-TinyLFU: new entries enter a small LRU window, and
+// when one leaves it, it only displaces the main region's next victim if a FrequencySketch says it was
+// used more often recently. The main region is a segmented LRU, where entries hit while on probation are
+// promoted to a protected segment. One-off reads, like scans, therefore cannot flush out the hot users.
+//
+// Hits are served from a ConcurrentHashMap without locking. They are recorded in a small lossy buffer
+// that is applied to the policy under its lock, either by a thread that finds the lock free or by the next
+// write; dropping a few when the buffer overflows only makes the frequencies a little less exact.
+public class CachingUserStore implements UserStore, Closeable {
+
+    public static final Duration DEFAULT_NEGATIVE_TTL = Duration.ofSeconds(1);
+
+    private static final int READ_BUFFER_SIZE = 128;
+    private static final int READ_DRAIN_THRESHOLD = 16;
+    // Invalidations are counted per stripe of ids, so a load can tell whether the user changed under it
+    private static final int INVALIDATION_STRIPES = 1024;
+
+    // One cached lookup. Entries are never modified, a new lookup result replaces the entry.
+    private static final class Node {
+        final UUID id;
+        // Null for a lookup that found nothing
+        final EncodedUser value;
+        final long expiresAtNanos;
+        Node prev;
+        Node next;
+        AccessQueue queue;
+
+        Node(UUID id, EncodedUser value, long expiresAtNanos) {
+            this.id = id;
+            this.value = value;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+
+        boolean expired(long now) {
+            return value == null && now - expiresAtNanos >= 0;
+        }
+    }
+
+    // Doubly linked list of nodes from least to most recently used
+    private static final class AccessQueue {
+        Node head;
+        Node tail;
+        int size;
+
+        void addLast(Node node) {
+            node.queue = this;
+            node.prev = tail;
+            node.next = null;
+            if (tail == null) {
+                head = node;
+            } else {
+                tail.next = node;
+            }
+            tail = node;
+            size++;
+        }
+
+        void remove(Node node) {
+            if (node.prev == null) {
+                head = node.next;
+            } else {
+                node.prev.next = node.next;
+            }
+            if (node.next == null) {
+                tail = node.prev;
+            } else {
+                node.next.prev = node.prev;
+            }
+            node.prev = null;
+            node.next = null;
+            node.queue = null;
+            size--;
+        }
+
+        void moveToLast(Node node) {
+            if (node != tail) {
+                remove(node);
+                addLast(node);
+            }
+        }
+    }
+
+    // Snapshot of the cache's counters since startup
+    public record Stats(long hits, long negativeHits, long misses, long evictions) {
+
+        // Share of lookups answered from the cache, found and not found alike
+        public double hitRatio() {
+            long requests = hits + negativeHits + misses;
+            return requests == 0 ? 0 : (double) (hits + negativeHits) / requests;
+        }
+    }
+
+    private final UserStore delegate;
+    private final long negativeTtlNanos;
+    private final ConcurrentHashMap<UUID, Node> data = new ConcurrentHashMap<>();
+    private final AtomicLongArray invalidations = new AtomicLongArray(INVALIDATION_STRIPES);
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final FrequencySketch sketch;
+    private final AccessQueue window = new AccessQueue();
+    private final AccessQueue probation = new AccessQueue();
+    private final AccessQueue protectedQueue = new AccessQueue();
+    private final int windowMaximum;
+    private final int mainMaximum;
+    private final int protectedMaximum;
+
+    private final AtomicReferenceArray<Node> readBuffer = new AtomicReferenceArray<>(READ_BUFFER_SIZE);
+    private final AtomicLong readsRecorded = new AtomicLong();
+    // Only accessed under the lock
+    private long readsDrained;
+
+    private final LongAdder hits;
+    private final LongAdder negativeHits;
+    private final LongAdder misses;
+    private final LongAdder evictions;
+    private final LatencyHistogram loadLatency;
+
+    public CachingUserStore(UserStore delegate, int maximumSize) {
+        this(delegate, maximumSize, DEFAULT_NEGATIVE_TTL, new Metrics());
+    }
+
+    // Records user_cache_requests_total{result=hit|negative_hit|miss}, user_cache_evictions_total and the
+    // time lookups that missed took in the store as user_cache_load_seconds
+    public CachingUserStore(UserStore delegate, int maximumSize, Duration negativeTtl, Metrics metrics) {
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("maximumSize must be positive");
+        }
+        this.delegate = delegate;
+        this.negativeTtlNanos = negativeTtl.toNanos();
+        this.sketch = new FrequencySketch(maximumSize);
+        this.windowMaximum = Math.max(1, maximumSize / 100);
+        this.mainMaximum = maximumSize - windowMaximum;
+        this.protectedMaximum = mainMaximum * 8 / 10;
+        String help = "User cache lookups by outcome";
+        this.hits = metrics.counter("user_cache_requests_total", help, "result", "hit");
+        this.negativeHits = metrics.counter("user_cache_requests_total", help, "result", "negative_hit");
+        this.misses = metrics.counter("user_cache_requests_total", help, "result", "miss");
+        this.evictions = metrics.counter("user_cache_evictions_total", "Entries evicted from the user cache");
+        this.loadLatency = metrics.histogram("user_cache_load_seconds",
+            "Time to load a user the cache did not have from the store");
+        metrics.gauge("user_cache_entries", "Entries in the user cache", data::size);
+    }
+
+    public Stats stats() {
+        return new Stats(hits.sum(), negativeHits.sum(), misses.sum(), evictions.sum());
+    }
+
+    // Number of cached entries, misses included
+    public int size() {
+        return data.size();
+    }
+
+    @Override
+    public User create(User user) {
+        User created = delegate.create(user);
+        invalidate(created.id());
+        return created;
+    }
+
+    @Override
+    public List<User> createAll(List<User> users) {
+        List<User> created = delegate.createAll(users);
+        for (User user : created) {
+            if (user != null) {
+                invalidate(user.id());
+            }
+        }
+        return created;
+    }
+
+    @Override
+    public Optional<User> findById(UUID id) {
+        return findEncodedById(id).map(EncodedUser::user);
+    }
+
+    @Override
+    public Optional<EncodedUser> findEncodedById(UUID id) {
+        Node node = cached(id);
+        if (node != null) {
+            return Optional.ofNullable(node.value);
+        }
+        misses.increment();
+        long stamp = invalidations.get(stripe(id));
+        long start = System.nanoTime();
+        Optional<EncodedUser> loaded = delegate.findEncodedById(id);
+        loadLatency.record(System.nanoTime() - start);
+        insert(id, loaded.orElse(null), stamp);
+        return loaded;
+    }
+
+    @Override
+    // Cached users are taken from the cache, the rest are loaded from the store in one call
+    public Map<UUID, User> findAllById(Collection<UUID> ids) {
+        Map<UUID, User> cached = new HashMap<>();
+        List<UUID> missing = new ArrayList<>();
+        for (UUID id : ids) {
+            Node node = cached(id);
+            if (node == null) {
+                missing.add(id);
+            } else if (node.value != null) {
+                cached.put(id, node.value.user());
+            }
+        }
+        if (!missing.isEmpty()) {
+            misses.add(missing.size());
+            long[] stamps = new long[missing.size()];
+            for (int i = 0; i < stamps.length; i++) {
+                stamps[i] = invalidations.get(stripe(missing.get(i)));
+            }
+            long start = System.nanoTime();
+            Map<UUID, User> loaded = delegate.findAllById(missing);
+            loadLatency.record(System.nanoTime() - start);
+            for (int i = 0; i < stamps.length; i++) {
+                User user = loaded.get(missing.get(i));
+                insert(missing.get(i), user == null ? null : EncodedUser.of(user), stamps[i]);
+            }
+            cached.putAll(loaded);
+        }
+        Map<UUID, User> found = new LinkedHashMap<>();
+        for (UUID id : ids) {
+            User user = cached.get(id);
+            if (user != null) {
+                found.put(id, user);
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public Optional<User> findByEmail(String email) {
+        return delegate.findByEmail(email);
+    }
+
+    @Override
+    public User update(UUID id, long expectedVersion, UnaryOperator<User> change) throws UserNotFoundException {
+        try {
+            return delegate.update(id, expectedVersion, change);
+        } finally {
+            // Also after a failure, which may mean the cached user is out of date
+            invalidate(id);
+        }
+    }
+
+    @Override
+    public void delete(UUID id) throws UserNotFoundException {
+        try {
+            delegate.delete(id);
+        } finally {
+            invalidate(id);
+        }
+    }
+
+    @Override
+    // Scans go to the store and are not cached, so they cannot displace the hot users
+    public Collection<User> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public List<User> findPage(UUID after, int limit) {
+        return delegate.findPage(after, limit);
+    }
+
+    @Override
+    public List<User> findByNamePrefix(String prefix, int limit) {
+        return delegate.findByNamePrefix(prefix, limit);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (delegate instanceof Closeable closeable) {
+            closeable.close();
+        }
+    }
+
+    // The live entry for the id, counting it as a hit, or null when the store has to be asked
+    private Node cached(UUID id) {
+        Node node = data.get(id);
+        if (node == null || node.expired(System.nanoTime())) {
+            return null;
+        }
+        (node.value == null ? negativeHits : hits).increment();
+        recordRead(node);
+        return node;
+    }
+
+    private void recordRead(Node node) {
+        long index = readsRecorded.getAndIncrement();
+        readBuffer.lazySet((int) (index & (READ_BUFFER_SIZE - 1)), node);
+        if ((index + 1) % READ_DRAIN_THRESHOLD == 0 && lock.tryLock()) {
+            try {
+                drainReads();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    // Applies the buffered reads to the policy. Reads overwritten before they were drained are lost.
+    private void drainReads() {
+        long end = readsRecorded.get();
+        for (long i = Math.max(readsDrained, end - READ_BUFFER_SIZE); i < end; i++) {
+            Node node = readBuffer.getAndSet((int) (i & (READ_BUFFER_SIZE - 1)), null);
+            if (node != null) {
+                onAccess(node);
+            }
+        }
+        readsDrained = end;
+    }
+
+    // Caches a lookup result unless the user was written since the lookup started (the stamp changed),
+    // in which case the result may already be out of date
+    private void insert(UUID id, EncodedUser value, long stamp) {
+        lock.lock();
+        try {
+            drainReads();
+            if (invalidations.get(stripe(id)) != stamp) {
+                return;
+            }
+            long now = System.nanoTime();
+            Node existing = data.get(id);
+            if (existing != null) {
+                if (!existing.expired(now)) {
+                    return;
+                }
+                remove(existing);
+            }
+            Node node = new Node(id, value, value == null ? now + negativeTtlNanos : Long.MAX_VALUE);
+            data.put(id, node);
+            sketch.increment(id);
+            window.addLast(node);
+            evict();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void invalidate(UUID id) {
+        lock.lock();
+        try {
+            invalidations.incrementAndGet(stripe(id));
+            Node node = data.get(id);
+            if (node != null) {
+                remove(node);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Under the lock
+    private void onAccess(Node node) {
+        if (node.queue == null) {
+            // Removed since it was read
+            return;
+        }
+        sketch.increment(node.id);
+        if (node.queue == probation) {
+            probation.remove(node);
+            protectedQueue.addLast(node);
+            while (protectedQueue.size > protectedMaximum) {
+                Node demoted = protectedQueue.head;
+                protectedQueue.remove(demoted);
+                probation.addLast(demoted);
+            }
+        } else {
+            node.queue.moveToLast(node);
+        }
+    }
+
+    // Under the lock. Moves the window's overflow to probation; while the main region is over its size,
+    // the least recently used entry on probation and the one that just arrived compete, and the one the
+    // sketch has seen less often is evicted.
+    private void evict() {
+        while (window.size > windowMaximum) {
+            Node candidate = window.head;
+            window.remove(candidate);
+            probation.addLast(candidate);
+            if (probation.size + protectedQueue.size > mainMaximum) {
+                Node victim = probation.head;
+                if (victim != candidate && sketch.frequency(candidate.id) > sketch.frequency(victim.id)) {
+                    evict(victim);
+                } else {
+                    evict(candidate);
+                }
+            }
+        }
+    }
+
+    private void evict(Node node) {
+        remove(node);
+        evictions.increment();
+    }
+
+    private void remove(Node node) {
+        data.remove(node.id, node);
+        if (node.queue != null) {
+            node.queue.remove(node);
+        }
+    }
+
+    private static int stripe(UUID id) {
+        return id.hashCode() & (INVALIDATION_STRIPES - 1);
+    }
+}
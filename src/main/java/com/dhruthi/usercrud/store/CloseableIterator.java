@@ -0,0 +1,18 @@
+package com.dhruthi.usercrud.store;
+
+import java.util.Iterator;
+
+// An iterator that holds something until it is exhausted or closed, such as the snapshot behind an
+// InMemoryUserStore.findAll iteration. A caller that may stop early closes it in a finally block.
+public interface CloseableIterator<T> extends Iterator<T>, AutoCloseable {
+
+    @Override
+    void close();
+
+    // Close the iterator if it holds anything; other iterators need no closing
+    static void closeIfNeeded(Iterator<?> iterator) {
+        if (iterator instanceof CloseableIterator<?> closeable) {
+            closeable.close();
+        }
+    }
+}
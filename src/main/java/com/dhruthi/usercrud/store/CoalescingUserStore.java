@@ -0,0 +1,138 @@
+package com.dhruthi.usercrud.store;
+
+import com.dhruthi.usercrud.metrics.Metrics;
+import com.dhruthi.usercrud.model.EncodedUser;
+import com.dhruthi.usercrud.model.User;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+// AsyncUserStore decorator that gives concurrent lookups of the same user one store call ("single
+// flight"). While a findById or findEncodedById of an id is in progress, further lookups of that id,
+// from any event loop, wait for its result instead of calling the store again. A burst of requests for
+// one hot user therefore costs the store one read, however large the burst.
+//
+// Only worth it in front of a store that takes a while to answer, e.g. WorkerAsyncUserStore; lookups of
+// an inline store complete before the next one can start. A lookup in progress when an update or delete
+// of the user completes is not joined by later lookups, which read the store again.
+public class CoalescingUserStore implements AsyncUserStore {
+
+    private final AsyncUserStore delegate;
+    private final ConcurrentHashMap<UUID, Future<Optional<User>>> userLoads = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<UUID, Future<Optional<EncodedUser>>> encodedLoads = new ConcurrentHashMap<>();
+    private final LongAdder coalesced;
+
+    // Counts the lookups that joined one in progress as user_store_coalesced_reads_total
+    public CoalescingUserStore(AsyncUserStore delegate, Metrics metrics) {
+        this.delegate = delegate;
+        this.coalesced = metrics.counter("user_store_coalesced_reads_total",
+            "Lookups by id answered by another lookup of the same user in progress");
+    }
+
+    @Override
+    public Future<User> create(User user) {
+        return delegate.create(user);
+    }
+
+    @Override
+    public Future<List<User>> createAll(List<User> users) {
+        return delegate.createAll(users);
+    }
+
+    @Override
+    public Future<Optional<User>> findById(UUID id) {
+        return singleFlight(userLoads, id, () -> delegate.findById(id));
+    }
+
+    @Override
+    public Future<Optional<EncodedUser>> findEncodedById(UUID id) {
+        return singleFlight(encodedLoads, id, () -> delegate.findEncodedById(id));
+    }
+
+    @Override
+    public Future<Map<UUID, User>> findAllById(Collection<UUID> ids) {
+        return delegate.findAllById(ids);
+    }
+
+    @Override
+    public Future<Optional<User>> findByEmail(String email) {
+        return delegate.findByEmail(email);
+    }
+
+    @Override
+    public Future<User> update(UUID id, long expectedVersion, UnaryOperator<User> change) {
+        return delegate.update(id, expectedVersion, change).onComplete(result -> forget(id));
+    }
+
+    @Override
+    public Future<Void> delete(UUID id) {
+        return delegate.delete(id).onComplete(result -> forget(id));
+    }
+
+    @Override
+    public Future<List<User>> findPage(UUID after, int limit) {
+        return delegate.findPage(after, limit);
+    }
+
+    @Override
+    public Future<List<User>> findByNamePrefix(String prefix, int limit) {
+        return delegate.findByNamePrefix(prefix, limit);
+    }
+
+    // Starts the load unless one for the id is already in progress, in which case its result is shared
+    private <T> Future<T> singleFlight(ConcurrentHashMap<UUID, Future<T>> inFlight, UUID id, Supplier<Future<T>> load) {
+        Future<T> running = inFlight.get(id);
+        if (running != null) {
+            coalesced.increment();
+            return onCallerContext(running);
+        }
+        Promise<T> promise = Promise.promise();
+        Future<T> shared = promise.future();
+        running = inFlight.putIfAbsent(id, shared);
+        if (running != null) {
+            coalesced.increment();
+            return onCallerContext(running);
+        }
+        // The delegate completes on this caller's context, so the caller that started the load needs no hop
+        load.get().onComplete(result -> {
+            inFlight.remove(id, shared);
+            promise.handle(result);
+        });
+        return shared;
+    }
+
+    // Lookups starting from now on read the store again
+    private void forget(UUID id) {
+        userLoads.remove(id);
+        encodedLoads.remove(id);
+    }
+
+    // The shared load completes on the context of the caller that started it; everyone else is called
+    // back on their own, so handlers can keep touching their request
+    private static <T> Future<T> onCallerContext(Future<T> shared) {
+        Context caller = Vertx.currentContext();
+        if (caller == null) {
+            return shared;
+        }
+        Promise<T> promise = Promise.promise();
+        shared.onComplete(result -> {
+            if (Vertx.currentContext() == caller) {
+                promise.handle(result);
+            } else {
+                caller.runOnContext(v -> promise.handle(result));
+            }
+        });
+        return promise.future();
+    }
+}
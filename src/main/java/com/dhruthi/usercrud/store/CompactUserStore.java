@@ -0,0 +1,538 @@
+package com.dhruthi.usercrud.store;
+
+import com.dhruthi.usercrud.model.DuplicateEmailException;
+import com.dhruthi.usercrud.model.IdGenerator;
+import com.dhruthi.usercrud.model.User;
+import com.dhruthi.usercrud.model.UserNotFoundException;
+import com.dhruthi.usercrud.model.VersionConflictException;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.UnaryOperator;
+
+// Memory-lean UserStore for very large user counts. Instead of a map of User objects, every user is one
+// packed record in large byte pages, found through two open-addressing tables of int references:
+// one hashed on the two longs of the id and one on the normalized email. That is a few dozen bytes
+// of overhead per user and almost no objects for the garbage collector to trace.
+//
+// Reads run concurrently under a read lock, mutations are serialized by the write lock. Paging and name
+// search have no sorted index to walk, so findPage and findByNamePrefix scan every user; prefer
+// InMemoryUserStore when listing or searching users is a hot path.
+public class CompactUserStore implements ObservableUserStore {
+
+    // 256 KB pages stay below G1's humongous object threshold, which would round each one up to a whole region
+    private static final int PAGE_SHIFT = 18;
+    private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    // Records start on 8 byte boundaries, so an int reference addresses 16 GB of pages
+    private static final int ALIGN_SHIFT = 3;
+    private static final int INITIAL_CAPACITY = 1 << 10;
+
+    // Record layout: [long msb][long lsb][long version][int emailHash][int nameLength][int emailLength][name][email]
+    private static final int LSB_OFFSET = 8;
+    private static final int VERSION_OFFSET = 16;
+    private static final int EMAIL_HASH_OFFSET = 24;
+    private static final int NAME_LENGTH_OFFSET = 28;
+    private static final int EMAIL_LENGTH_OFFSET = 32;
+    private static final int HEADER_BYTES = 36;
+
+    private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle INTS = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final IdGenerator idGenerator;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Lock readLock = lock.readLock();
+    private final Lock writeLock = lock.writeLock();
+
+    // Notified inside each mutation, see MutationListener
+    private final List<MutationListener> listeners = new CopyOnWriteArrayList<>();
+    // Numbers the mutations for listeners, guarded by the write lock
+    private long lastCommit;
+
+    // Slots hold record references, 0 marks an empty slot. Both tables use linear probing and are
+    // kept at most 3/4 full.
+    private int[] idTable = new int[INITIAL_CAPACITY];
+    private int[] emailTable = new int[INITIAL_CAPACITY];
+    private int size;
+
+    private byte[][] pages = new byte[1][];
+    // Next free arena position; position 0 is never handed out so that reference 0 can mean empty
+    private long allocated = 1 << ALIGN_SHIFT;
+    // Bytes held by records that were replaced or deleted, reclaimed by compacting the arena
+    private long garbage;
+
+    public CompactUserStore() {
+        this(IdGenerator.timeOrdered());
+    }
+
+    // Every created user gets its id from the generator
+    public CompactUserStore(IdGenerator idGenerator) {
+        this.idGenerator = idGenerator;
+    }
+
+    @Override
+    public void addListener(MutationListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    // Create a new user with a generated UUID
+    public User create(User user) {
+        User newUser = new User(idGenerator.next(), user.name(), user.email(), 1);
+        String emailKey = emailKey(newUser.email());
+        int emailHash = emailKey.hashCode();
+        writeLock.lock();
+        try {
+            if (emailTable[findEmailSlot(emailKey, emailHash)] != 0) {
+                throw new DuplicateEmailException(newUser.email());
+            }
+            ensureCapacity(size + 1);
+            // Written before listeners hear of it, so a user too large for a record is refused unpublished
+            int ref = append(newUser, emailHash);
+            notifyAppended(MutationType.CREATE, newUser, ref);
+            idTable[findIdSlot(newUser.id().getMostSignificantBits(), newUser.id().getLeastSignificantBits())] = ref;
+            emailTable[findEmailSlot(emailKey, emailHash)] = ref;
+            size++;
+            return newUser;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    // Finding the user by their UUID
+    public Optional<User> findById(UUID id) {
+        readLock.lock();
+        try {
+            int ref = idTable[findIdSlot(id.getMostSignificantBits(), id.getLeastSignificantBits())];
+            return ref == 0 ? Optional.empty() : Optional.of(readUser(ref));
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    // Batch lookup under a single read lock
+    public Map<UUID, User> findAllById(Collection<UUID> ids) {
+        Map<UUID, User> found = new LinkedHashMap<>(ids.size() * 2);
+        readLock.lock();
+        try {
+            for (UUID id : ids) {
+                int ref = idTable[findIdSlot(id.getMostSignificantBits(), id.getLeastSignificantBits())];
+                if (ref != 0) {
+                    found.put(id, readUser(ref));
+                }
+            }
+        } finally {
+            readLock.unlock();
+        }
+        return found;
+    }
+
+    @Override
+    // Finding the user through the email table, without scanning the users
+    public Optional<User> findByEmail(String email) {
+        String emailKey = emailKey(email);
+        readLock.lock();
+        try {
+            int ref = emailTable[findEmailSlot(emailKey, emailKey.hashCode())];
+            return ref == 0 ? Optional.empty() : Optional.of(readUser(ref));
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    // Check the version and apply the change under the write lock. If not found throw UserNotFoundException
+    public User update(UUID id, long expectedVersion, UnaryOperator<User> change) throws UserNotFoundException {
+        writeLock.lock();
+        try {
+            int idSlot = findIdSlot(id.getMostSignificantBits(), id.getLeastSignificantBits());
+            int oldRef = idTable[idSlot];
+            if (oldRef == 0) {
+                throw new UserNotFoundException(id);
+            }
+            User existing = readUser(oldRef);
+            if (expectedVersion != ANY_VERSION && expectedVersion != existing.version()) {
+                throw new VersionConflictException(id, expectedVersion, existing.version());
+            }
+            User changed = change.apply(existing);
+            User updated = new User(id, changed.name(), changed.email(), existing.version() + 1);
+            String newKey = emailKey(updated.email());
+            int newHash = newKey.hashCode();
+            String oldKey = emailKey(existing.email());
+            boolean emailChanged = !oldKey.equals(newKey);
+            if (emailChanged && emailTable[findEmailSlot(newKey, newHash)] != 0) {
+                throw new DuplicateEmailException(updated.email());
+            }
+            // Records are immutable: write the new version and repoint both tables at it
+            int newRef = append(updated, newHash);
+            notifyAppended(MutationType.UPDATE, updated, newRef);
+            idTable[idSlot] = newRef;
+            if (emailChanged) {
+                removeEmail(findEmailSlot(oldKey, oldKey.hashCode()));
+            }
+            emailTable[findEmailSlot(newKey, newHash)] = newRef;
+            release(oldRef);
+            return updated;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    // Delete the user with their UUID, if not found throw UserNotFoundException
+    public void delete(UUID id) throws UserNotFoundException {
+        writeLock.lock();
+        try {
+            int idSlot = findIdSlot(id.getMostSignificantBits(), id.getLeastSignificantBits());
+            int ref = idTable[idSlot];
+            if (ref == 0) {
+                throw new UserNotFoundException(id);
+            }
+            User removed = readUser(ref);
+            notifyListeners(MutationType.DELETE, removed);
+            String emailKey = emailKey(removed.email());
+            removeEmail(findEmailSlot(emailKey, emailKey.hashCode()));
+            removeId(idSlot);
+            size--;
+            release(ref);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    // Return all users. The count is live; iterating decodes a snapshot of the users at that moment.
+    public Collection<User> findAll() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<User> iterator() {
+                readLock.lock();
+                try {
+                    List<User> snapshot = new ArrayList<>(size);
+                    for (int ref : idTable) {
+                        if (ref != 0) {
+                            snapshot.add(readUser(ref));
+                        }
+                    }
+                    return snapshot.iterator();
+                } finally {
+                    readLock.unlock();
+                }
+            }
+
+            @Override
+            public int size() {
+                return CompactUserStore.this.size();
+            }
+        };
+    }
+
+    @Override
+    // Scans every slot, keeping the smallest ids after the cursor in a bounded heap: O(n log limit)
+    public List<User> findPage(UUID after, int limit) {
+        long afterMsb = after == null ? 0 : after.getMostSignificantBits();
+        long afterLsb = after == null ? 0 : after.getLeastSignificantBits();
+        readLock.lock();
+        try {
+            Comparator<Integer> byId = (a, b) -> compareIds(msb(a), lsb(a), msb(b), lsb(b));
+            PriorityQueue<Integer> largestFirst = new PriorityQueue<>(Math.min(limit, 1024) + 1, byId.reversed());
+            for (int ref : idTable) {
+                if (ref == 0 || after != null && compareIds(msb(ref), lsb(ref), afterMsb, afterLsb) <= 0) {
+                    continue;
+                }
+                if (largestFirst.size() < limit) {
+                    largestFirst.add(ref);
+                } else if (byId.compare(ref, largestFirst.peek()) < 0) {
+                    largestFirst.poll();
+                    largestFirst.add(ref);
+                }
+            }
+            User[] page = new User[largestFirst.size()];
+            for (int i = page.length - 1; i >= 0; i--) {
+                page[i] = readUser(largestFirst.poll());
+            }
+            return Arrays.asList(page);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    public int size() {
+        readLock.lock();
+        try {
+            return size;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    // === Hash tables ===
+
+    // Slot holding the id, or the empty slot where it would be inserted
+    private int findIdSlot(long msb, long lsb) {
+        int mask = idTable.length - 1;
+        int slot = idHash(msb, lsb) & mask;
+        while (true) {
+            int ref = idTable[slot];
+            if (ref == 0 || msb(ref) == msb && lsb(ref) == lsb) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    // Slot holding the normalized email, or the empty slot where it would be inserted
+    private int findEmailSlot(String emailKey, int emailHash) {
+        int mask = emailTable.length - 1;
+        int slot = spread(emailHash) & mask;
+        while (true) {
+            int ref = emailTable[slot];
+            if (ref == 0 || emailHash(ref) == emailHash && emailKey(readEmail(ref)).equals(emailKey)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private void removeId(int slot) {
+        int mask = idTable.length - 1;
+        int hole = slot;
+        for (int i = (slot + 1) & mask; idTable[i] != 0; i = (i + 1) & mask) {
+            int ref = idTable[i];
+            // Shift the entry back into the hole unless the hole lies before its home slot
+            int home = idHash(msb(ref), lsb(ref)) & mask;
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                idTable[hole] = ref;
+                hole = i;
+            }
+        }
+        idTable[hole] = 0;
+    }
+
+    private void removeEmail(int slot) {
+        int mask = emailTable.length - 1;
+        int hole = slot;
+        for (int i = (slot + 1) & mask; emailTable[i] != 0; i = (i + 1) & mask) {
+            int ref = emailTable[i];
+            int home = spread(emailHash(ref)) & mask;
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                emailTable[hole] = ref;
+                hole = i;
+            }
+        }
+        emailTable[hole] = 0;
+    }
+
+    private void ensureCapacity(int needed) {
+        if (needed * 4L <= idTable.length * 3L) {
+            return;
+        }
+        int capacity = idTable.length * 2;
+        int[] oldIds = idTable;
+        idTable = new int[capacity];
+        emailTable = new int[capacity];
+        for (int ref : oldIds) {
+            if (ref != 0) {
+                reinsert(ref);
+            }
+        }
+    }
+
+    // Place a reference into both tables, where it is known not to be present yet
+    private void reinsert(int ref) {
+        int mask = idTable.length - 1;
+        int slot = idHash(msb(ref), lsb(ref)) & mask;
+        while (idTable[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        idTable[slot] = ref;
+        slot = spread(emailHash(ref)) & mask;
+        while (emailTable[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        emailTable[slot] = ref;
+    }
+
+    private static int idHash(long msb, long lsb) {
+        return spread(Long.hashCode(msb * 0x9E3779B97F4A7C15L ^ lsb));
+    }
+
+    private static int spread(int hash) {
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    private static int compareIds(long msb1, long lsb1, long msb2, long lsb2) {
+        // Same order as UUID.compareTo
+        int result = Long.compare(msb1, msb2);
+        return result != 0 ? result : Long.compare(lsb1, lsb2);
+    }
+
+    // === Record arena ===
+
+    private int append(User user, int emailHash) {
+        byte[] name = user.name().getBytes(StandardCharsets.UTF_8);
+        byte[] email = user.email().getBytes(StandardCharsets.UTF_8);
+        int length = HEADER_BYTES + name.length + email.length;
+        if (length > PAGE_SIZE) {
+            throw new IllegalArgumentException("User name and email must not exceed " + (PAGE_SIZE - HEADER_BYTES) + " bytes");
+        }
+        long position = allocate(length);
+        byte[] page = pages[(int) (position >>> PAGE_SHIFT)];
+        int offset = (int) (position & (PAGE_SIZE - 1));
+        LONGS.set(page, offset, user.id().getMostSignificantBits());
+        LONGS.set(page, offset + LSB_OFFSET, user.id().getLeastSignificantBits());
+        LONGS.set(page, offset + VERSION_OFFSET, user.version());
+        INTS.set(page, offset + EMAIL_HASH_OFFSET, emailHash);
+        INTS.set(page, offset + NAME_LENGTH_OFFSET, name.length);
+        INTS.set(page, offset + EMAIL_LENGTH_OFFSET, email.length);
+        System.arraycopy(name, 0, page, offset + HEADER_BYTES, name.length);
+        System.arraycopy(email, 0, page, offset + HEADER_BYTES + name.length, email.length);
+        return (int) (position >>> ALIGN_SHIFT);
+    }
+
+    // Reserve an aligned slice of the arena; records never straddle two pages
+    private long allocate(int length) {
+        int aligned = align(length);
+        long position = allocated;
+        if ((position & (PAGE_SIZE - 1)) + aligned > PAGE_SIZE) {
+            position = ((position >>> PAGE_SHIFT) + 1) << PAGE_SHIFT;
+        }
+        if (((position + aligned) >>> ALIGN_SHIFT) > Integer.MAX_VALUE) {
+            throw new IllegalStateException("User store arena is full");
+        }
+        int page = (int) (position >>> PAGE_SHIFT);
+        if (page == pages.length) {
+            pages = Arrays.copyOf(pages, pages.length * 2);
+        }
+        if (pages[page] == null) {
+            pages[page] = new byte[PAGE_SIZE];
+        }
+        allocated = position + aligned;
+        return position;
+    }
+
+    // Account for a dead record and compact once dead records take up most of the arena
+    private void release(int ref) {
+        garbage += align(recordLength(ref));
+        if (garbage > PAGE_SIZE && garbage * 2 > allocated) {
+            compactArena();
+        }
+    }
+
+    // Copy the live records into fresh pages and rebuild both tables around their new references
+    private void compactArena() {
+        byte[][] oldPages = pages;
+        int[] oldIds = idTable;
+        pages = new byte[Math.max(1, oldPages.length / 2)][];
+        allocated = 1 << ALIGN_SHIFT;
+        garbage = 0;
+        idTable = new int[oldIds.length];
+        emailTable = new int[oldIds.length];
+        for (int oldRef : oldIds) {
+            if (oldRef == 0) {
+                continue;
+            }
+            long oldPosition = (long) oldRef << ALIGN_SHIFT;
+            byte[] oldPage = oldPages[(int) (oldPosition >>> PAGE_SHIFT)];
+            int oldOffset = (int) (oldPosition & (PAGE_SIZE - 1));
+            int length = HEADER_BYTES + (int) INTS.get(oldPage, oldOffset + NAME_LENGTH_OFFSET)
+                + (int) INTS.get(oldPage, oldOffset + EMAIL_LENGTH_OFFSET);
+            long position = allocate(length);
+            System.arraycopy(oldPage, oldOffset, pages[(int) (position >>> PAGE_SHIFT)],
+                (int) (position & (PAGE_SIZE - 1)), length);
+            reinsert((int) (position >>> ALIGN_SHIFT));
+        }
+    }
+
+    private User readUser(int ref) {
+        long position = (long) ref << ALIGN_SHIFT;
+        byte[] page = pages[(int) (position >>> PAGE_SHIFT)];
+        int offset = (int) (position & (PAGE_SIZE - 1));
+        int nameLength = (int) INTS.get(page, offset + NAME_LENGTH_OFFSET);
+        int emailLength = (int) INTS.get(page, offset + EMAIL_LENGTH_OFFSET);
+        return new User(
+            new UUID((long) LONGS.get(page, offset), (long) LONGS.get(page, offset + LSB_OFFSET)),
+            new String(page, offset + HEADER_BYTES, nameLength, StandardCharsets.UTF_8),
+            new String(page, offset + HEADER_BYTES + nameLength, emailLength, StandardCharsets.UTF_8),
+            (long) LONGS.get(page, offset + VERSION_OFFSET));
+    }
+
+    private String readEmail(int ref) {
+        long position = (long) ref << ALIGN_SHIFT;
+        byte[] page = pages[(int) (position >>> PAGE_SHIFT)];
+        int offset = (int) (position & (PAGE_SIZE - 1));
+        int nameLength = (int) INTS.get(page, offset + NAME_LENGTH_OFFSET);
+        int emailLength = (int) INTS.get(page, offset + EMAIL_LENGTH_OFFSET);
+        return new String(page, offset + HEADER_BYTES + nameLength, emailLength, StandardCharsets.UTF_8);
+    }
+
+    private long msb(int ref) {
+        long position = (long) ref << ALIGN_SHIFT;
+        return (long) LONGS.get(pages[(int) (position >>> PAGE_SHIFT)], (int) (position & (PAGE_SIZE - 1)));
+    }
+
+    private long lsb(int ref) {
+        long position = ((long) ref << ALIGN_SHIFT) + LSB_OFFSET;
+        return (long) LONGS.get(pages[(int) (position >>> PAGE_SHIFT)], (int) (position & (PAGE_SIZE - 1)));
+    }
+
+    private int emailHash(int ref) {
+        long position = ((long) ref << ALIGN_SHIFT) + EMAIL_HASH_OFFSET;
+        return (int) INTS.get(pages[(int) (position >>> PAGE_SHIFT)], (int) (position & (PAGE_SIZE - 1)));
+    }
+
+    private int recordLength(int ref) {
+        long position = (long) ref << ALIGN_SHIFT;
+        byte[] page = pages[(int) (position >>> PAGE_SHIFT)];
+        int offset = (int) (position & (PAGE_SIZE - 1));
+        return HEADER_BYTES + (int) INTS.get(page, offset + NAME_LENGTH_OFFSET)
+            + (int) INTS.get(page, offset + EMAIL_LENGTH_OFFSET);
+    }
+
+    private static int align(int length) {
+        int mask = (1 << ALIGN_SHIFT) - 1;
+        return (length + mask) & ~mask;
+    }
+
+    private static String emailKey(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    // Notifies listeners of a record appended but not yet referenced by the tables. A listener that refuses
+    // the mutation leaves the record as garbage.
+    private void notifyAppended(MutationType type, User user, int ref) {
+        try {
+            notifyListeners(type, user);
+        } catch (RuntimeException e) {
+            release(ref);
+            throw e;
+        }
+    }
+
+    private void notifyListeners(MutationType type, User user) {
+        lastCommit++;
+        for (MutationListener listener : listeners) {
+            listener.onMutation(type, user, lastCommit);
+        }
+    }
+}
@@ -1,64 +1,689 @@
 package com.dhruthi.usercrud.store;
 
+import com.dhruthi.usercrud.model.DuplicateEmailException;
+import com.dhruthi.usercrud.model.EncodedUser;
+import com.dhruthi.usercrud.model.IdGenerator;
 import com.dhruthi.usercrud.model.User;
 import com.dhruthi.usercrud.model.UserNotFoundException;
+import com.dhruthi.usercrud.model.VersionConflictException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.lang.ref.Cleaner;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.UnaryOperator;
 
 // This class implementation allows the CRUD operations on User objects in memory, without requiring external databases.
-public class InMemoryUserStore implements UserStore {
+//
+// Every write is a commit with a number from one global sequence, and each user is a chain of the versions
+// it had, newest first, a delete leaving a tombstone. Reads of single users see the newest version. A
+// Snapshot sees the store as of one commit: each user at its newest version with a commit number no higher,
+// however long the reader takes and whatever is written meanwhile. Writers never wait for snapshots.
+// Versions no open snapshot can see any more are unlinked by a background reclaimer.
+public class InMemoryUserStore implements ObservableUserStore {
 
-    // ConcurrentHashMap to store the users in memory
-    private final ConcurrentHashMap<UUID, User> users;
+    private static final Logger logger = LoggerFactory.getLogger(InMemoryUserStore.class);
+
+    // Reclaim after this many versions have been superseded, or whenever a snapshot is closed
+    private static final int RECLAIM_EVERY = 1024;
+
+    // Shared by all stores: reclaiming is short and rare, and a store has nothing to close
+    private static final ExecutorService RECLAIMER = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "user-store-reclaimer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Only a safety net for snapshots dropped without being closed: an unclosed one holds back reclaiming
+    // until the garbage collector finds it
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    // ConcurrentHashMap from id to the newest version of the user, which links to the older ones
+    private final ConcurrentHashMap<UUID, Version> users;
+
+    // Secondary index from normalized email to user id. It is only modified while the owning user's
+    // entry in the users map is locked, so it always agrees with the primary map for that user.
+    private final ConcurrentHashMap<String, UUID> emails = new ConcurrentHashMap<>();
+
+    // Sorted ids of every version chain, giving paging a stable order and a cursor to resume from. Deleted
+    // users stay until their tombstone is reclaimed, for the snapshots that still see them. Time-ordered
+    // ids are added at the end, and pages list users in the order they were created.
+    private final ConcurrentSkipListSet<UUID> ids = new ConcurrentSkipListSet<>();
+
+    // Users ordered by normalized name for prefix search, kept up to date like the email index
+    private final NameIndex names = NameIndex.concurrent();
+
+    // Live users, deleted ones excluded
+    private final AtomicInteger size = new AtomicInteger();
+
+    private final IdGenerator idGenerator;
+
+    // Notified of each commit once it is stable, in commit order, see MutationListener
+    private final List<MutationListener> listeners = new CopyOnWriteArrayList<>();
+    // Changes waiting for their commit to become stable. Whichever writer finds them publishable
+    // notifies the listeners, one writer at a time.
+    private final ConcurrentSkipListMap<Long, Change> unpublished = new ConcurrentSkipListMap<>();
+    private final Object publishLock = new Object();
+
+    // Commit numbers are drawn inside the per-user compute, but a commit only becomes visible when the
+    // compute returns, and they do not finish in order. Snapshots are taken at the stable commit, below
+    // which every commit has finished; commits finished above it wait in finishedAhead.
+    private final AtomicLong lastCommit = new AtomicLong();
+    private final AtomicLong stableCommit = new AtomicLong();
+    private final ConcurrentSkipListSet<Long> finishedAhead = new ConcurrentSkipListSet<>();
+
+    // Open snapshots by commit, with how many are open at each. Opening and closing snapshots and picking
+    // the reclaim horizon hold the lock; writers never take it.
+    private final Object snapshotLock = new Object();
+    private final TreeMap<Long, Integer> openSnapshots = new TreeMap<>();
+    // Versions no longer needed at this commit may already be gone, so no snapshot can be older
+    private long reclaimedThrough;
+
+    // Users with superseded versions or a tombstone to reclaim; an id can be queued more than once
+    private final ConcurrentLinkedQueue<UUID> superseded = new ConcurrentLinkedQueue<>();
+    // Versions kept besides the newest version of each live user: older versions and tombstones
+    private final AtomicLong retained = new AtomicLong();
+    private final AtomicInteger supersededSinceReclaim = new AtomicInteger();
+    private final AtomicBoolean reclaimRequested = new AtomicBoolean();
+    private final AtomicBoolean reclaiming = new AtomicBoolean();
 
     public InMemoryUserStore() {
+        this(IdGenerator.timeOrdered());
+    }
+
+    // Every created user gets its id from the generator
+    public InMemoryUserStore(IdGenerator idGenerator) {
         this.users = new ConcurrentHashMap<>();
+        this.idGenerator = idGenerator;
+    }
+
+    @Override
+    public void addListener(MutationListener listener) {
+        listeners.add(listener);
     }
 
     @Override
     // Create a new user with a generated UUID and store it in the map
     public User create(User user) {
-        UUID newId = UUID.randomUUID();
-        User newUser = new User(newId, user.name(), user.email());
-        users.put(newId, newUser);
+        UUID newId = idGenerator.next();
+        User newUser = new User(newId, user.name(), user.email(), 1);
+        String emailKey = emailKey(newUser.email());
+        if (emails.putIfAbsent(emailKey, newId) != null) {
+            throw new DuplicateEmailException(newUser.email());
+        }
+        Version created;
+        try {
+            created = users.compute(newId, (key, existing) -> {
+                ids.add(key);
+                names.add(newUser);
+                size.incrementAndGet();
+                return new Version(EncodedUser.of(newUser), nextCommit(), null);
+            });
+        } catch (RuntimeException e) {
+            emails.remove(emailKey, newId);
+            throw e;
+        }
+        finish(created, MutationType.CREATE, newUser);
         return newUser;
     }
 
     @Override
     // Finding the user by their UUID
     public Optional<User> findById(UUID id) {
-        return Optional.ofNullable(users.get(id));
+        EncodedUser stored = latest(id);
+        return stored == null ? Optional.empty() : Optional.of(stored.user());
     }
 
     @Override
-    // Update the user details if they exist, if not found throw UserNotFoundException
-    public User update(UUID id, User user) throws UserNotFoundException {
-        User updatedUser = users.computeIfPresent(id, (key, existing) ->
-            new User(id, user.name(), user.email())
-        );
+    // Serve the encoding built when the user was written, so reads do no JSON work at all
+    public Optional<EncodedUser> findEncodedById(UUID id) {
+        return Optional.ofNullable(latest(id));
+    }
 
-        if (updatedUser == null) {
-            throw new UserNotFoundException(id);
+    @Override
+    // Batch lookup straight against the map, without an Optional per id
+    public Map<UUID, User> findAllById(Collection<UUID> ids) {
+        Map<UUID, User> found = new LinkedHashMap<>(ids.size() * 2);
+        for (UUID id : ids) {
+            EncodedUser stored = latest(id);
+            if (stored != null) {
+                found.put(id, stored.user());
+            }
+        }
+        return found;
+    }
+
+    @Override
+    // Finding the user through the email index, without scanning the users
+    public Optional<User> findByEmail(String email) {
+        String emailKey = emailKey(email);
+        UUID id = emails.get(emailKey);
+        if (id == null) {
+            return Optional.empty();
         }
+        // The index can briefly point at a user whose email is being changed, so double check
+        EncodedUser stored = latest(id);
+        return stored != null && emailKey(stored.user().email()).equals(emailKey)
+            ? Optional.of(stored.user()) : Optional.empty();
+    }
+
+    @Override
+    // Apply the change inside the map's per-key compute, so the version check, the email re-index
+    // and the write happen as one step. If not found throw UserNotFoundException
+    public User update(UUID id, long expectedVersion, UnaryOperator<User> change) throws UserNotFoundException {
+        Version updatedUser = users.computeIfPresent(id, (key, existing) -> {
+            if (existing.user == null) {
+                return existing;
+            }
+            long version = existing.user.user().version();
+            if (expectedVersion != ANY_VERSION && expectedVersion != version) {
+                throw new VersionConflictException(id, expectedVersion, version);
+            }
+            User changed = change.apply(existing.user.user());
+            User updated = new User(id, changed.name(), changed.email(), version + 1);
+            String oldKey = emailKey(existing.user.user().email());
+            String newKey = emailKey(updated.email());
+            boolean emailChanged = !oldKey.equals(newKey);
+            if (emailChanged) {
+                UUID holder = emails.putIfAbsent(newKey, id);
+                if (holder != null && !holder.equals(id)) {
+                    throw new DuplicateEmailException(updated.email());
+                }
+            }
+            if (emailChanged) {
+                emails.remove(oldKey, id);
+            }
+            names.replace(existing.user.user(), updated);
+            // The new version carries its own cached JSON; the old one stays behind for snapshots
+            return new Version(EncodedUser.of(updated), nextCommit(), existing);
+        });
 
-        return updatedUser;
+        if (updatedUser == null || updatedUser.user == null) {
+            throw new UserNotFoundException(id);
+        }
+        finish(updatedUser, MutationType.UPDATE, updatedUser.user.user());
+        supersede(id, 1);
+        return updatedUser.user.user();
     }
 
     @Override
     // Delete the user with their UUID, if not found throw UserNotFoundException
     public void delete(UUID id) throws UserNotFoundException {
-        User removed = users.remove(id);
-        if (removed == null) {
+        remove(id);
+    }
+
+    // Delete the user and return the state that was removed, for callers that record it, such as a journal
+    public User remove(UUID id) throws UserNotFoundException {
+        Version[] tombstone = new Version[1];
+        User[] removed = new User[1];
+        users.computeIfPresent(id, (key, existing) -> {
+            if (existing.user == null) {
+                return existing;
+            }
+            removed[0] = existing.user.user();
+            emails.remove(emailKey(existing.user.user().email()), id);
+            names.remove(existing.user.user());
+            size.decrementAndGet();
+            tombstone[0] = new Version(null, nextCommit(), existing);
+            return tombstone[0];
+        });
+        if (tombstone[0] == null) {
             throw new UserNotFoundException(id);
         }
+        finish(tombstone[0], MutationType.DELETE, removed[0]);
+        // The deleted version and the tombstone itself
+        supersede(id, 2);
+        return removed[0];
     }
 
     @Override
-    // Return all users as a collection
+    // Return all users. The count is live; each iteration walks a snapshot taken when it starts, in id
+    // order, and releases it when exhausted. The iterator is a CloseableIterator for callers that stop early.
     public Collection<User> findAll() {
-        return users.values();
+        return new AbstractCollection<>() {
+            @Override
+            public CloseableIterator<User> iterator() {
+                Snapshot snapshot = snapshot();
+                return snapshot.iterate(null, true);
+            }
+
+            @Override
+            public int size() {
+                return size.get();
+            }
+        };
+    }
+
+    @Override
+    // Walk the sorted id set from the cursor, so each page costs O(log n + limit)
+    public List<User> findPage(UUID after, int limit) {
+        List<User> page = new ArrayList<>(Math.min(limit, 1024));
+        Iterable<UUID> tail = after == null ? ids : ids.tailSet(after, false);
+        for (UUID id : tail) {
+            if (page.size() >= limit) {
+                break;
+            }
+            // Skip deleted users, and ids whose user was reclaimed after the iterator saw them
+            EncodedUser stored = latest(id);
+            if (stored != null) {
+                page.add(stored.user());
+            }
+        }
+        return page;
+    }
+
+    @Override
+    // Walk the name index from the prefix, so a search costs O(log n + limit) whatever the store's size
+    public List<User> findByNamePrefix(String prefix, int limit) {
+        List<User> matches = new ArrayList<>(Math.min(limit, 1024));
+        for (NameIndex.Entry entry : names.startingWith(prefix)) {
+            if (matches.size() >= limit) {
+                break;
+            }
+            // The index can briefly list a user under an old name, or one who was just deleted
+            EncodedUser stored = latest(entry.id());
+            if (stored != null && entry.isCurrentFor(stored.user())) {
+                matches.add(stored.user());
+            }
+        }
+        return matches;
+    }
+
+    // Insert or replace a user keeping its existing id, used when rebuilding state from a journal
+    // or a replication stream. Listeners are notified just like for a regular create or update.
+    public void restore(User user) {
+        MutationType[] type = new MutationType[1];
+        Version restored = users.compute(user.id(), (key, existing) -> {
+            boolean live = existing != null && existing.user != null;
+            type[0] = live ? MutationType.UPDATE : MutationType.CREATE;
+            if (live) {
+                emails.remove(emailKey(existing.user.user().email()), key);
+                names.remove(existing.user.user());
+            } else {
+                size.incrementAndGet();
+            }
+            // Replayed state is authoritative, so take over the email even if the index disagrees
+            emails.put(emailKey(user.email()), key);
+            ids.add(key);
+            names.add(user);
+            return new Version(EncodedUser.of(user), nextCommit(), existing);
+        });
+        finish(restored, type[0], user);
+        Version previous = restored.previous;
+        if (previous != null && previous.user != null) {
+            // A replaced tombstone was already counted as retained
+            supersede(user.id(), 1);
+        }
+    }
+
+    // Remove a user if present, the replay counterpart of delete. Returns whether a user was removed.
+    public boolean evict(UUID id) {
+        try {
+            delete(id);
+            return true;
+        } catch (UserNotFoundException e) {
+            return false;
+        }
+    }
+
+    // === Snapshots ===
+
+    // The newest commit every snapshot taken now would include
+    public long commitSequence() {
+        return stableCommit.get();
+    }
+
+    // A snapshot of the store as of the latest stable commit. Close it when done, so the versions only it
+    // still sees can be reclaimed.
+    public Snapshot snapshot() {
+        synchronized (snapshotLock) {
+            return open(stableCommit.get());
+        }
+    }
+
+    // A snapshot of the store as of an earlier commit, e.g. one reported by commitSequence. History is only
+    // kept for open snapshots, so the commit must be no older than the oldest of them or than the last
+    // reclaim; otherwise this throws IllegalArgumentException.
+    public Snapshot snapshotAt(long commit) {
+        synchronized (snapshotLock) {
+            if (commit > stableCommit.get()) {
+                throw new IllegalArgumentException("Commit " + commit + " has not happened yet");
+            }
+            if (commit < reclaimedThrough) {
+                throw new IllegalArgumentException("Versions before commit " + reclaimedThrough + " have been reclaimed");
+            }
+            return open(commit);
+        }
+    }
+
+    // Versions kept besides the newest version of each live user, waiting for snapshots or the reclaimer
+    public long retainedVersions() {
+        return retained.get();
+    }
+
+    // Called with snapshotLock held
+    private Snapshot open(long commit) {
+        openSnapshots.merge(commit, 1, Integer::sum);
+        return new Snapshot(commit);
+    }
+
+    private void release(long commit) {
+        synchronized (snapshotLock) {
+            openSnapshots.computeIfPresent(commit, (key, count) -> count == 1 ? null : count - 1);
+        }
+        requestReclaim();
+    }
+
+    // The store as of one commit. Reads never block writers and see no write made after the commit.
+    // Safe to use from any thread; reads after close throw IllegalStateException.
+    public final class Snapshot implements Iterable<User>, AutoCloseable {
+
+        private final long commit;
+        private final Cleaner.Cleanable releaser;
+        private volatile boolean closed;
+
+        private Snapshot(long commit) {
+            this.commit = commit;
+            this.releaser = CLEANER.register(this, new Release(commit));
+        }
+
+        public long commit() {
+            return commit;
+        }
+
+        public Optional<User> findById(UUID id) {
+            EncodedUser stored = visible(id);
+            return stored == null ? Optional.empty() : Optional.of(stored.user());
+        }
+
+        // Up to limit users ordered by id, starting after the given id, like UserStore.findPage
+        public List<User> findPage(UUID after, int limit) {
+            List<User> page = new ArrayList<>(Math.min(limit, 1024));
+            Iterator<User> users = iterate(after, false);
+            while (page.size() < limit && users.hasNext()) {
+                page.add(users.next());
+            }
+            return page;
+        }
+
+        // Every user the snapshot sees, in id order
+        @Override
+        public Iterator<User> iterator() {
+            return iterate(null, false);
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            releaser.clean();
+        }
+
+        // With closeWhenDone the iterator owns the snapshot, closing it once exhausted or closed itself
+        private CloseableIterator<User> iterate(UUID after, boolean closeWhenDone) {
+            Iterator<UUID> tail = (after == null ? ids : ids.tailSet(after, false)).iterator();
+            return new CloseableIterator<>() {
+                private User next = advance();
+
+                private User advance() {
+                    while (tail.hasNext()) {
+                        EncodedUser stored = visible(tail.next());
+                        if (stored != null) {
+                            return stored.user();
+                        }
+                    }
+                    if (closeWhenDone) {
+                        Snapshot.this.close();
+                    }
+                    return null;
+                }
+
+                @Override
+                public boolean hasNext() {
+                    return next != null;
+                }
+
+                @Override
+                public User next() {
+                    if (next == null) {
+                        throw new NoSuchElementException();
+                    }
+                    User user = next;
+                    next = advance();
+                    return user;
+                }
+
+                @Override
+                public void close() {
+                    next = null;
+                    if (closeWhenDone) {
+                        Snapshot.this.close();
+                    }
+                }
+            };
+        }
+
+        private EncodedUser visible(UUID id) {
+            if (closed) {
+                throw new IllegalStateException("Snapshot at commit " + commit + " is closed");
+            }
+            Version version = users.get(id);
+            while (version != null && version.commit > commit) {
+                version = version.previous;
+            }
+            return version == null ? null : version.user;
+        }
+    }
+
+    // Releases a snapshot's commit; must not reference the snapshot, or the Cleaner could never run it
+    private final class Release implements Runnable {
+
+        private final long commit;
+
+        Release(long commit) {
+            this.commit = commit;
+        }
+
+        @Override
+        public void run() {
+            release(commit);
+        }
+    }
+
+    // === Commits and reclaiming ===
+
+    private long nextCommit() {
+        return lastCommit.incrementAndGet();
+    }
+
+    // Marks a commit visible once its compute has returned, moves the stable commit past every commit
+    // that has finished without a gap, and publishes the changes that are now stable
+    private void finish(Version version, MutationType type, User user) {
+        long commit = version.commit;
+        if (!listeners.isEmpty()) {
+            // Queued before the commit can become stable, so publishing never skips it
+            unpublished.put(commit, new Change(type, user));
+        }
+        if (!stableCommit.compareAndSet(commit - 1, commit)) {
+            finishedAhead.add(commit);
+        }
+        long stable;
+        while (finishedAhead.remove((stable = stableCommit.get()) + 1)) {
+            stableCommit.compareAndSet(stable, stable + 1);
+        }
+        publish();
+    }
+
+    // Notifies listeners of every queued change up to the stable commit, in commit order. A change whose
+    // commit is not stable yet is left to the writer that closes the gap below it.
+    private void publish() {
+        if (unpublished.isEmpty()) {
+            return;
+        }
+        synchronized (publishLock) {
+            while (true) {
+                // Every change up to the stable commit is queued by now, so read it before the queue
+                long stable = stableCommit.get();
+                Map.Entry<Long, Change> next = unpublished.firstEntry();
+                if (next == null || next.getKey() > stable) {
+                    return;
+                }
+                unpublished.remove(next.getKey());
+                notifyListeners(next.getValue().type(), next.getValue().user(), next.getKey());
+            }
+        }
+    }
+
+    private void supersede(UUID id, int versions) {
+        retained.addAndGet(versions);
+        superseded.add(id);
+        if (supersededSinceReclaim.addAndGet(versions) >= RECLAIM_EVERY) {
+            requestReclaim();
+        }
+    }
+
+    // At most one reclaim per store runs at a time; a request made while it runs makes it go again
+    private void requestReclaim() {
+        reclaimRequested.set(true);
+        if (reclaiming.compareAndSet(false, true)) {
+            RECLAIMER.execute(this::runReclaimer);
+        }
+    }
+
+    private void runReclaimer() {
+        try {
+            while (reclaimRequested.getAndSet(false)) {
+                reclaim();
+            }
+        } finally {
+            reclaiming.set(false);
+        }
+        if (reclaimRequested.get()) {
+            requestReclaim();
+        }
+    }
+
+    // Cuts every queued chain below the newest version the oldest open snapshot sees, and drops users
+    // whose tombstone every snapshot sees. Chains that still hold versions for open snapshots are queued
+    // again for a later pass.
+    private void reclaim() {
+        supersededSinceReclaim.set(0);
+        long horizon;
+        synchronized (snapshotLock) {
+            horizon = openSnapshots.isEmpty() ? stableCommit.get() : openSnapshots.firstKey();
+            reclaimedThrough = Math.max(reclaimedThrough, horizon);
+        }
+        Set<UUID> pending = new HashSet<>();
+        for (int queued = superseded.size(); queued > 0; queued--) {
+            UUID id = superseded.poll();
+            if (id == null) {
+                break;
+            }
+            if (!pending.contains(id) && !prune(id, horizon)) {
+                pending.add(id);
+            }
+        }
+        superseded.addAll(pending);
+    }
+
+    // Returns whether the chain is done with, i.e. holds nothing left to reclaim. Writers only ever link
+    // a new head, so cutting older links needs no lock; only dropping a deleted user takes its entry's.
+    private boolean prune(UUID id, long horizon) {
+        Version head = users.get(id);
+        if (head == null) {
+            return true;
+        }
+        Version floor = head;
+        while (floor != null && floor.commit > horizon) {
+            floor = floor.previous;
+        }
+        if (floor == null) {
+            return false;
+        }
+        long cut = 0;
+        for (Version old = floor.previous; old != null; old = old.previous) {
+            cut++;
+        }
+        floor.previous = null;
+        retained.addAndGet(-cut);
+        if (floor != head || head.user != null) {
+            return floor == head;
+        }
+        boolean[] removed = {false};
+        users.computeIfPresent(id, (key, current) -> {
+            if (current != head) {
+                return current;
+            }
+            ids.remove(key);
+            removed[0] = true;
+            return null;
+        });
+        if (removed[0]) {
+            retained.decrementAndGet();
+        }
+        return removed[0];
+    }
+
+    private EncodedUser latest(UUID id) {
+        Version version = users.get(id);
+        return version == null ? null : version.user;
+    }
+
+    private static String emailKey(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    // The change is committed and may be another writer's, so a failing listener cannot undo it or
+    // report to its caller
+    private void notifyListeners(MutationType type, User user, long commit) {
+        for (MutationListener listener : listeners) {
+            try {
+                listener.onMutation(type, user, commit);
+            } catch (RuntimeException e) {
+                logger.error("Listener failed on {} of user {} at commit {}", type, user.id(), commit, e);
+            }
+        }
+    }
+
+    // A committed change waiting to be published
+    private record Change(MutationType type, User user) {
+    }
+
+    // One version of a user. The commit is that of the write which produced it; older versions are only
+    // unlinked, under the user's map entry lock, once no open snapshot can reach them.
+    private static final class Version {
+
+        // Null for the tombstone a delete leaves
+        final EncodedUser user;
+        final long commit;
+        volatile Version previous;
+
+        Version(EncodedUser user, long commit, Version previous) {
+            this.user = user;
+            this.commit = commit;
+            this.previous = previous;
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,86 @@
+package com.dhruthi.usercrud.store;
+
+import com.dhruthi.usercrud.model.EncodedUser;
+import com.dhruthi.usercrud.model.User;
+import io.vertx.core.Future;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.function.UnaryOperator;
+
+// AsyncUserStore that calls the store directly on the caller's thread and returns an already completed
+// future. Only for stores whose operations never block, like the in-memory ones: a lookup costs tens of
+// nanoseconds, far less than handing it to another thread and back.
+public class InlineAsyncUserStore implements AsyncUserStore {
+
+    private final UserStore store;
+
+    public InlineAsyncUserStore(UserStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public Future<User> create(User user) {
+        return call(() -> store.create(user));
+    }
+
+    @Override
+    public Future<List<User>> createAll(List<User> users) {
+        return call(() -> store.createAll(users));
+    }
+
+    @Override
+    public Future<Optional<User>> findById(UUID id) {
+        return call(() -> store.findById(id));
+    }
+
+    @Override
+    public Future<Optional<EncodedUser>> findEncodedById(UUID id) {
+        return call(() -> store.findEncodedById(id));
+    }
+
+    @Override
+    public Future<Map<UUID, User>> findAllById(Collection<UUID> ids) {
+        return call(() -> store.findAllById(ids));
+    }
+
+    @Override
+    public Future<Optional<User>> findByEmail(String email) {
+        return call(() -> store.findByEmail(email));
+    }
+
+    @Override
+    public Future<User> update(UUID id, long expectedVersion, UnaryOperator<User> change) {
+        return call(() -> store.update(id, expectedVersion, change));
+    }
+
+    @Override
+    public Future<Void> delete(UUID id) {
+        return call(() -> {
+            store.delete(id);
+            return null;
+        });
+    }
+
+    @Override
+    public Future<List<User>> findPage(UUID after, int limit) {
+        return call(() -> store.findPage(after, limit));
+    }
+
+    @Override
+    public Future<List<User>> findByNamePrefix(String prefix, int limit) {
+        return call(() -> store.findByNamePrefix(prefix, limit));
+    }
+
+    private static <T> Future<T> call(Callable<T> operation) {
+        try {
+            return Future.succeededFuture(operation.call());
+        } catch (Exception e) {
+            return Future.failedFuture(e);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.dhruthi.usercrud.store;
+
+import com.dhruthi.usercrud.model.User;
+
+// Callback invoked by a store for every change it applies, used to publish or replicate mutations.
+// Listeners are called once the change is committed, so a read made after the call sees it, and in
+// commit order, so changes to one user are always observed in the order they were applied. Keep them
+// short, never throw and never call back into the store.
+@FunctionalInterface
+public interface MutationListener {
+
+    // The commit is the store's number for the change, increasing from one call to the next.
+    // For DELETE the user is the state that was removed.
+    void onMutation(MutationType type, User user, long commit);
+}
@@ -0,0 +1,8 @@
+package com.dhruthi.usercrud.store;
+
+// The kinds of change a UserStore can apply to a user
+public enum MutationType {
+    CREATE,
+    UPDATE,
+    DELETE
+}
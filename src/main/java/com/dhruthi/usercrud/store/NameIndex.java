@@ -0,0 +1,118 @@
+package com.dhruthi.usercrud.store;
+
+import com.dhruthi.usercrud.model.User;
+
+import java.text.Normalizer;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+// Users ordered by normalized name, then id, so the users whose name starts with a prefix are one
+// contiguous run of entries. Finding them costs O(log n) to locate the run plus one step per match,
+// however many users the store holds. The index only holds ids; stores look the users up themselves.
+final class NameIndex {
+
+    private static final UUID MIN_ID = new UUID(Long.MIN_VALUE, Long.MIN_VALUE);
+
+    private final NavigableSet<Entry> entries;
+
+    private NameIndex(NavigableSet<Entry> entries) {
+        this.entries = entries;
+    }
+
+    // Safe to update and search from any thread, for stores shared between event loops
+    static NameIndex concurrent() {
+        return new NameIndex(new ConcurrentSkipListSet<>());
+    }
+
+    // For stores only ever touched by one thread
+    static NameIndex singleThreaded() {
+        return new NameIndex(new TreeSet<>());
+    }
+
+    void add(User user) {
+        entries.add(new Entry(key(user.name()), user.id()));
+    }
+
+    void remove(User user) {
+        entries.remove(new Entry(key(user.name()), user.id()));
+    }
+
+    // Moves the user's entry when an update changed its normalized name
+    void replace(User previous, User current) {
+        String previousKey = key(previous.name());
+        String currentKey = key(current.name());
+        if (!previousKey.equals(currentKey)) {
+            entries.add(new Entry(currentKey, current.id()));
+            entries.remove(new Entry(previousKey, previous.id()));
+        }
+    }
+
+    // Entries of the users whose normalized name starts with the normalized prefix, in name order. On the
+    // concurrent index the iteration is weakly consistent: a user being renamed may be listed under both
+    // names, so callers keep only the entries that are current for the user they look up.
+    Iterable<Entry> startingWith(String prefix) {
+        String prefixKey = key(prefix);
+        return () -> new Iterator<>() {
+            private final Iterator<Entry> tail = entries.tailSet(new Entry(prefixKey, MIN_ID), true).iterator();
+            private Entry next = advance();
+
+            private Entry advance() {
+                if (!tail.hasNext()) {
+                    return null;
+                }
+                Entry entry = tail.next();
+                return entry.key.startsWith(prefixKey) ? entry : null;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public Entry next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                Entry entry = next;
+                next = advance();
+                return entry;
+            }
+        };
+    }
+
+    // Case-insensitive, and an accented letter matches whether it was sent precomposed or as letter plus accent
+    static String key(String name) {
+        return Normalizer.normalize(name.trim(), Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+    }
+
+    // The order of the index, for merging or sorting users found elsewhere
+    static Comparator<User> order() {
+        return Comparator.comparing((User user) -> key(user.name())).thenComparing(User::id);
+    }
+
+    // Whether the user's name starts with the prefix, the same test the index makes
+    static boolean matches(User user, String prefix) {
+        return key(user.name()).startsWith(key(prefix));
+    }
+
+    record Entry(String key, UUID id) implements Comparable<Entry> {
+
+        // Whether this entry is the one the user's current name gives it
+        boolean isCurrentFor(User user) {
+            return user.id().equals(id) && NameIndex.key(user.name()).equals(key);
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            int result = key.compareTo(other.key);
+            return result != 0 ? result : id.compareTo(other.id);
+        }
+    }
+}
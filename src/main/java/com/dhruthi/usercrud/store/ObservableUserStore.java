@@ -0,0 +1,8 @@
+package com.dhruthi.usercrud.store;
+
+// A UserStore that reports every mutation it applies, which is what journaling and replication build on
+public interface ObservableUserStore extends UserStore {
+
+    // Register a listener that observes every create, update and delete once it is committed
+    void addListener(MutationListener listener);
+}
@@ -0,0 +1,422 @@
+package com.dhruthi.usercrud.store;
+
+import com.dhruthi.usercrud.model.DuplicateEmailException;
+import com.dhruthi.usercrud.model.EncodedUser;
+import com.dhruthi.usercrud.model.IdGenerator;
+import com.dhruthi.usercrud.model.User;
+import com.dhruthi.usercrud.model.UserNotFoundException;
+import com.dhruthi.usercrud.model.VersionConflictException;
+import io.vertx.core.AbstractVerticle;
+import io.vertx.core.Context;
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.UnaryOperator;
+
+// Shared-nothing AsyncUserStore. Users are split into partitions by id, and each partition is owned by
+// one event loop: only that thread ever touches it, so it is built from plain HashMaps with no locks,
+// CAS or contended cache lines. Operations hop to the owning event loop and their futures complete back
+// on the caller's context; a caller already running on the owner's thread skips the hop.
+//
+// Email uniqueness spans partitions, so every email is also owned by a partition, picked by its hash,
+// which maps it to the id of the user holding it. A create first reserves the email at its owner and then
+// inserts the user at the id's owner. An update that changes the email keeps the user locked at its owner
+// while it reserves the new email and releases the old one; other updates and deletes of that user wait.
+public class ShardedUserStore implements AsyncUserStore {
+
+    private final Partition[] partitions;
+    private final IdGenerator idGenerator;
+
+    private ShardedUserStore(Partition[] partitions, IdGenerator idGenerator) {
+        this.partitions = partitions;
+        this.idGenerator = idGenerator;
+    }
+
+    // Deploys one owner per partition. Vert.x hands deployed instances to its event loops round robin,
+    // so with as many partitions as event loops every loop owns exactly one.
+    public static Future<ShardedUserStore> create(Vertx vertx, int partitionCount) {
+        return create(vertx, partitionCount, IdGenerator.timeOrdered());
+    }
+
+    // Same, with every created user getting its id from the generator
+    public static Future<ShardedUserStore> create(Vertx vertx, int partitionCount, IdGenerator idGenerator) {
+        Partition[] partitions = new Partition[partitionCount];
+        AtomicInteger next = new AtomicInteger();
+        return vertx.deployVerticle(() -> new PartitionOwner(partitions, next.getAndIncrement()),
+                new DeploymentOptions().setInstances(partitionCount))
+            .map(id -> new ShardedUserStore(partitions, idGenerator));
+    }
+
+    public int partitionCount() {
+        return partitions.length;
+    }
+
+    // Number of stored users, read without visiting the owners
+    public long size() {
+        long size = 0;
+        for (Partition partition : partitions) {
+            size += partition.size;
+        }
+        return size;
+    }
+
+    @Override
+    public Future<User> create(User user) {
+        UUID id = idGenerator.next();
+        User created = new User(id, user.name(), user.email(), 1);
+        String emailKey = emailKey(created.email());
+        return onOwner(emailOwner(emailKey), partition -> partition.reserveEmail(emailKey, created))
+            .compose(reserved -> onOwner(owner(id), partition -> {
+                partition.put(created);
+                return Future.succeededFuture(created);
+            }));
+    }
+
+    @Override
+    // Creates run concurrently; an entry whose email is taken becomes null like in UserStore.createAll.
+    // Within the batch the first entry with an email wins, as it would creating them in order, so later
+    // entries with the same email become null without racing it.
+    public Future<List<User>> createAll(List<User> users) {
+        List<Future<User>> results = new ArrayList<>(users.size());
+        Set<String> batchEmails = new HashSet<>(users.size() * 2);
+        for (User user : users) {
+            if (!batchEmails.add(emailKey(user.email()))) {
+                results.add(Future.succeededFuture());
+                continue;
+            }
+            results.add(create(user).recover(error -> error instanceof DuplicateEmailException
+                ? Future.succeededFuture() : Future.failedFuture(error)));
+        }
+        return Future.all(results).map(all -> {
+            List<User> created = new ArrayList<>(results.size());
+            for (Future<User> result : results) {
+                created.add(result.result());
+            }
+            return created;
+        });
+    }
+
+    @Override
+    public Future<Optional<User>> findById(UUID id) {
+        return onOwner(owner(id), partition -> {
+            EncodedUser stored = partition.users.get(id);
+            return Future.succeededFuture(stored == null ? Optional.empty() : Optional.of(stored.user()));
+        });
+    }
+
+    @Override
+    public Future<Optional<EncodedUser>> findEncodedById(UUID id) {
+        return onOwner(owner(id), partition -> Future.succeededFuture(Optional.ofNullable(partition.users.get(id))));
+    }
+
+    @Override
+    // One hop per partition involved, each looking up all of its ids
+    public Future<Map<UUID, User>> findAllById(Collection<UUID> ids) {
+        Map<Partition, List<UUID>> byOwner = new HashMap<>();
+        for (UUID id : ids) {
+            byOwner.computeIfAbsent(owner(id), partition -> new ArrayList<>()).add(id);
+        }
+        List<Future<Map<UUID, User>>> lookups = new ArrayList<>(byOwner.size());
+        byOwner.forEach((owner, ownedIds) -> lookups.add(onOwner(owner, partition -> {
+            Map<UUID, User> found = new HashMap<>(ownedIds.size() * 2);
+            for (UUID id : ownedIds) {
+                EncodedUser stored = partition.users.get(id);
+                if (stored != null) {
+                    found.put(id, stored.user());
+                }
+            }
+            return Future.succeededFuture(found);
+        })));
+        return Future.all(lookups).map(all -> {
+            Map<UUID, User> merged = new HashMap<>(ids.size() * 2);
+            for (Future<Map<UUID, User>> lookup : lookups) {
+                merged.putAll(lookup.result());
+            }
+            Map<UUID, User> found = new LinkedHashMap<>(merged.size() * 2);
+            for (UUID id : ids) {
+                User user = merged.get(id);
+                if (user != null) {
+                    found.put(id, user);
+                }
+            }
+            return found;
+        });
+    }
+
+    @Override
+    // The email's owner knows the id; the id's owner confirms the user still has that email
+    public Future<Optional<User>> findByEmail(String email) {
+        String emailKey = emailKey(email);
+        return onOwner(emailOwner(emailKey), partition -> Future.succeededFuture(partition.emails.get(emailKey)))
+            .compose(id -> id == null ? Future.succeededFuture(Optional.<User>empty()) : findById(id))
+            .map(user -> user.filter(found -> emailKey(found.email()).equals(emailKey)));
+    }
+
+    @Override
+    public Future<User> update(UUID id, long expectedVersion, UnaryOperator<User> change) {
+        return onOwner(owner(id), partition -> partition.whenUnlocked(id).compose(unlocked -> {
+            EncodedUser existing = partition.users.get(id);
+            if (existing == null) {
+                return Future.failedFuture(new UserNotFoundException(id));
+            }
+            long version = existing.user().version();
+            if (expectedVersion != UserStore.ANY_VERSION && expectedVersion != version) {
+                return Future.failedFuture(new VersionConflictException(id, expectedVersion, version));
+            }
+            User changed = change.apply(existing.user());
+            User updated = new User(id, changed.name(), changed.email(), version + 1);
+            String oldKey = emailKey(existing.user().email());
+            String newKey = emailKey(updated.email());
+            if (oldKey.equals(newKey)) {
+                partition.put(updated);
+                return Future.succeededFuture(updated);
+            }
+            partition.lock(id);
+            return onOwner(emailOwner(newKey), owner -> owner.reserveEmail(newKey, updated))
+                .compose(reserved -> {
+                    partition.put(updated);
+                    return onOwner(emailOwner(oldKey), owner -> owner.releaseEmail(oldKey, id));
+                })
+                .map(released -> updated)
+                .onComplete(done -> partition.unlock(id));
+        }));
+    }
+
+    @Override
+    public Future<Void> delete(UUID id) {
+        return onOwner(owner(id), partition -> partition.whenUnlocked(id).compose(unlocked -> {
+            EncodedUser removed = partition.remove(id);
+            if (removed == null) {
+                return Future.failedFuture(new UserNotFoundException(id));
+            }
+            String emailKey = emailKey(removed.user().email());
+            return onOwner(emailOwner(emailKey), owner -> owner.releaseEmail(emailKey, id));
+        }));
+    }
+
+    @Override
+    // Every partition contributes its first users after the cursor, and the smallest ids of all win
+    public Future<List<User>> findPage(UUID after, int limit) {
+        List<Future<List<User>>> pages = new ArrayList<>(partitions.length);
+        for (Partition owner : partitions) {
+            pages.add(onOwner(owner, partition -> Future.succeededFuture(partition.page(after, limit))));
+        }
+        return Future.all(pages).map(all -> {
+            List<User> merged = new ArrayList<>();
+            for (Future<List<User>> page : pages) {
+                merged.addAll(page.result());
+            }
+            merged.sort((a, b) -> a.id().compareTo(b.id()));
+            return merged.size() > limit ? new ArrayList<>(merged.subList(0, limit)) : merged;
+        });
+    }
+
+    @Override
+    // Every partition contributes its first matches in name order, and the first of all win
+    public Future<List<User>> findByNamePrefix(String prefix, int limit) {
+        List<Future<List<User>>> matches = new ArrayList<>(partitions.length);
+        for (Partition owner : partitions) {
+            matches.add(onOwner(owner, partition -> Future.succeededFuture(partition.named(prefix, limit))));
+        }
+        return Future.all(matches).map(all -> {
+            List<User> merged = new ArrayList<>();
+            for (Future<List<User>> partitionMatches : matches) {
+                merged.addAll(partitionMatches.result());
+            }
+            merged.sort(NameIndex.order());
+            return merged.size() > limit ? new ArrayList<>(merged.subList(0, limit)) : merged;
+        });
+    }
+
+    private Partition owner(UUID id) {
+        return partitions[Math.floorMod(spread(id.hashCode()), partitions.length)];
+    }
+
+    private Partition emailOwner(String emailKey) {
+        return partitions[Math.floorMod(spread(emailKey.hashCode()), partitions.length)];
+    }
+
+    // Runs the operation on the partition's event loop and completes the returned future on the caller's
+    // context, so callers never observe partition state or their own callbacks on a foreign thread
+    private static <T> Future<T> onOwner(Partition partition, PartitionOperation<T> operation) {
+        if (Thread.currentThread() == partition.thread) {
+            return run(partition, operation);
+        }
+        Context caller = Vertx.currentContext();
+        Promise<T> promise = Promise.promise();
+        partition.context.runOnContext(v -> run(partition, operation).onComplete(result -> {
+            if (caller == null) {
+                promise.handle(result);
+            } else {
+                caller.runOnContext(ignored -> promise.handle(result));
+            }
+        }));
+        return promise.future();
+    }
+
+    private static <T> Future<T> run(Partition partition, PartitionOperation<T> operation) {
+        try {
+            return operation.apply(partition);
+        } catch (RuntimeException e) {
+            return Future.failedFuture(e);
+        }
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private static String emailKey(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    // Work done on a partition's own event loop
+    @FunctionalInterface
+    private interface PartitionOperation<T> {
+        Future<T> apply(Partition partition);
+    }
+
+    // Gives its partition the context and thread it runs on
+    private static final class PartitionOwner extends AbstractVerticle {
+
+        private final Partition[] partitions;
+        private final int index;
+
+        PartitionOwner(Partition[] partitions, int index) {
+            this.partitions = partitions;
+            this.index = index;
+        }
+
+        @Override
+        public void start() {
+            partitions[index] = new Partition(context, Thread.currentThread());
+        }
+    }
+
+    // The users of one partition and the emails it owns. Only ever used on its owner's thread.
+    private static final class Partition {
+
+        private final Context context;
+        private final Thread thread;
+        private final HashMap<UUID, EncodedUser> users = new HashMap<>();
+        // Sorted ids for paging
+        private final TreeSet<UUID> ids = new TreeSet<>();
+        // Users ordered by normalized name for prefix search
+        private final NameIndex names = NameIndex.singleThreaded();
+        // Owned emails, normalized, to the id of the user holding them
+        private final HashMap<String, UUID> emails = new HashMap<>();
+        // Users with an email change in flight, with the operations waiting for it to finish
+        private final HashMap<UUID, ArrayDeque<Promise<Void>>> locked = new HashMap<>();
+        // Written only by the owner, read by size() from any thread
+        private volatile int size;
+
+        Partition(Context context, Thread thread) {
+            this.context = context;
+            this.thread = thread;
+        }
+
+        void put(User user) {
+            EncodedUser previous = users.put(user.id(), EncodedUser.of(user));
+            if (previous == null) {
+                ids.add(user.id());
+                names.add(user);
+                size = users.size();
+            } else {
+                names.replace(previous.user(), user);
+            }
+        }
+
+        EncodedUser remove(UUID id) {
+            EncodedUser removed = users.remove(id);
+            if (removed != null) {
+                ids.remove(id);
+                names.remove(removed.user());
+                size = users.size();
+            }
+            return removed;
+        }
+
+        List<User> page(UUID after, int limit) {
+            List<User> page = new ArrayList<>(Math.min(limit, ids.size()));
+            for (UUID id : after == null ? ids : ids.tailSet(after, false)) {
+                if (page.size() >= limit) {
+                    break;
+                }
+                page.add(users.get(id).user());
+            }
+            return page;
+        }
+
+        // The index is only touched on this thread, so every entry it lists is current
+        List<User> named(String prefix, int limit) {
+            List<User> matches = new ArrayList<>(Math.min(limit, 1024));
+            for (NameIndex.Entry entry : names.startingWith(prefix)) {
+                if (matches.size() >= limit) {
+                    break;
+                }
+                matches.add(users.get(entry.id()).user());
+            }
+            return matches;
+        }
+
+        // Claims the email for the user, failing when another user holds it
+        Future<Void> reserveEmail(String emailKey, User user) {
+            UUID holder = emails.putIfAbsent(emailKey, user.id());
+            if (holder != null && !holder.equals(user.id())) {
+                return Future.failedFuture(new DuplicateEmailException(user.email()));
+            }
+            return Future.succeededFuture();
+        }
+
+        Future<Void> releaseEmail(String emailKey, UUID id) {
+            emails.remove(emailKey, id);
+            return Future.succeededFuture();
+        }
+
+        // Completes once no email change of the user is in flight
+        Future<Void> whenUnlocked(UUID id) {
+            ArrayDeque<Promise<Void>> waiting = locked.get(id);
+            if (waiting == null) {
+                return Future.succeededFuture();
+            }
+            Promise<Void> turn = Promise.promise();
+            waiting.add(turn);
+            return turn.future();
+        }
+
+        void lock(UUID id) {
+            locked.put(id, new ArrayDeque<>());
+        }
+
+        // Hands the user to the operations that waited for it, in arrival order. Each one finds the user
+        // unlocked, or locked again by an earlier one, in which case it queues up behind that one.
+        void unlock(UUID id) {
+            ArrayDeque<Promise<Void>> waiting = locked.remove(id);
+            Promise<Void> next;
+            while ((next = waiting.poll()) != null) {
+                next.complete();
+                ArrayDeque<Promise<Void>> relocked = locked.get(id);
+                if (relocked != null) {
+                    relocked.addAll(waiting);
+                    return;
+                }
+            }
+        }
+    }
+}
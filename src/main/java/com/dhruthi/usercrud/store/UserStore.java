@@ -1,22 +1,92 @@
 package com.dhruthi.usercrud.store;
 
+import com.dhruthi.usercrud.model.DuplicateEmailException;
+import com.dhruthi.usercrud.model.EncodedUser;
 import com.dhruthi.usercrud.model.User;
 import com.dhruthi.usercrud.model.UserNotFoundException;
+import com.dhruthi.usercrud.model.VersionConflictException;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.UnaryOperator;
 
 // Interface defining CRUD operations for User storage
 public interface UserStore {
 
+    // Expected version that lets a conditional update apply to whatever version is stored
+    long ANY_VERSION = -1;
+
     User create(User user);
 
+    // Create a batch of users, returning the stored users in input order. An entry whose email is
+    // already taken is returned as null instead of failing the whole batch. Stores that pay a fixed
+    // cost per write, like an fsync, override this to pay it once per batch.
+    default List<User> createAll(List<User> users) {
+        List<User> created = new ArrayList<>(users.size());
+        for (User user : users) {
+            try {
+                created.add(create(user));
+            } catch (DuplicateEmailException e) {
+                created.add(null);
+            }
+        }
+        return created;
+    }
+
     Optional<User> findById(UUID id);
 
-    User update(UUID id, User user) throws UserNotFoundException;
+    // The user along with its encoding as the JSON object returned by the API. Stores may return
+    // a cached encoding, so callers must never modify it.
+    default Optional<EncodedUser> findEncodedById(UUID id) {
+        return findById(id).map(EncodedUser::of);
+    }
+
+    // Look up many users at once. The result holds only the users that exist, in the order of the ids.
+    default Map<UUID, User> findAllById(Collection<UUID> ids) {
+        Map<UUID, User> found = new LinkedHashMap<>();
+        for (UUID id : ids) {
+            findById(id).ifPresent(user -> found.put(id, user));
+        }
+        return found;
+    }
+
+    // Emails are unique and matched case-insensitively
+    Optional<User> findByEmail(String email);
+
+    // Replace the name and email of a user, whatever its current version
+    default User update(UUID id, User user) throws UserNotFoundException {
+        return update(id, ANY_VERSION, existing -> user);
+    }
+
+    // Atomically apply a change to the stored user, checking the expected version (or ANY_VERSION)
+    // in the same step. The id of the changed user is kept and its version becomes the stored one
+    // plus one. Throws VersionConflictException when the version does not match, and
+    // DuplicateEmailException when the change takes another user's email.
+    User update(UUID id, long expectedVersion, UnaryOperator<User> change)
+        throws UserNotFoundException, VersionConflictException;
 
     void delete(UUID id) throws UserNotFoundException;
 
+    // Every user. Iterating may hold on to resources until the iterator is exhausted, so a caller that
+    // can stop early closes the iterator with CloseableIterator.closeIfNeeded.
     Collection<User> findAll();
+
+    // Up to limit users whose name starts with the prefix, ignoring case, ordered by name and then id.
+    // This fallback scans every user; stores with a name index answer without depending on their size.
+    default List<User> findByNamePrefix(String prefix, int limit) {
+        return findAll().stream()
+            .filter(user -> NameIndex.matches(user, prefix))
+            .sorted(NameIndex.order())
+            .limit(limit)
+            .toList();
+    }
+
+    // Up to limit users ordered by id, starting after the given id (or from the first user when null).
+    // Passing the last id of one page as the cursor of the next pages through the whole store.
+    List<User> findPage(UUID after, int limit);
 }
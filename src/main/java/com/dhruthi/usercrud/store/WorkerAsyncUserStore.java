@@ -0,0 +1,81 @@
+package com.dhruthi.usercrud.store;
+
+import com.dhruthi.usercrud.model.EncodedUser;
+import com.dhruthi.usercrud.model.User;
+import io.vertx.core.Future;
+import io.vertx.core.WorkerExecutor;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.UnaryOperator;
+
+// AsyncUserStore for stores that block, e.g. on disk or a database. Every call runs on a worker pool
+// and its future completes back on the calling event loop, which stays free to serve other connections
+// meanwhile. Calls are not ordered among each other, so concurrent writes can share one group commit.
+public class WorkerAsyncUserStore implements AsyncUserStore {
+
+    private final UserStore store;
+    private final WorkerExecutor workers;
+
+    // The executor decides how many store calls run at once, e.g. vertx.createSharedWorkerExecutor("user-store", 20)
+    public WorkerAsyncUserStore(UserStore store, WorkerExecutor workers) {
+        this.store = store;
+        this.workers = workers;
+    }
+
+    @Override
+    public Future<User> create(User user) {
+        return workers.executeBlocking(() -> store.create(user), false);
+    }
+
+    @Override
+    public Future<List<User>> createAll(List<User> users) {
+        return workers.executeBlocking(() -> store.createAll(users), false);
+    }
+
+    @Override
+    public Future<Optional<User>> findById(UUID id) {
+        return workers.executeBlocking(() -> store.findById(id), false);
+    }
+
+    @Override
+    public Future<Optional<EncodedUser>> findEncodedById(UUID id) {
+        return workers.executeBlocking(() -> store.findEncodedById(id), false);
+    }
+
+    @Override
+    public Future<Map<UUID, User>> findAllById(Collection<UUID> ids) {
+        return workers.executeBlocking(() -> store.findAllById(ids), false);
+    }
+
+    @Override
+    public Future<Optional<User>> findByEmail(String email) {
+        return workers.executeBlocking(() -> store.findByEmail(email), false);
+    }
+
+    @Override
+    public Future<User> update(UUID id, long expectedVersion, UnaryOperator<User> change) {
+        return workers.executeBlocking(() -> store.update(id, expectedVersion, change), false);
+    }
+
+    @Override
+    public Future<Void> delete(UUID id) {
+        return workers.executeBlocking(() -> {
+            store.delete(id);
+            return null;
+        }, false);
+    }
+
+    @Override
+    public Future<List<User>> findPage(UUID after, int limit) {
+        return workers.executeBlocking(() -> store.findPage(after, limit), false);
+    }
+
+    @Override
+    public Future<List<User>> findByNamePrefix(String prefix, int limit) {
+        return workers.executeBlocking(() -> store.findByNamePrefix(prefix, limit), false);
+    }
+}
@@ -0,0 +1,565 @@
+package com.dhruthi.usercrud.store.journal;
+
+import com.dhruthi.usercrud.model.User;
+import com.dhruthi.usercrud.store.MutationType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+// Append-only journal of user mutations stored as numbered segment files in one directory.
+//
+// Every file starts with a 4 byte magic number followed by records of the form
+//   [int payload length][int CRC32 of payload][payload]
+// where the payload is [byte type][long id msb][long id lsb][long version][int name length][name]
+// [int email length][email].
+//
+// A snapshot-N file holds the full user set at some point after segment N was started, so on startup
+// the newest snapshot is loaded and only segments numbered N and above are replayed on top of it.
+// Replaying a segment over a snapshot is safe because every record carries the complete user state.
+// Records are appended after the store applied the change, so concurrent writes of one user may appear
+// in either order; the replay listener has to go by the versions they carry.
+//
+// A crash can only tear the end of the newest segment, so recovery truncates a torn tail there. A bad
+// record anywhere else, in an older segment or in the snapshot, is corruption and fails recovery.
+//
+// An open journal holds an exclusive lock on the directory's lock file until it is closed, so a second
+// process cannot replay records that are still being written or append alongside the first.
+public final class Journal implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(Journal.class);
+
+    public static final long DEFAULT_SEGMENT_BYTES = 64L * 1024 * 1024;
+    public static final long SYNC_INTERVAL_MILLIS = 100;
+
+    private static final int MAGIC = 0x55534A31; // "USJ1"
+    private static final int RECORD_HEADER_BYTES = 8;
+    private static final int IO_BUFFER_BYTES = 1 << 20;
+    private static final int MAX_PAYLOAD_BYTES = IO_BUFFER_BYTES - RECORD_HEADER_BYTES;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String FILE_SUFFIX = ".log";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final String LOCK_FILE = "journal.lock";
+
+    private static final MutationType[] TYPES = MutationType.values();
+
+    private final Path directory;
+    private final SyncPolicy policy;
+    private final long segmentBytes;
+
+    // Appends are serialized by writeLock, fsyncs by syncLock so writers keep appending during an fsync
+    private final Object writeLock = new Object();
+    private final Object syncLock = new Object();
+    private final Object compactionLock = new Object();
+
+    private FileChannel channel;
+    private long segmentNumber;
+    private long segmentSize;
+    private ByteBuffer encodeBuffer = ByteBuffer.allocate(256);
+    private final CRC32 crc = new CRC32();
+
+    // Logical byte positions across all segments written since open
+    private volatile long written;
+    private volatile long durable;
+    private volatile long snapshotNumber;
+    private volatile boolean closed;
+
+    private final ScheduledExecutorService flusher;
+    // Holds the directory lock while the journal is open
+    private FileChannel lockChannel;
+
+    private Journal(Path directory, SyncPolicy policy, long segmentBytes) {
+        this.directory = directory;
+        this.policy = policy;
+        this.segmentBytes = segmentBytes;
+        this.flusher = policy == SyncPolicy.INTERVAL ? Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "journal-flusher");
+            thread.setDaemon(true);
+            return thread;
+        }) : null;
+    }
+
+    // Receives each stored record during recovery, oldest first
+    @FunctionalInterface
+    public interface Replay {
+        void onRecord(MutationType type, User user);
+    }
+
+    public static Journal open(Path directory, SyncPolicy policy, Replay replay) throws IOException {
+        return open(directory, policy, DEFAULT_SEGMENT_BYTES, replay);
+    }
+
+    // Opens the journal in the given directory, replaying every stored record into the listener
+    // before starting a fresh segment for new appends. Fails if another journal has the directory open.
+    public static Journal open(Path directory, SyncPolicy policy, long segmentBytes, Replay replay)
+            throws IOException {
+        Files.createDirectories(directory);
+        Journal journal = new Journal(directory, policy, segmentBytes);
+        journal.lockDirectory();
+        try {
+            journal.recover(replay);
+        } catch (IOException | RuntimeException e) {
+            journal.unlockDirectory();
+            throw e;
+        }
+        if (journal.flusher != null) {
+            journal.flusher.scheduleWithFixedDelay(journal::backgroundSync,
+                SYNC_INTERVAL_MILLIS, SYNC_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        }
+        return journal;
+    }
+
+    public SyncPolicy policy() {
+        return policy;
+    }
+
+    // Number of segments started since the last snapshot, used to decide when to compact
+    public long segmentsSinceSnapshot() {
+        synchronized (writeLock) {
+            return segmentNumber - snapshotNumber;
+        }
+    }
+
+    // Append one mutation. The record is written to the OS but not necessarily durable until commit().
+    // A record too large to be read back throws IllegalArgumentException; check with checkSize before
+    // applying the mutation.
+    public void append(MutationType type, User user) {
+        synchronized (writeLock) {
+            ensureOpen();
+            try {
+                encodeBuffer = encode(encodeBuffer, crc, type, user);
+                int length = encodeBuffer.remaining();
+                writeFully(channel, encodeBuffer);
+                segmentSize += length;
+                written += length;
+                if (segmentSize >= segmentBytes) {
+                    rollLocked();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to append to journal", e);
+            }
+        }
+    }
+
+    // Make every record appended so far durable according to the sync policy
+    public void commit() throws IOException {
+        if (policy == SyncPolicy.GROUP) {
+            sync();
+        }
+    }
+
+    // Force all appended records to disk. A writer that finds an fsync in progress waits for it and then
+    // usually discovers its record was covered, so one fsync acknowledges a whole group of writers.
+    public void sync() throws IOException {
+        long target = written;
+        if (durable >= target) {
+            return;
+        }
+        synchronized (syncLock) {
+            if (durable >= target) {
+                return;
+            }
+            FileChannel current;
+            long upTo;
+            synchronized (writeLock) {
+                ensureOpen();
+                current = channel;
+                upTo = written;
+            }
+            try {
+                current.force(false);
+            } catch (ClosedChannelException e) {
+                // The segment was rolled, and rolling already forced it
+                if (closed) {
+                    throw e;
+                }
+            }
+            durable = upTo;
+        }
+    }
+
+    // Start a new segment for appends and return its number. Every record appended before it is in the older
+    // segments, which writeSnapshot(number, ...) replaces.
+    public long roll() throws IOException {
+        synchronized (writeLock) {
+            ensureOpen();
+            rollLocked();
+            return segmentNumber;
+        }
+    }
+
+    // Write the given users as the snapshot for the segment boundary returned by roll(), and drop every
+    // segment it supersedes. The users must reflect every record appended before that roll, or those records
+    // are lost. Writers keep appending while the snapshot is written.
+    public void writeSnapshot(long boundary, Iterable<User> liveUsers) throws IOException {
+        synchronized (compactionLock) {
+            Path temp = directory.resolve(SNAPSHOT_PREFIX + format(boundary) + TEMP_SUFFIX);
+            long count = 0;
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                ByteBuffer batch = ByteBuffer.allocate(IO_BUFFER_BYTES);
+                ByteBuffer record = ByteBuffer.allocate(256);
+                CRC32 snapshotCrc = new CRC32();
+                batch.putInt(MAGIC);
+                for (User user : liveUsers) {
+                    record = encode(record, snapshotCrc, MutationType.CREATE, user);
+                    if (record.remaining() > batch.remaining()) {
+                        batch.flip();
+                        writeFully(out, batch);
+                        batch.clear();
+                    }
+                    if (record.remaining() > batch.remaining()) {
+                        writeFully(out, record);
+                    } else {
+                        batch.put(record);
+                    }
+                    count++;
+                }
+                batch.flip();
+                writeFully(out, batch);
+                out.force(true);
+            }
+            Files.move(temp, snapshotPath(boundary), StandardCopyOption.ATOMIC_MOVE);
+            syncDirectory();
+            snapshotNumber = boundary;
+            deleteBefore(boundary);
+            logger.info("Compacted journal into snapshot {} with {} users", boundary, count);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (flusher != null) {
+            flusher.shutdownNow();
+        }
+        synchronized (writeLock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                channel.force(false);
+                channel.close();
+            } finally {
+                unlockDirectory();
+            }
+        }
+    }
+
+    // === Directory lock ===
+
+    private void lockDirectory() throws IOException {
+        Path file = directory.resolve(LOCK_FILE);
+        FileChannel opened = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        FileLock acquired;
+        try {
+            acquired = opened.tryLock();
+        } catch (OverlappingFileLockException e) {
+            // Held by another journal in this JVM
+            acquired = null;
+        } catch (IOException | RuntimeException e) {
+            opened.close();
+            throw e;
+        }
+        if (acquired == null) {
+            opened.close();
+            throw new IOException("Journal directory " + directory + " is in use by another process");
+        }
+        lockChannel = opened;
+    }
+
+    // Closing the channel releases the lock; the lock file itself stays for the next process
+    private void unlockDirectory() throws IOException {
+        if (lockChannel != null) {
+            lockChannel.close();
+            lockChannel = null;
+        }
+    }
+
+    // === Recovery ===
+
+    private void recover(Replay replay) throws IOException {
+        List<Long> segments = new ArrayList<>();
+        long snapshot = 0;
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(TEMP_SUFFIX)) {
+                    Files.delete(file);
+                } else if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(FILE_SUFFIX)) {
+                    segments.add(parseNumber(name, SEGMENT_PREFIX));
+                } else if (name.startsWith(SNAPSHOT_PREFIX) && name.endsWith(FILE_SUFFIX)) {
+                    snapshot = Math.max(snapshot, parseNumber(name, SNAPSHOT_PREFIX));
+                }
+            }
+        }
+        segments.sort(null);
+
+        long records = 0;
+        if (snapshot > 0) {
+            records += readFile(snapshotPath(snapshot), replay, false);
+        }
+        long last = segments.isEmpty() ? snapshot - 1 : Math.max(snapshot - 1, segments.get(segments.size() - 1));
+        for (long segment : segments) {
+            if (segment >= snapshot) {
+                records += readFile(segmentPath(segment), replay, segment == last);
+            }
+        }
+        snapshotNumber = snapshot;
+        deleteBefore(snapshot);
+
+        synchronized (writeLock) {
+            openSegmentLocked(Math.max(last + 1, 1));
+        }
+        logger.info("Replayed {} journal records from {}", records, directory);
+    }
+
+    // Replay one file. Only the newest segment, the tail, may end in a record torn by a crash, which is
+    // truncated; in any other file a bad record throws IOException.
+    private long readFile(Path file, Replay replay, boolean tail) throws IOException {
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            if (tail && in.size() < 4) {
+                // The crash came while the segment was being started, before its header was written
+                logger.warn("Rewriting the torn header of {}", file);
+                in.truncate(0);
+                writeFully(in, ByteBuffer.allocate(4).putInt(MAGIC).flip());
+                return 0;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(IO_BUFFER_BYTES);
+            buffer.flip();
+            int magic = fill(in, buffer, 4) ? buffer.getInt() : 0;
+            if (magic != MAGIC) {
+                throw new IOException("Not a journal file: " + file);
+            }
+            CRC32 check = new CRC32();
+            long validEnd = 4;
+            long records = 0;
+            while (fill(in, buffer, RECORD_HEADER_BYTES)) {
+                int length = buffer.getInt();
+                int expectedCrc = buffer.getInt();
+                if (length <= 0 || length > MAX_PAYLOAD_BYTES) {
+                    break;
+                }
+                if (!fill(in, buffer, length)) {
+                    break;
+                }
+                check.reset();
+                check.update(buffer.array(), buffer.arrayOffset() + buffer.position(), length);
+                if ((int) check.getValue() != expectedCrc) {
+                    break;
+                }
+                decode(buffer, replay);
+                validEnd += RECORD_HEADER_BYTES + length;
+                records++;
+            }
+            if (validEnd < in.size()) {
+                if (!tail) {
+                    throw new IOException("Corrupt journal record at byte " + validEnd + " of " + file
+                        + "; only the newest segment can end in a torn write");
+                }
+                logger.warn("Truncating {} bytes of torn journal data in {}", in.size() - validEnd, file);
+                in.truncate(validEnd);
+            }
+            return records;
+        }
+    }
+
+    // === Encoding ===
+
+    // Throws IllegalArgumentException if the user's record would be too large to append
+    public static void checkSize(User user) {
+        checkPayload(1 + 16 + 8 + 4 + utf8Length(user.name()) + 4 + utf8Length(user.email()));
+    }
+
+    // Recovery takes a longer record for a torn tail and drops it along with everything after it
+    private static void checkPayload(int payload) {
+        if (payload > MAX_PAYLOAD_BYTES) {
+            throw new IllegalArgumentException("User record of " + payload + " bytes exceeds the journal's limit of "
+                + MAX_PAYLOAD_BYTES + " bytes");
+        }
+    }
+
+    private static int utf8Length(String value) {
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                length += 1;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    private static ByteBuffer encode(ByteBuffer buffer, CRC32 crc, MutationType type, User user) {
+        byte[] name = user.name().getBytes(StandardCharsets.UTF_8);
+        byte[] email = user.email().getBytes(StandardCharsets.UTF_8);
+        int payload = 1 + 16 + 8 + 4 + name.length + 4 + email.length;
+        checkPayload(payload);
+        int total = RECORD_HEADER_BYTES + payload;
+        if (buffer.capacity() < total) {
+            buffer = ByteBuffer.allocate(Math.max(total, buffer.capacity() * 2));
+        }
+        buffer.clear();
+        buffer.position(RECORD_HEADER_BYTES);
+        buffer.put((byte) type.ordinal())
+            .putLong(user.id().getMostSignificantBits())
+            .putLong(user.id().getLeastSignificantBits())
+            .putLong(user.version())
+            .putInt(name.length).put(name)
+            .putInt(email.length).put(email);
+        crc.reset();
+        crc.update(buffer.array(), RECORD_HEADER_BYTES, payload);
+        buffer.putInt(0, payload).putInt(4, (int) crc.getValue());
+        buffer.flip();
+        return buffer;
+    }
+
+    private static void decode(ByteBuffer buffer, Replay replay) {
+        MutationType type = TYPES[buffer.get()];
+        UUID id = new UUID(buffer.getLong(), buffer.getLong());
+        long version = buffer.getLong();
+        String name = readString(buffer);
+        String email = readString(buffer);
+        replay.onRecord(type, new User(id, name, email, version));
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length,
+            StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    // === File handling ===
+
+    private void openSegmentLocked(long number) throws IOException {
+        FileChannel next = FileChannel.open(segmentPath(number), StandardOpenOption.CREATE_NEW,
+            StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(4).putInt(MAGIC).flip();
+        writeFully(next, header);
+        channel = next;
+        segmentNumber = number;
+        segmentSize = 4;
+        syncDirectory();
+    }
+
+    private void rollLocked() throws IOException {
+        if (policy != SyncPolicy.NONE) {
+            channel.force(false);
+        }
+        channel.close();
+        openSegmentLocked(segmentNumber + 1);
+    }
+
+    private void backgroundSync() {
+        try {
+            sync();
+        } catch (IOException e) {
+            if (!closed) {
+                logger.error("Background journal sync failed", e);
+            }
+        }
+    }
+
+    private void deleteBefore(long boundary) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                if (!name.endsWith(FILE_SUFFIX)) {
+                    continue;
+                }
+                if ((name.startsWith(SEGMENT_PREFIX) && parseNumber(name, SEGMENT_PREFIX) < boundary)
+                        || (name.startsWith(SNAPSHOT_PREFIX) && parseNumber(name, SNAPSHOT_PREFIX) < boundary)) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    // Make file creations and renames in the journal directory durable
+    private void syncDirectory() throws IOException {
+        if (policy == SyncPolicy.NONE) {
+            return;
+        }
+        try (FileChannel dir = FileChannel.open(directory, StandardOpenOption.READ)) {
+            dir.force(true);
+        } catch (IOException e) {
+            // Some platforms cannot open directories; the data files themselves are still forced
+        }
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("Journal is closed");
+        }
+    }
+
+    private Path segmentPath(long number) {
+        return directory.resolve(SEGMENT_PREFIX + format(number) + FILE_SUFFIX);
+    }
+
+    private Path snapshotPath(long number) {
+        return directory.resolve(SNAPSHOT_PREFIX + format(number) + FILE_SUFFIX);
+    }
+
+    private static String format(long number) {
+        return String.format("%020d", number);
+    }
+
+    private static long parseNumber(String fileName, String prefix) {
+        int end = fileName.indexOf('.');
+        return Long.parseLong(fileName.substring(prefix.length(), end));
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    // Make sure at least the given number of bytes are readable, refilling from the channel as needed
+    private static boolean fill(FileChannel channel, ByteBuffer buffer, int needed) throws IOException {
+        if (buffer.remaining() >= needed) {
+            return true;
+        }
+        buffer.compact();
+        while (buffer.position() < needed) {
+            if (channel.read(buffer) < 0) {
+                buffer.flip();
+                return false;
+            }
+        }
+        buffer.flip();
+        return true;
+    }
+}
@@ -0,0 +1,237 @@
+package com.dhruthi.usercrud.store.journal;
+
+import com.dhruthi.usercrud.model.EncodedUser;
+import com.dhruthi.usercrud.model.User;
+import com.dhruthi.usercrud.model.UserNotFoundException;
+import com.dhruthi.usercrud.store.InMemoryUserStore;
+import com.dhruthi.usercrud.store.MutationListener;
+import com.dhruthi.usercrud.store.MutationType;
+import com.dhruthi.usercrud.store.ObservableUserStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.UnaryOperator;
+
+// Durable UserStore: users live in an InMemoryUserStore and every mutation is written to a Journal
+// before the call returns, so the full user set is rebuilt from disk when the process restarts.
+public class JournalUserStore implements ObservableUserStore, Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(JournalUserStore.class);
+
+    // Compact once this many segments have been written since the last snapshot
+    public static final int DEFAULT_COMPACTION_SEGMENTS = 8;
+
+    private final InMemoryUserStore users;
+    private final Journal journal;
+    private final int compactionSegments;
+    private final AtomicBoolean compacting = new AtomicBoolean();
+    // A write appends its record once the store has applied it, outside the store's per-user update so no
+    // other writer waits on the file. Writes hold the barrier shared from before they apply until they have
+    // appended, and compaction holds it exclusively to roll the journal and open its snapshot, so the
+    // snapshot has every record of the segments it replaces.
+    private final ReadWriteLock commitBarrier = new ReentrantReadWriteLock();
+    private final Object compactionLock = new Object();
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "journal-compactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private JournalUserStore(InMemoryUserStore users, Journal journal, int compactionSegments) {
+        this.users = users;
+        this.journal = journal;
+        this.compactionSegments = compactionSegments;
+    }
+
+    public static JournalUserStore open(Path directory, SyncPolicy policy) throws IOException {
+        return open(directory, policy, Journal.DEFAULT_SEGMENT_BYTES, DEFAULT_COMPACTION_SEGMENTS);
+    }
+
+    // Opens the journal in the directory and replays it, returning a store holding the recovered users
+    public static JournalUserStore open(Path directory, SyncPolicy policy, long segmentBytes,
+                                        int compactionSegments) throws IOException {
+        InMemoryUserStore users = new InMemoryUserStore();
+        long start = System.nanoTime();
+        // Concurrent writes of one user may have appended their records in either order, so a record only
+        // replaces an older version, and nothing brings back a deleted user: ids are never reused
+        Set<UUID> deleted = new HashSet<>();
+        Journal journal = Journal.open(directory, policy, segmentBytes, (type, user) -> {
+            if (type == MutationType.DELETE) {
+                deleted.add(user.id());
+                users.evict(user.id());
+            } else if (!deleted.contains(user.id()) && users.findById(user.id())
+                    .map(stored -> stored.version() < user.version()).orElse(true)) {
+                users.restore(user);
+            }
+        });
+        logger.info("Recovered {} users in {} ms", users.findAll().size(), (System.nanoTime() - start) / 1_000_000);
+        return new JournalUserStore(users, journal, compactionSegments);
+    }
+
+    @Override
+    // Observe mutations once the store has committed them, e.g. to replicate them. They are journaled
+    // right after.
+    public void addListener(MutationListener listener) {
+        users.addListener(listener);
+    }
+
+    @Override
+    public User create(User user) {
+        Journal.checkSize(user);
+        User created;
+        commitBarrier.readLock().lock();
+        try {
+            created = users.create(user);
+            journal.append(MutationType.CREATE, created);
+        } finally {
+            commitBarrier.readLock().unlock();
+        }
+        commit();
+        return created;
+    }
+
+    @Override
+    // All records of the batch are appended first and then made durable by a single commit
+    public List<User> createAll(List<User> batch) {
+        batch.forEach(Journal::checkSize);
+        List<User> created;
+        commitBarrier.readLock().lock();
+        try {
+            created = users.createAll(batch);
+            for (User user : created) {
+                if (user != null) {
+                    journal.append(MutationType.CREATE, user);
+                }
+            }
+        } finally {
+            commitBarrier.readLock().unlock();
+        }
+        commit();
+        return created;
+    }
+
+    @Override
+    public Optional<User> findById(UUID id) {
+        return users.findById(id);
+    }
+
+    @Override
+    public Optional<EncodedUser> findEncodedById(UUID id) {
+        return users.findEncodedById(id);
+    }
+
+    @Override
+    public Map<UUID, User> findAllById(Collection<UUID> ids) {
+        return users.findAllById(ids);
+    }
+
+    @Override
+    public Optional<User> findByEmail(String email) {
+        return users.findByEmail(email);
+    }
+
+    @Override
+    public User update(UUID id, long expectedVersion, UnaryOperator<User> change) throws UserNotFoundException {
+        User updated;
+        commitBarrier.readLock().lock();
+        try {
+            updated = users.update(id, expectedVersion, existing -> {
+                User changed = change.apply(existing);
+                Journal.checkSize(changed);
+                return changed;
+            });
+            journal.append(MutationType.UPDATE, updated);
+        } finally {
+            commitBarrier.readLock().unlock();
+        }
+        commit();
+        return updated;
+    }
+
+    @Override
+    public void delete(UUID id) throws UserNotFoundException {
+        commitBarrier.readLock().lock();
+        try {
+            journal.append(MutationType.DELETE, users.remove(id));
+        } finally {
+            commitBarrier.readLock().unlock();
+        }
+        commit();
+    }
+
+    @Override
+    public Collection<User> findAll() {
+        return users.findAll();
+    }
+
+    @Override
+    public List<User> findPage(UUID after, int limit) {
+        return users.findPage(after, limit);
+    }
+
+    @Override
+    public List<User> findByNamePrefix(String prefix, int limit) {
+        return users.findByNamePrefix(prefix, limit);
+    }
+
+    // Snapshot the live users and drop the journal segments the snapshot replaces. Writes only wait while
+    // the journal is rolled and the snapshot opened, not while it is written.
+    public void compact() throws IOException {
+        synchronized (compactionLock) {
+            long boundary;
+            InMemoryUserStore.Snapshot snapshot;
+            commitBarrier.writeLock().lock();
+            try {
+                boundary = journal.roll();
+                snapshot = users.snapshot();
+            } finally {
+                commitBarrier.writeLock().unlock();
+            }
+            try (snapshot) {
+                journal.writeSnapshot(boundary, snapshot);
+            }
+        }
+    }
+
+    // Flush and close the journal; the store must not be modified afterwards
+    @Override
+    public void close() throws IOException {
+        compactor.shutdown();
+        journal.close();
+    }
+
+    private void commit() {
+        try {
+            journal.commit();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to sync journal", e);
+        }
+        if (journal.segmentsSinceSnapshot() >= compactionSegments && compacting.compareAndSet(false, true)) {
+            compactor.execute(() -> {
+                try {
+                    compact();
+                } catch (IOException | RuntimeException e) {
+                    logger.error("Journal compaction failed", e);
+                } finally {
+                    compacting.set(false);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.dhruthi.usercrud.store.journal;
+
+import java.util.Locale;
+
+// How eagerly the journal forces appended records to disk
+public enum SyncPolicy {
+
+    // Every mutation waits for an fsync before returning. Concurrent writers share one fsync (group commit).
+    GROUP,
+
+    // A background thread fsyncs periodically, so a crash can lose the last interval of mutations.
+    INTERVAL,
+
+    // Never fsync explicitly and leave flushing to the operating system's page cache.
+    NONE;
+
+    // Parses a policy name case-insensitively, e.g. from an environment variable
+    public static SyncPolicy parse(String value) {
+        try {
+            return SyncPolicy.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown sync policy: " + value);
+        }
+    }
+}
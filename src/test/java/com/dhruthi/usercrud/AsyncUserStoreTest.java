@@ -0,0 +1,159 @@
+package com.dhruthi.usercrud;
+
+import com.dhruthi.usercrud.model.EncodedUser;
+import com.dhruthi.usercrud.model.User;
+import com.dhruthi.usercrud.store.AsyncUserStore;
+import com.dhruthi.usercrud.store.InMemoryUserStore;
+import com.dhruthi.usercrud.store.InlineAsyncUserStore;
+import com.dhruthi.usercrud.store.WorkerAsyncUserStore;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.PoolOptions;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.client.WebClient;
+import io.vertx.ext.web.client.WebClientOptions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static com.dhruthi.usercrud.TestSupport.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Runs the API against a store that takes 10 ms per call. Server, client and the lag probe share a single
+// event loop, so the probe sees exactly how long request handling keeps that loop from running timers.
+// Calling the store on that loop stalls it for about CONCURRENCY calls at a time; the bounds below are
+// half of that, loose enough for timer jitter and scheduling noise on a busy single-core machine.
+class AsyncUserStoreTest {
+
+    private static final long STORE_DELAY_MILLIS = 10;
+    private static final long PROBE_MILLIS = 5;
+    private static final int REQUESTS = 100;
+    private static final int CONCURRENCY = 20;
+
+    private Vertx vertx;
+    private SlowUserStore slowStore;
+    private WebClient webClient;
+    private int port;
+
+    @BeforeEach
+    void setUp() {
+        vertx = Vertx.vertx(new VertxOptions().setEventLoopPoolSize(1));
+        slowStore = new SlowUserStore();
+        webClient = WebClient.create(vertx, new WebClientOptions(), new PoolOptions().setHttp1MaxSize(CONCURRENCY));
+    }
+
+    @AfterEach
+    void tearDown() {
+        await(vertx.close());
+    }
+
+    @Test
+    void eventLoopShouldStayResponsiveWithWorkerStore() {
+        AsyncUserStore store = new WorkerAsyncUserStore(slowStore,
+            vertx.createSharedWorkerExecutor("user-store", CONCURRENCY));
+
+        long maxLagMillis = maxLagDuringLoad(store);
+
+        assertTrue(maxLagMillis < CONCURRENCY * STORE_DELAY_MILLIS / 2, "event loop lag was " + maxLagMillis + " ms");
+    }
+
+    // The same load with the store called on the event loop, showing the probe does catch blocking
+    @Test
+    void eventLoopShouldStallWithInlineSlowStore() {
+        long maxLagMillis = maxLagDuringLoad(new InlineAsyncUserStore(slowStore));
+
+        assertTrue(maxLagMillis >= CONCURRENCY * STORE_DELAY_MILLIS / 2,
+            "event loop lag was only " + maxLagMillis + " ms");
+    }
+
+    // Batches are inserted on the workers while the upload is paused, and answered in line order
+    @Test
+    void bulkImportShouldKeepLineOrderWithWorkerStore() {
+        AsyncUserStore store = new WorkerAsyncUserStore(slowStore,
+            vertx.createSharedWorkerExecutor("user-store", CONCURRENCY));
+        port = await(Main.deploy(vertx, UserVerticle.Options.builder(store).port(0).build(), 1)).port();
+
+        int lines = 1200;
+        Buffer body = Buffer.buffer();
+        for (int i = 0; i < lines; i++) {
+            body.appendString(new JsonObject().put("name", "User " + i).put("email", "user" + i + "@example.com")
+                .encode()).appendString("\n");
+        }
+        String[] results = await(webClient.post(port, "localhost", "/users:bulk").sendBuffer(body))
+            .bodyAsString().split("\n");
+
+        assertEquals(lines, results.length);
+        for (int i = 0; i < lines; i++) {
+            JsonObject result = new JsonObject(results[i]);
+            assertEquals(i + 1, result.getInteger("line"));
+            assertEquals(201, result.getInteger("status"));
+        }
+        assertEquals(lines, slowStore.findAll().size());
+    }
+
+    // Deploys one verticle over the store, sends REQUESTS GETs CONCURRENCY at a time and returns the
+    // largest delay of a PROBE_MILLIS periodic timer while they ran
+    private long maxLagDuringLoad(AsyncUserStore store) {
+        User user = slowStore.create(new User(UUID.randomUUID(), "Slow User", "slow@example.com"));
+        port = await(Main.deploy(vertx, UserVerticle.Options.builder(store).port(0).build(), 1)).port();
+        // Open the connections and load the classes first, that one-off work is not what we measure
+        sendGets(user, REQUESTS);
+
+        long[] maxLag = new long[1];
+        long[] last = {System.nanoTime()};
+        long probe = vertx.setPeriodic(PROBE_MILLIS, id -> {
+            long now = System.nanoTime();
+            maxLag[0] = Math.max(maxLag[0], now - last[0] - TimeUnit.MILLISECONDS.toNanos(PROBE_MILLIS));
+            last[0] = now;
+        });
+
+        sendGets(user, REQUESTS);
+        vertx.cancelTimer(probe);
+        return TimeUnit.NANOSECONDS.toMillis(maxLag[0]);
+    }
+
+    private void sendGets(User user, int requests) {
+        List<Future<Integer>> statuses = new ArrayList<>(requests);
+        for (int i = 0; i < requests; i++) {
+            statuses.add(webClient.get(port, "localhost", "/users/" + user.id()).send()
+                .map(response -> response.statusCode()));
+        }
+        await(Future.all(statuses));
+        for (Future<Integer> status : statuses) {
+            assertEquals(200, status.result());
+        }
+    }
+
+    // In-memory store that sleeps before every lookup and batch insert, like a remote or disk-backed store
+    private static final class SlowUserStore extends InMemoryUserStore {
+
+        @Override
+        public Optional<EncodedUser> findEncodedById(UUID id) {
+            pause();
+            return super.findEncodedById(id);
+        }
+
+        @Override
+        public List<User> createAll(List<User> users) {
+            pause();
+            return super.createAll(users);
+        }
+
+        private static void pause() {
+            try {
+                Thread.sleep(STORE_DELAY_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.dhruthi.usercrud;
+
+import com.dhruthi.usercrud.metrics.Metrics;
+import com.dhruthi.usercrud.model.EncodedUser;
+import com.dhruthi.usercrud.model.User;
+import com.dhruthi.usercrud.model.UserNotFoundException;
+import com.dhruthi.usercrud.store.CachingUserStore;
+import com.dhruthi.usercrud.store.InMemoryUserStore;
+import com.dhruthi.usercrud.store.UserStore;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Runs every UserStoreTest case through CachingUserStore, plus checks of what it caches and evicts
+class CachingUserStoreTest extends UserStoreTest {
+
+    @Override
+    UserStore createStore() {
+        return new CachingUserStore(new InMemoryUserStore(), 1_000);
+    }
+
+    // Test to verify repeated reads of a user reach the store only once
+    @Test
+    void shouldServeRepeatedReadsFromCache() {
+        CountingUserStore backend = new CountingUserStore();
+        CachingUserStore cache = new CachingUserStore(backend, 100);
+        User user = backend.create(new User(UUID.randomUUID(), "Ada", "ada@example.com"));
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals(user, cache.findById(user.id()).orElseThrow());
+        }
+
+        assertEquals(1, backend.loads.get());
+        assertEquals(new CachingUserStore.Stats(9, 0, 1, 0), cache.stats());
+        assertEquals(0.9, cache.stats().hitRatio(), 1e-9);
+    }
+
+    // Test to verify a lookup that found nothing is cached until its time to live runs out
+    @Test
+    void shouldCacheMissesForAShortTime() throws InterruptedException {
+        CountingUserStore backend = new CountingUserStore();
+        CachingUserStore cache = new CachingUserStore(backend, 100, Duration.ofMillis(50), new Metrics());
+        UUID unknown = UUID.randomUUID();
+
+        assertTrue(cache.findById(unknown).isEmpty());
+        assertTrue(cache.findById(unknown).isEmpty());
+        assertEquals(1, backend.loads.get());
+        assertEquals(1, cache.stats().negativeHits());
+
+        Thread.sleep(60);
+        assertTrue(cache.findById(unknown).isEmpty());
+        assertEquals(2, backend.loads.get());
+    }
+
+    // Test to verify updates and deletes through the cache drop the cached user
+    @Test
+    void shouldInvalidateOnUpdateAndDelete() throws UserNotFoundException {
+        CachingUserStore cache = new CachingUserStore(new InMemoryUserStore(), 100, Duration.ofMinutes(1),
+            new Metrics());
+        UUID id = cache.create(new User(UUID.randomUUID(), "Ada", "ada@example.com")).id();
+        assertEquals("ada@example.com", cache.findById(id).orElseThrow().email());
+
+        cache.update(id, new User(id, "Ada", "ada@lovelace.dev"));
+        assertEquals("ada@lovelace.dev", cache.findById(id).orElseThrow().email());
+        assertEquals(2, cache.findById(id).orElseThrow().version());
+
+        cache.delete(id);
+        assertTrue(cache.findById(id).isEmpty());
+    }
+
+    // Test to verify a batch lookup takes cached users from the cache and loads the rest in one call
+    @Test
+    void shouldLoadOnlyMissingUsersOfABatch() {
+        CountingUserStore backend = new CountingUserStore();
+        CachingUserStore cache = new CachingUserStore(backend, 100);
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            ids.add(backend.create(new User(UUID.randomUUID(), "User " + i, "user" + i + "@example.com")).id());
+        }
+        UUID unknown = UUID.randomUUID();
+        ids.add(2, unknown);
+        cache.findById(ids.get(0));
+
+        Map<UUID, User> found = cache.findAllById(ids);
+        assertEquals(List.of(ids.get(0), ids.get(1), ids.get(3), ids.get(4)), new ArrayList<>(found.keySet()));
+        assertEquals(1, backend.batchLoads.get());
+        assertEquals(4, backend.batchedIds.get());
+
+        cache.findAllById(ids);
+        assertEquals(1, backend.batchLoads.get());
+    }
+
+    // Test to verify a scan of users read once does not push the frequently read users out, as it would
+    // with LRU, and that the cache stays within its size
+    @Test
+    void shouldKeepFrequentlyReadUsersThroughAScan() {
+        CountingUserStore backend = new CountingUserStore();
+        CachingUserStore cache = new CachingUserStore(backend, 100);
+        List<UUID> hot = createUsers(backend, 50);
+        List<UUID> scanned = createUsers(backend, 10_000);
+        for (int round = 0; round < 10; round++) {
+            hot.forEach(cache::findById);
+        }
+
+        scanned.forEach(cache::findById);
+        assertTrue(cache.size() <= 100);
+
+        int loadsBefore = backend.loads.get();
+        hot.forEach(cache::findById);
+        int reloaded = backend.loads.get() - loadsBefore;
+        assertTrue(reloaded <= 5, reloaded + " of the 50 hot users were evicted by the scan");
+        assertTrue(cache.stats().evictions() >= 10_000 - 100);
+    }
+
+    // Test to verify a load racing with an update never leaves the old user cached
+    @Test
+    void shouldNotCacheUserLoadedBeforeAConcurrentUpdate() throws UserNotFoundException {
+        CachingUserStore[] cache = new CachingUserStore[1];
+        InMemoryUserStore backend = new InMemoryUserStore() {
+            @Override
+            public Optional<EncodedUser> findEncodedById(UUID userId) {
+                Optional<EncodedUser> found = super.findEncodedById(userId);
+                // The update lands after this load read the store but before it caches what it read
+                if (found.isPresent() && found.get().user().version() == 1) {
+                    try {
+                        cache[0].update(userId, new User(userId, "Ada", "ada@lovelace.dev"));
+                    } catch (UserNotFoundException e) {
+                        throw new AssertionError(e);
+                    }
+                }
+                return found;
+            }
+        };
+        cache[0] = new CachingUserStore(backend, 100);
+        UUID id = backend.create(new User(UUID.randomUUID(), "Ada", "ada@example.com")).id();
+
+        assertEquals("ada@example.com", cache[0].findById(id).orElseThrow().email());
+        assertEquals("ada@lovelace.dev", cache[0].findById(id).orElseThrow().email());
+        assertFalse(cache[0].stats().hits() > 0);
+    }
+
+    private static List<UUID> createUsers(UserStore store, int count) {
+        List<UUID> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ids.add(store.create(new User(UUID.randomUUID(), "User " + i, UUID.randomUUID() + "@example.com")).id());
+        }
+        return ids;
+    }
+
+    // Counts the lookups that reach the store
+    private static final class CountingUserStore extends InMemoryUserStore {
+
+        final AtomicInteger loads = new AtomicInteger();
+        final AtomicInteger batchLoads = new AtomicInteger();
+        final AtomicInteger batchedIds = new AtomicInteger();
+
+        @Override
+        public Optional<EncodedUser> findEncodedById(UUID id) {
+            loads.incrementAndGet();
+            return super.findEncodedById(id);
+        }
+
+        @Override
+        public Map<UUID, User> findAllById(Collection<UUID> ids) {
+            batchLoads.incrementAndGet();
+            batchedIds.addAndGet(ids.size());
+            return super.findAllById(ids);
+        }
+    }
+}
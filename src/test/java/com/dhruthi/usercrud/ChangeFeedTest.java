@@ -0,0 +1,239 @@
+package com.dhruthi.usercrud;
+
+import com.dhruthi.usercrud.changes.Change;
+import com.dhruthi.usercrud.changes.ChangeFeed;
+import com.dhruthi.usercrud.model.User;
+import com.dhruthi.usercrud.store.InMemoryUserStore;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpClientOptions;
+import io.vertx.core.http.HttpClientResponse;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.RequestOptions;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.client.WebClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static com.dhruthi.usercrud.TestSupport.await;
+import static com.dhruthi.usercrud.TestSupport.waitFor;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChangeFeedTest {
+
+    private final Vertx vertx = Vertx.vertx();
+    private final InMemoryUserStore store = new InMemoryUserStore();
+    private int port;
+
+    @AfterEach
+    void tearDown() {
+        await(vertx.close());
+    }
+
+    // Test to verify changes are numbered in order and a reader a whole ring behind is told it overran
+    @Test
+    void shouldNumberChangesAndDetectOverrun() {
+        ChangeFeed changes = new ChangeFeed(4);
+        store.addListener(changes);
+        List<User> users = createUsers(3);
+
+        List<Change> read = new ArrayList<>();
+        assertEquals(ChangeFeed.ReadResult.OK, changes.readAfter(0, 10, read));
+        assertEquals(List.of(1L, 2L, 3L), read.stream().map(Change::sequence).toList());
+        assertEquals(users.get(0), read.get(0).user());
+
+        createUsers(5);
+        read.clear();
+        assertEquals(ChangeFeed.ReadResult.OVERRUN, changes.readAfter(1, 10, read));
+        assertEquals(ChangeFeed.ReadResult.OVERRUN, changes.readAfter(20, 10, read));
+        assertEquals(ChangeFeed.ReadResult.OK, changes.readAfter(4, 10, read));
+        assertEquals(List.of(5L, 6L, 7L, 8L), read.stream().map(Change::sequence).toList());
+    }
+
+    // Test to verify creates, updates and deletes made through the API are streamed as Server-Sent Events
+    @Test
+    void shouldStreamChangesAsServerSentEvents() {
+        ChangeFeed feed = new ChangeFeed();
+        deploy(feed);
+        WebClient client = WebClient.create(vertx);
+        StringBuilder events = new StringBuilder();
+        HttpClientResponse stream = await(openEvents("/users/changes", null, events));
+        assertEquals("text/event-stream", stream.getHeader("Content-Type"));
+
+        JsonObject created = await(client.post(port, "localhost", "/users")
+            .sendJsonObject(new JsonObject().put("name", "Ada").put("email", "ada@example.com"))).bodyAsJsonObject();
+        String id = created.getString("id");
+        await(client.put(port, "localhost", "/users/" + id + "/email")
+            .sendJsonObject(new JsonObject().put("email", "ada@lovelace.dev")));
+        await(client.delete(port, "localhost", "/users/" + id).send());
+
+        waitForEvent(events, "id: " + feed.position(3) + "\n");
+        List<JsonObject> changes = parseEvents(events.toString(), "change");
+        assertEquals(List.of("CREATE", "UPDATE", "DELETE"), changes.stream().map(c -> c.getString("type")).toList());
+        assertEquals(List.of(1L, 2L, 3L), changes.stream().map(c -> c.getLong("sequence")).toList());
+        assertEquals(feed.position(1), changes.get(0).getString("position"));
+        assertEquals("ada@lovelace.dev", changes.get(1).getJsonObject("user").getString("email"));
+        assertEquals(2, changes.get(2).getLong("version"));
+        assertEquals(id, changes.get(2).getJsonObject("user").getString("id"));
+    }
+
+    // Test to verify a consumer resumes after Last-Event-ID, and one asking for changes the feed no longer
+    // holds is told to resync from the latest position
+    @Test
+    void shouldResumeFromLastEventIdOrAskForResync() {
+        ChangeFeed changes = new ChangeFeed(16);
+        deploy(changes);
+        createUsers(10);
+
+        StringBuilder resumed = new StringBuilder();
+        await(openEvents("/users/changes", changes.position(5), resumed));
+        waitForEvent(resumed, "id: " + changes.position(10) + "\n");
+        assertEquals(List.of(6L, 7L, 8L, 9L, 10L),
+            parseEvents(resumed.toString(), "change").stream().map(c -> c.getLong("sequence")).toList());
+
+        createUsers(40);
+        StringBuilder tooOld = new StringBuilder();
+        Promise<Void> ended = Promise.promise();
+        await(openEvents("/users/changes?after=" + changes.position(3), null, tooOld, ended));
+        await(ended.future());
+        assertEquals(List.of(changes.position(50)),
+            parseEvents(tooOld.toString(), "resync").stream().map(c -> c.getString("position")).toList());
+        assertTrue(parseEvents(tooOld.toString(), "change").isEmpty());
+    }
+
+    // Test to verify a consumer resuming from a position of another run of the process, such as the one it
+    // followed before a restart, is told to resync even though the sequence number is one this feed has
+    @Test
+    void shouldAskForResyncWhenPositionIsFromAnotherRun() {
+        ChangeFeed changes = new ChangeFeed(16);
+        ChangeFeed earlierRun = new ChangeFeed(16);
+        deploy(changes);
+        createUsers(10);
+
+        StringBuilder events = new StringBuilder();
+        Promise<Void> ended = Promise.promise();
+        await(openEvents("/users/changes", earlierRun.position(5), events, ended));
+        await(ended.future());
+        assertEquals(List.of(changes.position(10)),
+            parseEvents(events.toString(), "resync").stream().map(c -> c.getString("position")).toList());
+        assertTrue(parseEvents(events.toString(), "change").isEmpty());
+        assertEquals(1, changes.resyncs());
+
+        int status = await(WebClient.create(vertx).get(port, "localhost", "/users/changes?after=5").send())
+            .statusCode();
+        assertEquals(400, status);
+    }
+
+    // Test to verify a WebSocket consumer gets one JSON message per change from the requested sequence
+    @Test
+    void shouldStreamChangesOverWebSocket() {
+        ChangeFeed changes = new ChangeFeed();
+        deploy(changes);
+        List<User> users = createUsers(2);
+
+        List<JsonObject> messages = new CopyOnWriteArrayList<>();
+        // The handler is set on the event loop as soon as the socket opens, before the first message arrives
+        await(vertx.createWebSocketClient().connect(port, "localhost", "/users/changes?after=" + changes.position(0))
+            .map(socket -> socket.textMessageHandler(text -> messages.add(new JsonObject(text)))));
+        createUsers(1);
+
+        waitFor("three messages", () -> messages.size() == 3);
+        assertEquals(List.of(1L, 2L, 3L), messages.stream().map(m -> m.getLong("sequence")).toList());
+        assertEquals(users.get(1).email(), messages.get(1).getJsonObject("user").getString("email"));
+    }
+
+    // Test to verify a consumer that stops reading never holds up writes and is dropped with a resync
+    @Test
+    void shouldDropConsumerThatStopsReading() {
+        ChangeFeed changes = new ChangeFeed(64);
+        deploy(changes);
+        StringBuilder events = new StringBuilder();
+        Promise<Void> ended = Promise.promise();
+        HttpClientResponse stream = await(openEvents("/users/changes", null, events, ended));
+        stream.pause();
+        waitFor("the consumer to connect", () -> changes.consumers() == 1);
+
+        // Enough data to fill the socket buffers on both ends, so the server's write queue fills up
+        String name = "x".repeat(1024);
+        for (int i = 0; i < 20_000; i++) {
+            store.create(new User(UUID.randomUUID(), name, UUID.randomUUID() + "@example.com"));
+        }
+
+        stream.resume();
+        await(ended.future());
+        assertEquals(1, changes.resyncs());
+        assertEquals(0, changes.consumers());
+        List<JsonObject> resync = parseEvents(events.toString(), "resync");
+        assertEquals(1, resync.size());
+        assertTrue(parseEvents(events.toString(), "change").size() < 20_000);
+    }
+
+    private void deploy(ChangeFeed changes) {
+        store.addListener(changes);
+        port = await(Main.deploy(vertx, UserVerticle.Options.builder(store).port(0).changes(changes).build(), 1))
+            .port();
+    }
+
+    private Future<HttpClientResponse> openEvents(String uri, String lastEventId, StringBuilder body) {
+        return openEvents(uri, lastEventId, body, Promise.promise());
+    }
+
+    // Opens an event stream whose body is appended to the builder as it arrives, completing ended with it
+    private Future<HttpClientResponse> openEvents(String uri, String lastEventId, StringBuilder body,
+                                                  Promise<Void> ended) {
+        RequestOptions options = new RequestOptions().setMethod(HttpMethod.GET)
+            .setPort(port).setHost("localhost").setURI(uri);
+        if (lastEventId != null) {
+            options.putHeader("Last-Event-ID", lastEventId);
+        }
+        return vertx.createHttpClient(new HttpClientOptions().setReceiveBufferSize(4096))
+            .request(options)
+            .compose(request -> request.send())
+            .map(response -> {
+                response.handler(chunk -> append(body, chunk));
+                response.endHandler(ended::complete);
+                return response;
+            });
+    }
+
+    private static void append(StringBuilder body, Buffer chunk) {
+        synchronized (body) {
+            body.append(chunk.toString());
+        }
+    }
+
+    // The data of every complete event with the given name
+    private static List<JsonObject> parseEvents(String body, String name) {
+        List<JsonObject> events = new ArrayList<>();
+        for (String event : body.split("\n\n")) {
+            if (event.contains("event: " + name + "\n")) {
+                events.add(new JsonObject(event.substring(event.indexOf("data: ") + 6)));
+            }
+        }
+        return events;
+    }
+
+    private List<User> createUsers(int count) {
+        List<User> created = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            created.add(store.create(new User(UUID.randomUUID(), "User " + i, UUID.randomUUID() + "@example.com")));
+        }
+        return created;
+    }
+
+    private static void waitForEvent(StringBuilder body, String text) {
+        waitFor("the change feed to send " + text.trim(), () -> {
+            synchronized (body) {
+                return body.indexOf(text) >= 0;
+            }
+        });
+    }
+}
@@ -0,0 +1,143 @@
+package com.dhruthi.usercrud;
+
+import com.dhruthi.usercrud.metrics.Metrics;
+import com.dhruthi.usercrud.model.EncodedUser;
+import com.dhruthi.usercrud.model.User;
+import com.dhruthi.usercrud.store.AsyncUserStore;
+import com.dhruthi.usercrud.store.CoalescingUserStore;
+import com.dhruthi.usercrud.store.InMemoryUserStore;
+import com.dhruthi.usercrud.store.WorkerAsyncUserStore;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.PoolOptions;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.client.HttpResponse;
+import io.vertx.ext.web.client.WebClient;
+import io.vertx.ext.web.client.WebClientOptions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.dhruthi.usercrud.TestSupport.await;
+import static com.dhruthi.usercrud.TestSupport.waitFor;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Bursts of GETs of one user, served through the API by a store that takes 500 ms per lookup: long enough
+// for a whole burst to arrive while the first lookup is still in progress
+class CoalescingUserStoreTest {
+
+    private static final long STORE_DELAY_MILLIS = 500;
+    private static final int BURST = 50;
+
+    private Vertx vertx;
+    private SlowUserStore slowStore;
+    private Metrics metrics;
+    private WebClient webClient;
+    private int port;
+
+    @BeforeEach
+    void setUp() {
+        vertx = Vertx.vertx();
+        slowStore = new SlowUserStore();
+        metrics = new Metrics();
+        AsyncUserStore store = new CoalescingUserStore(
+            new WorkerAsyncUserStore(slowStore, vertx.createSharedWorkerExecutor("user-store", BURST)), metrics);
+        port = await(Main.deploy(vertx, UserVerticle.Options.builder(store).metrics(metrics).port(0).build(), 4))
+            .port();
+        webClient = WebClient.create(vertx, new WebClientOptions(), new PoolOptions().setHttp1MaxSize(BURST));
+    }
+
+    @AfterEach
+    void tearDown() {
+        await(vertx.close());
+    }
+
+    // Test to verify a burst of concurrent GETs of one user reaches the store once, and every request
+    // gets the user
+    @Test
+    void shouldLoadHotUserOncePerBurst() {
+        User user = slowStore.create(new User(UUID.randomUUID(), "Celebrity", "celebrity@example.com"));
+
+        for (int burst = 1; burst <= 2; burst++) {
+            for (HttpResponse<?> response : getConcurrently(user.id(), BURST)) {
+                assertEquals(200, response.statusCode());
+                assertEquals("celebrity@example.com", response.bodyAsJsonObject().getString("email"));
+            }
+            assertEquals(burst, slowStore.lookups.get());
+        }
+        assertTrue(metrics.scrape().contains("user_store_coalesced_reads_total " + 2 * (BURST - 1) + "\n"));
+    }
+
+    // Test to verify lookups of different users are not merged, and a missing user is a 404 for everyone
+    @Test
+    void shouldLoadEachUserSeparately() {
+        User first = slowStore.create(new User(UUID.randomUUID(), "First", "first@example.com"));
+        UUID unknown = UUID.randomUUID();
+
+        List<Future<HttpResponse<?>>> requests = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            requests.add(get(first.id()));
+            requests.add(get(unknown));
+        }
+        await(Future.all(requests));
+
+        for (int i = 0; i < requests.size(); i++) {
+            assertEquals(i % 2 == 0 ? 200 : 404, requests.get(i).result().statusCode());
+        }
+        assertEquals(2, slowStore.lookups.get());
+    }
+
+    // Test to verify a read after an update does not join a lookup that started before it
+    @Test
+    void shouldNotShareLookupStartedBeforeAnUpdate() {
+        User user = slowStore.create(new User(UUID.randomUUID(), "Ada", "ada@example.com"));
+
+        Future<HttpResponse<?>> before = get(user.id());
+        waitFor("the store lookup", () -> slowStore.lookups.get() == 1);
+        HttpResponse<?> updated = await(webClient.put(port, "localhost", "/users/" + user.id() + "/email")
+            .sendJsonObject(new JsonObject().put("email", "ada@lovelace.dev")));
+        assertEquals(200, updated.statusCode());
+        HttpResponse<?> after = await(get(user.id()));
+
+        assertEquals("ada@lovelace.dev", after.bodyAsJsonObject().getString("email"));
+        assertEquals(200, await(before).statusCode());
+        assertEquals(2, slowStore.lookups.get());
+    }
+
+    private List<HttpResponse<?>> getConcurrently(UUID id, int count) {
+        List<Future<HttpResponse<?>>> requests = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            requests.add(get(id));
+        }
+        await(Future.all(requests));
+        return requests.stream().<HttpResponse<?>>map(Future::result).toList();
+    }
+
+    private Future<HttpResponse<?>> get(UUID id) {
+        return webClient.get(port, "localhost", "/users/" + id).send().map(response -> response);
+    }
+
+    // In-memory store whose lookups by id take STORE_DELAY_MILLIS, like a remote or disk-backed store
+    private static final class SlowUserStore extends InMemoryUserStore {
+
+        final AtomicInteger lookups = new AtomicInteger();
+
+        @Override
+        public Optional<EncodedUser> findEncodedById(UUID id) {
+            lookups.incrementAndGet();
+            try {
+                Thread.sleep(STORE_DELAY_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return super.findEncodedById(id);
+        }
+    }
+}
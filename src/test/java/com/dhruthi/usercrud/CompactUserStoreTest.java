@@ -0,0 +1,143 @@
+package com.dhruthi.usercrud;
+
+import com.dhruthi.usercrud.model.User;
+import com.dhruthi.usercrud.model.UserNotFoundException;
+import com.dhruthi.usercrud.store.CompactUserStore;
+import com.dhruthi.usercrud.store.InMemoryUserStore;
+import com.dhruthi.usercrud.store.MutationType;
+import com.dhruthi.usercrud.store.UserStore;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Runs every UserStoreTest case against CompactUserStore, plus checks of its table and arena maintenance
+class CompactUserStoreTest extends UserStoreTest {
+
+    @Override
+    UserStore createStore() {
+        return new CompactUserStore();
+    }
+
+    // Test to verify lookups keep working across table growth and deletes that shift probe chains
+    @Test
+    void shouldFindUsersAfterGrowthAndDeletes() throws UserNotFoundException {
+        CompactUserStore store = new CompactUserStore();
+        List<User> created = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            created.add(store.create(new User(UUID.randomUUID(), "User " + i, "user" + i + "@example.com")));
+        }
+        for (int i = 0; i < created.size(); i += 3) {
+            store.delete(created.get(i).id());
+        }
+
+        assertEquals(20_000 - 6_667, store.size());
+        for (int i = 0; i < created.size(); i++) {
+            User user = created.get(i);
+            assertEquals(i % 3 != 0, store.findById(user.id()).isPresent());
+            assertEquals(i % 3 != 0, store.findByEmail(user.email().toUpperCase()).isPresent());
+        }
+    }
+
+    // Test to verify repeated updates reclaim arena space without losing or mixing up users
+    @Test
+    void shouldCompactArenaUnderRepeatedUpdates() throws UserNotFoundException {
+        CompactUserStore store = new CompactUserStore();
+        List<User> created = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            created.add(store.create(new User(UUID.randomUUID(), "User " + i, "user" + i + "@example.com")));
+        }
+        // Enough rewrites to fill several arena pages with dead records
+        for (int round = 0; round < 100; round++) {
+            for (int i = 0; i < created.size(); i++) {
+                store.update(created.get(i).id(), new User(created.get(i).id(), "User " + i + " v" + round,
+                    "user" + i + "-" + round + "@example.com"));
+            }
+        }
+
+        for (int i = 0; i < created.size(); i++) {
+            User found = store.findById(created.get(i).id()).orElseThrow();
+            assertEquals("User " + i + " v99", found.name());
+            assertEquals(found, store.findByEmail("user" + i + "-99@example.com").orElseThrow());
+            assertTrue(store.findByEmail("user" + i + "-98@example.com").isEmpty());
+        }
+        assertEquals(1_000, store.findAll().size());
+    }
+
+    // Test to verify a user too large for a record is refused before listeners, such as the change feed,
+    // publish a create or update that never happened
+    @Test
+    void shouldNotNotifyListenersOfRecordsTooLargeToStore() throws UserNotFoundException {
+        CompactUserStore store = new CompactUserStore();
+        List<MutationType> notified = new ArrayList<>();
+        store.addListener((type, user, commit) -> notified.add(type));
+        User user = store.create(new User("Ada", "ada@example.com"));
+        String huge = "x".repeat(512 * 1024);
+
+        assertThrows(IllegalArgumentException.class, () -> store.create(new User(huge, "huge@example.com")));
+        assertThrows(IllegalArgumentException.class,
+            () -> store.update(user.id(), new User(user.id(), huge, user.email())));
+
+        assertEquals(List.of(MutationType.CREATE), notified);
+        assertEquals(user, store.findById(user.id()).orElseThrow());
+        assertTrue(store.findByEmail("huge@example.com").isEmpty());
+        assertEquals(1, store.size());
+    }
+
+    // === Benchmarks ===
+
+    // Reports retained heap per user and full GC time for both stores; run with -Dperf.compact.users=10000000
+    // (and enough heap) for the 10M figure
+    @Test
+    @Tag("perf")
+    void benchmarkMemoryPerUser() {
+        int users = Integer.getInteger("perf.compact.users", 1_000_000);
+        String only = System.getProperty("perf.compact.store", "");
+        if (!only.equals("compact")) {
+            report("InMemoryUserStore", InMemoryUserStore::new, users);
+        }
+        if (!only.equals("memory")) {
+            report("CompactUserStore", CompactUserStore::new, users);
+        }
+    }
+
+    private static void report(String label, Supplier<UserStore> factory, int users) {
+        long before = usedHeapAfterGc();
+        UserStore store = factory.get();
+        for (int i = 0; i < users; i++) {
+            store.create(new User(UUID.randomUUID(), "User " + i, "user" + i + "@example.com"));
+        }
+        long gcBefore = gcMillis();
+        long after = usedHeapAfterGc();
+        long gcTime = (gcMillis() - gcBefore) / 3;
+        assertEquals(users, store.findAll().size());
+        System.out.printf("%-18s %,d users: %,d MB retained, %.1f bytes/user, %d ms per full GC%n",
+            label, users, (after - before) >> 20, (double) (after - before) / users, gcTime);
+    }
+
+    // Heap in use once three consecutive full collections have settled it
+    private static long usedHeapAfterGc() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static long gcMillis() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += gc.getCollectionTime();
+        }
+        return total;
+    }
+}
@@ -0,0 +1,171 @@
+package com.dhruthi.usercrud;
+
+import com.dhruthi.usercrud.admission.ConcurrencyLimiter;
+import com.dhruthi.usercrud.admission.ConcurrencyLimiter.Priority;
+import com.dhruthi.usercrud.metrics.Metrics;
+import com.dhruthi.usercrud.model.User;
+import com.dhruthi.usercrud.store.InMemoryUserStore;
+import com.dhruthi.usercrud.store.WorkerAsyncUserStore;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.PoolOptions;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.client.HttpResponse;
+import io.vertx.ext.web.client.WebClient;
+import io.vertx.ext.web.client.WebClientOptions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static com.dhruthi.usercrud.TestSupport.await;
+import static com.dhruthi.usercrud.TestSupport.waitFor;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// The adaptive limit on its own, fed latencies directly, and admission control in front of the API
+// while a storm of slow writes hits it
+class ConcurrencyLimiterTest {
+
+    private static final long WRITE_DELAY_MILLIS = 300;
+    private static final int WRITE_STORM = 40;
+
+    private Vertx vertx;
+    private WebClient webClient;
+    private int port;
+
+    @BeforeEach
+    void setUp() {
+        vertx = Vertx.vertx();
+        webClient = WebClient.create(vertx, new WebClientOptions(), new PoolOptions().setHttp1MaxSize(WRITE_STORM + 1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        await(vertx.close());
+    }
+
+    // Test to verify the limit rises while requests keep their latency with most permits in use
+    @Test
+    void shouldRaiseLimitWhileLatencyHolds() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(50, 10, 1000, Duration.ZERO);
+
+        runAtFullLoad(limiter, 50, TimeUnit.MILLISECONDS.toNanos(1), 200);
+
+        assertTrue(limiter.limit() > 50, "limit is " + limiter.limit());
+    }
+
+    // Test to verify the limit falls once latency climbs well past its long-term average, down to the
+    // minimum and no further
+    @Test
+    void shouldLowerLimitWhenLatencyClimbs() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(30, 25, 1000, Duration.ZERO);
+        runAtFullLoad(limiter, 30, TimeUnit.MILLISECONDS.toNanos(1), 50);
+        assertTrue(limiter.limit() > 30, "limit is " + limiter.limit());
+
+        runAtFullLoad(limiter, limiter.limit(), TimeUnit.MILLISECONDS.toNanos(50), 100);
+        assertEquals(25, limiter.limit());
+    }
+
+    // Test to verify writes can only take half the permits, and reads can still take the rest
+    @Test
+    void shouldKeepPermitsForReadsWhenWritesUseTheirShare() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(10, 10, 10);
+
+        for (int i = 0; i < 5; i++) {
+            assertTrue(limiter.tryAcquire(Priority.WRITE));
+        }
+        assertFalse(limiter.tryAcquire(Priority.WRITE));
+        for (int i = 0; i < 5; i++) {
+            assertTrue(limiter.tryAcquire(Priority.READ));
+        }
+        assertFalse(limiter.tryAcquire(Priority.READ));
+        assertEquals(10, limiter.inFlight());
+
+        limiter.release(Priority.WRITE);
+        assertTrue(limiter.tryAcquire(Priority.READ));
+        assertFalse(limiter.tryAcquire(Priority.WRITE));
+        assertEquals(10, limiter.inFlight());
+        assertEquals(4, limiter.writesInFlight());
+    }
+
+    // Test to verify a storm of slow writes gets the excess turned away with 503 and Retry-After, while a
+    // read sent in the middle of it is served
+    @Test
+    void shouldServeReadsDuringAWriteStorm() {
+        SlowWriteUserStore store = new SlowWriteUserStore();
+        User user = store.create(new User(UUID.randomUUID(), "Ada", "ada@example.com"));
+        Metrics metrics = new Metrics();
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(20, 20, 20);
+        port = await(Main.deploy(vertx, UserVerticle.Options.builder(new WorkerAsyncUserStore(store,
+                vertx.createSharedWorkerExecutor("user-store", WRITE_STORM)))
+            .metrics(metrics).port(0).limiter(limiter).build(), 2)).port();
+
+        List<Future<HttpResponse<?>>> writes = new ArrayList<>();
+        for (int i = 0; i < WRITE_STORM; i++) {
+            writes.add(webClient.post(port, "localhost", "/users")
+                .sendJsonObject(new JsonObject().put("name", "User " + i).put("email", "user" + i + "@example.com"))
+                .map(response -> response));
+        }
+        waitFor("ten writes in flight", () -> limiter.writesInFlight() == 10);
+        HttpResponse<?> read = await(webClient.get(port, "localhost", "/users/" + user.id()).send());
+        await(Future.join(writes));
+
+        assertEquals(200, read.statusCode());
+        int created = 0;
+        int rejected = 0;
+        for (Future<HttpResponse<?>> write : writes) {
+            HttpResponse<?> response = write.result();
+            if (response.statusCode() == 201) {
+                created++;
+            } else {
+                assertEquals(503, response.statusCode());
+                assertEquals("1", response.getHeader("Retry-After"));
+                assertEquals(503, response.bodyAsJsonObject().getInteger("status"));
+                rejected++;
+            }
+        }
+        assertTrue(created >= 10 && rejected > 0, created + " created, " + rejected + " rejected");
+        assertTrue(metrics.scrape().contains(
+            "http_server_rejected_requests_total{priority=\"write\"} " + rejected + "\n"));
+        waitFor("every request to be released", () -> limiter.inFlight() == 0);
+    }
+
+    // Takes the given number of permits, then keeps handing one back with the given latency and taking
+    // it again, so the limiter sees full load; a permit the lowered limit no longer allows is dropped
+    private static void runAtFullLoad(ConcurrencyLimiter limiter, int permits, long rttNanos, int samples) {
+        int held = 0;
+        while (held < permits && limiter.tryAcquire(Priority.READ)) {
+            held++;
+        }
+        for (int i = 0; i < samples && held > 0; i++) {
+            limiter.release(Priority.READ, rttNanos);
+            if (!limiter.tryAcquire(Priority.READ)) {
+                held--;
+            }
+        }
+        for (; held > 0; held--) {
+            limiter.release(Priority.READ);
+        }
+    }
+
+    // In-memory store whose creates take WRITE_DELAY_MILLIS, like a store that fsyncs every write
+    private static final class SlowWriteUserStore extends InMemoryUserStore {
+
+        @Override
+        public User create(User user) {
+            try {
+                Thread.sleep(WRITE_DELAY_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return super.create(user);
+        }
+    }
+}
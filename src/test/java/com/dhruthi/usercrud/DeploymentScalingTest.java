@@ -0,0 +1,143 @@
+package com.dhruthi.usercrud;
+
+import com.dhruthi.usercrud.store.InMemoryUserStore;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.PoolOptions;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.client.WebClient;
+import io.vertx.ext.web.client.WebClientOptions;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@ExtendWith(VertxExtension.class)
+class DeploymentScalingTest {
+
+    private static final int CONCURRENCY = 64;
+
+    @AfterEach
+    void tearDown(Vertx vertx, VertxTestContext testContext) {
+        vertx.close().onComplete(testContext.succeedingThenComplete());
+    }
+
+    // Every instance must see users created through any other instance
+    @Test
+    void shouldShareStoreAcrossInstances(Vertx vertx, VertxTestContext testContext) {
+        WebClient webClient = client(vertx);
+        JsonObject createRequest = new JsonObject()
+            .put("name", "Shared User")
+            .put("email", "shared@example.com");
+
+        Main.deploy(vertx, UserVerticle.Options.builder(new InMemoryUserStore()).port(0).build(), 4)
+            .compose(deployment -> webClient.post(deployment.port(), "localhost", "/users")
+                .sendJsonObject(createRequest)
+                .compose(created -> {
+                    String path = "/users/" + created.bodyAsJsonObject().getString("id");
+                    AtomicInteger found = new AtomicInteger();
+                    return load(webClient, deployment.port(), path, 200, found).map(v -> found.get());
+                }))
+            .onComplete(testContext.succeeding(found -> testContext.verify(() -> {
+                assertEquals(200, found);
+                testContext.completeNow();
+            })));
+    }
+
+    // Measures requests/sec of GET /users/:id with one instance versus one instance per core
+    @Test
+    @Tag("perf")
+    void throughputShouldRiseWithInstances(Vertx vertx, VertxTestContext testContext) throws Exception {
+        int cores = Runtime.getRuntime().availableProcessors();
+        int requests = 50_000;
+        List<Double> results = new ArrayList<>();
+
+        measure(vertx, 1, requests)
+            .compose(rps -> {
+                results.add(rps);
+                return measure(vertx, cores, requests);
+            })
+            .onComplete(testContext.succeeding(rps -> testContext.verify(() -> {
+                results.add(rps);
+                System.out.printf("GET /users/:id throughput: 1 instance = %.0f req/s, %d instances = %.0f req/s%n",
+                    results.get(0), cores, results.get(1));
+                if (cores > 1) {
+                    assertTrue(results.get(1) > results.get(0), "throughput should rise with more instances");
+                }
+                testContext.completeNow();
+            })));
+
+        assertTrue(testContext.awaitCompletion(5, TimeUnit.MINUTES));
+    }
+
+    private Future<Double> measure(Vertx vertx, int instances, int requests) {
+        WebClient webClient = client(vertx);
+        JsonObject createRequest = new JsonObject()
+            .put("name", "Bench User")
+            .put("email", "bench@example.com");
+
+        return Main.deploy(vertx, UserVerticle.Options.builder(new InMemoryUserStore()).port(0).build(), instances)
+            .compose(deployment -> webClient.post(deployment.port(), "localhost", "/users")
+                .sendJsonObject(createRequest)
+                .compose(created -> {
+                    String path = "/users/" + created.bodyAsJsonObject().getString("id");
+                    AtomicInteger ok = new AtomicInteger();
+                    // Warm up before the timed run
+                    return load(webClient, deployment.port(), path, requests / 5, ok)
+                        .compose(v -> {
+                            long start = System.nanoTime();
+                            return load(webClient, deployment.port(), path, requests, ok)
+                                .map(x -> requests / ((System.nanoTime() - start) / 1e9));
+                        });
+                })
+                .eventually(() -> vertx.undeploy(deployment.id()))
+                .eventually(() -> {
+                    webClient.close();
+                    return Future.succeededFuture();
+                }));
+    }
+
+    // Issues the given number of GETs with CONCURRENCY requests in flight, counting 200 responses
+    private Future<Void> load(WebClient webClient, int port, String path, int requests, AtomicInteger ok) {
+        AtomicInteger issued = new AtomicInteger();
+        List<Future<Void>> lanes = new ArrayList<>();
+        for (int i = 0; i < CONCURRENCY; i++) {
+            Promise<Void> lane = Promise.promise();
+            next(webClient, port, path, requests, issued, ok, lane);
+            lanes.add(lane.future());
+        }
+        return Future.all(lanes).mapEmpty();
+    }
+
+    private void next(WebClient webClient, int port, String path, int requests, AtomicInteger issued,
+                      AtomicInteger ok, Promise<Void> lane) {
+        if (issued.getAndIncrement() >= requests) {
+            lane.complete();
+            return;
+        }
+        webClient.get(port, "localhost", path).send()
+            .onSuccess(response -> {
+                if (response.statusCode() == 200) {
+                    ok.incrementAndGet();
+                }
+                next(webClient, port, path, requests, issued, ok, lane);
+            })
+            .onFailure(lane::fail);
+    }
+
+    private WebClient client(Vertx vertx) {
+        return WebClient.create(vertx, new WebClientOptions().setKeepAlive(true),
+            new PoolOptions().setHttp1MaxSize(CONCURRENCY));
+    }
+}
@@ -0,0 +1,205 @@
+package com.dhruthi.usercrud;
+
+import com.dhruthi.usercrud.model.EncodedUser;
+import com.dhruthi.usercrud.model.User;
+import com.dhruthi.usercrud.store.AsyncUserStore;
+import com.dhruthi.usercrud.store.InMemoryUserStore;
+import com.dhruthi.usercrud.store.InlineAsyncUserStore;
+import com.dhruthi.usercrud.store.WorkerAsyncUserStore;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.PoolOptions;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.client.HttpResponse;
+import io.vertx.ext.web.client.WebClient;
+import io.vertx.ext.web.client.WebClientOptions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static com.dhruthi.usercrud.TestSupport.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Health probes and shutdown: draining a process, and handing its port over to a replacement bound
+// alongside it with SO_REUSEPORT. Each server runs in a Vert.x instance of its own, as it would in a
+// process of its own; the clients run in another.
+class GracefulShutdownTest {
+
+    private final List<Vertx> servers = new ArrayList<>();
+    private Vertx clients;
+    private InMemoryUserStore store;
+    // Bound by the first server a test starts, which any replacement then binds alongside it
+    private int port;
+
+    @BeforeEach
+    void setUp() {
+        clients = Vertx.vertx();
+        store = new InMemoryUserStore();
+    }
+
+    @AfterEach
+    void tearDown() {
+        servers.forEach(server -> await(server.close()));
+        await(clients.close());
+    }
+
+    // Test to verify liveness stays 200 while readiness turns 503 once the process drains, and that from
+    // then on HTTP/1.1 responses close their connections
+    @Test
+    void shouldReportReadinessUntilDraining() {
+        Health health = new Health();
+        start(ServerConfig.DEFAULT, health, vertx -> new InlineAsyncUserStore(store));
+        WebClient client = WebClient.create(clients);
+
+        HttpResponse<?> ready = await(client.get(port, "localhost", "/health/ready").send());
+        assertEquals(200, ready.statusCode());
+        assertEquals("ready", ready.bodyAsJsonObject().getString("status"));
+
+        health.drain();
+        HttpResponse<?> draining = await(client.get(port, "localhost", "/health/ready").send());
+        HttpResponse<?> live = await(client.get(port, "localhost", "/health/live").send());
+        HttpResponse<?> users = await(client.get(port, "localhost", "/users").send());
+
+        assertEquals(503, draining.statusCode());
+        assertEquals("draining", draining.bodyAsJsonObject().getString("status"));
+        assertEquals(200, live.statusCode());
+        assertEquals(200, users.statusCode());
+        assertEquals("close", users.getHeader("Connection"));
+    }
+
+    // Test to verify shutdown lets a request already being handled finish, then stops accepting
+    @Test
+    void shouldFinishRequestsInFlightOnShutdown() throws InterruptedException {
+        User ada = store.create(new User("Ada", "ada@example.com"));
+        CountDownLatch reading = new CountDownLatch(1);
+        InMemoryUserStore slow = new InMemoryUserStore() {
+            @Override
+            public Optional<EncodedUser> findEncodedById(UUID id) {
+                reading.countDown();
+                try {
+                    Thread.sleep(500);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return store.findEncodedById(id);
+            }
+        };
+        Health health = new Health();
+        Vertx server = start(ServerConfig.DEFAULT, health,
+            vertx -> new WorkerAsyncUserStore(slow, vertx.createSharedWorkerExecutor("slow-store", 1)));
+        WebClient client = WebClient.create(clients);
+
+        Future<? extends HttpResponse<?>> inFlight = client.get(port, "localhost", "/users/" + ada.id()).send();
+        assertTrue(reading.await(10, TimeUnit.SECONDS));
+        Future<Void> shutdown = Main.shutdown(server, health, 0);
+
+        HttpResponse<?> found = await(inFlight);
+        assertEquals(200, found.statusCode());
+        assertEquals("ada@example.com", found.bodyAsJsonObject().getString("email"));
+        await(shutdown);
+        servers.remove(server);
+        assertTrue(await(client.get(port, "localhost", "/health/live").send().map(r -> false)
+            .otherwise(error -> true)), "no longer accepting connections");
+    }
+
+    // Test to verify a process restarted next to itself fails no requests: the replacement binds the port
+    // alongside the running process, which then drains and exits while clients keep sending reads and writes.
+    // Like two processes, the two servers share no store. Each starts with the same users, as two followers
+    // of one leader would, and writes the old process took while both ran are not in the replacement.
+    @Test
+    void shouldHandOffPortWithoutFailedRequests() {
+        ServerConfig config = ServerConfig.from(Map.of(
+            ServerConfig.REUSE_PORT_ENV, "true",
+            ServerConfig.SHUTDOWN_DELAY_ENV, "1"));
+        InMemoryUserStore replacementStore = new InMemoryUserStore();
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            User user = store.create(new User("User " + i, "user" + i + "@example.com"));
+            replacementStore.restore(user);
+            ids.add(user.id());
+        }
+        Health oldHealth = new Health();
+        Vertx old = start(config, oldHealth, vertx -> new InlineAsyncUserStore(store));
+        WebClient client = WebClient.create(clients, new WebClientOptions(), new PoolOptions().setHttp1MaxSize(16));
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicInteger sent = new AtomicInteger();
+        List<String> failures = Collections.synchronizedList(new ArrayList<>());
+        List<Future<Void>> lanes = new ArrayList<>();
+        for (int lane = 0; lane < 16; lane++) {
+            lanes.add(lane(client, ids, running, sent, failures));
+        }
+
+        sleep(500);
+        start(config, new Health(), vertx -> new InlineAsyncUserStore(replacementStore));
+        sleep(500);
+        await(Main.shutdown(old, oldHealth, config.shutdownDelaySeconds()));
+        servers.remove(old);
+        int beforeExit = sent.get();
+        sleep(1000);
+        running.set(false);
+        await(Future.all(lanes));
+
+        assertEquals(List.of(), failures);
+        assertTrue(sent.get() - beforeExit > 100, "the replacement served requests once the old process exited");
+        List<User> writtenToOld = store.findAll().stream()
+            .filter(user -> user.name().startsWith("New "))
+            .collect(Collectors.toList());
+        assertTrue(writtenToOld.size() > 0, "the old process took writes before it exited");
+        assertTrue(writtenToOld.stream().noneMatch(user -> replacementStore.findById(user.id()).isPresent()),
+            "writes to the old process are not carried over to the replacement");
+    }
+
+    // Sends a write every tenth request and reads otherwise, one at a time, until told to stop
+    private Future<Void> lane(WebClient client, List<UUID> ids, AtomicBoolean running, AtomicInteger sent,
+                              List<String> failures) {
+        if (!running.get()) {
+            return Future.succeededFuture();
+        }
+        int n = sent.incrementAndGet();
+        Future<? extends HttpResponse<?>> response = n % 10 == 0
+            ? client.post(port, "localhost", "/users")
+                .sendJsonObject(new JsonObject().put("name", "New " + n).put("email", "new" + n + "@example.com"))
+            : client.get(port, "localhost", "/users/" + ids.get(n % ids.size())).send();
+        return response.transform(result -> {
+            if (result.failed()) {
+                failures.add(result.cause().toString());
+            } else if (result.result().statusCode() >= 300) {
+                failures.add("status " + result.result().statusCode());
+            }
+            return lane(client, ids, running, sent, failures);
+        });
+    }
+
+    // Starts a server in a Vert.x instance of its own, as a process would, on the test's port once it has one
+    private Vertx start(ServerConfig config, Health health, Function<Vertx, AsyncUserStore> userStore) {
+        Vertx server = Vertx.vertx(config.vertxOptions());
+        servers.add(server);
+        port = await(Main.deploy(server, UserVerticle.Options.builder(userStore.apply(server)).port(port).limiter(null)
+            .server(config).health(health).build(), 2)).port();
+        return server;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AssertionError(e);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.dhruthi.usercrud;
+
+import com.dhruthi.usercrud.model.IdGenerator;
+import com.dhruthi.usercrud.model.User;
+import com.dhruthi.usercrud.store.CompactUserStore;
+import com.dhruthi.usercrud.store.InMemoryUserStore;
+import com.dhruthi.usercrud.store.UserStore;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// The time-ordered generator's ids, and stores taking their ids from the generator they are given
+class IdGeneratorTest {
+
+    // Test to verify ids are version 7, RFC 9562 variant UUIDs stamped with the current time
+    @Test
+    void shouldGenerateVersion7Ids() {
+        long before = System.currentTimeMillis();
+        UUID id = IdGenerator.timeOrdered().next();
+        long after = System.currentTimeMillis();
+
+        assertEquals(7, id.version());
+        assertEquals(2, id.variant());
+        long millis = id.getMostSignificantBits() >>> 16;
+        assertTrue(millis >= before && millis <= after + 1, millis + " is not between " + before + " and " + after);
+    }
+
+    // Test to verify ids from one thread strictly increase, even many to a millisecond
+    @Test
+    void shouldGenerateIncreasingIdsOnEachThread() {
+        IdGenerator generator = IdGenerator.timeOrdered();
+        UUID previous = generator.next();
+        for (int i = 0; i < 200_000; i++) {
+            UUID next = generator.next();
+            assertTrue(next.compareTo(previous) > 0, next + " follows " + previous);
+            previous = next;
+        }
+    }
+
+    // Test to verify threads generating at once never produce the same id
+    @Test
+    void shouldGenerateUniqueIdsAcrossThreads() throws Exception {
+        int threads = 8;
+        int perThread = 50_000;
+        Set<UUID> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> tasks = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                tasks.add(executor.submit(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        ids.add(IdGenerator.timeOrdered().next());
+                    }
+                }));
+            }
+            for (Future<?> task : tasks) {
+                task.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(threads * perThread, ids.size());
+    }
+
+    // Test to verify the stores give created users the ids of their generator, and ignore the id passed in
+    @Test
+    void shouldCreateUsersWithIdsFromTheGivenGenerator() {
+        for (UserStore store : List.of(new InMemoryUserStore(sequence()), new CompactUserStore(sequence()))) {
+            User first = store.create(new User("Ada", "ada@example.com"));
+            User second = store.create(new User(UUID.randomUUID(), "Grace", "grace@example.com"));
+
+            assertEquals(new UUID(0, 1), first.id());
+            assertEquals(new UUID(0, 2), second.id());
+            assertEquals("grace@example.com", store.findById(new UUID(0, 2)).orElseThrow().email());
+        }
+    }
+
+    // Test to verify with time-ordered ids, pages list users in the order they were created
+    @Test
+    void shouldListUsersInCreationOrder() {
+        InMemoryUserStore store = new InMemoryUserStore();
+        List<UUID> created = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            created.add(store.create(new User("User " + i, "user" + i + "@example.com")).id());
+        }
+
+        assertEquals(created, store.findPage(null, 500).stream().map(User::id).toList());
+    }
+
+    private static IdGenerator sequence() {
+        AtomicLong next = new AtomicLong();
+        return () -> new UUID(0, next.incrementAndGet());
+    }
+}
@@ -0,0 +1,341 @@
+package com.dhruthi.usercrud;
+
+import com.dhruthi.usercrud.model.User;
+import com.dhruthi.usercrud.model.UserNotFoundException;
+import com.dhruthi.usercrud.store.MutationType;
+import com.dhruthi.usercrud.store.journal.Journal;
+import com.dhruthi.usercrud.store.journal.JournalUserStore;
+import com.dhruthi.usercrud.store.journal.SyncPolicy;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JournalUserStoreTest {
+
+    @TempDir
+    Path dataDir;
+
+    // === Recovery ===
+
+    // Test to verify creates, updates and deletes survive a restart
+    @Test
+    void shouldRecoverUsersAfterRestart() throws IOException, UserNotFoundException {
+        User alice;
+        User bob;
+        try (JournalUserStore store = JournalUserStore.open(dataDir, SyncPolicy.GROUP)) {
+            alice = store.create(new User(UUID.randomUUID(), "Alice", "alice@example.com"));
+            bob = store.create(new User(UUID.randomUUID(), "Bob", "bob@example.com"));
+            User carol = store.create(new User(UUID.randomUUID(), "Carol", "carol@example.com"));
+            store.update(bob.id(), new User(bob.id(), "Bob", "bob.new@example.com"));
+            store.delete(carol.id());
+        }
+
+        try (JournalUserStore store = JournalUserStore.open(dataDir, SyncPolicy.GROUP)) {
+            assertEquals(2, store.findAll().size());
+            assertEquals("alice@example.com", store.findById(alice.id()).orElseThrow().email());
+            assertEquals("bob.new@example.com", store.findById(bob.id()).orElseThrow().email());
+            assertEquals(2, store.findById(bob.id()).orElseThrow().version());
+        }
+    }
+
+    // Test to verify a record torn by a crash is dropped instead of failing startup
+    @Test
+    void shouldTruncateTornRecordOnRecovery() throws IOException {
+        try (JournalUserStore store = JournalUserStore.open(dataDir, SyncPolicy.GROUP)) {
+            store.create(new User(UUID.randomUUID(), "Alice", "alice@example.com"));
+        }
+        Path lastSegment = segments().get(segments().size() - 1);
+        Files.write(lastSegment, new byte[] {0, 0, 0, 40, 1, 2}, StandardOpenOption.APPEND);
+
+        try (JournalUserStore store = JournalUserStore.open(dataDir, SyncPolicy.GROUP)) {
+            assertEquals(1, store.findAll().size());
+            store.create(new User(UUID.randomUUID(), "Bob", "bob@example.com"));
+        }
+        try (JournalUserStore store = JournalUserStore.open(dataDir, SyncPolicy.GROUP)) {
+            assertEquals(2, store.findAll().size());
+        }
+    }
+
+    // Test to verify a bad record in a segment that is not the newest fails recovery instead of being
+    // truncated along with the later segments' users
+    @Test
+    void shouldFailRecoveryOnCorruptOlderSegment() throws IOException {
+        try (JournalUserStore store = JournalUserStore.open(dataDir, SyncPolicy.GROUP, 1024, Integer.MAX_VALUE)) {
+            for (int i = 0; i < 50; i++) {
+                store.create(new User("User" + i, "user" + i + "@example.com"));
+            }
+        }
+        assertTrue(segments().size() > 2);
+        corruptLastByte(segments().get(0));
+
+        IOException failed = assertThrows(IOException.class,
+            () -> JournalUserStore.open(dataDir, SyncPolicy.GROUP, 1024, Integer.MAX_VALUE));
+        assertTrue(failed.getMessage().contains("Corrupt journal record"));
+    }
+
+    // Test to verify a bad record in the snapshot fails recovery
+    @Test
+    void shouldFailRecoveryOnCorruptSnapshot() throws IOException {
+        try (JournalUserStore store = JournalUserStore.open(dataDir, SyncPolicy.GROUP)) {
+            store.create(new User("Alice", "alice@example.com"));
+            store.create(new User("Bob", "bob@example.com"));
+            store.compact();
+        }
+        try (Stream<Path> files = Files.list(dataDir)) {
+            corruptLastByte(files.filter(f -> f.getFileName().toString().startsWith("snapshot-"))
+                .findFirst().orElseThrow());
+        }
+
+        assertThrows(IOException.class, () -> JournalUserStore.open(dataDir, SyncPolicy.GROUP));
+    }
+
+    // Test to verify replay goes by versions, since concurrent writers of one user can append their
+    // records in either order
+    @Test
+    void shouldReplayRecordsOfOneUserInAnyOrder() throws IOException {
+        UUID alice = UUID.randomUUID();
+        UUID bob = UUID.randomUUID();
+        try (Journal journal = Journal.open(dataDir, SyncPolicy.GROUP, (type, user) -> { })) {
+            journal.append(MutationType.CREATE, new User(alice, "Alice", "alice@example.com", 1));
+            journal.append(MutationType.UPDATE, new User(alice, "Alice", "alice.new@example.com", 3));
+            journal.append(MutationType.UPDATE, new User(alice, "Alice", "alice.old@example.com", 2));
+            journal.append(MutationType.CREATE, new User(bob, "Bob", "bob@example.com", 1));
+            journal.append(MutationType.DELETE, new User(bob, "Bob", "bob.new@example.com", 2));
+            journal.append(MutationType.UPDATE, new User(bob, "Bob", "bob.new@example.com", 2));
+            journal.commit();
+        }
+
+        try (JournalUserStore store = JournalUserStore.open(dataDir, SyncPolicy.GROUP)) {
+            assertEquals(1, store.findAll().size());
+            assertEquals(new User(alice, "Alice", "alice.new@example.com", 3), store.findById(alice).orElseThrow());
+            assertTrue(store.findById(bob).isEmpty());
+            assertTrue(store.findByEmail("alice.old@example.com").isEmpty());
+        }
+    }
+
+    // Test to verify a directory already open in another journal is refused, so a second process can
+    // neither replay records still being written nor append alongside the first
+    @Test
+    void shouldRefuseDirectoryInUse() throws IOException {
+        try (JournalUserStore store = JournalUserStore.open(dataDir, SyncPolicy.GROUP)) {
+            store.create(new User("Alice", "alice@example.com"));
+            IOException refused = assertThrows(IOException.class,
+                () -> JournalUserStore.open(dataDir, SyncPolicy.GROUP));
+            assertTrue(refused.getMessage().contains("in use"));
+            store.create(new User("Bob", "bob@example.com"));
+        }
+
+        try (JournalUserStore store = JournalUserStore.open(dataDir, SyncPolicy.GROUP)) {
+            assertEquals(2, store.findAll().size());
+        }
+    }
+
+    // Test to verify a user too large for a journal record is refused instead of written, so it cannot
+    // make recovery drop the records after it
+    @Test
+    void shouldRejectRecordsTooLargeToRecover() throws IOException {
+        try (JournalUserStore store = JournalUserStore.open(dataDir, SyncPolicy.GROUP)) {
+            store.create(new User("Alice", "alice@example.com"));
+            assertThrows(IllegalArgumentException.class,
+                () -> store.create(new User("x".repeat(2 * 1024 * 1024), "huge@example.com")));
+            assertTrue(store.findByEmail("huge@example.com").isEmpty());
+            store.create(new User("Bob", "bob@example.com"));
+        }
+
+        try (JournalUserStore store = JournalUserStore.open(dataDir, SyncPolicy.GROUP)) {
+            assertEquals(2, store.findAll().size());
+            assertTrue(store.findByEmail("bob@example.com").isPresent());
+        }
+    }
+
+    // Test to verify rolled segments are replaced by a snapshot that recovers the same users
+    @Test
+    void shouldCompactRolledSegments() throws IOException, UserNotFoundException {
+        List<User> created;
+        try (JournalUserStore store = JournalUserStore.open(dataDir, SyncPolicy.NONE, 1024, Integer.MAX_VALUE)) {
+            created = IntStream.range(0, 200)
+                .mapToObj(i -> store.create(new User(UUID.randomUUID(), "User" + i, "user" + i + "@example.com")))
+                .collect(Collectors.toList());
+            for (int i = 0; i < 100; i++) {
+                store.delete(created.get(i).id());
+            }
+            assertTrue(segments().size() > 10);
+
+            store.compact();
+            assertTrue(segments().size() <= 1);
+        }
+
+        try (JournalUserStore store = JournalUserStore.open(dataDir, SyncPolicy.NONE)) {
+            assertEquals(100, store.findAll().size());
+            assertTrue(store.findById(created.get(0).id()).isEmpty());
+            assertEquals("User150", store.findById(created.get(150).id()).orElseThrow().name());
+        }
+    }
+
+    // Test to verify compacting while writers run loses no acknowledged write: every record appended to a
+    // segment the snapshot replaces must be in the snapshot
+    @Test
+    void shouldKeepWritesRacingCompaction() throws Exception {
+        int threads = 4;
+        int perThread = 2_000;
+        List<User> acknowledged = Collections.synchronizedList(new ArrayList<>());
+        try (JournalUserStore store = JournalUserStore.open(dataDir, SyncPolicy.NONE, 4096, Integer.MAX_VALUE)) {
+            // Listeners run once a write is committed, before its record is appended, so a slow one widens
+            // the window in which a compaction can roll past a write whose record is still to come
+            store.addListener((type, user, commit) -> Thread.yield());
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            List<Future<?>> futures = IntStream.range(0, threads)
+                .mapToObj(t -> executor.submit(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        User user = store.create(new User("User", "user" + t + "-" + i + "@example.com"));
+                        acknowledged.add(store.update(user.id(), new User(user.id(), "Renamed", user.email())));
+                    }
+                    return null;
+                }))
+                .collect(Collectors.toList());
+            while (!futures.stream().allMatch(Future::isDone)) {
+                store.compact();
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+            executor.shutdown();
+        }
+
+        try (JournalUserStore store = JournalUserStore.open(dataDir, SyncPolicy.NONE)) {
+            assertEquals(acknowledged.size(), store.findAll().size());
+            for (User user : acknowledged) {
+                assertEquals(Optional.of(user), store.findById(user.id()));
+            }
+        }
+    }
+
+    // Test to verify every concurrently acknowledged write is durable under group commit
+    @Test
+    void shouldPersistConcurrentWritesWithGroupCommit() throws Exception {
+        int threads = 8;
+        int perThread = 100;
+        try (JournalUserStore store = JournalUserStore.open(dataDir, SyncPolicy.GROUP)) {
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            List<Future<?>> futures = IntStream.range(0, threads)
+                .mapToObj(t -> executor.submit(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        store.create(new User(UUID.randomUUID(), "User", "user" + t + "-" + i + "@example.com"));
+                    }
+                }))
+                .collect(Collectors.toList());
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+            executor.shutdown();
+        }
+
+        try (JournalUserStore store = JournalUserStore.open(dataDir, SyncPolicy.GROUP)) {
+            assertEquals(threads * perThread, store.findAll().size());
+        }
+    }
+
+    // === Benchmarks ===
+
+    // Measures create latency and throughput for each sync policy with concurrent writers
+    @Test
+    @Tag("perf")
+    void benchmarkWriteLatencyPerSyncPolicy() throws Exception {
+        int threads = Integer.getInteger("perf.journal.threads", 8);
+        int perThread = Integer.getInteger("perf.journal.writes", 2_000);
+
+        for (SyncPolicy policy : SyncPolicy.values()) {
+            Path dir = dataDir.resolve(policy.name());
+            long[] latencies = new long[threads * perThread];
+            long start;
+            long elapsed;
+            try (JournalUserStore store = JournalUserStore.open(dir, policy)) {
+                ExecutorService executor = Executors.newFixedThreadPool(threads);
+                start = System.nanoTime();
+                List<Future<?>> futures = IntStream.range(0, threads)
+                    .mapToObj(t -> executor.submit(() -> {
+                        for (int i = 0; i < perThread; i++) {
+                            long begin = System.nanoTime();
+                            store.create(new User(UUID.randomUUID(), "User", "u" + t + "-" + i + "@example.com"));
+                            latencies[t * perThread + i] = System.nanoTime() - begin;
+                        }
+                    }))
+                    .collect(Collectors.toList());
+                for (Future<?> future : futures) {
+                    future.get(10, TimeUnit.MINUTES);
+                }
+                elapsed = System.nanoTime() - start;
+                executor.shutdown();
+            }
+            Arrays.sort(latencies);
+            System.out.printf("%-8s %d threads: %.0f writes/s, p50 %.1f us, p99 %.1f us, max %.1f us%n",
+                policy, threads, latencies.length / (elapsed / 1e9),
+                latencies[latencies.length / 2] / 1e3,
+                latencies[(int) (latencies.length * 0.99)] / 1e3,
+                latencies[latencies.length - 1] / 1e3);
+        }
+    }
+
+    // Measures how long startup replay takes; run with -Dperf.journal.recoveryUsers=10000000 for 10M users
+    @Test
+    @Tag("perf")
+    void benchmarkRecoveryTime() throws IOException {
+        int users = Integer.getInteger("perf.journal.recoveryUsers", 1_000_000);
+        try (JournalUserStore store = JournalUserStore.open(dataDir, SyncPolicy.NONE)) {
+            for (int i = 0; i < users; i++) {
+                store.create(new User(UUID.randomUUID(), "User " + i, "user" + i + "@example.com"));
+            }
+        }
+
+        long start = System.nanoTime();
+        try (JournalUserStore store = JournalUserStore.open(dataDir, SyncPolicy.NONE)) {
+            long elapsed = System.nanoTime() - start;
+            assertEquals(users, store.findAll().size());
+            System.out.printf("Recovered %d users from the journal in %d ms%n", users, elapsed / 1_000_000);
+
+            store.compact();
+        }
+
+        start = System.nanoTime();
+        try (JournalUserStore store = JournalUserStore.open(dataDir, SyncPolicy.NONE)) {
+            System.out.printf("Recovered %d users from a snapshot in %d ms%n",
+                store.findAll().size(), (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    private static void corruptLastByte(Path file) throws IOException {
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length - 1] ^= 0x5A;
+        Files.write(file, bytes);
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(dataDir)) {
+            return files.filter(f -> f.getFileName().toString().startsWith("segment-"))
+                .sorted()
+                .collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.dhruthi.usercrud;
+
+import com.dhruthi.usercrud.metrics.LatencyHistogram;
+import com.dhruthi.usercrud.metrics.Metrics;
+import com.dhruthi.usercrud.metrics.MetricsUserStore;
+import com.dhruthi.usercrud.model.User;
+import com.dhruthi.usercrud.store.InMemoryUserStore;
+import com.dhruthi.usercrud.store.UserStore;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MetricsTest {
+
+    // Test to verify quantiles are reported within the histogram's 3% bucket precision
+    @Test
+    void shouldReportQuantilesWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long micros = 1; micros <= 10_000; micros++) {
+            histogram.record(micros * 1_000);
+        }
+
+        assertEquals(10_000, histogram.count());
+        assertEquals(50_005_000_000L, histogram.sumNanos());
+        assertWithinPercent(5_000_000, histogram.valueAtQuantile(0.5), 3);
+        assertWithinPercent(9_900_000, histogram.valueAtQuantile(0.99), 3);
+        assertWithinPercent(10_000_000, histogram.valueAtQuantile(1.0), 3);
+        assertEquals(0, new LatencyHistogram().valueAtQuantile(0.5));
+    }
+
+    // Test to verify concurrent recording loses no values
+    @Test
+    void shouldCountEveryConcurrentRecord() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 100_000; i++) {
+                    histogram.record(i);
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(800_000, histogram.count());
+        assertEquals(800_000, histogram.countAtOrBelow(Long.MAX_VALUE));
+        assertEquals(8 * 4_999_950_000L, histogram.snapshot().sumNanos());
+    }
+
+    // Test to verify the scrape output is Prometheus text with cumulative buckets and shared series
+    @Test
+    void shouldRenderPrometheusText() {
+        Metrics metrics = new Metrics();
+        LatencyHistogram latency = metrics.histogram("request_seconds", "Request latency", "route", "GET /a");
+        assertSame(latency, metrics.histogram("request_seconds", "Request latency", "route", "GET /a"));
+        latency.record(200_000);
+        latency.record(3_000_000);
+        metrics.counter("responses_total", "Responses", "status", "2xx").add(2);
+        metrics.gauge("users", "Users", () -> 42);
+
+        String text = metrics.scrape();
+
+        assertTrue(text.contains("# TYPE request_seconds histogram\n"));
+        assertTrue(text.contains("request_seconds_bucket{route=\"GET /a\",le=\"1.0E-4\"} 0\n"));
+        assertTrue(text.contains("request_seconds_bucket{route=\"GET /a\",le=\"2.5E-4\"} 1\n"));
+        assertTrue(text.contains("request_seconds_bucket{route=\"GET /a\",le=\"0.005\"} 2\n"));
+        assertTrue(text.contains("request_seconds_bucket{route=\"GET /a\",le=\"+Inf\"} 2\n"));
+        assertTrue(text.contains("request_seconds_sum{route=\"GET /a\"} 0.0032\n"));
+        assertTrue(text.contains("request_seconds_count{route=\"GET /a\"} 2\n"));
+        assertTrue(text.contains("# TYPE responses_total counter\nresponses_total{status=\"2xx\"} 2\n"));
+        assertTrue(text.contains("# TYPE users gauge\nusers 42\n"));
+    }
+
+    // Test to verify samples just under an le bound are counted in that bucket, not only the next one
+    @Test
+    void shouldCountSamplesJustUnderBucketBound() {
+        Metrics metrics = new Metrics();
+        LatencyHistogram latency = metrics.histogram("request_seconds", "Request latency");
+        latency.record(999_000);
+        latency.record(1_000_000);
+        latency.record(1_000_001);
+        latency.record(4_990_000);
+        latency.record(5_000_000);
+
+        String text = metrics.scrape();
+
+        assertTrue(text.contains("request_seconds_bucket{le=\"5.0E-4\"} 0\n"));
+        assertTrue(text.contains("request_seconds_bucket{le=\"0.001\"} 2\n"));
+        assertTrue(text.contains("request_seconds_bucket{le=\"0.0025\"} 3\n"));
+        assertTrue(text.contains("request_seconds_bucket{le=\"0.005\"} 5\n"));
+        assertTrue(text.contains("request_seconds_bucket{le=\"0.01\"} 5\n"));
+
+        LatencyHistogram histogram = new LatencyHistogram(1_000_000);
+        histogram.record(999_000);
+        histogram.record(1_000_001);
+        assertEquals(1, histogram.countAtOrBelow(1_000_000));
+        assertWithinPercent(1_000_001, histogram.valueAtQuantile(1.0), 3);
+    }
+
+    // Test to verify the store decorator times each operation and exports the user count
+    @Test
+    void shouldRecordStoreOperations() {
+        Metrics metrics = new Metrics();
+        UserStore store = new MetricsUserStore(new InMemoryUserStore(), metrics);
+        User created = store.create(new User(UUID.randomUUID(), "John Doe", "john@example.com"));
+        store.findById(created.id());
+        store.findById(UUID.randomUUID());
+
+        String text = metrics.scrape();
+
+        assertTrue(text.contains("user_store_operation_seconds_count{operation=\"create\"} 1\n"));
+        assertTrue(text.contains("user_store_operation_seconds_count{operation=\"findById\"} 2\n"));
+        assertTrue(text.contains("user_store_users 1\n"));
+    }
+
+    // === Benchmarks ===
+
+    // Measures what the instrumentation adds to a store read, in time and allocation, and the raw cost
+    // of recording into a histogram from one thread and from eight contending threads
+    @Test
+    @Tag("perf")
+    void benchmarkInstrumentationOverhead() throws Exception {
+        int reads = Integer.getInteger("perf.metrics.reads", 5_000_000);
+        InMemoryUserStore raw = new InMemoryUserStore();
+        UserStore instrumented = new MetricsUserStore(raw, new Metrics());
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            ids.add(raw.create(new User(UUID.randomUUID(), "User " + i, "user" + i + "@example.com")).id());
+        }
+
+        for (int round = 0; round < 3; round++) {
+            boolean report = round == 2;
+            measureReads("findById", raw, ids, reads, report);
+            measureReads("findById + metrics", instrumented, ids, reads, report);
+        }
+
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int threads : new int[] {1, 8}) {
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            long start = System.nanoTime();
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < reads; i++) {
+                        histogram.record(i & 0xFFFFF);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(5, TimeUnit.MINUTES);
+            }
+            long elapsed = System.nanoTime() - start;
+            executor.shutdown();
+            System.out.printf("record, %d thread(s): %.1f ns/record per thread%n",
+                threads, (double) elapsed / reads);
+        }
+    }
+
+    private static void measureReads(String label, UserStore store, List<UUID> ids, int reads, boolean report) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long found = 0;
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int i = 0; i < reads; i++) {
+            found += store.findById(ids.get(i % ids.size())).isPresent() ? 1 : 0;
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+        assertEquals(reads, found);
+        if (report) {
+            System.out.printf("%-20s %5.1f ns/op, %5.1f bytes/op%n",
+                label, (double) elapsed / reads, (double) allocated / reads);
+        }
+    }
+
+    private static void assertWithinPercent(long expected, long actual, int percent) {
+        assertTrue(Math.abs(actual - expected) <= expected * percent / 100,
+            "expected " + expected + " within " + percent + "% but was " + actual);
+    }
+}
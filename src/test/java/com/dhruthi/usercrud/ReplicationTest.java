@@ -0,0 +1,281 @@
+package com.dhruthi.usercrud;
+
+import com.dhruthi.usercrud.changes.ChangeFeed;
+import com.dhruthi.usercrud.metrics.LatencyHistogram;
+import com.dhruthi.usercrud.metrics.Metrics;
+import com.dhruthi.usercrud.model.User;
+import com.dhruthi.usercrud.model.UserNotFoundException;
+import com.dhruthi.usercrud.replication.ReadOnlyUserStore;
+import com.dhruthi.usercrud.replication.ReplicationFollower;
+import com.dhruthi.usercrud.replication.ReplicationLeader;
+import com.dhruthi.usercrud.store.InMemoryUserStore;
+import com.dhruthi.usercrud.store.UserStore;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.PoolOptions;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.client.HttpResponse;
+import io.vertx.ext.web.client.WebClient;
+import io.vertx.ext.web.client.WebClientOptions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.dhruthi.usercrud.TestSupport.await;
+import static com.dhruthi.usercrud.TestSupport.waitFor;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// A leader and followers on localhost, each node with its own Vert.x instance as if in its own process
+class ReplicationTest {
+
+    private final List<Vertx> nodes = new ArrayList<>();
+    private int followerHttpPort;
+
+    @AfterEach
+    void tearDown() {
+        for (Vertx node : nodes) {
+            await(node.close());
+        }
+    }
+
+    // Test to verify creates, updates and deletes on the leader reach every follower
+    @Test
+    void shouldReplicateMutationsToFollowers() throws UserNotFoundException {
+        Leader leader = startLeader(ChangeFeed.DEFAULT_CAPACITY);
+        InMemoryUserStore first = new InMemoryUserStore();
+        InMemoryUserStore second = new InMemoryUserStore();
+        await(startFollower(leader, first).start());
+        await(startFollower(leader, second).start());
+
+        List<User> created = createUsers(leader.store, 100);
+        for (int i = 0; i < 30; i++) {
+            UUID id = created.get(i).id();
+            leader.store.update(id, UserStore.ANY_VERSION, existing -> new User(id, "Renamed", existing.email()));
+        }
+        for (int i = 30; i < 50; i++) {
+            leader.store.delete(created.get(i).id());
+        }
+
+        waitFor("the followers to converge", () -> sameUsers(leader.store, first) && sameUsers(leader.store, second));
+        assertEquals(80, first.findAll().size());
+        assertEquals("Renamed", second.findById(created.get(0).id()).orElseThrow().name());
+        assertEquals(2, second.findById(created.get(0).id()).orElseThrow().version());
+        assertTrue(second.findByEmail(created.get(10).email()).isPresent());
+    }
+
+    // Test to verify a follower that reconnects gets only what it missed, not a snapshot
+    @Test
+    void shouldCatchUpFromLastSequenceAfterReconnect() throws UserNotFoundException {
+        Leader leader = startLeader(ChangeFeed.DEFAULT_CAPACITY);
+        InMemoryUserStore replica = new InMemoryUserStore();
+        ReplicationFollower follower = startFollower(leader, replica);
+        await(follower.start());
+        List<User> created = createUsers(leader.store, 20);
+        waitFor("the followers to converge", () -> sameUsers(leader.store, replica));
+        long applied = follower.appliedSequence();
+
+        await(follower.stop());
+        createUsers(leader.store, 10);
+        leader.store.delete(created.get(0).id());
+        assertEquals(20, replica.findAll().size());
+
+        await(follower.start());
+        // The store is updated just before the sequence number, so wait for both
+        waitFor("the followers to converge", () -> follower.appliedSequence() == applied + 11 && sameUsers(leader.store, replica));
+        assertEquals(0, follower.snapshotsLoaded());
+    }
+
+    // Test to verify a follower further behind than the leader's log is resynchronized from a snapshot
+    @Test
+    void shouldResyncFromSnapshotWhenLogNoLongerCoversFollower() throws UserNotFoundException {
+        Leader leader = startLeader(16);
+        InMemoryUserStore replica = new InMemoryUserStore();
+        ReplicationFollower follower = startFollower(leader, replica);
+        await(follower.start());
+        List<User> created = createUsers(leader.store, 10);
+        waitFor("the followers to converge", () -> sameUsers(leader.store, replica));
+
+        await(follower.stop());
+        for (int i = 0; i < 5; i++) {
+            leader.store.delete(created.get(i).id());
+        }
+        createUsers(leader.store, 40);
+
+        await(follower.start());
+        waitFor("the followers to converge", () -> follower.snapshotsLoaded() == 1 && sameUsers(leader.store, replica));
+        assertEquals(45, replica.findAll().size());
+    }
+
+    // Test to verify a follower of a leader that restarted is resynchronized from a snapshot, even though its
+    // sequence number is within the new run's numbering, and stops reporting the old run's position
+    @Test
+    void shouldResyncFromSnapshotWhenLeaderRestarts() throws UserNotFoundException {
+        Leader leader = startLeader(ChangeFeed.DEFAULT_CAPACITY);
+        InMemoryUserStore replica = new InMemoryUserStore();
+        ReplicationFollower follower = startFollower(leader, replica);
+        await(follower.start());
+        createUsers(leader.store, 20);
+        waitFor("the followers to converge", () -> follower.appliedSequence() == 20 && sameUsers(leader.store, replica));
+        assertEquals(0, follower.snapshotsLoaded());
+
+        await(follower.stop());
+        Vertx oldLeader = nodes.remove(0);
+        await(oldLeader.close());
+        Leader restarted = startLeader(ChangeFeed.DEFAULT_CAPACITY, leader.port);
+        List<User> created = createUsers(restarted.store, 30);
+        restarted.store.delete(created.get(0).id());
+
+        await(follower.start());
+        waitFor("the followers to converge", () -> follower.snapshotsLoaded() == 1 && sameUsers(restarted.store, replica));
+        assertEquals(29, replica.findAll().size());
+        waitFor("the followers to converge", () -> follower.appliedSequence() == 31);
+        assertEquals(0, follower.pendingMutations());
+    }
+
+    // Test to verify a follower node serves replicated reads over HTTP and refuses writes
+    @Test
+    void followerShouldServeReadsAndRefuseWrites() {
+        Leader leader = startLeader(ChangeFeed.DEFAULT_CAPACITY);
+        InMemoryUserStore replica = new InMemoryUserStore();
+        await(startFollower(leader, replica).start());
+        Vertx followerNode = nodes.get(nodes.size() - 1);
+        followerHttpPort = await(Main.deploy(followerNode, UserVerticle.Options.builder(
+            Main.asyncStore(followerNode, new ReadOnlyUserStore(replica), 0)).port(0).build(), 1)).port();
+
+        User user = createUsers(leader.store, 1).get(0);
+        waitFor("the followers to converge", () -> replica.findById(user.id()).isPresent());
+
+        WebClient client = WebClient.create(followerNode);
+        HttpResponse<?> read = await(client.get(followerHttpPort, "localhost", "/users/" + user.id()).send());
+        assertEquals(200, read.statusCode());
+        assertEquals(user.email(), read.bodyAsJsonObject().getString("email"));
+
+        HttpResponse<?> write = await(client.post(followerHttpPort, "localhost", "/users")
+            .sendJsonObject(new JsonObject().put("name", "Someone").put("email", "someone@example.com")));
+        assertEquals(503, write.statusCode());
+    }
+
+    // Reports replication lag while the leader takes writes, and GET /users/:id throughput of a follower
+    @Test
+    @Tag("perf")
+    void shouldReportReplicationLagAndFollowerReadThroughput() {
+        int users = Integer.getInteger("perf.replication.users", 100_000);
+        Leader leader = startLeader(ChangeFeed.DEFAULT_CAPACITY);
+        InMemoryUserStore replica = new InMemoryUserStore();
+        Metrics followerMetrics = new Metrics();
+        ReplicationFollower follower = new ReplicationFollower(newNode(), replica, "localhost", leader.port,
+            followerMetrics);
+        await(follower.start());
+
+        long start = System.nanoTime();
+        List<User> created = createUsers(leader.store, users);
+        long writeNanos = System.nanoTime() - start;
+        waitFor("the followers to converge", () -> replica.findAll().size() == users);
+        long caughtUpNanos = System.nanoTime() - start;
+
+        LatencyHistogram lag = followerMetrics.histogram("replication_lag_seconds",
+            "Time from a mutation on the leader to its application on this follower");
+        System.out.printf("Replicated %d creates: leader wrote them in %d ms, follower caught up after %d ms%n",
+            users, TimeUnit.NANOSECONDS.toMillis(writeNanos), TimeUnit.NANOSECONDS.toMillis(caughtUpNanos));
+        System.out.printf("Replication lag: p50 %.1f ms, p99 %.1f ms, max %.1f ms%n",
+            lag.valueAtQuantile(0.5) / 1e6, lag.valueAtQuantile(0.99) / 1e6, lag.valueAtQuantile(1.0) / 1e6);
+
+        Vertx followerNode = nodes.get(nodes.size() - 1);
+        followerHttpPort = await(Main.deploy(followerNode, UserVerticle.Options.builder(
+            Main.asyncStore(followerNode, new ReadOnlyUserStore(replica), 0)).port(0).build(),
+            Runtime.getRuntime().availableProcessors())).port();
+        int requests = 50_000;
+        double rps = measureReads(followerNode, created, requests);
+        System.out.printf("Follower GET /users/:id throughput: %.0f req/s%n", rps);
+        assertTrue(rps > 0);
+    }
+
+    private double measureReads(Vertx node, List<User> users, int requests) {
+        int concurrency = 64;
+        WebClient client = WebClient.create(node, new WebClientOptions(),
+            new PoolOptions().setHttp1MaxSize(concurrency));
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger failures = new AtomicInteger();
+        long start = System.nanoTime();
+        List<Future<Void>> lanes = new ArrayList<>();
+        for (int lane = 0; lane < concurrency; lane++) {
+            lanes.add(readLoop(client, users, requests, next, failures));
+        }
+        await(Future.all(lanes));
+        double seconds = (System.nanoTime() - start) / 1e9;
+        assertEquals(0, failures.get());
+        return requests / seconds;
+    }
+
+    private Future<Void> readLoop(WebClient client, List<User> users, int requests, AtomicInteger next,
+                                  AtomicInteger failures) {
+        int index = next.getAndIncrement();
+        if (index >= requests) {
+            return Future.succeededFuture();
+        }
+        String path = "/users/" + users.get(index % users.size()).id();
+        return client.get(followerHttpPort, "localhost", path).send()
+            .compose(response -> {
+                if (response.statusCode() != 200) {
+                    failures.incrementAndGet();
+                }
+                return readLoop(client, users, requests, next, failures);
+            });
+    }
+
+    private Leader startLeader(int feedCapacity) {
+        return startLeader(feedCapacity, 0);
+    }
+
+    private Leader startLeader(int feedCapacity, int port) {
+        Vertx node = newNode();
+        InMemoryUserStore store = new InMemoryUserStore();
+        ChangeFeed changes = new ChangeFeed(feedCapacity);
+        store.addListener(changes);
+        int bound = await(new ReplicationLeader(node, store, changes).listen(port));
+        return new Leader(store, bound);
+    }
+
+    private ReplicationFollower startFollower(Leader leader, InMemoryUserStore replica) {
+        return new ReplicationFollower(newNode(), replica, "localhost", leader.port, new Metrics());
+    }
+
+    private Vertx newNode() {
+        Vertx node = Vertx.vertx();
+        nodes.add(node);
+        return node;
+    }
+
+    private static List<User> createUsers(UserStore store, int count) {
+        List<User> created = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String unique = UUID.randomUUID().toString();
+            created.add(store.create(new User(UUID.randomUUID(), "User " + i, unique + "@example.com")));
+        }
+        return created;
+    }
+
+    private static boolean sameUsers(UserStore expected, UserStore actual) {
+        Map<UUID, User> users = new HashMap<>();
+        for (User user : expected.findAll()) {
+            users.put(user.id(), user);
+        }
+        Map<UUID, User> replicated = new HashMap<>();
+        for (User user : actual.findAll()) {
+            replicated.put(user.id(), user);
+        }
+        return users.equals(replicated);
+    }
+
+    private record Leader(InMemoryUserStore store, int port) {
+    }
+}
@@ -0,0 +1,204 @@
+package com.dhruthi.usercrud;
+
+import com.dhruthi.usercrud.model.User;
+import com.dhruthi.usercrud.store.InMemoryUserStore;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpVersion;
+import io.vertx.core.http.PoolOptions;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.client.HttpResponse;
+import io.vertx.ext.web.client.WebClient;
+import io.vertx.ext.web.client.WebClientOptions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static com.dhruthi.usercrud.TestSupport.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Transport settings: how they are read, and the server they set up, over HTTP/1.1 and HTTP/2
+class ServerConfigTest {
+
+    private Vertx vertx;
+    private InMemoryUserStore store;
+    private int port;
+
+    @TempDir
+    Path dir;
+
+    @BeforeEach
+    void setUp() {
+        vertx = Vertx.vertx(ServerConfig.DEFAULT.vertxOptions());
+        store = new InMemoryUserStore();
+    }
+
+    @AfterEach
+    void tearDown() {
+        await(vertx.close());
+    }
+
+    // Test to verify settings come from the config file, the environment wins over it, and invalid values
+    // fall back to the defaults
+    @Test
+    void shouldReadSettingsFromConfigFileAndEnvironment() throws IOException {
+        Path file = dir.resolve("user-service.env");
+        Files.writeString(file, """
+            # Transport tuning
+            USER_SERVICE_HTTP2=false
+            USER_SERVICE_EVENT_LOOPS=4
+            USER_SERVICE_COMPRESSION=on
+            USER_SERVICE_ACCEPT_BACKLOG=lots
+            """);
+
+        Map<String, String> settings = ServerConfig.loadSettings(Map.of(
+            ServerConfig.CONFIG_FILE_ENV, file.toString(),
+            ServerConfig.EVENT_LOOPS_ENV, "2"));
+        ServerConfig config = ServerConfig.from(settings);
+
+        assertFalse(config.http2());
+        assertEquals(2, config.eventLoops());
+        assertTrue(config.compression());
+        assertEquals(ServerConfig.DEFAULT.acceptBacklog(), config.acceptBacklog());
+        assertEquals(ServerConfig.DEFAULT.tcpNoDelay(), config.tcpNoDelay());
+        assertEquals(2, config.vertxOptions().getEventLoopPoolSize());
+        assertEquals(ServerConfig.DEFAULT, ServerConfig.from(ServerConfig.loadSettings(Map.of())));
+    }
+
+    // Test to verify a client speaking HTTP/2 over cleartext with prior knowledge is served over HTTP/2
+    @Test
+    void shouldServeHttp2OverCleartext() {
+        deploy(ServerConfig.DEFAULT);
+        WebClient client = WebClient.create(vertx, new WebClientOptions()
+            .setProtocolVersion(HttpVersion.HTTP_2)
+            .setHttp2ClearTextUpgrade(false));
+
+        HttpResponse<?> created = await(client.post(port, "localhost", "/users")
+            .sendJsonObject(new JsonObject().put("name", "Ada").put("email", "ada@example.com")));
+        HttpResponse<?> found = await(client.get(port, "localhost", created.getHeader("Location")).send());
+
+        assertEquals(201, created.statusCode());
+        assertEquals(HttpVersion.HTTP_2, created.version());
+        assertEquals(200, found.statusCode());
+        assertEquals("ada@example.com", found.bodyAsJsonObject().getString("email"));
+    }
+
+    // Test to verify with compression on, a page of users is gzipped but a single user, below the
+    // threshold, is not
+    @Test
+    void shouldCompressOnlyResponsesAboveTheThreshold() {
+        ServerConfig config = ServerConfig.from(Map.of(ServerConfig.COMPRESSION_ENV, "true"));
+        deploy(config);
+        UUID id = null;
+        for (int i = 0; i < 50; i++) {
+            id = store.create(new User(UUID.randomUUID(), "User " + i, "user" + i + "@example.com")).id();
+        }
+        WebClient client = WebClient.create(vertx);
+
+        HttpResponse<?> page = await(client.get(port, "localhost", "/users?limit=50")
+            .putHeader("Accept-Encoding", "gzip").send());
+        HttpResponse<?> single = await(client.get(port, "localhost", "/users/" + id)
+            .putHeader("Accept-Encoding", "gzip").send());
+
+        assertEquals(200, page.statusCode());
+        assertEquals("gzip", page.getHeader("Content-Encoding"));
+        assertEquals(200, single.statusCode());
+        assertNull(single.getHeader("Content-Encoding"));
+        assertEquals("user49@example.com", single.bodyAsJsonObject().getString("email"));
+    }
+
+    // Compares GET /users/:id and POST /users throughput over HTTP/1.1 keep-alive connections, one request
+    // in flight per connection, with HTTP/2 multiplexing the same number of requests over a few connections
+    @Test
+    @Tag("perf")
+    void benchmarkHttp1AgainstHttp2() {
+        int requests = Integer.getInteger("perf.transport.requests", 100_000);
+        int concurrency = Integer.getInteger("perf.transport.concurrency", 128);
+        int http2Connections = Integer.getInteger("perf.transport.http2Connections", 4);
+        deploy(ServerConfig.from(Map.of(ServerConfig.HTTP2_MAX_STREAMS_ENV, String.valueOf(concurrency))),
+            Runtime.getRuntime().availableProcessors());
+        List<String> paths = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            paths.add("/users/" + store.create(new User(UUID.randomUUID(), "User " + i, "user" + i + "@example.com")).id());
+        }
+
+        WebClient http1 = WebClient.create(vertx, new WebClientOptions().setKeepAlive(true),
+            new PoolOptions().setHttp1MaxSize(concurrency));
+        WebClient http2 = WebClient.create(vertx, new WebClientOptions()
+                .setProtocolVersion(HttpVersion.HTTP_2)
+                .setHttp2ClearTextUpgrade(false)
+                .setHttp2MultiplexingLimit(concurrency / http2Connections),
+            new PoolOptions().setHttp2MaxSize(http2Connections));
+
+        System.out.printf("%s transport, %d requests in flight, HTTP/2 over %d connections%n",
+            vertx.isNativeTransportEnabled() ? "Native" : "NIO", concurrency, http2Connections);
+        System.out.printf("%-10s %-16s %12s%n", "protocol", "endpoint", "req/s");
+        for (int round = 0; round < 2; round++) {
+            boolean report = round == 1;
+            for (String protocol : List.of("HTTP/1.1", "HTTP/2")) {
+                WebClient client = protocol.equals("HTTP/1.1") ? http1 : http2;
+                double reads = measure(concurrency, requests, i -> client.get(port, "localhost",
+                    paths.get(i % paths.size())).send());
+                double writes = measure(concurrency, requests / 4, i -> client.post(port, "localhost", "/users")
+                    .sendJsonObject(new JsonObject().put("name", "Load " + i).put("email", UUID.randomUUID() + "@example.com")));
+                if (report) {
+                    System.out.printf("%-10s %-16s %12.0f%n", protocol, "GET /users/:id", reads);
+                    System.out.printf("%-10s %-16s %12.0f%n", protocol, "POST /users", writes);
+                }
+            }
+        }
+    }
+
+    // Requests per second with the given number of requests in flight until all of them have been sent
+    private double measure(int concurrency, int requests, Function<Integer, Future<? extends HttpResponse<?>>> send) {
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger failures = new AtomicInteger();
+        long start = System.nanoTime();
+        List<Future<Void>> lanes = new ArrayList<>();
+        for (int lane = 0; lane < concurrency; lane++) {
+            lanes.add(lane(requests, next, failures, send));
+        }
+        await(Future.all(lanes));
+        double seconds = (System.nanoTime() - start) / 1e9;
+        assertEquals(0, failures.get());
+        return requests / seconds;
+    }
+
+    private Future<Void> lane(int requests, AtomicInteger next, AtomicInteger failures,
+                              Function<Integer, Future<? extends HttpResponse<?>>> send) {
+        int index = next.getAndIncrement();
+        if (index >= requests) {
+            return Future.succeededFuture();
+        }
+        return send.apply(index).compose(response -> {
+            if (response.statusCode() >= 300) {
+                failures.incrementAndGet();
+            }
+            return lane(requests, next, failures, send);
+        });
+    }
+
+    private void deploy(ServerConfig config) {
+        deploy(config, 1);
+    }
+
+    private void deploy(ServerConfig config, int instances) {
+        port = await(Main.deploy(vertx, UserVerticle.Options.builder(store).port(0).limiter(null).server(config).build(),
+            instances)).port();
+    }
+}
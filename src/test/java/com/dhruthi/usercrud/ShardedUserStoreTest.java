@@ -0,0 +1,200 @@
+package com.dhruthi.usercrud;
+
+import com.dhruthi.usercrud.model.EncodedUser;
+import com.dhruthi.usercrud.model.User;
+import com.dhruthi.usercrud.model.UserNotFoundException;
+import com.dhruthi.usercrud.store.AsyncUserStore;
+import com.dhruthi.usercrud.store.ShardedUserStore;
+import com.dhruthi.usercrud.store.UserStore;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.UnaryOperator;
+
+import static com.dhruthi.usercrud.TestSupport.await;
+import static com.dhruthi.usercrud.TestSupport.awaitChecked;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Runs every UserStoreTest case against a ShardedUserStore with four partitions, called from test threads
+// through a blocking adapter, plus checks of the cross-partition email index
+class ShardedUserStoreTest extends UserStoreTest {
+
+    private static final int PARTITIONS = 4;
+
+    private final List<Vertx> vertxInstances = new ArrayList<>();
+
+    @Override
+    UserStore createStore() {
+        return new BlockingUserStore(createShardedStore());
+    }
+
+    @AfterEach
+    void tearDown() {
+        for (Vertx vertx : vertxInstances) {
+            await(vertx.close());
+        }
+    }
+
+    private ShardedUserStore createShardedStore() {
+        Vertx vertx = Vertx.vertx(new VertxOptions().setEventLoopPoolSize(PARTITIONS));
+        vertxInstances.add(vertx);
+        return await(ShardedUserStore.create(vertx, PARTITIONS));
+    }
+
+    // Test to verify users are spread over every partition and all of them are paged through
+    @Test
+    void shouldSpreadUsersOverPartitions() {
+        ShardedUserStore sharded = createShardedStore();
+        UserStore store = new BlockingUserStore(sharded);
+        for (int i = 0; i < 1000; i++) {
+            store.create(new User(UUID.randomUUID(), "User " + i, "user" + i + "@example.com"));
+        }
+
+        assertEquals(1000, sharded.size());
+        assertEquals(1000, store.findAll().size());
+        List<User> page = store.findPage(null, 10);
+        for (int i = 1; i < page.size(); i++) {
+            assertTrue(page.get(i - 1).id().compareTo(page.get(i).id()) < 0);
+        }
+    }
+
+    // Test to verify a batch lookup spanning every partition returns the users found in the order asked for
+    @Test
+    void shouldFindAllByIdAcrossPartitionsInRequestOrder() {
+        ShardedUserStore store = createShardedStore();
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            ids.add(await(store.create(new User(UUID.randomUUID(), "User " + i, "user" + i + "@example.com"))).id());
+        }
+        List<UUID> requested = new ArrayList<>(ids.subList(0, 40));
+        Collections.reverse(requested);
+        requested.add(5, UUID.randomUUID());
+
+        Map<UUID, User> found = await(store.findAllById(requested));
+        List<UUID> expected = new ArrayList<>(requested);
+        expected.remove(5);
+        assertEquals(expected, new ArrayList<>(found.keySet()));
+    }
+
+    // Test to verify startup refuses to make a sharded node a replication leader and reports the other
+    // settings the sharded store does not honour, instead of silently dropping them
+    @Test
+    void shouldRefuseOrReportSettingsTheShardedStoreIgnores() {
+        assertThrows(IllegalArgumentException.class, () -> Main.checkShardedSettings(
+            Map.of(Main.REPLICATION_PORT_ENV, "9090"), ServerConfig.DEFAULT, PARTITIONS));
+
+        Map<String, String> settings = Map.of(
+            Main.CACHE_SIZE_ENV, "10000",
+            Main.STORE_WORKERS_ENV, "4",
+            ServerConfig.EVENT_LOOPS_ENV, "8");
+        assertEquals(List.of(Main.CACHE_SIZE_ENV, Main.STORE_WORKERS_ENV, ServerConfig.EVENT_LOOPS_ENV),
+            Main.checkShardedSettings(settings, ServerConfig.from(settings), PARTITIONS));
+        assertEquals(List.of(), Main.checkShardedSettings(Map.of(), ServerConfig.DEFAULT, PARTITIONS));
+    }
+
+    // Test to verify concurrent email changes of one user leave exactly its final email indexed
+    @Test
+    void shouldKeepEmailIndexConsistentUnderConcurrentEmailChanges() {
+        ShardedUserStore store = createShardedStore();
+        User created = await(store.create(new User(UUID.randomUUID(), "Switcher", "a@example.com")));
+
+        List<Future<User>> updates = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            String email = (i % 2 == 0 ? "b" : "a") + "@example.com";
+            updates.add(store.update(created.id(), UserStore.ANY_VERSION,
+                existing -> new User(existing.id(), existing.name(), email)));
+        }
+        await(Future.all(updates));
+
+        User stored = await(store.findById(created.id())).orElseThrow();
+        assertEquals(201, stored.version());
+        String other = stored.email().equals("a@example.com") ? "b@example.com" : "a@example.com";
+        assertEquals(created.id(), await(store.findByEmail(stored.email())).orElseThrow().id());
+        assertTrue(await(store.findByEmail(other)).isEmpty());
+        // The email that is not held any more must be free to take
+        await(store.create(new User(UUID.randomUUID(), "Newcomer", other)));
+    }
+
+    // UserStore over an AsyncUserStore that waits for every future, rethrowing the store's exceptions
+    private static final class BlockingUserStore implements UserStore {
+
+        private final AsyncUserStore store;
+
+        BlockingUserStore(AsyncUserStore store) {
+            this.store = store;
+        }
+
+        @Override
+        public User create(User user) {
+            return await(store.create(user));
+        }
+
+        @Override
+        public List<User> createAll(List<User> users) {
+            return await(store.createAll(users));
+        }
+
+        @Override
+        public Optional<User> findById(UUID id) {
+            return await(store.findById(id));
+        }
+
+        @Override
+        public Optional<EncodedUser> findEncodedById(UUID id) {
+            return await(store.findEncodedById(id));
+        }
+
+        @Override
+        public Map<UUID, User> findAllById(Collection<UUID> ids) {
+            return await(store.findAllById(ids));
+        }
+
+        @Override
+        public Optional<User> findByEmail(String email) {
+            return await(store.findByEmail(email));
+        }
+
+        @Override
+        public User update(UUID id, long expectedVersion, UnaryOperator<User> change) throws UserNotFoundException {
+            return awaitChecked(store.update(id, expectedVersion, change), UserNotFoundException.class);
+        }
+
+        @Override
+        public void delete(UUID id) throws UserNotFoundException {
+            awaitChecked(store.delete(id), UserNotFoundException.class);
+        }
+
+        @Override
+        public Collection<User> findAll() {
+            List<User> all = new ArrayList<>();
+            List<User> page = findPage(null, 1000);
+            while (!page.isEmpty()) {
+                all.addAll(page);
+                page = findPage(page.get(page.size() - 1).id(), 1000);
+            }
+            return all;
+        }
+
+        @Override
+        public List<User> findPage(UUID after, int limit) {
+            return await(store.findPage(after, limit));
+        }
+
+        @Override
+        public List<User> findByNamePrefix(String prefix, int limit) {
+            return await(store.findByNamePrefix(prefix, limit));
+        }
+    }
+}
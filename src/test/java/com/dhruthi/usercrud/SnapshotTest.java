@@ -0,0 +1,249 @@
+package com.dhruthi.usercrud;
+
+import com.dhruthi.usercrud.model.User;
+import com.dhruthi.usercrud.model.UserNotFoundException;
+import com.dhruthi.usercrud.store.CloseableIterator;
+import com.dhruthi.usercrud.store.InMemoryUserStore;
+import com.dhruthi.usercrud.store.MutationType;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.dhruthi.usercrud.TestSupport.waitFor;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Point-in-time snapshots of the in-memory store, and reclaiming the versions they kept
+class SnapshotTest {
+
+    // Test to verify a snapshot keeps seeing the store as of its commit while users are changed
+    @Test
+    void shouldSeeStoreAsOfItsCommit() throws UserNotFoundException {
+        InMemoryUserStore store = new InMemoryUserStore();
+        User ada = store.create(new User("Ada", "ada@example.com"));
+        User grace = store.create(new User("Grace", "grace@example.com"));
+
+        try (InMemoryUserStore.Snapshot snapshot = store.snapshot()) {
+            store.update(ada.id(), new User(ada.id(), "Ada Lovelace", "ada@example.com"));
+            store.delete(grace.id());
+            User alan = store.create(new User("Alan", "alan@example.com"));
+
+            assertEquals(List.of(ada, grace), snapshot.findPage(null, 10));
+            assertEquals(List.of(grace), snapshot.findPage(ada.id(), 10));
+            assertEquals("Ada", snapshot.findById(ada.id()).orElseThrow().name());
+            assertTrue(snapshot.findById(alan.id()).isEmpty());
+
+            assertEquals(List.of("Ada Lovelace", "Alan"), store.findAll().stream().map(User::name).toList());
+            assertTrue(store.findById(grace.id()).isEmpty());
+        }
+    }
+
+    // Test to verify a snapshot can be opened at an earlier commit while its versions are still kept
+    @Test
+    void shouldOpenSnapshotAtEarlierCommit() throws UserNotFoundException {
+        InMemoryUserStore store = new InMemoryUserStore();
+        User ada = store.create(new User("Ada", "ada@example.com"));
+        long before = store.commitSequence();
+
+        InMemoryUserStore.Snapshot pin = store.snapshot();
+        store.update(ada.id(), new User(ada.id(), "Ada Lovelace", "ada@example.com"));
+        assertEquals(before + 1, store.commitSequence());
+        assertThrows(IllegalArgumentException.class, () -> store.snapshotAt(store.commitSequence() + 1));
+
+        try (InMemoryUserStore.Snapshot earlier = store.snapshotAt(before)) {
+            assertEquals("Ada", earlier.findById(ada.id()).orElseThrow().name());
+        }
+        pin.close();
+        waitFor("old versions to be reclaimed", () -> store.retainedVersions() == 0);
+
+        assertThrows(IllegalArgumentException.class, () -> store.snapshotAt(before));
+        assertThrows(IllegalStateException.class, () -> pin.findById(ada.id()));
+    }
+
+    // Test to verify superseded versions and tombstones are kept while a snapshot needs them, then reclaimed
+    @Test
+    void shouldReclaimVersionsOnceNoSnapshotSeesThem() throws UserNotFoundException {
+        InMemoryUserStore store = new InMemoryUserStore();
+        List<User> created = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            created.add(store.create(new User("User " + i, "user" + i + "@example.com")));
+        }
+
+        InMemoryUserStore.Snapshot snapshot = store.snapshot();
+        for (int round = 1; round <= 30; round++) {
+            for (User user : created) {
+                store.update(user.id(), new User(user.id(), "Round " + round, user.email()));
+            }
+        }
+        for (User user : created.subList(0, 50)) {
+            store.delete(user.id());
+        }
+
+        // 30 superseded versions of each user, plus a deleted version and a tombstone for half of them
+        assertEquals(100 * 30 + 50 * 2, store.retainedVersions());
+        assertEquals(created, snapshot.findPage(null, 1000));
+
+        snapshot.close();
+        waitFor("old versions to be reclaimed", () -> store.retainedVersions() == 0);
+        assertEquals(50, store.findAll().size());
+        assertEquals(created.subList(50, 100).stream().map(User::id).toList(),
+            store.findPage(null, 1000).stream().map(User::id).toList());
+    }
+
+    // Test to verify a findAll iteration given up halfway releases its snapshot once closed, instead of
+    // holding back reclaiming until it is garbage collected
+    @Test
+    void shouldReleaseSnapshotOfClosedIteration() throws UserNotFoundException {
+        InMemoryUserStore store = new InMemoryUserStore();
+        User ada = store.create(new User("Ada", "ada@example.com"));
+        store.create(new User("Grace", "grace@example.com"));
+
+        Iterator<User> users = store.findAll().iterator();
+        assertEquals(ada, users.next());
+        store.update(ada.id(), new User(ada.id(), "Ada Lovelace", "ada@example.com"));
+        assertEquals(1, store.retainedVersions());
+
+        assertTrue(users instanceof CloseableIterator);
+        CloseableIterator.closeIfNeeded(users);
+        assertTrue(!users.hasNext());
+        waitFor("old versions to be reclaimed", () -> store.retainedVersions() == 0);
+    }
+
+    // Test to verify full scans see one consistent cut of the store while every user is being rewritten.
+    // Each writer renames its users in id order, round after round, so at any single commit a group reads
+    // as a run of round r followed by a run of round r - 1. A scan mixing moments sees other patterns.
+    @Test
+    void shouldScanConsistentlyWhileUpdatesRace() throws Exception {
+        int groups = 4;
+        int perGroup = 500;
+        InMemoryUserStore store = new InMemoryUserStore();
+        Map<UUID, Integer> groupOf = new HashMap<>();
+        List<List<User>> members = new ArrayList<>();
+        for (int g = 0; g < groups; g++) {
+            List<User> group = new ArrayList<>();
+            for (int i = 0; i < perGroup; i++) {
+                User user = store.create(new User("0", "g" + g + "-" + i + "@example.com"));
+                group.add(user);
+                groupOf.put(user.id(), g);
+            }
+            members.add(group);
+        }
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        ExecutorService writers = Executors.newFixedThreadPool(groups);
+        try {
+            List<Future<Integer>> rounds = new ArrayList<>();
+            for (List<User> group : members) {
+                rounds.add(writers.submit(() -> {
+                    int round = 0;
+                    while (running.get()) {
+                        round++;
+                        for (User user : group) {
+                            store.update(user.id(), new User(user.id(), Integer.toString(round), user.email()));
+                        }
+                    }
+                    return round;
+                }));
+            }
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(3);
+            int scans = 0;
+            while (scans < 20 || System.nanoTime() < deadline) {
+                List<List<Integer>> seen = new ArrayList<>();
+                for (int g = 0; g < groups; g++) {
+                    seen.add(new ArrayList<>());
+                }
+                for (User user : store.findAll()) {
+                    seen.get(groupOf.get(user.id())).add(Integer.parseInt(user.name()));
+                }
+                for (List<Integer> group : seen) {
+                    assertEquals(perGroup, group.size());
+                    assertConsistentCut(group);
+                }
+                scans++;
+            }
+            running.set(false);
+            for (Future<Integer> round : rounds) {
+                assertTrue(round.get(30, TimeUnit.SECONDS) > 1, "every writer went round more than once");
+            }
+        } finally {
+            running.set(false);
+            writers.shutdownNow();
+        }
+        waitFor("old versions to be reclaimed", () -> store.retainedVersions() < 2 * 1024 * groups);
+    }
+
+    // Test to verify listeners only hear of a write once it is committed: in commit order, with a snapshot
+    // at that commit already possible and reads already showing the change
+    @Test
+    void shouldNotifyListenersOnceCommitted() throws Exception {
+        int writers = 4;
+        int perWriter = 2_000;
+        InMemoryUserStore store = new InMemoryUserStore();
+        List<String> failures = Collections.synchronizedList(new ArrayList<>());
+        AtomicLong lastNotified = new AtomicLong();
+        store.addListener((type, user, commit) -> {
+            if (commit <= lastNotified.getAndSet(commit)) {
+                failures.add("commit " + commit + " was published out of order");
+            }
+            if (store.commitSequence() < commit) {
+                failures.add("commit " + commit + " was published before it was stable");
+            }
+            long stored = store.findById(user.id()).map(User::version).orElse(Long.MAX_VALUE);
+            if (type != MutationType.DELETE && stored < user.version()) {
+                failures.add("version " + user.version() + " was published before reads saw it");
+            }
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int w = 0; w < writers; w++) {
+                int writer = w;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < perWriter; i++) {
+                        User user = store.create(new User("User", "w" + writer + "-" + i + "@example.com"));
+                        store.update(user.id(), new User(user.id(), "Renamed", user.email()));
+                        if (i % 2 == 0) {
+                            store.delete(user.id());
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(List.of(), failures);
+        assertEquals(store.commitSequence(), lastNotified.get());
+    }
+
+    // A group's rounds in id order must be r, ..., r, r - 1, ..., r - 1
+    private static void assertConsistentCut(List<Integer> rounds) {
+        int first = rounds.get(0);
+        boolean dropped = false;
+        for (int round : rounds) {
+            if (round == first - 1 && !dropped) {
+                dropped = true;
+            } else if (round != (dropped ? first - 1 : first)) {
+                throw new AssertionError("Scan saw rounds " + rounds + " that no single commit had");
+            }
+        }
+    }
+}
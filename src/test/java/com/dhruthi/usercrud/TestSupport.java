@@ -0,0 +1,62 @@
+package com.dhruthi.usercrud;
+
+import io.vertx.core.Future;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+// Waiting helpers shared by the tests, which drive Vert.x and the stores from the JUnit thread
+final class TestSupport {
+
+    private static final long AWAIT_SECONDS = 60;
+    private static final long WAIT_FOR_SECONDS = 30;
+
+    private TestSupport() {
+    }
+
+    // The future's result, or its failure rethrown as is when unchecked
+    static <T> T await(Future<T> future) {
+        return awaitChecked(future, RuntimeException.class);
+    }
+
+    // The future's result, or its failure rethrown as is when unchecked or of the given checked type
+    static <T, E extends Exception> T awaitChecked(Future<T> future, Class<E> checked) throws E {
+        try {
+            return future.toCompletionStage().toCompletableFuture().get(AWAIT_SECONDS, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (checked.isInstance(cause)) {
+                throw checked.cast(cause);
+            }
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new AssertionError(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AssertionError(e);
+        } catch (Exception e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    // Polls until the condition holds, failing the test with what was awaited once it times out
+    static void waitFor(String what, BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(WAIT_FOR_SECONDS);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("Timed out waiting for " + what);
+            }
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AssertionError(e);
+            }
+        }
+    }
+}
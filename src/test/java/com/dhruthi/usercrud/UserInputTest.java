@@ -0,0 +1,109 @@
+package com.dhruthi.usercrud;
+
+import com.dhruthi.usercrud.model.InvalidInputException;
+import com.dhruthi.usercrud.model.UserInput;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.IntUnaryOperator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UserInputTest {
+
+    // Test to verify the streaming parse reads the same name and email as JsonObject, skipping other fields
+    @Test
+    void shouldParseLikeJsonObject() {
+        List<String> bodies = List.of(
+            "{\"name\":\"John Doe\",\"email\":\"john@example.com\"}",
+            "  {\"email\" : \"a/b@example.com\", \"name\" : \"Quote \\\" and \\\\ \\u00e9\\ud83d\\ude00\"}\n",
+            "{\"id\":\"ignored\",\"tags\":[1,{\"x\":[]}],\"meta\":{\"name\":\"nested\"},\"name\":\"Ada\",\"email\":null}",
+            "{\"name\":\"First\",\"name\":\"Last\"}",
+            "{\"name\":\"Zo\u00eb \u65e5\u672c\"}",
+            "{}");
+
+        for (String body : bodies) {
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            JsonObject expected = new JsonObject(Buffer.buffer(bytes));
+            UserInput input = UserInput.parse(bytes);
+            assertEquals(expected.getString("name"), input.name(), body);
+            assertEquals(expected.getString("email"), input.email(), body);
+        }
+        assertNull(UserInput.parse("{\"email\":\"x@example.com\"}".getBytes(StandardCharsets.UTF_8)).name());
+    }
+
+    // Test to verify bodies that are not one JSON object with string fields are rejected with a client message
+    @Test
+    void shouldRejectInvalidBodies() {
+        assertEquals("Request body must be valid JSON", reject(""));
+        assertEquals("Request body must be valid JSON", reject("{\"name\":"));
+        assertEquals("Request body must be valid JSON", reject("not json"));
+        assertEquals("Request body must be valid JSON", reject("{\"name\":\"a\"} trailing"));
+        assertEquals("Request body must be a JSON object", reject("[{\"name\":\"a\"}]"));
+        assertEquals("Request body must be a JSON object", reject("\"name\""));
+        assertEquals("Request body must be a single JSON object", reject("{} {}"));
+        assertEquals("'name' must be a string", reject("{\"name\":42,\"email\":\"a@example.com\"}"));
+        assertEquals("'email' must be a string", reject("{\"name\":\"a\",\"email\":[\"a@example.com\"]}"));
+    }
+
+    // === Benchmarks ===
+
+    // Compares time and bytes allocated per request body for decoding a JsonObject and picking the
+    // fields out of it, as the create and update-email handlers used to, against the streaming parse
+    @Test
+    @Tag("perf")
+    void benchmarkParsePerRequest() {
+        int parses = Integer.getInteger("perf.input.parses", 2_000_000);
+        byte[] create = "{\"name\":\"Dhruthi SM\",\"email\":\"dhruthism@example.com\"}".getBytes(StandardCharsets.UTF_8);
+        byte[] update = "{\"email\":\"dhruthi.new@example.com\"}".getBytes(StandardCharsets.UTF_8);
+
+        long[] sink = new long[1];
+        IntUnaryOperator createTree = i -> {
+            JsonObject body = new JsonObject(Buffer.buffer(create));
+            return body.getString("name").length() + body.getString("email").length();
+        };
+        IntUnaryOperator createStreaming = i -> {
+            UserInput body = UserInput.parse(create);
+            return body.name().length() + body.email().length();
+        };
+        IntUnaryOperator updateTree = i -> new JsonObject(Buffer.buffer(update)).getString("email").length();
+        IntUnaryOperator updateStreaming = i -> UserInput.parse(update).email().length();
+
+        for (int round = 0; round < 2; round++) {
+            measure("create JsonObject", createTree, parses, sink, round == 1);
+            measure("create UserInput", createStreaming, parses, sink, round == 1);
+            measure("update JsonObject", updateTree, parses, sink, round == 1);
+            measure("update UserInput", updateStreaming, parses, sink, round == 1);
+        }
+        assertTrue(sink[0] > 0);
+    }
+
+    private static String reject(String body) {
+        return assertThrows(InvalidInputException.class,
+            () -> UserInput.parse(body.getBytes(StandardCharsets.UTF_8)), body).getMessage();
+    }
+
+    private static void measure(String label, IntUnaryOperator parse, int parses, long[] sink, boolean report) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int i = 0; i < parses; i++) {
+            sink[0] += parse.applyAsInt(i);
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+        if (report) {
+            System.out.printf("%-18s %6.1f bytes/parse, %5.0f ns/parse%n",
+                label, (double) allocated / parses, (double) elapsed / parses);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.dhruthi.usercrud;
+
+import com.dhruthi.usercrud.model.User;
+import com.dhruthi.usercrud.model.UserJson;
+import com.dhruthi.usercrud.model.UserNotFoundException;
+import com.dhruthi.usercrud.store.InMemoryUserStore;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.IntUnaryOperator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UserJsonTest {
+
+    // Test to verify the encoding matches JsonObject, including characters that need escaping
+    @Test
+    void shouldEncodeLikeJsonObject() {
+        List<User> users = List.of(
+            new User(UUID.randomUUID(), "John Doe", "john@example.com"),
+            new User(new UUID(0, 0), "Quote \" and \\ backslash", "a/b@example.com"),
+            new User(new UUID(-1, -1), "Tab\tnew\nline\r\u0001\u001f\b\f", "x@example.com"),
+            new User(UUID.randomUUID(), "Zo\u00eb \u00dcn\u00efc\u00f6d\u00e9 \u65e5\u672c \ud83d\ude00", "zoe@example.com"));
+
+        for (User user : users) {
+            assertEquals(json(user).encode(), new String(UserJson.encode(user), StandardCharsets.UTF_8));
+        }
+    }
+
+    // Test to verify the cached encoding is replaced when the user is updated
+    @Test
+    void shouldRefreshCachedJsonOnUpdate() throws UserNotFoundException {
+        InMemoryUserStore store = new InMemoryUserStore();
+        User created = store.create(new User(UUID.randomUUID(), "John Doe", "john@example.com"));
+        store.update(created.id(), new User(created.id(), "John Doe", "john.new@example.com"));
+
+        JsonObject cached = new JsonObject(Buffer.buffer(store.findEncodedById(created.id()).orElseThrow().json()));
+        assertEquals("john.new@example.com", cached.getString("email"));
+
+        store.delete(created.id());
+        assertTrue(store.findEncodedById(created.id()).isEmpty());
+    }
+
+    // === Benchmarks ===
+
+    // Compares bytes allocated per read for building the response body from a JsonObject, as GET /users/:id
+    // used to, against copying the encoding cached in the store into a buffer as it does now
+    @Test
+    @Tag("perf")
+    void benchmarkAllocationPerRead() {
+        int count = 10_000;
+        int reads = Integer.getInteger("perf.json.reads", 2_000_000);
+        InMemoryUserStore store = new InMemoryUserStore();
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ids.add(store.create(new User(UUID.randomUUID(), "User " + i, "user" + i + "@example.com")).id());
+        }
+
+        long[] sink = new long[1];
+        IntUnaryOperator encodeOnRead = i -> {
+            User user = store.findById(ids.get(i % count)).orElseThrow();
+            return Buffer.buffer(json(user).encode()).length();
+        };
+        IntUnaryOperator cached = i -> Buffer.buffer(
+            store.findEncodedById(ids.get(i % count)).orElseThrow().json()).length();
+
+        for (int round = 0; round < 2; round++) {
+            measure("JsonObject encode", encodeOnRead, reads, sink, round == 1);
+            measure("cached bytes", cached, reads, sink, round == 1);
+        }
+        assertTrue(sink[0] > 0);
+    }
+
+    private static void measure(String label, IntUnaryOperator read, int reads, long[] sink, boolean report) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int i = 0; i < reads; i++) {
+            sink[0] += read.applyAsInt(i);
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+        if (report) {
+            System.out.printf("%-18s %6.1f bytes/read, %5.0f ns/read%n",
+                label, (double) allocated / reads, (double) elapsed / reads);
+        }
+    }
+
+    // The JsonObject form the verticle built for every response before the encoding was cached
+    private static JsonObject json(User user) {
+        return new JsonObject()
+            .put("id", user.id().toString())
+            .put("name", user.name())
+            .put("email", user.email());
+    }
+}
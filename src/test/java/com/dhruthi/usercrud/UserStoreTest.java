@@ -1,12 +1,17 @@
 package com.dhruthi.usercrud;
 
+import com.dhruthi.usercrud.model.DuplicateEmailException;
 import com.dhruthi.usercrud.model.User;
 import com.dhruthi.usercrud.model.UserNotFoundException;
+import com.dhruthi.usercrud.model.VersionConflictException;
 import com.dhruthi.usercrud.store.InMemoryUserStore;
 import com.dhruthi.usercrud.store.UserStore;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
 import java.util.UUID;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
@@ -15,6 +20,7 @@ import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.fail;
@@ -25,7 +31,12 @@ class UserStoreTest {
 
     @BeforeEach
     void setUp() {
-        userStore = new InMemoryUserStore();
+        userStore = createStore();
+    }
+
+    // Other UserStore implementations run this whole suite by overriding the factory
+    UserStore createStore() {
+        return new InMemoryUserStore();
     }
 
     // === Positive Cases ===
@@ -77,8 +88,164 @@ class UserStoreTest {
         assertTrue(userStore.findById(created.id()).isEmpty());
     }
 
+    // Test to verify finding a user by email, ignoring case
+    @Test
+    void shouldFindUserByEmail() {
+        User created = userStore.create(new User(UUID.randomUUID(), "Carol", "Carol@Example.com"));
+
+        User found = userStore.findByEmail("carol@example.com").orElseThrow();
+
+        assertEquals(created.id(), found.id());
+        assertTrue(userStore.findByEmail("nobody@example.com").isEmpty());
+    }
+
+    // Test to verify the email index follows updates and deletes
+    @Test
+    void shouldReindexEmailOnUpdateAndDelete() throws UserNotFoundException {
+        User created = userStore.create(new User(UUID.randomUUID(), "Dave", "dave@example.com"));
+
+        userStore.update(created.id(), new User(created.id(), "Dave", "dave.new@example.com"));
+        assertTrue(userStore.findByEmail("dave@example.com").isEmpty());
+        assertEquals(created.id(), userStore.findByEmail("dave.new@example.com").orElseThrow().id());
+
+        userStore.delete(created.id());
+        assertTrue(userStore.findByEmail("dave.new@example.com").isEmpty());
+        userStore.create(new User(UUID.randomUUID(), "Other Dave", "dave.new@example.com"));
+    }
+
+    // Test to verify a batch create stores every user and reports duplicates as null entries
+    @Test
+    void shouldCreateAllUsersInBatch() {
+        userStore.create(new User(UUID.randomUUID(), "Taken", "taken@example.com"));
+
+        List<User> created = userStore.createAll(List.of(
+            new User(UUID.randomUUID(), "One", "one@example.com"),
+            new User(UUID.randomUUID(), "Dup", "taken@example.com"),
+            new User(UUID.randomUUID(), "Two", "two@example.com")));
+
+        assertEquals(3, created.size());
+        assertEquals("one@example.com", created.get(0).email());
+        assertNull(created.get(1));
+        assertEquals("two@example.com", created.get(2).email());
+        assertEquals(3, userStore.findAll().size());
+    }
+
+    // Test to verify that of two entries of one batch with the same email the first one wins, as if the
+    // batch were created in order, however the store runs the creates
+    @Test
+    void shouldLetFirstEntryWithAnEmailWinInBatch() {
+        for (int round = 0; round < 20; round++) {
+            String email = "dup" + round + "@example.com";
+            List<User> created = userStore.createAll(List.of(
+                new User(UUID.randomUUID(), "First", email),
+                new User(UUID.randomUUID(), "Other", "other" + round + "@example.com"),
+                new User(UUID.randomUUID(), "Second", email.toUpperCase(Locale.ROOT))));
+
+            assertEquals("First", created.get(0).name());
+            assertNull(created.get(2));
+            assertEquals("First", userStore.findByEmail(email).orElseThrow().name());
+        }
+    }
+
+    // Test to verify cursor paging visits every user once, in id order
+    @Test
+    void shouldPageThroughUsersInIdOrder() {
+        for (int i = 0; i < 25; i++) {
+            userStore.create(new User(UUID.randomUUID(), "User" + i, "page" + i + "@example.com"));
+        }
+
+        List<User> seen = new ArrayList<>();
+        List<Integer> pageSizes = new ArrayList<>();
+        UUID cursor = null;
+        List<User> page;
+        do {
+            page = userStore.findPage(cursor, 10);
+            pageSizes.add(page.size());
+            seen.addAll(page);
+            cursor = page.isEmpty() ? cursor : page.get(page.size() - 1).id();
+        } while (page.size() == 10);
+
+        assertEquals(List.of(10, 10, 5), pageSizes);
+        assertEquals(25, seen.stream().map(User::id).distinct().count());
+        for (int i = 1; i < seen.size(); i++) {
+            assertTrue(seen.get(i - 1).id().compareTo(seen.get(i).id()) < 0);
+        }
+    }
+
+    // Test to verify prefix search ignores case, orders by name and follows renames and deletes
+    @Test
+    void shouldFindUsersByNamePrefixInNameOrder() throws UserNotFoundException {
+        User carol = userStore.create(new User("Carol", "carol@example.com"));
+        User carla = userStore.create(new User("carla", "carla@example.com"));
+        User caroline = userStore.create(new User("Caroline", "caroline@example.com"));
+        userStore.create(new User("Oscar", "oscar@example.com"));
+
+        assertEquals(List.of(carla, carol, caroline), userStore.findByNamePrefix("CAR", 10));
+        assertEquals(List.of(carol, caroline), userStore.findByNamePrefix("caro", 10));
+        assertEquals(List.of(carla), userStore.findByNamePrefix("car", 1));
+        assertTrue(userStore.findByNamePrefix("carx", 10).isEmpty());
+
+        User renamed = userStore.update(carol.id(), new User(carol.id(), "Zoe", "carol@example.com"));
+        userStore.delete(carla.id());
+        assertEquals(List.of(caroline), userStore.findByNamePrefix("car", 10));
+        assertEquals(List.of(renamed), userStore.findByNamePrefix("z", 10));
+    }
+
+    // Test to verify versions start at 1 and a conditional update applies only to the expected version
+    @Test
+    void shouldApplyConditionalUpdateAtExpectedVersion() throws UserNotFoundException {
+        User created = userStore.create(new User(UUID.randomUUID(), "John Doe", "john@example.com"));
+        assertEquals(1, created.version());
+
+        User updated = userStore.update(created.id(), 1,
+            existing -> new User(existing.id(), existing.name(), "john.new@example.com"));
+
+        assertEquals(2, updated.version());
+        assertEquals("John Doe", updated.name());
+        assertEquals(updated, userStore.findById(created.id()).orElseThrow());
+        assertEquals(3, userStore.update(created.id(), created).version());
+    }
+
     // === Negative Cases ===
 
+    // Test to verify a conditional update against a stale version changes nothing
+    @Test
+    void shouldRejectUpdateAtStaleVersion() throws UserNotFoundException {
+        User created = userStore.create(new User(UUID.randomUUID(), "John Doe", "john@example.com"));
+        userStore.update(created.id(), new User(created.id(), "John Doe", "john.v2@example.com"));
+
+        VersionConflictException conflict = assertThrows(VersionConflictException.class, () ->
+            userStore.update(created.id(), 1, existing -> new User(existing.id(), "Stale", "stale@example.com")));
+
+        assertEquals(2, conflict.getCurrentVersion());
+        assertEquals("john.v2@example.com", userStore.findById(created.id()).orElseThrow().email());
+        assertTrue(userStore.findByEmail("stale@example.com").isEmpty());
+    }
+
+    // Test to verify creating a user with an email that is already taken is rejected
+    @Test
+    void shouldRejectDuplicateEmailOnCreate() {
+        userStore.create(new User(UUID.randomUUID(), "Erin", "erin@example.com"));
+
+        assertThrows(DuplicateEmailException.class, () ->
+            userStore.create(new User(UUID.randomUUID(), "Erin Again", "ERIN@example.com"))
+        );
+        assertEquals(1, userStore.findAll().size());
+    }
+
+    // Test to verify changing an email to one that is already taken is rejected
+    @Test
+    void shouldRejectDuplicateEmailOnUpdate() {
+        userStore.create(new User(UUID.randomUUID(), "Frank", "frank@example.com"));
+        User grace = userStore.create(new User(UUID.randomUUID(), "Grace", "grace@example.com"));
+
+        assertThrows(DuplicateEmailException.class, () ->
+            userStore.update(grace.id(), new User(grace.id(), "Grace", "frank@example.com"))
+        );
+        assertEquals("grace@example.com", userStore.findById(grace.id()).orElseThrow().email());
+        assertEquals(grace.id(), userStore.findByEmail("grace@example.com").orElseThrow().id());
+    }
+
     // Test to verify exception is thrown when updating a non-existent user
     @Test
     void shouldThrowExceptionWhenUserNotFound() {
@@ -126,6 +293,33 @@ class UserStoreTest {
         assertEquals(threadCount, userStore.findAll().size());
     }
 
+    // Test to verify only one of many concurrent creates with the same email wins
+    @Test
+    void shouldAllowOnlyOneConcurrentCreatePerEmail() throws InterruptedException {
+        int threadCount = 10;
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        CountDownLatch latch = new CountDownLatch(threadCount);
+
+        for (int i = 0; i < threadCount; i++) {
+            final int index = i;
+            executor.submit(() -> {
+                try {
+                    userStore.create(new User(UUID.randomUUID(), "User" + index, "same@example.com"));
+                } catch (DuplicateEmailException e) {
+                    // expected for all but one thread
+                } finally {
+                    latch.countDown();
+                }
+            });
+        }
+
+        latch.await(5, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        assertEquals(1, userStore.findAll().size());
+        assertTrue(userStore.findByEmail("same@example.com").isPresent());
+    }
+
     // Test to verify thread-safe user updates 
     @Test
     void shouldHandleConcurrentUpdates() throws InterruptedException, UserNotFoundException {
@@ -1,32 +1,47 @@
 package com.dhruthi.usercrud;
 
+import com.dhruthi.usercrud.model.User;
+import com.dhruthi.usercrud.store.InMemoryUserStore;
+import io.vertx.core.Future;
 import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.web.client.WebClient;
 import io.vertx.junit5.VertxExtension;
 import io.vertx.junit5.VertxTestContext;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 
 @ExtendWith(VertxExtension.class)
 class UserVerticleTest {
 
-    private static final int TEST_PORT = 8080;
     private WebClient webClient;
+    private int port;
 
     @BeforeEach
     void setUp(Vertx vertx, VertxTestContext testContext) {
         webClient = WebClient.create(vertx);
-        vertx.deployVerticle(new UserVerticle())
-            .onComplete(testContext.succeedingThenComplete());
+        Main.deploy(vertx, UserVerticle.Options.builder(new InMemoryUserStore()).port(0).build(), 1)
+            .onComplete(testContext.succeeding(deployment -> {
+                port = deployment.port();
+                testContext.completeNow();
+            }));
     }
 
     @AfterEach
@@ -34,6 +49,23 @@ class UserVerticleTest {
         vertx.close().onComplete(testContext.succeedingThenComplete());
     }
 
+    // === GET /metrics ===
+
+    @Test
+    void shouldServePrometheusMetrics(Vertx vertx, VertxTestContext testContext) {
+        webClient.get(port, "localhost", "/users/" + UUID.randomUUID()).send()
+            .compose(notFound -> webClient.get(port, "localhost", "/metrics").send())
+            .onComplete(testContext.succeeding(response -> testContext.verify(() -> {
+                assertEquals(200, response.statusCode());
+                assertTrue(response.getHeader("Content-Type").startsWith("text/plain"));
+                String body = response.bodyAsString();
+                assertTrue(body.contains("http_server_request_seconds_count{route=\"GET /users/:id\"} 1\n"));
+                assertTrue(body.contains("http_server_responses_total{route=\"GET /users/:id\",status=\"4xx\"} 1\n"));
+                assertTrue(body.contains("vertx_event_loop_lag_seconds_count"));
+                testContext.completeNow();
+            })));
+    }
+
     // === POST /users ===
 
     @Test
@@ -42,7 +74,7 @@ class UserVerticleTest {
             .put("name", "John Doe")
             .put("email", "john@example.com");
 
-        webClient.post(TEST_PORT, "localhost", "/users")
+        webClient.post(port, "localhost", "/users")
             .sendJsonObject(requestBody)
             .onComplete(testContext.succeeding(response -> testContext.verify(() -> {
                 assertEquals(201, response.statusCode());
@@ -63,8 +95,340 @@ class UserVerticleTest {
             .put("name", "John Doe")
             .put("email", "invalid-email");
 
-        webClient.post(TEST_PORT, "localhost", "/users")
+        webClient.post(port, "localhost", "/users")
+            .sendJsonObject(requestBody)
+            .onComplete(testContext.succeeding(response -> testContext.verify(() -> {
+                assertEquals(400, response.statusCode());
+                testContext.completeNow();
+            })));
+    }
+
+    @Test
+    void shouldReturn409ForDuplicateEmail(Vertx vertx, VertxTestContext testContext) {
+        JsonObject requestBody = new JsonObject()
+            .put("name", "John Doe")
+            .put("email", "john@example.com");
+
+        webClient.post(port, "localhost", "/users")
+            .sendJsonObject(requestBody)
+            .compose(first -> webClient.post(port, "localhost", "/users")
+                .sendJsonObject(requestBody.copy().put("name", "Johnny")))
+            .onComplete(testContext.succeeding(response -> testContext.verify(() -> {
+                assertEquals(409, response.statusCode());
+                testContext.completeNow();
+            })));
+    }
+
+    @Test
+    void shouldRejectNonStringName(Vertx vertx, VertxTestContext testContext) {
+        JsonObject requestBody = new JsonObject()
+            .put("name", 42)
+            .put("email", "john@example.com");
+
+        webClient.post(port, "localhost", "/users")
             .sendJsonObject(requestBody)
+            .onComplete(testContext.succeeding(response -> testContext.verify(() -> {
+                assertEquals(400, response.statusCode());
+                assertEquals("'name' must be a string", response.bodyAsJsonObject().getString("error"));
+                testContext.completeNow();
+            })));
+    }
+
+    @Test
+    void shouldReturn413ForOversizedBody(Vertx vertx, VertxTestContext testContext) {
+        JsonObject requestBody = new JsonObject()
+            .put("name", "x".repeat(UserVerticle.MAX_USER_BODY_BYTES))
+            .put("email", "john@example.com");
+
+        webClient.post(port, "localhost", "/users")
+            .sendJsonObject(requestBody)
+            .compose(created -> {
+                testContext.verify(() -> assertEquals(413, created.statusCode()));
+                return webClient.put(port, "localhost", "/users/" + UUID.randomUUID() + "/email")
+                    .sendJsonObject(new JsonObject().put("email", "x".repeat(UserVerticle.MAX_USER_BODY_BYTES)));
+            })
+            .onComplete(testContext.succeeding(response -> testContext.verify(() -> {
+                assertEquals(413, response.statusCode());
+                assertEquals(413, response.bodyAsJsonObject().getInteger("status"));
+                testContext.completeNow();
+            })));
+    }
+
+    // === POST /users:bulk ===
+
+    @Test
+    void shouldBulkImportUsersWithPerLineResults(Vertx vertx, VertxTestContext testContext) {
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < 1200; i++) {
+            body.append(new JsonObject().put("name", "Bulk " + i).put("email", "bulk" + i + "@example.com").encode())
+                .append('\n');
+        }
+        body.append("{\"name\":\"Bad\",\"email\":\"not-an-email\"}\n");
+        body.append("not json\n");
+        body.append("{\"name\":\"Again\",\"email\":\"bulk0@example.com\"}");
+
+        webClient.post(port, "localhost", "/users:bulk")
+            .putHeader("Content-Type", "application/x-ndjson")
+            .sendBuffer(Buffer.buffer(body.toString()))
+            .compose(response -> {
+                testContext.verify(() -> {
+                    assertEquals(200, response.statusCode());
+                    String[] lines = response.bodyAsString().split("\n");
+                    assertEquals(1203, lines.length);
+                    assertEquals(201, new JsonObject(lines[0]).getInteger("status"));
+                    assertEquals(1, new JsonObject(lines[0]).getInteger("line"));
+                    assertEquals(400, new JsonObject(lines[1200]).getInteger("status"));
+                    assertEquals(400, new JsonObject(lines[1201]).getInteger("status"));
+                    assertEquals(409, new JsonObject(lines[1202]).getInteger("status"));
+                });
+                return webClient.get(port, "localhost", "/users")
+                    .addQueryParam("email", "bulk1199@example.com")
+                    .send();
+            })
+            .onComplete(testContext.succeeding(response -> testContext.verify(() -> {
+                assertEquals(200, response.statusCode());
+                assertEquals("Bulk 1199", response.bodyAsJsonObject().getString("name"));
+                testContext.completeNow();
+            })));
+    }
+
+    // Test to verify blank lines are skipped, and a store failing with IllegalStateException aborts the import
+    // with 500 rather than being reported as an oversized line
+    @Test
+    void shouldReportStoreFailureDuringBulkImportAs500(Vertx vertx, VertxTestContext testContext) {
+        InMemoryUserStore failing = new InMemoryUserStore() {
+            @Override
+            public List<User> createAll(List<User> users) {
+                throw new IllegalStateException("Store unavailable");
+            }
+        };
+        String body = "  \r\n\n" + new JsonObject().put("name", "Bulk").put("email", "bulk@example.com").encode() + "\n";
+
+        Main.deploy(vertx, UserVerticle.Options.builder(failing).port(0).build(), 1)
+            .compose(deployment -> webClient.post(deployment.port(), "localhost", "/users:bulk")
+                .sendBuffer(Buffer.buffer(body)))
+            .onComplete(testContext.succeeding(response -> testContext.verify(() -> {
+                String[] lines = response.bodyAsString().split("\n");
+                assertEquals(1, lines.length);
+                JsonObject result = new JsonObject(lines[0]);
+                assertEquals(500, result.getInteger("status"));
+                assertEquals("Internal server error", result.getString("error"));
+                testContext.completeNow();
+            })));
+    }
+
+    // === POST /users:batchGet ===
+
+    @Test
+    void shouldBatchGetUsersAndReportMissingIds(Vertx vertx, VertxTestContext testContext) {
+        UUID missingId = UUID.randomUUID();
+
+        createUsers(3)
+            .compose(v -> webClient.get(port, "localhost", "/users").send())
+            .compose(list -> {
+                JsonArray ids = new JsonArray();
+                list.bodyAsJsonObject().getJsonArray("users")
+                    .forEach(user -> ids.add(((JsonObject) user).getString("id")));
+                ids.add(missingId.toString());
+                return webClient.post(port, "localhost", "/users:batchGet")
+                    .sendJsonObject(new JsonObject().put("ids", ids));
+            })
+            .onComplete(testContext.succeeding(response -> testContext.verify(() -> {
+                assertEquals(200, response.statusCode());
+                JsonObject body = response.bodyAsJsonObject();
+                assertEquals(3, body.getJsonArray("users").size());
+                assertEquals(new JsonArray().add(missingId.toString()), body.getJsonArray("missing"));
+                testContext.completeNow();
+            })));
+    }
+
+    @Test
+    void shouldRejectBatchGetWithInvalidId(Vertx vertx, VertxTestContext testContext) {
+        webClient.post(port, "localhost", "/users:batchGet")
+            .sendJsonObject(new JsonObject().put("ids", new JsonArray().add("not-a-uuid")))
+            .onComplete(testContext.succeeding(response -> testContext.verify(() -> {
+                assertEquals(400, response.statusCode());
+                testContext.completeNow();
+            })));
+    }
+
+    // Test to verify a body that is not JSON is a client error, not a server error
+    @Test
+    void shouldRejectBatchGetWithMalformedBody(Vertx vertx, VertxTestContext testContext) {
+        webClient.post(port, "localhost", "/users:batchGet")
+            .putHeader("Content-Type", "application/json")
+            .sendBuffer(Buffer.buffer("{\"ids\": [\"oops\""))
+            .onComplete(testContext.succeeding(response -> testContext.verify(() -> {
+                assertEquals(400, response.statusCode());
+                testContext.completeNow();
+            })));
+    }
+
+    // Compares resolving 500 ids with one batchGet against 500 concurrent single GETs
+    @Test
+    @Tag("perf")
+    void benchmarkBatchGetAgainstSingleGets(Vertx vertx, VertxTestContext testContext) throws Exception {
+        int batchSize = 500;
+        int rounds = 50;
+
+        createUsers(batchSize)
+            .compose(v -> webClient.get(port, "localhost", "/users").addQueryParam("limit", "1000").send())
+            .compose(list -> {
+                List<String> ids = list.bodyAsJsonObject().getJsonArray("users").stream()
+                    .map(user -> ((JsonObject) user).getString("id"))
+                    .collect(Collectors.toList());
+                JsonObject batchRequest = new JsonObject().put("ids", new JsonArray(new ArrayList<>(ids)));
+
+                // Warm up both paths, then time them
+                return repeat(rounds, () -> singleGets(ids))
+                    .compose(w -> repeat(rounds, () -> batchGet(batchRequest)))
+                    .compose(w -> {
+                        long start = System.nanoTime();
+                        return repeat(rounds, () -> singleGets(ids)).map(x -> System.nanoTime() - start);
+                    })
+                    .compose(singleNanos -> {
+                        long start = System.nanoTime();
+                        return repeat(rounds, () -> batchGet(batchRequest)).map(batchNanos -> {
+                            long elapsed = System.nanoTime() - start;
+                            System.out.printf("Resolving %d ids: %d single GETs %.2f ms, one batchGet %.2f ms%n",
+                                batchSize, batchSize, singleNanos / 1e6 / rounds, elapsed / 1e6 / rounds);
+                            return null;
+                        });
+                    });
+            })
+            .onComplete(testContext.succeedingThenComplete());
+
+        assertTrue(testContext.awaitCompletion(5, TimeUnit.MINUTES));
+    }
+
+    private Future<Void> singleGets(List<String> ids) {
+        List<Future<?>> gets = new ArrayList<>();
+        for (String id : ids) {
+            gets.add(webClient.get(port, "localhost", "/users/" + id).send());
+        }
+        return Future.all(gets).mapEmpty();
+    }
+
+    private Future<Void> batchGet(JsonObject request) {
+        return webClient.post(port, "localhost", "/users:batchGet").sendJsonObject(request).mapEmpty();
+    }
+
+    private Future<Void> repeat(int times, Supplier<Future<Void>> action) {
+        Future<Void> chain = Future.succeededFuture();
+        for (int i = 0; i < times; i++) {
+            chain = chain.compose(v -> action.get());
+        }
+        return chain;
+    }
+
+    // === GET /users?email= ===
+
+    @Test
+    void shouldGetUserByEmail(Vertx vertx, VertxTestContext testContext) {
+        JsonObject createRequest = new JsonObject()
+            .put("name", "Eve Adams")
+            .put("email", "eve@example.com");
+
+        webClient.post(port, "localhost", "/users")
+            .sendJsonObject(createRequest)
+            .compose(createResponse -> webClient.get(port, "localhost", "/users")
+                .addQueryParam("email", "EVE@example.com")
+                .send()
+                .map(response -> {
+                    testContext.verify(() -> {
+                        assertEquals(200, response.statusCode());
+                        assertEquals(createResponse.bodyAsJsonObject().getString("id"),
+                            response.bodyAsJsonObject().getString("id"));
+                    });
+                    return response;
+                }))
+            .compose(found -> webClient.get(port, "localhost", "/users")
+                .addQueryParam("email", "missing@example.com")
+                .send())
+            .onComplete(testContext.succeeding(response -> testContext.verify(() -> {
+                assertEquals(404, response.statusCode());
+                testContext.completeNow();
+            })));
+    }
+
+    // === GET /users/search ===
+
+    @Test
+    void shouldSearchUsersByNamePrefix(Vertx vertx, VertxTestContext testContext) {
+        List<Future<?>> creates = new ArrayList<>();
+        for (String name : List.of("Sam Stone", "samantha Reed", "Sally Park", "Tom Sams")) {
+            creates.add(webClient.post(port, "localhost", "/users")
+                .sendJsonObject(new JsonObject().put("name", name).put("email", name.replace(' ', '.') + "@example.com")));
+        }
+
+        Future.all(creates)
+            .compose(created -> webClient.get(port, "localhost", "/users/search")
+                .addQueryParam("namePrefix", "SAM")
+                .addQueryParam("limit", "5")
+                .send())
+            .compose(response -> {
+                testContext.verify(() -> {
+                    assertEquals(200, response.statusCode());
+                    List<String> names = response.bodyAsJsonObject().getJsonArray("users").stream()
+                        .map(user -> ((JsonObject) user).getString("name"))
+                        .collect(Collectors.toList());
+                    assertEquals(List.of("Sam Stone", "samantha Reed"), names);
+                });
+                return webClient.get(port, "localhost", "/users/search").send();
+            })
+            .onComplete(testContext.succeeding(response -> testContext.verify(() -> {
+                assertEquals(400, response.statusCode());
+                testContext.completeNow();
+            })));
+    }
+
+    // === GET /users ===
+
+    @Test
+    void shouldListUsersWithCursor(Vertx vertx, VertxTestContext testContext) {
+        createUsers(3)
+            .compose(v -> webClient.get(port, "localhost", "/users").addQueryParam("limit", "2").send())
+            .compose(firstPage -> {
+                JsonObject body = firstPage.bodyAsJsonObject();
+                testContext.verify(() -> {
+                    assertEquals(200, firstPage.statusCode());
+                    assertEquals(2, body.getJsonArray("users").size());
+                    assertNotNull(body.getString("nextCursor"));
+                });
+                return webClient.get(port, "localhost", "/users")
+                    .addQueryParam("limit", "2")
+                    .addQueryParam("cursor", body.getString("nextCursor"))
+                    .send();
+            })
+            .onComplete(testContext.succeeding(secondPage -> testContext.verify(() -> {
+                JsonObject body = secondPage.bodyAsJsonObject();
+                assertEquals(1, body.getJsonArray("users").size());
+                assertNull(body.getString("nextCursor"));
+                testContext.completeNow();
+            })));
+    }
+
+    @Test
+    void shouldStreamUsersAsNdjson(Vertx vertx, VertxTestContext testContext) {
+        createUsers(600)
+            .compose(v -> webClient.get(port, "localhost", "/users")
+                .putHeader("Accept", "application/x-ndjson")
+                .send())
+            .onComplete(testContext.succeeding(response -> testContext.verify(() -> {
+                assertEquals(200, response.statusCode());
+                assertEquals("application/x-ndjson", response.getHeader("Content-Type"));
+                String[] lines = response.bodyAsString().split("\n");
+                assertEquals(600, lines.length);
+                assertNotNull(new JsonObject(lines[599]).getString("id"));
+                testContext.completeNow();
+            })));
+    }
+
+    @Test
+    void shouldReturn400ForInvalidPageLimit(Vertx vertx, VertxTestContext testContext) {
+        webClient.get(port, "localhost", "/users")
+            .addQueryParam("limit", "0")
+            .send()
             .onComplete(testContext.succeeding(response -> testContext.verify(() -> {
                 assertEquals(400, response.statusCode());
                 testContext.completeNow();
@@ -80,11 +444,11 @@ class UserVerticleTest {
             .put("name", "Jane Smith")
             .put("email", "jane@example.com");
 
-        webClient.post(TEST_PORT, "localhost", "/users")
+        webClient.post(port, "localhost", "/users")
             .sendJsonObject(createRequest)
             .compose(createResponse -> {
                 String userId = createResponse.bodyAsJsonObject().getString("id");
-                return webClient.get(TEST_PORT, "localhost", "/users/" + userId).send();
+                return webClient.get(port, "localhost", "/users/" + userId).send();
             })
             .onComplete(testContext.succeeding(response -> testContext.verify(() -> {
                 assertEquals(200, response.statusCode());
@@ -94,11 +458,36 @@ class UserVerticleTest {
             })));
     }
 
+    @Test
+    void shouldReturn304WhenETagMatches(Vertx vertx, VertxTestContext testContext) {
+        JsonObject createRequest = new JsonObject()
+            .put("name", "Jane Smith")
+            .put("email", "jane@example.com");
+
+        webClient.post(port, "localhost", "/users")
+            .sendJsonObject(createRequest)
+            .compose(createResponse -> {
+                String userId = createResponse.bodyAsJsonObject().getString("id");
+                return webClient.get(port, "localhost", "/users/" + userId).send()
+                    .compose(first -> {
+                        assertEquals("\"1\"", first.getHeader("ETag"));
+                        return webClient.get(port, "localhost", "/users/" + userId)
+                            .putHeader("If-None-Match", first.getHeader("ETag"))
+                            .send();
+                    });
+            })
+            .onComplete(testContext.succeeding(response -> testContext.verify(() -> {
+                assertEquals(304, response.statusCode());
+                assertNull(response.body());
+                testContext.completeNow();
+            })));
+    }
+
     @Test
     void shouldReturn404WhenUserNotFound(Vertx vertx, VertxTestContext testContext) {
         UUID nonExistentId = UUID.randomUUID();
 
-        webClient.get(TEST_PORT, "localhost", "/users/" + nonExistentId)
+        webClient.get(port, "localhost", "/users/" + nonExistentId)
             .send()
             .onComplete(testContext.succeeding(response -> testContext.verify(() -> {
                 assertEquals(404, response.statusCode());
@@ -108,7 +497,7 @@ class UserVerticleTest {
 
     @Test
     void shouldReturn400ForInvalidUUID(Vertx vertx, VertxTestContext testContext) {
-        webClient.get(TEST_PORT, "localhost", "/users/invalid-uuid")
+        webClient.get(port, "localhost", "/users/invalid-uuid")
             .send()
             .onComplete(testContext.succeeding(response -> testContext.verify(() -> {
                 assertEquals(400, response.statusCode());
@@ -124,12 +513,12 @@ class UserVerticleTest {
             .put("name", "Bob Jones")
             .put("email", "bob@example.com");
 
-        webClient.post(TEST_PORT, "localhost", "/users")
+        webClient.post(port, "localhost", "/users")
             .sendJsonObject(createRequest)
             .compose(createResponse -> {
                 String userId = createResponse.bodyAsJsonObject().getString("id");
                 JsonObject updateRequest = new JsonObject().put("email", "bob.jones@example.com");
-                return webClient.put(TEST_PORT, "localhost", "/users/" + userId + "/email")
+                return webClient.put(port, "localhost", "/users/" + userId + "/email")
                     .sendJsonObject(updateRequest);
             })
             .onComplete(testContext.succeeding(response -> testContext.verify(() -> {
@@ -142,22 +531,81 @@ class UserVerticleTest {
 
     // === DELETE /users/:id ===
 
+    @Test
+    void shouldRejectEmailUpdateWithStaleIfMatch(Vertx vertx, VertxTestContext testContext) {
+        JsonObject createRequest = new JsonObject()
+            .put("name", "Bob Jones")
+            .put("email", "bob@example.com");
+
+        webClient.post(port, "localhost", "/users")
+            .sendJsonObject(createRequest)
+            .compose(createResponse -> {
+                String path = "/users/" + createResponse.bodyAsJsonObject().getString("id") + "/email";
+                String etag = createResponse.getHeader("ETag");
+                return webClient.put(port, "localhost", path)
+                    .putHeader("If-Match", etag)
+                    .sendJsonObject(new JsonObject().put("email", "bob.v2@example.com"))
+                    .compose(first -> {
+                        assertEquals(200, first.statusCode());
+                        assertEquals("\"2\"", first.getHeader("ETag"));
+                        // A second writer still holding the original ETag must not overwrite the change
+                        return webClient.put(port, "localhost", path)
+                            .putHeader("If-Match", etag)
+                            .sendJsonObject(new JsonObject().put("email", "bob.v3@example.com"));
+                    });
+            })
+            .onComplete(testContext.succeeding(response -> testContext.verify(() -> {
+                assertEquals(412, response.statusCode());
+                assertEquals("\"2\"", response.getHeader("ETag"));
+                testContext.completeNow();
+            })));
+    }
+
+    // Test to verify an If-Match list applies the update when any of its tags is the current version
+    @Test
+    void shouldUpdateEmailWhenAnyIfMatchTagMatches(Vertx vertx, VertxTestContext testContext) {
+        JsonObject createRequest = new JsonObject()
+            .put("name", "Bob Jones")
+            .put("email", "bob@example.com");
+
+        webClient.post(port, "localhost", "/users")
+            .sendJsonObject(createRequest)
+            .compose(createResponse -> {
+                String path = "/users/" + createResponse.bodyAsJsonObject().getString("id") + "/email";
+                return webClient.put(port, "localhost", path)
+                    .putHeader("If-Match", "\"3\", W/\"1\", \"1\"")
+                    .sendJsonObject(new JsonObject().put("email", "bob.v2@example.com"))
+                    .compose(first -> {
+                        assertEquals(200, first.statusCode());
+                        assertEquals("\"2\"", first.getHeader("ETag"));
+                        return webClient.put(port, "localhost", path)
+                            .putHeader("If-Match", "\"1\", \"3\"")
+                            .sendJsonObject(new JsonObject().put("email", "bob.v3@example.com"));
+                    });
+            })
+            .onComplete(testContext.succeeding(response -> testContext.verify(() -> {
+                assertEquals(412, response.statusCode());
+                assertEquals("\"2\"", response.getHeader("ETag"));
+                testContext.completeNow();
+            })));
+    }
+
     @Test
     void shouldDeleteUser(Vertx vertx, VertxTestContext testContext) {
         JsonObject createRequest = new JsonObject()
             .put("name", "Alice Brown")
             .put("email", "alice@example.com");
 
-        webClient.post(TEST_PORT, "localhost", "/users")
+        webClient.post(port, "localhost", "/users")
             .sendJsonObject(createRequest)
             .compose(createResponse -> {
                 String userId = createResponse.bodyAsJsonObject().getString("id");
-                return webClient.delete(TEST_PORT, "localhost", "/users/" + userId)
+                return webClient.delete(port, "localhost", "/users/" + userId)
                     .send()
                     .compose(deleteResponse -> {
                         testContext.verify(() -> assertEquals(204, deleteResponse.statusCode()));
                         // Verify user is deleted
-                        return webClient.get(TEST_PORT, "localhost", "/users/" + userId).send();
+                        return webClient.get(port, "localhost", "/users/" + userId).send();
                     });
             })
             .onComplete(testContext.succeeding(response -> testContext.verify(() -> {
@@ -165,4 +613,15 @@ class UserVerticleTest {
                 testContext.completeNow();
             })));
     }
+
+    private Future<Void> createUsers(int count) {
+        List<Future<?>> creates = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            JsonObject request = new JsonObject()
+                .put("name", "User " + i)
+                .put("email", "user" + i + "@example.com");
+            creates.add(webClient.post(port, "localhost", "/users").sendJsonObject(request));
+        }
+        return Future.all(creates).mapEmpty();
+    }
 }